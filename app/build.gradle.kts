@@ -88,6 +88,11 @@ tasks {
     }
 }
     
+    named<JavaExec>("run") {
+        // Modo desarrollo: falla si el hilo de JavaFX hace JDBC (ver AsyncDatabase)
+        systemProperty("cafeteriapos.dev", "true")
+    }
+    
     test {
         useJUnitPlatform()
         testLogging {
@@ -4,15 +4,31 @@ import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import com.cafeteriapos.analytics.ProductRotationIndex;
+import com.cafeteriapos.analytics.TicketDistributionService;
+import com.cafeteriapos.archive.SalesArchive;
+import com.cafeteriapos.backup.IncrementalBackupEngine;
+import com.cafeteriapos.journal.SalesJournal;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.performance.FxStallWatchdog;
+import com.cafeteriapos.performance.MemoryPressureMonitor;
+import com.cafeteriapos.performance.MetricsHttpServer;
+import com.cafeteriapos.utils.AsyncDatabase;
 import com.cafeteriapos.utils.DatabaseManager;
+import com.cafeteriapos.utils.SalesGroupCommitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class Main extends Application {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     
+    /**
+     * Inicialización de la base y los servicios en el hilo del launcher, no en el de JavaFX:
+     * el hilo FX no hace JDBC (ver AsyncDatabase)
+     */
     @Override
-    public void start(Stage primaryStage) throws Exception {
+    public void init() throws Exception {
         logger.info("Iniciando Sistema POS con H2 Database en modo PostgreSQL...");
         
         try {
@@ -22,25 +38,63 @@ public class Main extends Application {
             // Inicializar productos base si no existen
             DatabaseManager.inicializarProductosBasesSiNoExisten();
             
+            // Sketch de tickets e índice de rotación del día: deben escuchar ventas desde el arranque
+            TicketDistributionService.getInstance();
+            ProductRotationIndex.getInstance();
+            
+            // Journal de ventas: después de los oyentes, reaplica las ventas que quedaron sin pasar a la base
+            SalesJournal.getInstance();
+            
+            // Presión de memoria: reduce cachés por notificaciones de la JVM, sin System.gc()
+            MemoryPressureMonitor.getInstance().iniciar();
+            
+            // Métricas Prometheus en loopback, solo con -Dcafeteriapos.metricas.puerto
+            MetricsHttpServer.getInstance().iniciarSiConfigurado();
+            
+            registrarCierre();
+            
             logger.info("Sistema POS inicializado correctamente con H2 Database");
             
         } catch (Exception e) {
             logger.error("Error crítico inicializando sistema: {}", e.getMessage());
             throw e;
         }
-        
+    }
+    
+    @Override
+    public void start(Stage primaryStage) throws Exception {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/cafeteriapos/views/LoginView.fxml"));
         Scene scene = new Scene(loader.load());
         primaryStage.setTitle("Inicio de Sesión - Sistema POS");
         primaryStage.setScene(scene);
         primaryStage.show();
         
+        // Vigilancia del hilo FX: detecta y registra los congelamientos de la interfaz
+        FxStallWatchdog.getInstance().iniciar();
+        
         // Shutdown hook para cerrar conexión H2 correctamente
         primaryStage.setOnCloseRequest(event -> {
             logger.info("Cerrando Sistema POS...");
+            ExecutorRegistry.getInstance().cerrarTodo();
             DatabaseManager.cerrarConexion();
         });
     }
+    
+    /**
+     * Orden de cierre: primero la interfaz y la analítica (dejan de leer la base), luego el
+     * backup y por último la escritura de ventas; la conexión se cierra después de todo
+     */
+    private static void registrarCierre() {
+        ExecutorRegistry ejecutores = ExecutorRegistry.getInstance();
+        ejecutores.alCerrar(FaseCierre.ANALITICA, "MemoryPressureMonitor", MemoryPressureMonitor.getInstance()::detener);
+        ejecutores.alCerrar(FaseCierre.ANALITICA, "TicketDistribution", TicketDistributionService.getInstance()::shutdown);
+        ejecutores.alCerrar(FaseCierre.ANALITICA, "ProductRotation", ProductRotationIndex.getInstance()::shutdown);
+        ejecutores.alCerrar(FaseCierre.RESPALDO, "IncrementalBackup", () -> IncrementalBackupEngine.getInstance().shutdown());
+        ejecutores.alCerrar(FaseCierre.PERSISTENCIA, "SalesArchive", () -> SalesArchive.getInstance().cerrar());
+        ejecutores.alCerrar(FaseCierre.PERSISTENCIA, "SalesJournal", SalesJournal.getInstance()::shutdown);
+        ejecutores.alCerrar(FaseCierre.PERSISTENCIA, "SalesGroupCommitter", () -> SalesGroupCommitter.getInstance().shutdown());
+        ejecutores.alCerrar(FaseCierre.PERSISTENCIA, "AsyncDatabase", () -> AsyncDatabase.getInstance().shutdown());
+    }
 
     public static void main(String[] args) {
         launch(args);
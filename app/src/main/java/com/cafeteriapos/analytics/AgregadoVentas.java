@@ -0,0 +1,101 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resultado parcial de agregación de ventas
+ * Acumula totales, conteos, sumas por producto y un histograma de montos.
+ * Dos parciales se combinan con {@link #combinar(AgregadoVentas)} en cualquier orden
+ */
+public class AgregadoVentas {
+
+    private long transacciones = 0;
+    private double ingresos = 0.0;
+    // Compensación de Kahan para que la suma no dependa del orden de combinación
+    private double compensacion = 0.0;
+
+    private final Map<String, Long> unidadesPorProducto = new HashMap<>();
+    private final Map<String, Double> ingresosPorProducto = new HashMap<>();
+    private final LogHistogram montos = new LogHistogram();
+
+    /**
+     * Incorpora una venta al parcial
+     * En los items de una venta el stock del producto representa la cantidad vendida
+     */
+    public void agregar(Venta venta) {
+        transacciones++;
+        sumarIngreso(venta.getTotal());
+        montos.registrar(venta.getTotal());
+
+        if (venta.getItems() == null) {
+            return;
+        }
+        for (Producto item : venta.getItems()) {
+            if (item.getNombre() == null) continue;
+            String nombre = item.getNombre().trim();
+            int cantidad = item.getStock();
+            unidadesPorProducto.merge(nombre, (long) cantidad, Long::sum);
+            ingresosPorProducto.merge(nombre, item.getPrecio() * cantidad, Double::sum);
+        }
+    }
+
+    /**
+     * Suma otro parcial a este y devuelve este mismo objeto
+     */
+    public AgregadoVentas combinar(AgregadoVentas otro) {
+        transacciones += otro.transacciones;
+        sumarIngreso(otro.ingresos);
+        sumarIngreso(-otro.compensacion);
+        otro.unidadesPorProducto.forEach((nombre, unidades) ->
+            unidadesPorProducto.merge(nombre, unidades, Long::sum));
+        otro.ingresosPorProducto.forEach((nombre, monto) ->
+            ingresosPorProducto.merge(nombre, monto, Double::sum));
+        montos.combinar(otro.montos);
+        return this;
+    }
+
+    private void sumarIngreso(double valor) {
+        double y = valor - compensacion;
+        double t = ingresos + y;
+        compensacion = (t - ingresos) - y;
+        ingresos = t;
+    }
+
+    // === GETTERS ===
+
+    public long getTransacciones() { return transacciones; }
+    public double getIngresos() { return ingresos; }
+
+    public double getTicketPromedio() {
+        return transacciones > 0 ? ingresos / transacciones : 0.0;
+    }
+
+    /**
+     * Monto de venta en el cuantil {@code q} (0.5 = mediana)
+     */
+    public double getCuantilTicket(double q) {
+        return montos.cuantil(q);
+    }
+
+    public double getTicketMinimo() { return montos.getMinimo(); }
+    public double getTicketMaximo() { return montos.getMaximo(); }
+
+    public Map<String, Long> getUnidadesPorProducto() {
+        return Collections.unmodifiableMap(unidadesPorProducto);
+    }
+
+    public Map<String, Double> getIngresosPorProducto() {
+        return Collections.unmodifiableMap(ingresosPorProducto);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AgregadoVentas{transacciones=%d, ingresos=%.2f, productos=%d}",
+            transacciones, ingresos, unidadesPorProducto.size());
+    }
+}
@@ -0,0 +1,319 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.events.AlertaAnomalia;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.VentaRegistrada;
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Detector de anomalías en tiempo real sobre el flujo de ventas
+ * Mantiene promedio y varianza exponenciales (EWMA) por hora del día y los
+ * actualiza con cada venta en O(1). Publica alertas tipadas en el
+ * EventBus. Sin actividad no consume nada salvo un temporizador de silencio
+ * que solo se arma en horas en las que normalmente hay ventas
+ */
+public class AnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyDetector.class);
+
+    // === CONFIGURACIÓN ===
+    private static final double ALFA_TICKET = 0.05;
+    private static final double ALFA_HORA = 0.2;
+    private static final int MUESTRAS_MINIMAS_TICKET = 30;
+    private static final int MUESTRAS_MINIMAS_HORA = 5;
+    private static final double UMBRAL_Z_TICKET = 4.0;
+    private static final double UMBRAL_Z_HORA = 3.0;
+
+    // Solo se vigila el silencio en horas con al menos este ritmo habitual
+    private static final double VENTAS_HORA_MINIMAS_SILENCIO = 2.0;
+    private static final double FACTOR_SILENCIO = 6.0;
+    private static final Duration SILENCIO_MINIMO = Duration.ofMinutes(5);
+    private static final Duration SILENCIO_MAXIMO = Duration.ofMinutes(60);
+
+    private static final Duration ESPERA_ENTRE_ALERTAS = Duration.ofMinutes(15);
+
+    // === ESTADÍSTICAS POR HORA DEL DÍA ===
+    private final EstadisticaEwma[] ticketPorHora = new EstadisticaEwma[24];
+    private final EstadisticaEwma[] ingresoPorHora = new EstadisticaEwma[24];
+    private final EstadisticaEwma[] ventasPorHora = new EstadisticaEwma[24];
+
+    // === ACUMULADORES DE LA HORA EN CURSO (protegidos por this) ===
+    private LocalDateTime horaActual;
+    private double ingresoHoraActual = 0.0;
+    private int ventasHoraActual = 0;
+    private boolean alertaIngresoHoraEmitida = false;
+    private LocalDateTime ultimaVenta;
+
+    // === DEPENDENCIAS ===
+    private final Consumer<AlertaAnomalia> publicador;
+    private final Supplier<LocalDateTime> reloj;
+    private final ScheduledExecutorService temporizador;
+    private ScheduledFuture<?> vigilanciaSilencio;
+    private final List<EventBus.Suscripcion> suscripciones = new ArrayList<>();
+
+    private final Map<AlertaAnomalia.Tipo, LocalDateTime> ultimaAlerta = new EnumMap<>(AlertaAnomalia.Tipo.class);
+    private final AtomicLong alertasEmitidas = new AtomicLong(0);
+    private final AtomicLong eventosProcesados = new AtomicLong(0);
+
+    /**
+     * Detector que publica en el EventBus y usa un temporizador propio
+     */
+    public AnomalyDetector() {
+        this(EventBus.getInstance()::publish, LocalDateTime::now,
+            ExecutorRegistry.getInstance().programado("AnomalyDetector-Silencio", FaseCierre.ANALITICA));
+    }
+
+    /**
+     * Constructor con publicador, reloj y temporizador inyectables (útil para tests)
+     */
+    AnomalyDetector(Consumer<AlertaAnomalia> publicador, Supplier<LocalDateTime> reloj,
+                    ScheduledExecutorService temporizador) {
+        this.publicador = publicador;
+        this.reloj = reloj;
+        this.temporizador = temporizador;
+        for (int h = 0; h < 24; h++) {
+            ticketPorHora[h] = new EstadisticaEwma(ALFA_TICKET);
+            ingresoPorHora[h] = new EstadisticaEwma(ALFA_HORA);
+            ventasPorHora[h] = new EstadisticaEwma(ALFA_HORA);
+        }
+    }
+
+    // === CICLO DE VIDA ===
+
+    /**
+     * Se suscribe a las ventas registradas
+     */
+    public void iniciar() {
+        EventBus bus = EventBus.getInstance();
+        suscripciones.add(bus.subscribe(VentaRegistrada.class, evento -> registrarVenta(evento.getVenta())));
+        logger.info("Detector de anomalías suscrito a ventas");
+    }
+
+    public void detener() {
+        suscripciones.forEach(EventBus.Suscripcion::cancelar);
+        suscripciones.clear();
+        temporizador.shutdownNow();
+    }
+
+    /**
+     * Inicializa las estadísticas con ventas históricas, sin emitir alertas
+     * Las ventas deben venir en orden cronológico
+     */
+    public synchronized void entrenar(List<Venta> historicas) {
+        for (Venta venta : historicas) {
+            avanzarHora(venta.getFechaHora());
+            ticketPorHora[venta.getFechaHora().getHour()].actualizar(venta.getTotal());
+            ingresoHoraActual += venta.getTotal();
+            ventasHoraActual++;
+        }
+        logger.info("Detector de anomalías entrenado con {} ventas históricas", historicas.size());
+    }
+
+    // === EVENTOS ===
+
+    /**
+     * Procesa una venta: actualiza la hora en curso y evalúa ticket e ingreso acumulado
+     * Una venta de una hora ya cerrada (p. ej. aplicada tarde desde el journal) solo cuenta
+     * para el ticket habitual de su hora: no suma a la hora en curso ni atrasa la última venta
+     */
+    public void registrarVenta(Venta venta) {
+        List<AlertaAnomalia> alertas = new ArrayList<>(2);
+        LocalDateTime fechaHora = venta.getFechaHora();
+        double monto = venta.getTotal();
+
+        synchronized (this) {
+            eventosProcesados.incrementAndGet();
+            avanzarHora(fechaHora);
+            int hora = fechaHora.getHour();
+
+            // Ticket individual fuera de lo habitual para esta hora
+            EstadisticaEwma ticket = ticketPorHora[hora];
+            if (ticket.getMuestras() >= MUESTRAS_MINIMAS_TICKET && monto > ticket.getMedia()
+                    && ticket.puntajeZ(monto) > UMBRAL_Z_TICKET) {
+                alertas.add(new AlertaAnomalia(AlertaAnomalia.Tipo.INGRESO_INUSUAL,
+                    String.format("Venta %s de $%.2f muy por encima del ticket habitual a las %02d h ($%.2f)",
+                        venta.getId(), monto, hora, ticket.getMedia()),
+                    monto, ticket.getMedia()));
+            }
+            ticket.actualizar(monto);
+
+            if (!fechaHora.truncatedTo(ChronoUnit.HOURS).isBefore(horaActual)) {
+                ingresoHoraActual += monto;
+                ventasHoraActual++;
+                if (ultimaVenta == null || fechaHora.isAfter(ultimaVenta)) {
+                    ultimaVenta = fechaHora;
+                }
+
+                // Ingreso acumulado de la hora por encima del rango habitual (una vez por hora)
+                EstadisticaEwma ingresoHora = ingresoPorHora[hora];
+                if (!alertaIngresoHoraEmitida && ingresoHora.getMuestras() >= MUESTRAS_MINIMAS_HORA
+                        && ingresoHoraActual > ingresoHora.getMedia() + UMBRAL_Z_HORA * ingresoHora.getDesviacion()
+                        && ingresoHoraActual > ingresoHora.getMedia() * 1.5) {
+                    alertaIngresoHoraEmitida = true;
+                    alertas.add(new AlertaAnomalia(AlertaAnomalia.Tipo.INGRESO_INUSUAL,
+                        String.format("Ingreso de la hora %02d h ($%.2f) supera el rango habitual ($%.2f)",
+                            hora, ingresoHoraActual, ingresoHora.getMedia()),
+                        ingresoHoraActual, ingresoHora.getMedia()));
+                }
+
+                rearmarVigilanciaSilencio(hora);
+            }
+        }
+
+        alertas.forEach(this::emitir);
+    }
+
+    /**
+     * Comprueba si la terminal lleva demasiado tiempo sin ventas en una hora habitualmente activa
+     * La invoca el temporizador armado con la última venta
+     */
+    void verificarSilencio() {
+        AlertaAnomalia alerta = null;
+        LocalDateTime ahora = reloj.get();
+
+        synchronized (this) {
+            vigilanciaSilencio = null;
+            EstadisticaEwma habitual = ventasPorHora[ahora.getHour()];
+            boolean silencioCumplido = ultimaVenta == null
+                || !ahora.isBefore(ultimaVenta.plus(calcularSilencio(habitual)));
+            if (silencioCumplido && habitual.getMuestras() >= MUESTRAS_MINIMAS_HORA
+                    && habitual.getMedia() >= VENTAS_HORA_MINIMAS_SILENCIO) {
+                alerta = new AlertaAnomalia(AlertaAnomalia.Tipo.TERMINAL_SILENCIOSA,
+                    String.format("Sin ventas desde hace %d minutos; a las %02d h suelen registrarse %.1f ventas por hora",
+                        calcularSilencio(habitual).toMinutes(), ahora.getHour(), habitual.getMedia()),
+                    0, habitual.getMedia());
+            }
+        }
+
+        if (alerta != null) {
+            emitir(alerta);
+        }
+    }
+
+    // === MÉTODOS PRIVADOS ===
+
+    /**
+     * Cierra las horas transcurridas desde la última actividad y las incorpora a sus promedios
+     * Las horas sin actividad cuentan como cero (máximo un día completo)
+     */
+    private void avanzarHora(LocalDateTime fechaHora) {
+        LocalDateTime hora = fechaHora.truncatedTo(ChronoUnit.HOURS);
+        if (horaActual == null) {
+            horaActual = hora;
+            return;
+        }
+        if (!hora.isAfter(horaActual)) {
+            return;
+        }
+
+        long horasTranscurridas = Math.min(ChronoUnit.HOURS.between(horaActual, hora), 24);
+        for (long i = 0; i < horasTranscurridas; i++) {
+            int h = horaActual.plusHours(i).getHour();
+            boolean cerrada = i == 0;
+            ingresoPorHora[h].actualizar(cerrada ? ingresoHoraActual : 0.0);
+            ventasPorHora[h].actualizar(cerrada ? ventasHoraActual : 0);
+        }
+
+        horaActual = hora;
+        ingresoHoraActual = 0.0;
+        ventasHoraActual = 0;
+        alertaIngresoHoraEmitida = false;
+    }
+
+    private void rearmarVigilanciaSilencio(int hora) {
+        if (vigilanciaSilencio != null) {
+            vigilanciaSilencio.cancel(false);
+            vigilanciaSilencio = null;
+        }
+        EstadisticaEwma habitual = ventasPorHora[hora];
+        if (habitual.getMuestras() < MUESTRAS_MINIMAS_HORA || habitual.getMedia() < VENTAS_HORA_MINIMAS_SILENCIO) {
+            return;
+        }
+        try {
+            vigilanciaSilencio = temporizador.schedule(this::verificarSilencio,
+                calcularSilencio(habitual).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Temporizador de silencio detenido");
+        }
+    }
+
+    private static Duration calcularSilencio(EstadisticaEwma ventasHora) {
+        double minutosEntreVentas = 60.0 / Math.max(ventasHora.getMedia(), 0.1);
+        long minutos = Math.round(minutosEntreVentas * FACTOR_SILENCIO);
+        return Duration.ofMinutes(Math.max(SILENCIO_MINIMO.toMinutes(), Math.min(SILENCIO_MAXIMO.toMinutes(), minutos)));
+    }
+
+    private void emitir(AlertaAnomalia alerta) {
+        LocalDateTime ahora = reloj.get();
+        synchronized (ultimaAlerta) {
+            LocalDateTime anterior = ultimaAlerta.get(alerta.getTipo());
+            if (anterior != null && ahora.isBefore(anterior.plus(ESPERA_ENTRE_ALERTAS))) {
+                logger.debug("Alerta {} suprimida por espera entre alertas", alerta.getTipo());
+                return;
+            }
+            ultimaAlerta.put(alerta.getTipo(), ahora);
+        }
+        alertasEmitidas.incrementAndGet();
+        logger.warn("⚠️ Anomalía detectada - {}", alerta);
+        publicador.accept(alerta);
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public long getAlertasEmitidas() { return alertasEmitidas.get(); }
+    public long getEventosProcesados() { return eventosProcesados.get(); }
+
+    synchronized double getTicketMedio(int hora) { return ticketPorHora[hora].getMedia(); }
+    synchronized double getVentasHoraMedia(int hora) { return ventasPorHora[hora].getMedia(); }
+    synchronized boolean isVigilanciaSilencioArmada() { return vigilanciaSilencio != null; }
+
+    // === CLASES INTERNAS ===
+
+    /**
+     * Promedio y varianza exponenciales de una serie
+     */
+    static class EstadisticaEwma {
+        private final double alfa;
+        private double media = 0.0;
+        private double varianza = 0.0;
+        private long muestras = 0;
+
+        EstadisticaEwma(double alfa) {
+            this.alfa = alfa;
+        }
+
+        void actualizar(double valor) {
+            if (muestras++ == 0) {
+                media = valor;
+                return;
+            }
+            double diferencia = valor - media;
+            double incremento = alfa * diferencia;
+            media += incremento;
+            varianza = (1 - alfa) * (varianza + diferencia * incremento);
+        }
+
+        double puntajeZ(double valor) {
+            double desviacion = getDesviacion();
+            // Piso relativo para series casi constantes
+            return Math.abs(valor - media) / Math.max(desviacion, Math.abs(media) * 0.05 + 1e-9);
+        }
+
+        double getMedia() { return media; }
+        double getDesviacion() { return Math.sqrt(varianza); }
+        long getMuestras() { return muestras; }
+    }
+}
@@ -0,0 +1,185 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.EstadoDemanda;
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.PronosticoProducto;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Pronóstico de demanda diaria por producto con suavizado exponencial Holt-Winters
+ * (nivel, tendencia y estacionalidad semanal aditiva)
+ * El estado de cada producto se actualiza una vez por día en O(1), por lo que
+ * un ciclo nocturno solo procesa los días nuevos desde la última ejecución
+ */
+public class DemandForecaster {
+
+    // === PARÁMETROS DE SUAVIZADO ===
+    private static final double ALFA = 0.3;
+    private static final double BETA = 0.05;
+    private static final double GAMMA = 0.2;
+    private static final int PERIODO = 7;
+
+    // Horizonte máximo para estimar agotamiento
+    public static final int HORIZONTE_DIAS = 60;
+
+    private final Map<String, Estado> estados = new HashMap<>();
+
+    // === CARGA Y PERSISTENCIA ===
+
+    /**
+     * Reemplaza el estado en memoria por el persistido
+     */
+    public void cargar(Collection<EstadoDemanda> persistidos) {
+        estados.clear();
+        for (EstadoDemanda e : persistidos) {
+            estados.put(e.getProducto(), new Estado(e.getNivel(), e.getTendencia(),
+                Arrays.copyOf(e.getEstacionalidad(), PERIODO), e.getUltimoDia(), e.getDiasObservados()));
+        }
+    }
+
+    /**
+     * Estado actual de todos los productos, para persistirlo
+     */
+    public List<EstadoDemanda> exportar() {
+        List<EstadoDemanda> resultado = new ArrayList<>(estados.size());
+        estados.forEach((producto, e) -> resultado.add(new EstadoDemanda(producto, e.nivel, e.tendencia,
+            e.estacionalidad.clone(), e.ultimoDia, e.diasObservados)));
+        return resultado;
+    }
+
+    /**
+     * Último día incorporado (el más antiguo entre productos), o vacío si no hay estado
+     */
+    public Optional<LocalDate> getUltimoDiaProcesado() {
+        return estados.values().stream().map(e -> e.ultimoDia).min(LocalDate::compareTo);
+    }
+
+    // === ACTUALIZACIÓN ===
+
+    /**
+     * Incorpora las unidades vendidas de un día
+     * Los productos conocidos que no aparecen vendieron cero ese día
+     */
+    public void actualizarDia(LocalDate dia, Map<String, Integer> unidadesPorProducto) {
+        for (Map.Entry<String, Estado> entry : estados.entrySet()) {
+            if (!unidadesPorProducto.containsKey(entry.getKey())) {
+                entry.getValue().actualizar(dia, 0);
+            }
+        }
+        unidadesPorProducto.forEach((producto, unidades) -> {
+            Estado estado = estados.get(producto);
+            if (estado == null) {
+                estados.put(producto, Estado.inicial(dia, unidades));
+            } else {
+                estado.actualizar(dia, unidades);
+            }
+        });
+    }
+
+    // === PRONÓSTICO ===
+
+    /**
+     * Demanda pronosticada para los próximos {@code dias} días tras el último observado
+     */
+    public double[] pronosticar(String producto, int dias) {
+        Estado estado = estados.get(producto);
+        double[] resultado = new double[dias];
+        if (estado != null) {
+            for (int h = 1; h <= dias; h++) {
+                resultado[h - 1] = estado.pronostico(h);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Días hasta que la demanda acumulada alcanza el stock, interpolando dentro del día
+     * @param hoy día desde el que se cuenta; los días entre el último observado y hoy se consideran consumidos
+     * @return días hasta agotarse o infinito si no ocurre dentro del horizonte
+     */
+    public double diasHastaAgotarse(String producto, int stock, LocalDate hoy) {
+        if (stock <= 0) {
+            return 0.0;
+        }
+        Estado estado = estados.get(producto);
+        if (estado == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        long desfase = Math.max(0, hoy.toEpochDay() - estado.ultimoDia.toEpochDay() - 1);
+        double acumulado = 0.0;
+        for (int d = 1; d <= HORIZONTE_DIAS; d++) {
+            double demanda = estado.pronostico(desfase + d);
+            if (acumulado + demanda >= stock) {
+                return (d - 1) + (stock - acumulado) / demanda;
+            }
+            acumulado += demanda;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Pronóstico de todos los productos con stock, ordenado por días hasta agotarse
+     */
+    public List<PronosticoProducto> pronosticarInventario(List<Producto> productos, LocalDate hoy) {
+        List<PronosticoProducto> resultado = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            double[] semana = pronosticar(producto.getNombre(), PERIODO);
+            double demandaDiaria = Arrays.stream(semana).average().orElse(0.0);
+            resultado.add(new PronosticoProducto(producto.getNombre(), producto.getStock(), demandaDiaria,
+                diasHastaAgotarse(producto.getNombre(), producto.getStock(), hoy)));
+        }
+        resultado.sort(Comparator.comparingDouble(PronosticoProducto::getDiasHastaAgotarse));
+        return resultado;
+    }
+
+    public int getProductosModelados() {
+        return estados.size();
+    }
+
+    // === ESTADO POR PRODUCTO ===
+
+    private static class Estado {
+        private double nivel;
+        private double tendencia;
+        private final double[] estacionalidad;
+        private LocalDate ultimoDia;
+        private int diasObservados;
+
+        Estado(double nivel, double tendencia, double[] estacionalidad, LocalDate ultimoDia, int diasObservados) {
+            this.nivel = nivel;
+            this.tendencia = tendencia;
+            this.estacionalidad = estacionalidad;
+            this.ultimoDia = ultimoDia;
+            this.diasObservados = diasObservados;
+        }
+
+        static Estado inicial(LocalDate dia, double unidades) {
+            return new Estado(unidades, 0.0, new double[PERIODO], dia, 1);
+        }
+
+        void actualizar(LocalDate dia, double unidades) {
+            if (!dia.isAfter(ultimoDia)) {
+                return; // Día ya incorporado
+            }
+            int s = indiceEstacional(dia);
+            double nivelAnterior = nivel;
+            nivel = ALFA * (unidades - estacionalidad[s]) + (1 - ALFA) * (nivel + tendencia);
+            tendencia = BETA * (nivel - nivelAnterior) + (1 - BETA) * tendencia;
+            estacionalidad[s] = GAMMA * (unidades - nivel) + (1 - GAMMA) * estacionalidad[s];
+            ultimoDia = dia;
+            diasObservados++;
+        }
+
+        double pronostico(long diasAdelante) {
+            LocalDate dia = ultimoDia.plusDays(diasAdelante);
+            return Math.max(0.0, nivel + diasAdelante * tendencia + estacionalidad[indiceEstacional(dia)]);
+        }
+
+        private static int indiceEstacional(LocalDate dia) {
+            return dia.getDayOfWeek().getValue() - 1;
+        }
+    }
+}
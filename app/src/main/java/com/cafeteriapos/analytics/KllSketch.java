@@ -0,0 +1,275 @@
+package com.cafeteriapos.analytics;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Sketch KLL (Karnin-Lang-Liberty) para cuantiles aproximados en flujo
+ * Mantiene una jerarquía de compactadores: al llenarse un nivel se ordena y
+ * se promueve uno de cada dos elementos al nivel siguiente, con peso doble.
+ * El tamaño queda acotado por ~3k valores sin importar cuántos se registren,
+ * y dos sketches se combinan sin perder la garantía de error
+ * (≈1.7% del rango con k = 200)
+ */
+public class KllSketch {
+
+    public static final int K_POR_DEFECTO = 200;
+
+    private static final int VERSION_SERIALIZACION = 1;
+    private static final double FACTOR_DECAIMIENTO = 2.0 / 3.0;
+    private static final int CAPACIDAD_MINIMA = 2;
+
+    private final int k;
+    // niveles[h] contiene valores con peso 2^h; tamanos[h] es la parte ocupada
+    private double[][] niveles;
+    private int[] tamanos;
+    private int numNiveles;
+
+    private long conteo = 0;
+    private double minimo = Double.NaN;
+    private double maximo = Double.NaN;
+
+    // Semilla fija: mismo flujo de entrada produce el mismo sketch
+    private final Random moneda = new Random(0x4B4C4CL);
+
+    public KllSketch() {
+        this(K_POR_DEFECTO);
+    }
+
+    public KllSketch(int k) {
+        if (k < 8) {
+            throw new IllegalArgumentException("k debe ser al menos 8: " + k);
+        }
+        this.k = k;
+        this.niveles = new double[1][];
+        this.niveles[0] = new double[k];
+        this.tamanos = new int[1];
+        this.numNiveles = 1;
+    }
+
+    // === ACTUALIZACIÓN ===
+
+    /**
+     * Registra un valor; NaN se ignora
+     */
+    public void registrar(double valor) {
+        if (Double.isNaN(valor)) {
+            return;
+        }
+        actualizarExtremos(valor, valor);
+        conteo++;
+        agregarEnNivel(0, valor);
+        compactarSiLleno();
+    }
+
+    /**
+     * Combina otro sketch en este; el otro no se modifica
+     */
+    public KllSketch combinar(KllSketch otro) {
+        if (otro.conteo == 0) {
+            return this;
+        }
+        while (numNiveles < otro.numNiveles) {
+            agregarNivel();
+        }
+        for (int h = 0; h < otro.numNiveles; h++) {
+            for (int i = 0; i < otro.tamanos[h]; i++) {
+                agregarEnNivel(h, otro.niveles[h][i]);
+            }
+        }
+        conteo += otro.conteo;
+        actualizarExtremos(otro.minimo, otro.maximo);
+        compactarSiLleno();
+        return this;
+    }
+
+    // === CONSULTAS ===
+
+    /**
+     * Valor aproximado del cuantil {@code q} (0 = mínimo, 1 = máximo); NaN si está vacío
+     */
+    public double cuantil(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("El cuantil debe estar entre 0 y 1: " + q);
+        }
+        if (conteo == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) return minimo;
+        if (q == 1) return maximo;
+
+        int total = getValoresRetenidos();
+        double[] valores = new double[total];
+        long[] pesos = new long[total];
+        int pos = 0;
+        for (int h = 0; h < numNiveles; h++) {
+            for (int i = 0; i < tamanos[h]; i++) {
+                valores[pos] = niveles[h][i];
+                pesos[pos] = 1L << h;
+                pos++;
+            }
+        }
+        ordenarPorValor(valores, pesos);
+
+        long pesoTotal = 0;
+        for (long peso : pesos) pesoTotal += peso;
+        double objetivo = q * pesoTotal;
+
+        long acumulado = 0;
+        for (int i = 0; i < total; i++) {
+            acumulado += pesos[i];
+            if (acumulado >= objetivo) {
+                return valores[i];
+            }
+        }
+        return maximo;
+    }
+
+    public long getConteo() { return conteo; }
+    public double getMinimo() { return minimo; }
+    public double getMaximo() { return maximo; }
+    public int getK() { return k; }
+
+    public int getValoresRetenidos() {
+        int total = 0;
+        for (int h = 0; h < numNiveles; h++) total += tamanos[h];
+        return total;
+    }
+
+    // === SERIALIZACIÓN ===
+
+    /**
+     * Serializa el sketch para persistirlo (p. ej. en el resumen diario)
+     */
+    public byte[] toBytes() {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION_SERIALIZACION);
+            out.writeInt(k);
+            out.writeLong(conteo);
+            out.writeDouble(minimo);
+            out.writeDouble(maximo);
+            out.writeInt(numNiveles);
+            for (int h = 0; h < numNiveles; h++) {
+                out.writeInt(tamanos[h]);
+                for (int i = 0; i < tamanos[h]; i++) {
+                    out.writeDouble(niveles[h][i]);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error serializando sketch KLL", e);
+        }
+    }
+
+    /**
+     * Reconstruye un sketch serializado con {@link #toBytes()}
+     */
+    public static KllSketch fromBytes(byte[] datos) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(datos))) {
+            int version = in.readByte();
+            if (version != VERSION_SERIALIZACION) {
+                throw new IllegalArgumentException("Versión de sketch KLL no soportada: " + version);
+            }
+            KllSketch sketch = new KllSketch(in.readInt());
+            sketch.conteo = in.readLong();
+            sketch.minimo = in.readDouble();
+            sketch.maximo = in.readDouble();
+            int niveles = in.readInt();
+            for (int h = 0; h < niveles; h++) {
+                if (h > 0) sketch.agregarNivel();
+                int tamano = in.readInt();
+                for (int i = 0; i < tamano; i++) {
+                    sketch.agregarEnNivel(h, in.readDouble());
+                }
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo sketch KLL", e);
+        }
+    }
+
+    // === COMPACTACIÓN ===
+
+    private int capacidad(int nivel) {
+        int profundidad = numNiveles - 1 - nivel;
+        return Math.max(CAPACIDAD_MINIMA, (int) Math.ceil(k * Math.pow(FACTOR_DECAIMIENTO, profundidad)));
+    }
+
+    private int capacidadTotal() {
+        int total = 0;
+        for (int h = 0; h < numNiveles; h++) total += capacidad(h);
+        return total;
+    }
+
+    private void compactarSiLleno() {
+        while (getValoresRetenidos() > capacidadTotal()) {
+            for (int h = 0; h < numNiveles; h++) {
+                if (tamanos[h] >= capacidad(h)) {
+                    compactar(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ordena el nivel y promueve los elementos pares o impares (al azar) al siguiente
+     */
+    private void compactar(int nivel) {
+        if (nivel + 1 == numNiveles) {
+            agregarNivel();
+        }
+        double[] datos = niveles[nivel];
+        int tamano = tamanos[nivel];
+        Arrays.sort(datos, 0, tamano);
+
+        // Con tamaño impar el último elemento se queda en el nivel
+        int pares = tamano - (tamano % 2);
+        int desplazamiento = moneda.nextBoolean() ? 1 : 0;
+        for (int i = desplazamiento; i < pares; i += 2) {
+            agregarEnNivel(nivel + 1, datos[i]);
+        }
+
+        if (tamano % 2 == 1) {
+            datos[0] = datos[tamano - 1];
+            tamanos[nivel] = 1;
+        } else {
+            tamanos[nivel] = 0;
+        }
+    }
+
+    private void agregarNivel() {
+        niveles = Arrays.copyOf(niveles, numNiveles + 1);
+        tamanos = Arrays.copyOf(tamanos, numNiveles + 1);
+        niveles[numNiveles] = new double[CAPACIDAD_MINIMA];
+        numNiveles++;
+    }
+
+    private void agregarEnNivel(int nivel, double valor) {
+        if (tamanos[nivel] == niveles[nivel].length) {
+            niveles[nivel] = Arrays.copyOf(niveles[nivel], niveles[nivel].length * 2);
+        }
+        niveles[nivel][tamanos[nivel]++] = valor;
+    }
+
+    private void actualizarExtremos(double min, double max) {
+        minimo = Double.isNaN(minimo) ? min : Math.min(minimo, min);
+        maximo = Double.isNaN(maximo) ? max : Math.max(maximo, max);
+    }
+
+    private static void ordenarPorValor(double[] valores, long[] pesos) {
+        Integer[] indices = new Integer[valores.length];
+        for (int i = 0; i < indices.length; i++) indices[i] = i;
+        Arrays.sort(indices, (a, b) -> Double.compare(valores[a], valores[b]));
+
+        double[] v = valores.clone();
+        long[] p = pesos.clone();
+        for (int i = 0; i < indices.length; i++) {
+            valores[i] = v[indices[i]];
+            pesos[i] = p[indices[i]];
+        }
+    }
+}
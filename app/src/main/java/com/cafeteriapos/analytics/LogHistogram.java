@@ -0,0 +1,142 @@
+package com.cafeteriapos.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Histograma con cubetas logarítmicas para estimar cuantiles de montos
+ * Cada cubeta cubre un rango relativo fijo, por lo que el error del cuantil
+ * está acotado por {@link #ERROR_RELATIVO} sin importar la magnitud del valor.
+ * Dos histogramas se combinan sumando cubetas, lo que permite agregarlos en paralelo
+ */
+public class LogHistogram {
+
+    // Error relativo máximo de los cuantiles estimados (1%)
+    public static final double ERROR_RELATIVO = 0.01;
+
+    private static final double GAMMA = (1 + ERROR_RELATIVO) / (1 - ERROR_RELATIVO);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    // Conteos por índice de cubeta; contadores[i] corresponde al índice desplazamiento + i
+    private long[] contadores = new long[0];
+    private int desplazamiento = 0;
+    private long conteoCeros = 0;
+    private long conteo = 0;
+    private double minimo = Double.POSITIVE_INFINITY;
+    private double maximo = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Registra un valor; los valores menores o iguales a cero se cuentan aparte
+     */
+    public void registrar(double valor) {
+        conteo++;
+        minimo = Math.min(minimo, valor);
+        maximo = Math.max(maximo, valor);
+
+        if (valor <= 0) {
+            conteoCeros++;
+            return;
+        }
+        int indice = indiceDe(valor);
+        asegurarRango(indice, indice);
+        contadores[indice - desplazamiento]++;
+    }
+
+    /**
+     * Suma las cubetas de otro histograma a este
+     */
+    public LogHistogram combinar(LogHistogram otro) {
+        if (otro.conteo == 0) {
+            return this;
+        }
+        if (otro.contadores.length > 0) {
+            asegurarRango(otro.desplazamiento, otro.desplazamiento + otro.contadores.length - 1);
+            for (int i = 0; i < otro.contadores.length; i++) {
+                contadores[otro.desplazamiento + i - desplazamiento] += otro.contadores[i];
+            }
+        }
+        conteoCeros += otro.conteoCeros;
+        conteo += otro.conteo;
+        minimo = Math.min(minimo, otro.minimo);
+        maximo = Math.max(maximo, otro.maximo);
+        return this;
+    }
+
+    /**
+     * Valor estimado del cuantil {@code q} (entre 0 y 1); 0 si el histograma está vacío
+     */
+    public double cuantil(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("El cuantil debe estar entre 0 y 1: " + q);
+        }
+        if (conteo == 0) {
+            return 0.0;
+        }
+
+        long rango = (long) Math.floor(q * (conteo - 1));
+        if (rango < conteoCeros) {
+            return Math.max(minimo, Math.min(maximo, 0.0));
+        }
+
+        long acumulado = conteoCeros;
+        for (int i = 0; i < contadores.length; i++) {
+            acumulado += contadores[i];
+            if (acumulado > rango) {
+                double estimado = valorRepresentativo(desplazamiento + i);
+                // Acotar a los extremos observados para no salirse del rango real
+                return Math.max(minimo, Math.min(maximo, estimado));
+            }
+        }
+        return maximo;
+    }
+
+    // === GETTERS ===
+
+    public long getConteo() { return conteo; }
+    public double getMinimo() { return conteo == 0 ? 0.0 : minimo; }
+    public double getMaximo() { return conteo == 0 ? 0.0 : maximo; }
+
+    /**
+     * Copia de las cubetas internas, para persistir el histograma
+     */
+    public long[] getContadores() { return Arrays.copyOf(contadores, contadores.length); }
+    public int getDesplazamiento() { return desplazamiento; }
+
+    // === MÉTODOS PRIVADOS ===
+
+    private static int indiceDe(double valor) {
+        return (int) Math.ceil(Math.log(valor) / LOG_GAMMA);
+    }
+
+    private static double valorRepresentativo(int indice) {
+        // Punto medio (en error relativo) de la cubeta (gamma^(i-1), gamma^i]
+        return 2 * Math.pow(GAMMA, indice) / (GAMMA + 1);
+    }
+
+    private void asegurarRango(int desde, int hasta) {
+        if (contadores.length == 0) {
+            int capacidad = Math.max(CAPACIDAD_INICIAL, hasta - desde + 1);
+            contadores = new long[capacidad];
+            desplazamiento = desde - (capacidad - (hasta - desde + 1)) / 2;
+            return;
+        }
+
+        int inicioActual = desplazamiento;
+        int finActual = desplazamiento + contadores.length - 1;
+        if (desde >= inicioActual && hasta <= finActual) {
+            return;
+        }
+
+        int nuevoInicio = Math.min(desde, inicioActual);
+        int nuevoFin = Math.max(hasta, finActual);
+        // Crecer con holgura para amortizar futuras ampliaciones
+        int holgura = contadores.length / 2;
+        if (nuevoInicio < inicioActual) nuevoInicio -= holgura;
+        if (nuevoFin > finActual) nuevoFin += holgura;
+
+        long[] ampliado = new long[nuevoFin - nuevoInicio + 1];
+        System.arraycopy(contadores, 0, ampliado, inicioActual - nuevoInicio, contadores.length);
+        contadores = ampliado;
+        desplazamiento = nuevoInicio;
+    }
+}
@@ -0,0 +1,451 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.VentaRegistrada;
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.utils.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Índice de rotación de productos: un bitmap por día con los IDs de productos vendidos
+ * "Productos sin venta en los últimos N días" se resuelve con un OR de N bitmaps
+ * y un ANDNOT contra el inventario, sin recorrer ventas ni sus ítems
+ *
+ * Las consultas se llaman desde el hilo de JavaFX y no tocan la base: los IDs y los bitmaps
+ * de los últimos {@link #DIAS_EN_MEMORIA} días se cargan en el hilo de persistencia
+ *
+ * El día en curso avanza con el reloj, tanto al registrar como al consultar. Una venta con
+ * fecha pasada (venta sin conexión aplicada después de medianoche, reaplicación al arrancar)
+ * se suma al bitmap de su día
+ */
+public class ProductRotationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRotationIndex.class);
+
+    // Días pasados que se reconstruyen al arrancar si no tienen bitmap guardado
+    private static final int DIAS_RECONSTRUCCION = 90;
+    // Días cerrados que se precargan; las consultas admiten ventanas de hasta este largo
+    static final int DIAS_EN_MEMORIA = DIAS_RECONSTRUCCION;
+
+    // === PERSISTENCIA ===
+    private final Supplier<Map<String, Integer>> leerIds;
+    private final BiConsumer<LocalDate, byte[]> guardarDia;
+    private final BiFunction<LocalDate, LocalDate, Map<LocalDate, byte[]>> leerDias;
+    private final ExecutorService persistencia;
+    private final Supplier<LocalDate> reloj;
+    private final AtomicBoolean persistenciaPendiente = new AtomicBoolean(false);
+    private final AtomicBoolean recargaIdsPendiente = new AtomicBoolean(false);
+
+    // === IDENTIFICADORES DE PRODUCTO ===
+    private final Object recargaIds = new Object();
+    private volatile Map<String, Integer> idPorNombre = Map.of();
+    private volatile Map<Integer, String> nombrePorId = Map.of();
+
+    // === ESTADO DEL DÍA EN CURSO (protegido por this) ===
+    private LocalDate diaActual;
+    private RoaringBitmap vendidosHoy = new RoaringBitmap();
+
+    // Días cerrados ya leídos; una venta atrasada reemplaza el de su día por una copia
+    // ampliada, siempre en el hilo de persistencia
+    private final Map<LocalDate, RoaringBitmap> diasCerrados = new ConcurrentHashMap<>();
+    private volatile boolean diasPrecargados = false;
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile ProductRotationIndex instance;
+    private static final Object LOCK = new Object();
+
+    private ProductRotationIndex() {
+        this(DatabaseManager::leerIdsProductos, DatabaseManager::guardarRotacionDiaria,
+            DatabaseManager::leerRotacionDiaria,
+            ExecutorRegistry.getInstance().unHilo("ProductRotation", FaseCierre.ANALITICA), LocalDate::now);
+
+        cargarDiaActual();
+        EventBus.getInstance().subscribe(VentaRegistrada.class, evento -> registrarVenta(evento.getVenta()));
+        persistencia.execute(this::completarDiasSinBitmap);
+        logger.info("ProductRotationIndex inicializado para {}", diaActual);
+    }
+
+    /**
+     * Constructor con persistencia y reloj inyectables (útil para tests)
+     */
+    ProductRotationIndex(Supplier<Map<String, Integer>> leerIds,
+                         BiConsumer<LocalDate, byte[]> guardarDia,
+                         BiFunction<LocalDate, LocalDate, Map<LocalDate, byte[]>> leerDias,
+                         ExecutorService persistencia, Supplier<LocalDate> reloj) {
+        this.leerIds = leerIds;
+        this.guardarDia = guardarDia;
+        this.leerDias = leerDias;
+        this.persistencia = persistencia;
+        this.reloj = reloj;
+        this.diaActual = reloj.get();
+        recargarIds();
+        persistencia.execute(this::precargarDiasCerrados);
+    }
+
+    public static ProductRotationIndex getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new ProductRotationIndex();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === ACTUALIZACIÓN INCREMENTAL ===
+
+    /**
+     * Marca los productos de la venta como vendidos en su día y programa la persistencia
+     */
+    public void registrarVenta(Venta venta) {
+        if (venta.getItems() == null || venta.getItems().isEmpty()) {
+            return;
+        }
+        // Los IDs se resuelven antes de tomar el lock: un producto nuevo recarga desde la base
+        List<Integer> ids = new ArrayList<>(venta.getItems().size());
+        for (Producto item : venta.getItems()) {
+            Integer id = idDe(item.getNombre());
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        boolean cambios = false;
+        LocalDate fecha = venta.getFecha();
+        synchronized (this) {
+            avanzarDia();
+            if (fecha.isBefore(diaActual)) {
+                registrarEnDiaPasado(fecha, ids);
+                return;
+            }
+            if (fecha.isAfter(diaActual)) {
+                cerrarDia(fecha);
+            }
+            for (Integer id : ids) {
+                cambios |= vendidosHoy.agregar(id);
+            }
+        }
+        // Solo la primera venta del día de cada producto modifica el bitmap
+        if (cambios) {
+            programarPersistencia();
+        }
+    }
+
+    /**
+     * Cierra el día en curso si el reloj ya pasó a otro (llamado con el lock tomado)
+     */
+    private void avanzarDia() {
+        LocalDate hoy = reloj.get();
+        if (hoy.isAfter(diaActual)) {
+            cerrarDia(hoy);
+        }
+    }
+
+    /**
+     * Guarda el día en curso y abre uno nuevo (llamado con el lock tomado)
+     */
+    private void cerrarDia(LocalDate nuevoDia) {
+        LocalDate dia = diaActual;
+        RoaringBitmap cerrado = vendidosHoy;
+        byte[] datos = cerrado.toBytes();
+        diasCerrados.put(dia, cerrado);
+        try {
+            persistencia.execute(() -> guardarDia.accept(dia, datos));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Persistencia detenida; rotación del día {} no guardada", dia);
+        }
+
+        logger.debug("Rotación del día {} cerrada: {} productos vendidos", dia, cerrado.getCardinalidad());
+
+        diaActual = nuevoDia;
+        vendidosHoy = new RoaringBitmap();
+    }
+
+    /**
+     * Suma los productos al bitmap de un día ya cerrado: el de memoria si está cargado o,
+     * si no, el guardado en la base; en ambos casos se vuelve a guardar (hilo de persistencia)
+     */
+    private void registrarEnDiaPasado(LocalDate dia, List<Integer> ids) {
+        try {
+            persistencia.execute(() -> {
+                try {
+                    RoaringBitmap vendidos = diasCerrados.computeIfPresent(dia, (d, actual) -> conIds(actual, ids));
+                    if (vendidos == null) {
+                        byte[] guardado = leerDias.apply(dia, dia).get(dia);
+                        vendidos = conIds(guardado != null ? RoaringBitmap.fromBytes(guardado) : new RoaringBitmap(), ids);
+                    }
+                    guardarDia.accept(dia, vendidos.toBytes());
+                } catch (Exception e) {
+                    logger.warn("Error actualizando la rotación del día {}: {}", dia, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Persistencia detenida; rotación del día {} no actualizada", dia);
+        }
+    }
+
+    /**
+     * Copia del bitmap con los IDs agregados: las consultas pueden estar leyendo el original
+     */
+    private static RoaringBitmap conIds(RoaringBitmap bitmap, List<Integer> ids) {
+        RoaringBitmap copia = bitmap.copia();
+        ids.forEach(copia::agregar);
+        return copia;
+    }
+
+    private void programarPersistencia() {
+        if (persistenciaPendiente.compareAndSet(false, true)) {
+            try {
+                persistencia.execute(() -> {
+                    persistenciaPendiente.set(false);
+                    LocalDate dia;
+                    byte[] datos;
+                    synchronized (this) {
+                        dia = diaActual;
+                        datos = vendidosHoy.toBytes();
+                    }
+                    guardarDia.accept(dia, datos);
+                });
+            } catch (RejectedExecutionException e) {
+                persistenciaPendiente.set(false);
+                logger.debug("Persistencia detenida; rotación diaria no guardada");
+            }
+        }
+    }
+
+    // === CONSULTAS ===
+
+    /**
+     * IDs de los productos vendidos en los últimos {@code dias} días, incluido hoy
+     * Solo lee memoria; los días cerrados fuera de {@link #DIAS_EN_MEMORIA} no se consideran
+     */
+    public RoaringBitmap vendidosEnUltimosDias(int dias) {
+        RoaringBitmap resultado;
+        LocalDate hoy;
+        synchronized (this) {
+            avanzarDia();
+            hoy = diaActual;
+            resultado = vendidosHoy.copia();
+        }
+        if (dias <= 1) {
+            return resultado;
+        }
+
+        LocalDate desde = hoy.minusDays(dias - 1L);
+        LocalDate ayer = hoy.minusDays(1);
+        for (LocalDate dia = desde; !dia.isAfter(ayer); dia = dia.plusDays(1)) {
+            RoaringBitmap vendidos = diasCerrados.get(dia);
+            if (vendidos != null) {
+                resultado.or(vendidos);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Productos del inventario que no se vendieron en los últimos {@code dias} días
+     * Solo lee memoria (apta para el hilo de JavaFX); mientras se precargan los días
+     * cerrados devuelve una lista vacía, y un producto aún sin ID se omite hasta recargarlos
+     * @return nombres en el orden de sus IDs (orden de alta)
+     */
+    public List<String> productosSinVenta(Collection<String> inventario, int dias) {
+        if (dias > 1 && !diasPrecargados) {
+            logger.debug("Índice de rotación aún cargando días cerrados");
+            return List.of();
+        }
+        Map<String, Integer> ids = idPorNombre;
+        RoaringBitmap sinVenta = new RoaringBitmap();
+        for (String nombre : inventario) {
+            Integer id = ids.get(nombre);
+            if (id != null) {
+                sinVenta.agregar(id);
+            } else {
+                programarRecargaIds();
+            }
+        }
+        sinVenta.andNot(vendidosEnUltimosDias(dias));
+
+        Map<Integer, String> nombres = nombrePorId;
+        List<String> resultado = new ArrayList<>((int) sinVenta.getCardinalidad());
+        sinVenta.forEach(id -> resultado.add(nombres.get(id)));
+        return resultado;
+    }
+
+    /**
+     * Carga los bitmaps de los últimos {@link #DIAS_EN_MEMORIA} días cerrados (hilo de persistencia)
+     */
+    private void precargarDiasCerrados() {
+        LocalDate hoy;
+        synchronized (this) {
+            hoy = diaActual;
+        }
+        LocalDate desde = hoy.minusDays(DIAS_EN_MEMORIA);
+        LocalDate hasta = hoy.minusDays(1);
+        try {
+            Map<LocalDate, byte[]> guardados = leerDias.apply(desde, hasta);
+            for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+                byte[] datos = guardados.get(dia);
+                // Un día sin fila no tuvo ventas; se guarda vacío para no volver a consultarlo
+                diasCerrados.putIfAbsent(dia, datos != null ? RoaringBitmap.fromBytes(datos) : new RoaringBitmap());
+            }
+            diasPrecargados = true;
+        } catch (Exception e) {
+            logger.warn("Error precargando la rotación de días cerrados: {}", e.getMessage());
+        }
+    }
+
+    // === IDENTIFICADORES ===
+
+    /**
+     * ID del producto; uno creado después de la última carga recarga los IDs desde la base
+     * (no llamar desde el hilo de JavaFX)
+     */
+    private Integer idDe(String nombre) {
+        Integer id = idPorNombre.get(nombre);
+        if (id == null) {
+            recargarIds();
+            id = idPorNombre.get(nombre);
+        }
+        return id;
+    }
+
+    private void programarRecargaIds() {
+        if (recargaIdsPendiente.compareAndSet(false, true)) {
+            try {
+                persistencia.execute(() -> {
+                    recargaIdsPendiente.set(false);
+                    recargarIds();
+                });
+            } catch (RejectedExecutionException e) {
+                recargaIdsPendiente.set(false);
+            }
+        }
+    }
+
+    private void recargarIds() {
+        synchronized (recargaIds) {
+            Map<String, Integer> ids = new HashMap<>(leerIds.get());
+            Map<Integer, String> nombres = new HashMap<>();
+            ids.forEach((nombre, id) -> nombres.put(id, nombre));
+            // Primero los nombres: quien vea un ID nuevo ya encuentra su nombre
+            nombrePorId = nombres;
+            idPorNombre = ids;
+        }
+    }
+
+    // === CARGA Y RECONSTRUCCIÓN ===
+
+    /**
+     * Retoma el bitmap del día desde su fila guardada, o lo reconstruye desde los ítems vendidos
+     */
+    private void cargarDiaActual() {
+        byte[] guardado = leerDias.apply(diaActual, diaActual).get(diaActual);
+        if (guardado != null) {
+            synchronized (this) {
+                vendidosHoy = RoaringBitmap.fromBytes(guardado);
+            }
+            return;
+        }
+        Map<String, Integer> unidades;
+        try {
+            unidades = DatabaseManager.obtenerUnidadesPorDia(diaActual, diaActual).getOrDefault(diaActual, Map.of());
+        } catch (RuntimeException e) {
+            // El día arranca vacío; las ventas que lleguen lo van completando
+            logger.warn("No se pudo reconstruir la rotación de {}: {}", diaActual, e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            unidades.keySet().forEach(nombre -> {
+                Integer id = idPorNombre.get(nombre);
+                if (id != null) vendidosHoy.agregar(id);
+            });
+        }
+        if (!unidades.isEmpty()) {
+            programarPersistencia();
+        }
+    }
+
+    /**
+     * Genera el bitmap de los días recientes con ventas que aún no lo tienen
+     * (ventas anteriores a esta funcionalidad)
+     */
+    private void completarDiasSinBitmap() {
+        try {
+            LocalDate desde = diaActual.minusDays(DIAS_RECONSTRUCCION);
+            LocalDate ayer = diaActual.minusDays(1);
+            Set<LocalDate> conBitmap = leerDias.apply(desde, ayer).keySet();
+
+            int reconstruidos = 0;
+            for (Map.Entry<LocalDate, Map<String, Integer>> entry
+                    : DatabaseManager.obtenerUnidadesPorDia(desde, ayer).entrySet()) {
+                if (conBitmap.contains(entry.getKey())) {
+                    continue;
+                }
+                RoaringBitmap vendidos = new RoaringBitmap();
+                for (String nombre : entry.getValue().keySet()) {
+                    Integer id = idPorNombre.get(nombre);
+                    if (id != null) vendidos.agregar(id);
+                }
+                guardarDia.accept(entry.getKey(), vendidos.toBytes());
+                diasCerrados.put(entry.getKey(), vendidos);
+                reconstruidos++;
+            }
+
+            if (reconstruidos > 0) {
+                logger.info("Bitmaps de rotación reconstruidos para {} días", reconstruidos);
+            }
+        } catch (Exception e) {
+            logger.warn("Error reconstruyendo bitmaps de rotación: {}", e.getMessage());
+        }
+    }
+
+    // === CONTROL ===
+
+    /**
+     * Descarta el estado en memoria (tras limpiar la base de datos); los IDs se recargan
+     * en el hilo de persistencia
+     */
+    public synchronized void reiniciar() {
+        vendidosHoy = new RoaringBitmap();
+        diasCerrados.clear();
+        programarRecargaIds();
+        logger.info("Índice de rotación reiniciado");
+    }
+
+    public void shutdown() {
+        persistencia.shutdown();
+        try {
+            if (!persistencia.awaitTermination(5, TimeUnit.SECONDS)) {
+                persistencia.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            persistencia.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // === GETTERS ===
+
+    public synchronized LocalDate getDiaActual() {
+        avanzarDia();
+        return diaActual;
+    }
+
+    public synchronized long getProductosVendidosHoy() {
+        avanzarDia();
+        return vendidosHoy.getCardinalidad();
+    }
+    public int getDiasEnMemoria() { return diasCerrados.size(); }
+}
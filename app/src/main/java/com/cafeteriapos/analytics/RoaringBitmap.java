@@ -0,0 +1,376 @@
+package com.cafeteriapos.analytics;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Bitmap comprimido de enteros no negativos al estilo Roaring
+ * Los valores se agrupan por sus 16 bits altos; cada grupo es un arreglo ordenado
+ * de 16 bits bajos (grupos dispersos, hasta 4096 valores) o un bitmap de 8 KB
+ * (grupos densos). Con los IDs de productos de una cafetería casi siempre basta
+ * un único arreglo pequeño, y OR / ANDNOT recorren solo los grupos presentes
+ */
+public class RoaringBitmap {
+
+    private static final int VERSION_SERIALIZACION = 1;
+    // Por encima de este tamaño un arreglo ocupa más que el bitmap de 1024 longs
+    private static final int MAXIMO_ARREGLO = 4096;
+    private static final int PALABRAS_BITMAP = 1024;
+
+    // Claves (16 bits altos) ordenadas y su contenedor en la misma posición
+    private char[] claves = new char[0];
+    private Contenedor[] contenedores = new Contenedor[0];
+    private int tamano = 0;
+
+    public static RoaringBitmap de(int... valores) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int valor : valores) {
+            bitmap.agregar(valor);
+        }
+        return bitmap;
+    }
+
+    // === ACTUALIZACIÓN ===
+
+    /**
+     * Agrega un valor; devuelve true si no estaba
+     */
+    public boolean agregar(int valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("Solo se admiten valores no negativos: " + valor);
+        }
+        char clave = (char) (valor >>> 16);
+        int pos = buscarClave(clave);
+        if (pos < 0) {
+            pos = -pos - 1;
+            insertar(pos, clave, new Contenedor());
+        }
+        Contenedor contenedor = contenedores[pos];
+        int antes = contenedor.cardinalidad;
+        contenedor.agregar((char) valor);
+        return contenedor.cardinalidad != antes;
+    }
+
+    /**
+     * Une otro bitmap en este (OR en el lugar); el otro no se modifica
+     */
+    public RoaringBitmap or(RoaringBitmap otro) {
+        for (int i = 0; i < otro.tamano; i++) {
+            int pos = buscarClave(otro.claves[i]);
+            if (pos < 0) {
+                insertar(-pos - 1, otro.claves[i], otro.contenedores[i].copia());
+            } else {
+                contenedores[pos].or(otro.contenedores[i]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Quita de este bitmap los valores presentes en otro (ANDNOT en el lugar)
+     */
+    public RoaringBitmap andNot(RoaringBitmap otro) {
+        int escritura = 0;
+        for (int i = 0; i < tamano; i++) {
+            int pos = otro.buscarClave(claves[i]);
+            if (pos >= 0) {
+                contenedores[i].andNot(otro.contenedores[pos]);
+            }
+            if (contenedores[i].cardinalidad > 0) {
+                claves[escritura] = claves[i];
+                contenedores[escritura] = contenedores[i];
+                escritura++;
+            }
+        }
+        Arrays.fill(contenedores, escritura, tamano, null);
+        tamano = escritura;
+        return this;
+    }
+
+    public RoaringBitmap copia() {
+        RoaringBitmap copia = new RoaringBitmap();
+        copia.claves = Arrays.copyOf(claves, tamano);
+        copia.contenedores = new Contenedor[tamano];
+        for (int i = 0; i < tamano; i++) {
+            copia.contenedores[i] = contenedores[i].copia();
+        }
+        copia.tamano = tamano;
+        return copia;
+    }
+
+    // === CONSULTAS ===
+
+    public boolean contiene(int valor) {
+        if (valor < 0) {
+            return false;
+        }
+        int pos = buscarClave((char) (valor >>> 16));
+        return pos >= 0 && contenedores[pos].contiene((char) valor);
+    }
+
+    public long getCardinalidad() {
+        long total = 0;
+        for (int i = 0; i < tamano; i++) {
+            total += contenedores[i].cardinalidad;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    /**
+     * Recorre los valores en orden ascendente
+     */
+    public void forEach(IntConsumer accion) {
+        for (int i = 0; i < tamano; i++) {
+            contenedores[i].forEach(claves[i] << 16, accion);
+        }
+    }
+
+    public int[] toArray() {
+        int[] valores = new int[(int) getCardinalidad()];
+        int[] pos = {0};
+        forEach(valor -> valores[pos[0]++] = valor);
+        return valores;
+    }
+
+    // === SERIALIZACIÓN ===
+
+    /**
+     * Serializa el bitmap; un grupo disperso ocupa 2 bytes por valor
+     */
+    public byte[] toBytes() {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION_SERIALIZACION);
+            out.writeInt(tamano);
+            for (int i = 0; i < tamano; i++) {
+                out.writeChar(claves[i]);
+                contenedores[i].escribir(out);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error serializando bitmap", e);
+        }
+    }
+
+    public static RoaringBitmap fromBytes(byte[] datos) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(datos))) {
+            int version = in.readByte();
+            if (version != VERSION_SERIALIZACION) {
+                throw new IllegalArgumentException("Versión de bitmap no soportada: " + version);
+            }
+            RoaringBitmap bitmap = new RoaringBitmap();
+            int grupos = in.readInt();
+            bitmap.claves = new char[grupos];
+            bitmap.contenedores = new Contenedor[grupos];
+            for (int i = 0; i < grupos; i++) {
+                bitmap.claves[i] = in.readChar();
+                bitmap.contenedores[i] = Contenedor.leer(in);
+            }
+            bitmap.tamano = grupos;
+            return bitmap;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo bitmap", e);
+        }
+    }
+
+    // === GRUPOS ===
+
+    private int buscarClave(char clave) {
+        return Arrays.binarySearch(claves, 0, tamano, clave);
+    }
+
+    private void insertar(int pos, char clave, Contenedor contenedor) {
+        if (tamano == claves.length) {
+            int capacidad = Math.max(4, tamano * 2);
+            claves = Arrays.copyOf(claves, capacidad);
+            contenedores = Arrays.copyOf(contenedores, capacidad);
+        }
+        System.arraycopy(claves, pos, claves, pos + 1, tamano - pos);
+        System.arraycopy(contenedores, pos, contenedores, pos + 1, tamano - pos);
+        claves[pos] = clave;
+        contenedores[pos] = contenedor;
+        tamano++;
+    }
+
+    /**
+     * 16 bits bajos de un grupo: arreglo ordenado mientras es disperso, bitmap cuando es denso
+     */
+    private static final class Contenedor {
+        private char[] arreglo = new char[4];
+        private long[] bitmap;
+        private int cardinalidad;
+
+        boolean contiene(char valor) {
+            if (bitmap != null) {
+                return (bitmap[valor >>> 6] & (1L << valor)) != 0;
+            }
+            return Arrays.binarySearch(arreglo, 0, cardinalidad, valor) >= 0;
+        }
+
+        void agregar(char valor) {
+            if (bitmap != null) {
+                long antes = bitmap[valor >>> 6];
+                bitmap[valor >>> 6] = antes | (1L << valor);
+                if (bitmap[valor >>> 6] != antes) cardinalidad++;
+                return;
+            }
+            int pos = Arrays.binarySearch(arreglo, 0, cardinalidad, valor);
+            if (pos >= 0) {
+                return;
+            }
+            if (cardinalidad == MAXIMO_ARREGLO) {
+                aBitmap();
+                agregar(valor);
+                return;
+            }
+            pos = -pos - 1;
+            if (cardinalidad == arreglo.length) {
+                arreglo = Arrays.copyOf(arreglo, Math.min(MAXIMO_ARREGLO, cardinalidad * 2));
+            }
+            System.arraycopy(arreglo, pos, arreglo, pos + 1, cardinalidad - pos);
+            arreglo[pos] = valor;
+            cardinalidad++;
+        }
+
+        void or(Contenedor otro) {
+            if (bitmap == null && otro.bitmap == null
+                    && cardinalidad + otro.cardinalidad <= MAXIMO_ARREGLO) {
+                unirArreglo(otro);
+                return;
+            }
+            if (bitmap == null) aBitmap();
+            long[] palabras = otro.bitmap != null ? otro.bitmap : otro.comoPalabras();
+            int total = 0;
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                bitmap[i] |= palabras[i];
+                total += Long.bitCount(bitmap[i]);
+            }
+            cardinalidad = total;
+        }
+
+        void andNot(Contenedor otro) {
+            if (bitmap == null) {
+                int escritura = 0;
+                for (int i = 0; i < cardinalidad; i++) {
+                    if (!otro.contiene(arreglo[i])) {
+                        arreglo[escritura++] = arreglo[i];
+                    }
+                }
+                cardinalidad = escritura;
+                return;
+            }
+            long[] palabras = otro.bitmap != null ? otro.bitmap : otro.comoPalabras();
+            int total = 0;
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                bitmap[i] &= ~palabras[i];
+                total += Long.bitCount(bitmap[i]);
+            }
+            cardinalidad = total;
+            if (cardinalidad <= MAXIMO_ARREGLO) {
+                aArreglo();
+            }
+        }
+
+        void forEach(int base, IntConsumer accion) {
+            if (bitmap == null) {
+                for (int i = 0; i < cardinalidad; i++) {
+                    accion.accept(base | arreglo[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                long palabra = bitmap[i];
+                while (palabra != 0) {
+                    accion.accept(base | (i << 6) | Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+        }
+
+        Contenedor copia() {
+            Contenedor copia = new Contenedor();
+            copia.cardinalidad = cardinalidad;
+            if (bitmap != null) {
+                copia.bitmap = bitmap.clone();
+                copia.arreglo = null;
+            } else {
+                copia.arreglo = Arrays.copyOf(arreglo, Math.max(4, cardinalidad));
+            }
+            return copia;
+        }
+
+        void escribir(DataOutputStream out) throws IOException {
+            out.writeBoolean(bitmap != null);
+            out.writeInt(cardinalidad);
+            if (bitmap != null) {
+                for (long palabra : bitmap) out.writeLong(palabra);
+            } else {
+                for (int i = 0; i < cardinalidad; i++) out.writeChar(arreglo[i]);
+            }
+        }
+
+        static Contenedor leer(DataInputStream in) throws IOException {
+            Contenedor contenedor = new Contenedor();
+            boolean denso = in.readBoolean();
+            contenedor.cardinalidad = in.readInt();
+            if (denso) {
+                contenedor.bitmap = new long[PALABRAS_BITMAP];
+                contenedor.arreglo = null;
+                for (int i = 0; i < PALABRAS_BITMAP; i++) contenedor.bitmap[i] = in.readLong();
+            } else {
+                contenedor.arreglo = new char[Math.max(4, contenedor.cardinalidad)];
+                for (int i = 0; i < contenedor.cardinalidad; i++) contenedor.arreglo[i] = in.readChar();
+            }
+            return contenedor;
+        }
+
+        private long[] comoPalabras() {
+            long[] palabras = new long[PALABRAS_BITMAP];
+            for (int i = 0; i < cardinalidad; i++) {
+                palabras[arreglo[i] >>> 6] |= 1L << arreglo[i];
+            }
+            return palabras;
+        }
+
+        private void aBitmap() {
+            bitmap = comoPalabras();
+            arreglo = null;
+        }
+
+        private void aArreglo() {
+            char[] valores = new char[Math.max(4, cardinalidad)];
+            int pos = 0;
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                long palabra = bitmap[i];
+                while (palabra != 0) {
+                    valores[pos++] = (char) ((i << 6) | Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+            arreglo = valores;
+            bitmap = null;
+        }
+
+        private void unirArreglo(Contenedor otro) {
+            char[] a = arreglo, b = otro.arreglo;
+            int na = cardinalidad, nb = otro.cardinalidad;
+            char[] resultado = new char[Math.max(4, na + nb)];
+            int i = 0, j = 0, k = 0;
+            while (i < na && j < nb) {
+                if (a[i] < b[j]) resultado[k++] = a[i++];
+                else if (a[i] > b[j]) resultado[k++] = b[j++];
+                else { resultado[k++] = a[i++]; j++; }
+            }
+            while (i < na) resultado[k++] = a[i++];
+            while (j < nb) resultado[k++] = b[j++];
+            arreglo = resultado;
+            cardinalidad = k;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Servicio de agregación paralela de ventas para reportes anuales y fiscales
+ * Divide el historial en tramos sobre un ForkJoinPool; cada tramo produce
+ * parciales por mes que se combinan al unir las subtareas
+ */
+public class SalesAggregationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesAggregationService.class);
+
+    // Tamaño de tramo por debajo del cual no conviene seguir dividiendo
+    private static final int UMBRAL_SECUENCIAL = 8_192;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Crea el servicio con un hilo por núcleo disponible
+     */
+    public SalesAggregationService() {
+        this(Runtime.getRuntime().availableProcessors());
+        ExecutorRegistry.getInstance().registrar("SalesAggregation", FaseCierre.ANALITICA, pool);
+    }
+
+    /**
+     * @param paralelismo número de hilos del pool de agregación
+     */
+    public SalesAggregationService(int paralelismo) {
+        this.pool = new ForkJoinPool(paralelismo, pool -> {
+            var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("SalesAggregation-" + worker.getPoolIndex());
+            worker.setDaemon(true);
+            return worker;
+        }, null, false);
+    }
+
+    /**
+     * Agrega las ventas por mes
+     * @return parciales ordenados cronológicamente
+     */
+    public SortedMap<YearMonth, AgregadoVentas> agregarPorMes(List<Venta> ventas) {
+        long inicio = System.nanoTime();
+        // Acceso por índice: una lista enlazada se copia para poder dividirla
+        List<Venta> indexable = ventas instanceof RandomAccess ? ventas : new ArrayList<>(ventas);
+
+        Map<YearMonth, AgregadoVentas> parciales = pool.invoke(new TramoVentas(indexable, 0, indexable.size()));
+        SortedMap<YearMonth, AgregadoVentas> resultado = new TreeMap<>(parciales);
+
+        logger.debug("Agregadas {} ventas en {} meses con {} hilos en {} ms",
+            indexable.size(), resultado.size(), pool.getParallelism(), (System.nanoTime() - inicio) / 1_000_000);
+        return resultado;
+    }
+
+    /**
+     * Agrega todas las ventas en un único resultado
+     */
+    public AgregadoVentas agregar(List<Venta> ventas) {
+        AgregadoVentas total = new AgregadoVentas();
+        agregarPorMes(ventas).values().forEach(total::combinar);
+        return total;
+    }
+
+    public int getParalelismo() {
+        return pool.getParallelism();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // === TAREA FORK-JOIN ===
+
+    private static class TramoVentas extends RecursiveTask<Map<YearMonth, AgregadoVentas>> {
+        private static final long serialVersionUID = 1L;
+
+        // Las tareas no se serializan; solo se comparte la lista entre hilos del pool
+        private final transient List<Venta> ventas;
+        private final int desde;
+        private final int hasta;
+
+        TramoVentas(List<Venta> ventas, int desde, int hasta) {
+            this.ventas = ventas;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Map<YearMonth, AgregadoVentas> compute() {
+            if (hasta - desde <= UMBRAL_SECUENCIAL) {
+                return agregarSecuencial();
+            }
+
+            int medio = (desde + hasta) >>> 1;
+            TramoVentas izquierda = new TramoVentas(ventas, desde, medio);
+            TramoVentas derecha = new TramoVentas(ventas, medio, hasta);
+            izquierda.fork();
+            Map<YearMonth, AgregadoVentas> resultado = derecha.compute();
+            Map<YearMonth, AgregadoVentas> otro = izquierda.join();
+
+            otro.forEach((mes, parcial) -> resultado.merge(mes, parcial, AgregadoVentas::combinar));
+            return resultado;
+        }
+
+        private Map<YearMonth, AgregadoVentas> agregarSecuencial() {
+            Map<YearMonth, AgregadoVentas> parciales = new HashMap<>();
+            // Las ventas suelen venir ordenadas por fecha: reutilizar el parcial del mes anterior
+            YearMonth mesActual = null;
+            AgregadoVentas parcialActual = null;
+
+            for (int i = desde; i < hasta; i++) {
+                Venta venta = ventas.get(i);
+                YearMonth mes = YearMonth.from(venta.getFechaHora());
+                if (!mes.equals(mesActual)) {
+                    mesActual = mes;
+                    parcialActual = parciales.computeIfAbsent(mes, m -> new AgregadoVentas());
+                }
+                parcialActual.agregar(venta);
+            }
+            return parciales;
+        }
+    }
+}
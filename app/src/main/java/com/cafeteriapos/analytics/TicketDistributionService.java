@@ -0,0 +1,410 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.archive.SalesArchive;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.VentaRegistrada;
+import com.cafeteriapos.models.ResumenDiario;
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.utils.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Distribución de montos de ticket por día mediante sketches KLL
+ * El sketch del día se actualiza con cada venta y se persiste en el resumen
+ * diario; los cuantiles de cualquier período se obtienen combinando los
+ * sketches de sus días, sin ordenar ventas individuales
+ *
+ * Solo se alimenta de las ventas registradas en esta aplicación (eventos del EventBus local).
+ * Una venta con fecha pasada (reaplicación del journal al arrancar o venta liberada de
+ * cuarentena) se suma al resumen guardado de su día
+ *
+ * El resumen del día en curso se guarda de forma agrupada, al cerrar el día y al apagar.
+ * Como un corte puede perder la última escritura, al arrancar el día en curso y el último
+ * día con resumen se reconstruyen desde sus ventas
+ */
+public class TicketDistributionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketDistributionService.class);
+
+    // === PERSISTENCIA ===
+    private final Consumer<ResumenDiario> guardarResumen;
+    private final BiFunction<LocalDate, LocalDate, List<ResumenDiario>> leerResumenes;
+    private final BiFunction<LocalDateTime, LocalDateTime, List<Venta>> leerVentas;
+    private final ExecutorService persistencia;
+    private final AtomicBoolean persistenciaPendiente = new AtomicBoolean(false);
+
+    // === ESTADO DEL DÍA EN CURSO (protegido por this) ===
+    private LocalDate diaActual;
+    private KllSketch sketchHoy = new KllSketch();
+    private long transaccionesHoy = 0;
+    private double ingresosHoy = 0.0;
+
+    // Días cerrados ya leídos; no cambian, así que se guardan sin expiración
+    private final Map<LocalDate, KllSketch> diasCerrados = new ConcurrentHashMap<>();
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile TicketDistributionService instance;
+    private static final Object LOCK = new Object();
+
+    private TicketDistributionService() {
+        this(DatabaseManager::guardarResumenDiario, DatabaseManager::leerResumenesDiarios,
+            ExecutorRegistry.getInstance().unHilo("TicketDistribution", FaseCierre.ANALITICA), LocalDate.now());
+
+        cargarDiaActual();
+        EventBus.getInstance().subscribe(VentaRegistrada.class, evento -> registrarVenta(evento.getVenta()));
+        persistencia.execute(this::completarDiasSinResumen);
+        logger.info("TicketDistributionService inicializado para {}", diaActual);
+    }
+
+    /**
+     * Constructor con persistencia inyectable (útil para tests)
+     */
+    TicketDistributionService(Consumer<ResumenDiario> guardarResumen,
+                              BiFunction<LocalDate, LocalDate, List<ResumenDiario>> leerResumenes,
+                              ExecutorService persistencia, LocalDate hoy) {
+        this(guardarResumen, leerResumenes,
+            (desde, hasta) -> SalesArchive.getInstance().leerVentasConBase(desde, hasta), persistencia, hoy);
+    }
+
+    /**
+     * Constructor con persistencia y lectura de ventas inyectables (útil para tests)
+     */
+    TicketDistributionService(Consumer<ResumenDiario> guardarResumen,
+                              BiFunction<LocalDate, LocalDate, List<ResumenDiario>> leerResumenes,
+                              BiFunction<LocalDateTime, LocalDateTime, List<Venta>> leerVentas,
+                              ExecutorService persistencia, LocalDate hoy) {
+        this.guardarResumen = guardarResumen;
+        this.leerResumenes = leerResumenes;
+        this.leerVentas = leerVentas;
+        this.persistencia = persistencia;
+        this.diaActual = hoy;
+    }
+
+    public static TicketDistributionService getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new TicketDistributionService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === ACTUALIZACIÓN INCREMENTAL ===
+
+    /**
+     * Incorpora una venta al sketch de su día y programa la persistencia
+     */
+    public void registrarVenta(Venta venta) {
+        synchronized (this) {
+            LocalDate fecha = venta.getFecha();
+            if (fecha.isAfter(diaActual)) {
+                cerrarDia(fecha);
+            } else if (fecha.isBefore(diaActual)) {
+                registrarEnDiaPasado(fecha, venta.getTotal());
+                return;
+            }
+            sketchHoy.registrar(venta.getTotal());
+            transaccionesHoy++;
+            ingresosHoy += venta.getTotal();
+        }
+        programarPersistencia();
+    }
+
+    /**
+     * Guarda el día en curso y abre uno nuevo (llamado con el lock tomado)
+     */
+    private void cerrarDia(LocalDate nuevoDia) {
+        ResumenDiario cierre = instantaneaDia();
+        diasCerrados.put(diaActual, sketchHoy);
+        persistencia.execute(() -> guardarResumen.accept(cierre));
+
+        logger.info("Día {} cerrado: {} transacciones, p50 ${}", diaActual, transaccionesHoy,
+            String.format("%.2f", sketchHoy.cuantil(0.5)));
+
+        diaActual = nuevoDia;
+        sketchHoy = new KllSketch();
+        transaccionesHoy = 0;
+        ingresosHoy = 0.0;
+    }
+
+    /**
+     * Suma el monto al resumen guardado de un día ya cerrado y lo vuelve a guardar
+     * (hilo de persistencia, después del cierre de ese día si aún estaba pendiente)
+     */
+    private void registrarEnDiaPasado(LocalDate dia, double monto) {
+        try {
+            persistencia.execute(() -> {
+                try {
+                    List<ResumenDiario> guardados = leerResumenes.apply(dia, dia);
+                    ResumenDiario guardado = guardados.isEmpty() ? null : guardados.get(0);
+                    KllSketch sketch = guardado != null && guardado.getSketchTicket() != null
+                        ? KllSketch.fromBytes(guardado.getSketchTicket()) : new KllSketch();
+                    long transacciones = guardado != null ? guardado.getTransacciones() : 0;
+                    double ingresos = guardado != null ? guardado.getIngresos() : 0.0;
+
+                    sketch.registrar(monto);
+                    guardarResumen.accept(new ResumenDiario(dia, transacciones + 1, ingresos + monto, sketch.toBytes()));
+                    // Se reemplaza por el sketch nuevo: las consultas pueden estar leyendo el anterior
+                    diasCerrados.put(dia, sketch);
+                } catch (Exception e) {
+                    logger.warn("Error actualizando el resumen del día {}: {}", dia, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Persistencia detenida; resumen del día {} no actualizado", dia);
+        }
+    }
+
+    private void programarPersistencia() {
+        // Varias ventas seguidas se agrupan en una sola escritura
+        if (persistenciaPendiente.compareAndSet(false, true)) {
+            try {
+                persistencia.execute(() -> {
+                    persistenciaPendiente.set(false);
+                    guardarDiaActual();
+                });
+            } catch (RejectedExecutionException e) {
+                persistenciaPendiente.set(false);
+                logger.debug("Persistencia detenida; resumen diario no guardado");
+            }
+        }
+    }
+
+    private void guardarDiaActual() {
+        ResumenDiario resumen;
+        synchronized (this) {
+            resumen = instantaneaDia();
+        }
+        guardarResumen.accept(resumen);
+    }
+
+    private ResumenDiario instantaneaDia() {
+        return new ResumenDiario(diaActual, transaccionesHoy, ingresosHoy, sketchHoy.toBytes());
+    }
+
+    // === CONSULTAS ===
+
+    /**
+     * Sketch combinado de los días del rango (ambos extremos inclusive)
+     * Consultar sus cuantiles con {@link KllSketch#cuantil(double)}
+     */
+    public KllSketch combinarRango(LocalDate desde, LocalDate hasta) {
+        KllSketch resultado = new KllSketch();
+        LocalDate hoy;
+
+        synchronized (this) {
+            hoy = diaActual;
+            if (!hoy.isBefore(desde) && !hoy.isAfter(hasta)) {
+                resultado.combinar(sketchHoy);
+            }
+        }
+
+        LocalDate finCerrados = hasta.isBefore(hoy) ? hasta : hoy.minusDays(1);
+        if (!finCerrados.isBefore(desde)) {
+            cargarDiasCerrados(desde, finCerrados);
+            for (LocalDate dia = desde; !dia.isAfter(finCerrados); dia = dia.plusDays(1)) {
+                KllSketch sketch = diasCerrados.get(dia);
+                if (sketch != null) {
+                    resultado.combinar(sketch);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private void cargarDiasCerrados(LocalDate desde, LocalDate hasta) {
+        LocalDate primerFaltante = null;
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            if (!diasCerrados.containsKey(dia)) {
+                primerFaltante = dia;
+                break;
+            }
+        }
+        if (primerFaltante == null) {
+            return;
+        }
+        Map<LocalDate, KllSketch> guardados = new HashMap<>();
+        for (ResumenDiario resumen : leerResumenes.apply(primerFaltante, hasta)) {
+            if (resumen.getSketchTicket() != null) {
+                guardados.put(resumen.getFecha(), KllSketch.fromBytes(resumen.getSketchTicket()));
+            }
+        }
+        for (LocalDate dia = primerFaltante; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            // Un día sin resumen no tuvo ventas; se guarda vacío para no volver a consultarlo
+            diasCerrados.putIfAbsent(dia, guardados.getOrDefault(dia, new KllSketch()));
+        }
+    }
+
+    // === CARGA Y RECONSTRUCCIÓN ===
+
+    /**
+     * Reconstruye el sketch del día desde sus ventas: el resumen guardado puede haber
+     * perdido las últimas ventas si la aplicación se cortó antes de escribirlo
+     * Si no se pueden leer las ventas se retoma el resumen guardado y se informa el error
+     */
+    void cargarDiaActual() {
+        LocalDate dia = getDiaActual();
+        List<Venta> ventasDia;
+        try {
+            ventasDia = leerVentas.apply(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay());
+        } catch (RuntimeException e) {
+            logger.error("No se pudieron leer las ventas de {}; la distribución del día parte del resumen guardado", dia, e);
+            retomarResumenGuardado(dia);
+            return;
+        }
+        synchronized (this) {
+            sketchHoy = new KllSketch();
+            transaccionesHoy = 0;
+            ingresosHoy = 0.0;
+            for (Venta venta : ventasDia) {
+                sketchHoy.registrar(venta.getTotal());
+                transaccionesHoy++;
+                ingresosHoy += venta.getTotal();
+            }
+        }
+        if (!ventasDia.isEmpty()) {
+            programarPersistencia();
+        }
+    }
+
+    private void retomarResumenGuardado(LocalDate dia) {
+        List<ResumenDiario> guardados;
+        try {
+            guardados = leerResumenes.apply(dia, dia);
+        } catch (RuntimeException e) {
+            logger.error("Tampoco se pudo leer el resumen de {}; la distribución del día parte vacía", dia, e);
+            return;
+        }
+        if (guardados.isEmpty() || guardados.get(0).getSketchTicket() == null) {
+            return;
+        }
+        ResumenDiario resumen = guardados.get(0);
+        synchronized (this) {
+            sketchHoy = KllSketch.fromBytes(resumen.getSketchTicket());
+            transaccionesHoy = resumen.getTransacciones();
+            ingresosHoy = resumen.getIngresos();
+        }
+    }
+
+    /**
+     * Genera el resumen de los días pasados que tienen ventas pero aún no tienen resumen
+     * (ventas anteriores a esta funcionalidad), incluidos los meses ya archivados
+     * Solo se leen la fecha de la primera venta, las fechas con resumen y las ventas de los
+     * huecos entre ellas, más las del último día con resumen, que se rehace por si un corte
+     * dejó su resumen sin las últimas ventas
+     */
+    private void completarDiasSinResumen() {
+        try {
+            LocalDateTime primeraVenta = SalesArchive.getInstance().obtenerFechaVentaMasAntigua();
+            LocalDate ayer = diaActual.minusDays(1);
+            if (primeraVenta == null || primeraVenta.toLocalDate().isAfter(ayer)) {
+                return;
+            }
+            LocalDate primerDia = primeraVenta.toLocalDate();
+            Set<LocalDate> conResumen = DatabaseManager.leerFechasConResumen(primerDia, ayer);
+
+            int reconstruidos = 0;
+            LocalDate dia = primerDia;
+            while (!dia.isAfter(ayer)) {
+                if (conResumen.contains(dia)) {
+                    dia = dia.plusDays(1);
+                    continue;
+                }
+                // Hueco de días consecutivos sin resumen: una sola lectura
+                LocalDate inicioHueco = dia;
+                while (!dia.isAfter(ayer) && !conResumen.contains(dia)) {
+                    dia = dia.plusDays(1);
+                }
+                reconstruidos += reconstruirResumenes(inicioHueco, dia);
+            }
+
+            Optional<LocalDate> ultimoConResumen = conResumen.stream().max(Comparator.naturalOrder());
+            if (ultimoConResumen.isPresent()) {
+                reconstruirResumenes(ultimoConResumen.get(), ultimoConResumen.get().plusDays(1));
+            }
+
+            if (reconstruidos > 0) {
+                logger.info("Resúmenes diarios reconstruidos para {} días", reconstruidos);
+            }
+        } catch (Exception e) {
+            logger.warn("Error reconstruyendo resúmenes diarios: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda el resumen de cada día con ventas de [desde, hasta)
+     * @return días reconstruidos
+     */
+    private int reconstruirResumenes(LocalDate desde, LocalDate hasta) {
+        Map<LocalDate, List<Venta>> porDia = new TreeMap<>();
+        for (Venta venta : leerVentas.apply(desde.atStartOfDay(), hasta.atStartOfDay())) {
+            porDia.computeIfAbsent(venta.getFecha(), d -> new ArrayList<>()).add(venta);
+        }
+
+        porDia.forEach((dia, ventasDia) -> {
+            KllSketch sketch = new KllSketch();
+            double ingresos = 0.0;
+            for (Venta venta : ventasDia) {
+                sketch.registrar(venta.getTotal());
+                ingresos += venta.getTotal();
+            }
+            guardarResumen.accept(new ResumenDiario(dia, ventasDia.size(), ingresos, sketch.toBytes()));
+            diasCerrados.put(dia, sketch);
+        });
+        return porDia.size();
+    }
+
+    // === CONTROL ===
+
+    /**
+     * Descarta el estado en memoria (tras limpiar la base de datos)
+     */
+    public synchronized void reiniciar() {
+        sketchHoy = new KllSketch();
+        transaccionesHoy = 0;
+        ingresosHoy = 0.0;
+        diasCerrados.clear();
+        logger.info("Distribución de tickets reiniciada");
+    }
+
+    /**
+     * Guarda el resumen del día en curso y detiene la persistencia
+     */
+    public void shutdown() {
+        try {
+            // Después de las escrituras ya encoladas: el hilo de persistencia es uno solo
+            persistencia.execute(this::guardarDiaActual);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Persistencia ya detenida; resumen del día no guardado al cerrar");
+        }
+        persistencia.shutdown();
+        try {
+            if (!persistencia.awaitTermination(5, TimeUnit.SECONDS)) {
+                persistencia.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            persistencia.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // === GETTERS ===
+
+    public synchronized LocalDate getDiaActual() { return diaActual; }
+    public synchronized long getTransaccionesHoy() { return transaccionesHoy; }
+    public synchronized double getIngresosHoy() { return ingresosHoy; }
+    public int getDiasEnMemoria() { return diasCerrados.size(); }
+}
@@ -0,0 +1,241 @@
+package com.cafeteriapos.archive;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.cafeteriapos.archive.ColumnarSalesWriter.*;
+
+/**
+ * Lector de un archivo mensual columnar mapeado en memoria
+ * El archivo se mapea una vez; cada consulta decodifica solo las columnas que
+ * necesita directamente desde las páginas mapeadas, sin copiarlas al heap
+ */
+public final class ColumnarSalesReader implements Closeable {
+
+    private final Path archivo;
+    private final FileChannel canal;
+    private final MappedByteBuffer mapa;
+
+    private final YearMonth mes;
+    private final int numVentas;
+    private final int numItems;
+    private final int[] offsets = new int[NUM_COLUMNAS];
+    private final int[] longitudes = new int[NUM_COLUMNAS];
+    private final String[] diccionario;
+
+    private ColumnarSalesReader(Path archivo, FileChannel canal, MappedByteBuffer mapa) throws IOException {
+        this.archivo = archivo;
+        this.canal = canal;
+        this.mapa = mapa;
+
+        ByteBuffer cabecera = mapa.duplicate();
+        if (cabecera.remaining() < TAMANO_CABECERA_FIJA || cabecera.getInt() != MAGIC) {
+            throw new IOException("No es un archivo de ventas columnar: " + archivo);
+        }
+        byte version = cabecera.get();
+        if (version != VERSION) {
+            throw new IOException("Versión de archivo columnar no soportada: " + version);
+        }
+        this.mes = YearMonth.of(cabecera.getInt(), cabecera.get());
+        this.numVentas = cabecera.getInt();
+        this.numItems = cabecera.getInt();
+        int columnas = cabecera.getInt();
+        if (columnas != NUM_COLUMNAS) {
+            throw new IOException("Cantidad de columnas inesperada: " + columnas);
+        }
+        for (int i = 0; i < NUM_COLUMNAS; i++) {
+            offsets[i] = cabecera.getInt();
+            longitudes[i] = cabecera.getInt();
+        }
+
+        ByteBuffer dic = columna(COL_DICCIONARIO);
+        List<String> nombres = new ArrayList<>();
+        while (dic.hasRemaining()) {
+            nombres.add(leerTexto(dic));
+        }
+        this.diccionario = nombres.toArray(new String[0]);
+    }
+
+    /**
+     * Mapea el archivo y verifica su CRC
+     */
+    public static ColumnarSalesReader abrir(Path archivo) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            verificarCrc(mapa, archivo);
+            return new ColumnarSalesReader(archivo, canal, mapa);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // === CONSULTAS ===
+
+    /**
+     * Ventas con sus ítems dentro de [desde, hasta)
+     * Los nombres de producto se comparten desde el diccionario (no se crea un String por ítem)
+     */
+    public List<Venta> leerVentas(LocalDateTime desde, LocalDateTime hasta) {
+        long desdeMs = aMilis(desde);
+        long hastaMs = aMilis(hasta);
+
+        ByteBuffer ids = columna(COL_IDS);
+        ByteBuffer tiempos = columna(COL_TIEMPOS);
+        ByteBuffer totales = columna(COL_TOTALES);
+        ByteBuffer cantItems = columna(COL_CANT_ITEMS);
+        ByteBuffer productos = columna(COL_PRODUCTOS);
+        ByteBuffer precios = columna(COL_PRECIOS);
+        ByteBuffer cantidades = columna(COL_CANTIDADES);
+
+        List<Venta> resultado = new ArrayList<>();
+        long tiempo = 0;
+        for (int v = 0; v < numVentas; v++) {
+            tiempo += Varint.leerConSigno(tiempos);
+            if (tiempo >= hastaMs) {
+                break; // Ventas ordenadas por tiempo
+            }
+            boolean incluida = tiempo >= desdeMs;
+            int items = (int) Varint.leer(cantItems);
+
+            if (!incluida) {
+                saltarTexto(ids);
+                Varint.leer(totales);
+                for (int i = 0; i < items; i++) {
+                    Varint.leer(productos);
+                    Varint.leer(precios);
+                    Varint.leer(cantidades);
+                }
+                continue;
+            }
+
+            String id = leerTexto(ids);
+            double total = Varint.leerConSigno(totales) / 100.0;
+            List<Producto> lineas = new ArrayList<>(items);
+            for (int i = 0; i < items; i++) {
+                String nombre = diccionario[(int) Varint.leer(productos)];
+                double precio = Varint.leerConSigno(precios) / 100.0;
+                int cantidad = (int) Varint.leerConSigno(cantidades);
+                lineas.add(new Producto(nombre, precio, cantidad));
+            }
+            resultado.add(new Venta(id, deMilis(tiempo), lineas, total));
+        }
+        return resultado;
+    }
+
+    /**
+     * Suma de totales y cantidad de ventas dentro de [desde, hasta)
+     * Solo decodifica las columnas de tiempo y total
+     * @return {transacciones, ingresos}
+     */
+    public double[] sumarIngresos(LocalDateTime desde, LocalDateTime hasta) {
+        long desdeMs = aMilis(desde);
+        long hastaMs = aMilis(hasta);
+        ByteBuffer tiempos = columna(COL_TIEMPOS);
+        ByteBuffer totales = columna(COL_TOTALES);
+
+        long tiempo = 0;
+        long transacciones = 0;
+        long centavos = 0;
+        for (int v = 0; v < numVentas; v++) {
+            tiempo += Varint.leerConSigno(tiempos);
+            if (tiempo >= hastaMs) {
+                break;
+            }
+            long total = Varint.leerConSigno(totales);
+            if (tiempo >= desdeMs) {
+                transacciones++;
+                centavos += total;
+            }
+        }
+        return new double[]{transacciones, centavos / 100.0};
+    }
+
+    /**
+     * Indica si el archivo contiene la venta; solo decodifica la columna de IDs
+     */
+    public boolean contieneVenta(String id) {
+        ByteBuffer ids = columna(COL_IDS);
+        for (int v = 0; v < numVentas; v++) {
+            if (leerTexto(ids).equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Venta> leerTodas() {
+        return leerVentas(mes.atDay(1).atStartOfDay(), mes.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    // === GETTERS ===
+
+    public Path getArchivo() { return archivo; }
+    public YearMonth getMes() { return mes; }
+    public int getNumVentas() { return numVentas; }
+    public int getNumItems() { return numItems; }
+    public int getTamanoDiccionario() { return diccionario.length; }
+
+    @Override
+    public void close() throws IOException {
+        // El mapeo se libera cuando el buffer deja de ser alcanzable; hasta entonces Windows
+        // no deja borrar ni reemplazar el archivo (SalesArchive escribe generaciones nuevas)
+        canal.close();
+    }
+
+    // === DECODIFICACIÓN ===
+
+    private ByteBuffer columna(int indice) {
+        ByteBuffer vista = mapa.duplicate();
+        vista.position(offsets[indice]);
+        vista.limit(offsets[indice] + longitudes[indice]);
+        return vista.slice();
+    }
+
+    private static String leerTexto(ByteBuffer buffer) {
+        int longitud = (int) Varint.leer(buffer);
+        byte[] bytes = new byte[longitud];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void saltarTexto(ByteBuffer buffer) {
+        int longitud = (int) Varint.leer(buffer);
+        buffer.position(buffer.position() + longitud);
+    }
+
+    private static LocalDateTime deMilis(long milis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(milis, 1000),
+            Math.floorMod(milis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static void verificarCrc(MappedByteBuffer mapa, Path archivo) throws IOException {
+        int tamano = mapa.capacity();
+        if (tamano < TAMANO_CABECERA_FIJA + TAMANO_CRC) {
+            throw new IOException("Archivo columnar truncado: " + archivo);
+        }
+        ByteBuffer contenido = mapa.duplicate();
+        contenido.limit(tamano - TAMANO_CRC);
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+        if (crc.getValue() != mapa.getLong(tamano - TAMANO_CRC)) {
+            throw new IOException("CRC inválido en archivo columnar: " + archivo);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.cafeteriapos.archive;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Escribe las ventas de un mes en un archivo columnar inmutable
+ *
+ * Formato (enteros en big-endian):
+ * <pre>
+ * cabecera:  magic "CPVA" | versión | año | mes | nº ventas | nº ítems | nº columnas
+ *            y por columna (offset, longitud)
+ * columnas:  DICCIONARIO  nombres de producto; el índice en el diccionario es su ID
+ *            IDS          ID de cada venta (longitud + UTF-8)
+ *            TIEMPOS      milisegundos: el primero absoluto, luego deltas (ventas ordenadas)
+ *            TOTALES      total de cada venta en centavos
+ *            CANT_ITEMS   ítems de cada venta
+ *            PRODUCTOS    ID de diccionario de cada ítem
+ *            PRECIOS      precio unitario de cada ítem en centavos
+ *            CANTIDADES   unidades de cada ítem
+ * cola:      CRC32 de todo lo anterior
+ * </pre>
+ * Todos los valores de columna son varints (zigzag los que pueden ser negativos)
+ */
+public final class ColumnarSalesWriter {
+
+    static final int MAGIC = 0x43505641; // "CPVA"
+    static final byte VERSION = 1;
+
+    static final int COL_DICCIONARIO = 0;
+    static final int COL_IDS = 1;
+    static final int COL_TIEMPOS = 2;
+    static final int COL_TOTALES = 3;
+    static final int COL_CANT_ITEMS = 4;
+    static final int COL_PRODUCTOS = 5;
+    static final int COL_PRECIOS = 6;
+    static final int COL_CANTIDADES = 7;
+    static final int NUM_COLUMNAS = 8;
+
+    // magic + versión + año + mes + ventas + ítems + nº columnas
+    static final int TAMANO_CABECERA_FIJA = 4 + 1 + 4 + 1 + 4 + 4 + 4;
+    static final int TAMANO_CRC = 8;
+
+    private ColumnarSalesWriter() {}
+
+    /**
+     * Escribe el archivo del mes; se escribe a un temporal, se sincroniza a disco y
+     * luego se mueve al destino, así un lector nunca ve un archivo a medio escribir
+     * @return cantidad de bytes del archivo
+     */
+    public static long escribir(YearMonth mes, List<Venta> ventas, Path destino) throws IOException {
+        List<Venta> ordenadas = new ArrayList<>(ventas);
+        ordenadas.sort(Comparator.comparing(Venta::getFechaHora).thenComparing(Venta::getId));
+
+        Map<String, Integer> diccionario = new LinkedHashMap<>();
+        Varint.Columna[] columnas = new Varint.Columna[NUM_COLUMNAS];
+        for (int i = 0; i < NUM_COLUMNAS; i++) {
+            columnas[i] = new Varint.Columna();
+        }
+
+        long tiempoAnterior = 0;
+        int items = 0;
+        for (Venta venta : ordenadas) {
+            columnas[COL_IDS].escribirBytes(venta.getId().getBytes(StandardCharsets.UTF_8));
+            long tiempo = aMilis(venta.getFechaHora());
+            columnas[COL_TIEMPOS].escribirConSigno(tiempo - tiempoAnterior);
+            tiempoAnterior = tiempo;
+            columnas[COL_TOTALES].escribirConSigno(aCentavos(venta.getTotal()));
+
+            List<Producto> lineas = venta.getItems() != null ? venta.getItems() : List.of();
+            columnas[COL_CANT_ITEMS].escribir(lineas.size());
+            for (Producto item : lineas) {
+                Integer id = diccionario.get(item.getNombre());
+                if (id == null) {
+                    id = diccionario.size();
+                    diccionario.put(item.getNombre(), id);
+                    columnas[COL_DICCIONARIO].escribirBytes(item.getNombre().getBytes(StandardCharsets.UTF_8));
+                }
+                columnas[COL_PRODUCTOS].escribir(id);
+                // En los items de venta el stock representa la cantidad vendida
+                columnas[COL_PRECIOS].escribirConSigno(aCentavos(item.getPrecio()));
+                columnas[COL_CANTIDADES].escribirConSigno(item.getStock());
+                items++;
+            }
+        }
+
+        int tamanoCabecera = TAMANO_CABECERA_FIJA + NUM_COLUMNAS * 8;
+        int tamanoDatos = 0;
+        for (Varint.Columna columna : columnas) {
+            tamanoDatos += columna.getTamano();
+        }
+
+        ByteBuffer archivo = ByteBuffer.allocate(tamanoCabecera + tamanoDatos + TAMANO_CRC).order(ByteOrder.BIG_ENDIAN);
+        archivo.putInt(MAGIC).put(VERSION).putInt(mes.getYear()).put((byte) mes.getMonthValue())
+            .putInt(ordenadas.size()).putInt(items).putInt(NUM_COLUMNAS);
+        int offset = tamanoCabecera;
+        for (Varint.Columna columna : columnas) {
+            archivo.putInt(offset).putInt(columna.getTamano());
+            offset += columna.getTamano();
+        }
+        for (Varint.Columna columna : columnas) {
+            archivo.put(columna.comoBuffer());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(archivo.array(), 0, archivo.position());
+        archivo.putLong(crc.getValue());
+        archivo.flip();
+
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (archivo.hasRemaining()) {
+                canal.write(archivo);
+            }
+            canal.force(true);
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Files.size(destino);
+    }
+
+    static long aMilis(LocalDateTime fechaHora) {
+        return fechaHora.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static long aCentavos(double monto) {
+        return Math.round(monto * 100);
+    }
+}
@@ -0,0 +1,650 @@
+package com.cafeteriapos.archive;
+
+import com.cafeteriapos.models.LineaVenta;
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.utils.DatabaseManager;
+import com.cafeteriapos.utils.DatabaseManager.VisitanteLineaVenta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Archivo histórico de ventas: un archivo columnar inmutable por mes cerrado
+ * Los meses antiguos salen de sus particiones de ventas, y en la base quedan los meses
+ * recientes; los lectores del historial completo usan las consultas combinadas
+ * ({@link #leerVentasConBase}, {@link #recorrerLineasVenta}, {@link #contarVentas}),
+ * que unen ambas fuentes sin duplicar las ventas presentes en las dos
+ *
+ * Un archivo mapeado no se puede reemplazar ni borrar en Windows mientras el mapeo siga vivo,
+ * y el mapeo recién se libera cuando el recolector descarta el buffer. Por eso un mes que se
+ * vuelve a archivar se escribe en una generación nueva ({@code ventas_2024-01.1.col}, ...);
+ * las generaciones anteriores se borran apenas se puede, o al cargar el índice la próxima vez
+ */
+public class SalesArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesArchive.class);
+
+    // Meses que permanecen en la base de datos (además del mes en curso)
+    public static final int MESES_EN_LINEA = 6;
+
+    private static final Path DIRECTORIO_POR_DEFECTO = Paths.get("./data/archivo");
+    private static final String PREFIJO = "ventas_";
+    private static final String EXTENSION = ".col";
+    // Marca de un mes eliminado cuyos archivos aún no se pudieron borrar
+    private static final String EXTENSION_VACIO = ".vacio";
+
+    // === DEPENDENCIAS ===
+    private final Path directorio;
+    private final BiFunction<LocalDateTime, LocalDateTime, List<Venta>> leerVentasDb;
+    private final BiFunction<YearMonth, Collection<String>, Integer> eliminarVentasDb;
+    private final Supplier<LocalDateTime> ventaMasAntiguaDb;
+    private final RecorridoLineas recorrerLineasDb;
+    private final ToLongBiFunction<LocalDateTime, LocalDateTime> contarVentasDb;
+
+    // Lectores abiertos (mapeados) por mes
+    private final Map<YearMonth, ColumnarSalesReader> lectores = new ConcurrentHashMap<>();
+
+    // Archivo vigente (última generación) de cada mes; se carga del directorio la primera vez
+    // Tiene su propio lock y no el monitor: se consulta con el lock de la base tomado
+    private final Object cargaIndice = new Object();
+    private volatile NavigableMap<YearMonth, Path> vigentes;
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile SalesArchive instance;
+    private static final Object LOCK = new Object();
+
+    /**
+     * Recorrido con cursor de las líneas de venta de la base en [desde, hasta)
+     */
+    interface RecorridoLineas {
+        boolean recorrer(LocalDateTime desde, LocalDateTime hasta, VisitanteLineaVenta visitante) throws Exception;
+    }
+
+    private SalesArchive() {
+        this(DIRECTORIO_POR_DEFECTO, DatabaseManager::leerVentasConItems,
+            DatabaseManager::eliminarVentasDelMes, DatabaseManager::obtenerFechaVentaMasAntigua,
+            DatabaseManager::recorrerLineasVenta, DatabaseManager::contarVentas);
+    }
+
+    /**
+     * Constructor con directorio y base de datos inyectables (útil para tests)
+     * El recorrido y el conteo de la base se derivan de {@code leerVentasDb}
+     */
+    SalesArchive(Path directorio,
+                 BiFunction<LocalDateTime, LocalDateTime, List<Venta>> leerVentasDb,
+                 BiFunction<YearMonth, Collection<String>, Integer> eliminarVentasDb,
+                 Supplier<LocalDateTime> ventaMasAntiguaDb) {
+        this(directorio, leerVentasDb, eliminarVentasDb, ventaMasAntiguaDb,
+            (desde, hasta, visitante) -> {
+                LineaVenta fila = new LineaVenta();
+                for (Venta venta : leerVentasDb.apply(desde, hasta)) {
+                    if (!visitarLineas(venta, fila, visitante)) {
+                        return false;
+                    }
+                }
+                return true;
+            },
+            (desde, hasta) -> leerVentasDb.apply(desde, hasta).size());
+    }
+
+    private SalesArchive(Path directorio,
+                         BiFunction<LocalDateTime, LocalDateTime, List<Venta>> leerVentasDb,
+                         BiFunction<YearMonth, Collection<String>, Integer> eliminarVentasDb,
+                         Supplier<LocalDateTime> ventaMasAntiguaDb,
+                         RecorridoLineas recorrerLineasDb,
+                         ToLongBiFunction<LocalDateTime, LocalDateTime> contarVentasDb) {
+        this.directorio = directorio;
+        this.leerVentasDb = leerVentasDb;
+        this.eliminarVentasDb = eliminarVentasDb;
+        this.ventaMasAntiguaDb = ventaMasAntiguaDb;
+        this.recorrerLineasDb = recorrerLineasDb;
+        this.contarVentasDb = contarVentasDb;
+    }
+
+    public static SalesArchive getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new SalesArchive();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === ARCHIVADO ===
+
+    /**
+     * Archiva todos los meses anteriores a {@code limite} que aún tengan ventas en la base
+     * @return meses archivados
+     */
+    public synchronized int archivarMesesAnteriores(YearMonth limite) throws IOException {
+        LocalDateTime masAntigua = ventaMasAntiguaDb.get();
+        if (masAntigua == null) {
+            return 0;
+        }
+        int archivados = 0;
+        for (YearMonth mes = YearMonth.from(masAntigua); mes.isBefore(limite); mes = mes.plusMonths(1)) {
+            if (archivarMes(mes)) {
+                archivados++;
+            }
+        }
+        return archivados;
+    }
+
+    /**
+     * Mueve las ventas del mes de la base al archivo del mes
+     * Si el mes ya tenía archivo (p. ej. ventas cargadas con fecha pasada), se reescribe
+     * con la unión de ambos. Las ventas se borran de la base solo después de que el
+     * archivo nuevo está en disco y se verificó al releerlo, venta por venta contra la base;
+     * si eran todas las del mes se elimina la partición completa. Si falla la lectura de la
+     * base no se escribe ni se borra nada
+     * @return true si había ventas que archivar
+     */
+    public synchronized boolean archivarMes(YearMonth mes) throws IOException {
+        LocalDateTime inicio = mes.atDay(1).atStartOfDay();
+        LocalDateTime fin = mes.plusMonths(1).atDay(1).atStartOfDay();
+        List<Venta> enBase = leerVentasDb.apply(inicio, fin);
+        if (enBase.isEmpty()) {
+            return false;
+        }
+
+        // Unión por ID: tras una interrupción entre escribir y borrar, la venta está en ambos
+        Map<String, Venta> ventas = new LinkedHashMap<>();
+        ColumnarSalesReader anterior;
+        try {
+            // Un archivo anterior que no se puede abrir no se reemplaza con solo lo de la base
+            anterior = lectorArchivado(mes);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (anterior != null) {
+            anterior.leerTodas().forEach(v -> ventas.put(v.getId(), v));
+        }
+        enBase.forEach(v -> ventas.put(v.getId(), v));
+
+        Files.createDirectories(directorio);
+        // Generación nueva: el archivo anterior puede seguir mapeado y no se reemplaza
+        Path destino = archivoDe(mes, siguienteGeneracion(mes));
+        Path nuevo = destino.resolveSibling(destino.getFileName() + ".nuevo");
+        long bytes = ColumnarSalesWriter.escribir(mes, new ArrayList<>(ventas.values()), nuevo);
+        verificar(nuevo, ventas.values());
+        verificarContraBase(nuevo, inicio, fin, enBase);
+
+        try {
+            Files.move(nuevo, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(nuevo, destino);
+        }
+        // El índice cambia antes de borrar las filas: quien no las encuentre ya ve el archivo nuevo
+        Path reemplazado = indice().put(mes, destino);
+        cerrarLector(mes);
+        if (reemplazado != null) {
+            eliminarSiSePuede(reemplazado);
+        }
+
+        List<String> ids = new ArrayList<>(enBase.size());
+        enBase.forEach(v -> ids.add(v.getId()));
+        int eliminadas = eliminarVentasDb.apply(mes, ids);
+
+        logger.info("Mes {} archivado: {} ventas ({} nuevas) en {} KB; {} filas eliminadas de la base",
+            mes, ventas.size(), enBase.size(), bytes / 1024, eliminadas);
+        return true;
+    }
+
+    private static void verificar(Path archivo, Collection<Venta> esperadas) throws IOException {
+        long centavosEsperados = 0;
+        for (Venta venta : esperadas) {
+            centavosEsperados += ColumnarSalesWriter.aCentavos(venta.getTotal());
+        }
+        try (ColumnarSalesReader lector = ColumnarSalesReader.abrir(archivo)) {
+            YearMonth mes = lector.getMes();
+            double[] suma = lector.sumarIngresos(mes.atDay(1).atStartOfDay(), mes.plusMonths(1).atDay(1).atStartOfDay());
+            if (lector.getNumVentas() != esperadas.size() || Math.round(suma[1] * 100) != centavosEsperados) {
+                Files.deleteIfExists(archivo);
+                throw new IOException("Verificación fallida del archivo " + archivo
+                    + ": " + lector.getNumVentas() + " ventas (esperadas " + esperadas.size() + ")");
+            }
+        }
+    }
+
+    /**
+     * Compara con la base los ítems de cada venta leída de ella tal como quedaron en el archivo
+     * El conteo y el total de {@link #verificar} no detectan ventas con ítems de menos: acá se
+     * recorren de nuevo las líneas de la base y cada venta debe tener en el archivo la misma
+     * cantidad de ítems y el mismo importe de líneas
+     */
+    private void verificarContraBase(Path archivo, LocalDateTime inicio, LocalDateTime fin,
+                                     List<Venta> enBase) throws IOException {
+        // Por venta: {ítems, centavos de las líneas}
+        Map<String, long[]> lineasBase = new HashMap<>();
+        try {
+            recorrerLineasDb.recorrer(inicio, fin, fila -> {
+                long[] acumulado = lineasBase.computeIfAbsent(fila.getVentaId(), id -> new long[2]);
+                if (fila.tieneItem()) {
+                    acumulado[0]++;
+                    acumulado[1] += ColumnarSalesWriter.aCentavos(fila.getPrecio()) * fila.getCantidad();
+                }
+                return true;
+            });
+        } catch (Exception e) {
+            Files.deleteIfExists(archivo);
+            throw new IOException("No se pudo verificar el archivo " + archivo + " contra la base", e);
+        }
+
+        Map<String, Venta> archivadas = new HashMap<>();
+        try (ColumnarSalesReader lector = ColumnarSalesReader.abrir(archivo)) {
+            lector.leerTodas().forEach(v -> archivadas.put(v.getId(), v));
+        }
+        for (Venta venta : enBase) {
+            long[] esperado = lineasBase.get(venta.getId());
+            Venta archivada = archivadas.get(venta.getId());
+            if (esperado == null || archivada == null || !Arrays.equals(esperado, lineasDe(archivada))) {
+                Files.deleteIfExists(archivo);
+                throw new IOException("Verificación fallida del archivo " + archivo
+                    + ": los ítems de la venta " + venta.getId() + " no coinciden con la base");
+            }
+        }
+    }
+
+    private static long[] lineasDe(Venta venta) {
+        long[] lineas = new long[2];
+        if (venta.getItems() != null) {
+            for (Producto item : venta.getItems()) {
+                // En los items de venta el stock representa la cantidad vendida
+                lineas[0]++;
+                lineas[1] += ColumnarSalesWriter.aCentavos(item.getPrecio()) * item.getStock();
+            }
+        }
+        return lineas;
+    }
+
+    // === CONSULTAS ===
+
+    /**
+     * Ventas archivadas dentro de [desde, hasta), en orden cronológico
+     */
+    public List<Venta> leerVentas(LocalDateTime desde, LocalDateTime hasta) {
+        List<Venta> resultado = new ArrayList<>();
+        for (YearMonth mes : getMesesArchivados()) {
+            LocalDateTime inicioMes = mes.atDay(1).atStartOfDay();
+            LocalDateTime finMes = mes.plusMonths(1).atDay(1).atStartOfDay();
+            if (!finMes.isAfter(desde) || !inicioMes.isBefore(hasta)) {
+                continue;
+            }
+            ColumnarSalesReader lector = lectorArchivado(mes);
+            if (lector != null) {
+                resultado.addAll(lector.leerVentas(desde, hasta));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Indica si la venta está archivada en el mes
+     * Usa el lector compartido del mes y no el monitor del archivo: se puede llamar con el
+     * lock de la base tomado mientras otro hilo archiva (el monitor espera ese lock)
+     */
+    public boolean contieneVenta(YearMonth mes, String id) {
+        if (!indice().containsKey(mes)) {
+            return false;
+        }
+        ColumnarSalesReader lector = lectorArchivado(mes);
+        return lector != null && lector.contieneVenta(id);
+    }
+
+    // === CONSULTAS COMBINADAS (ARCHIVO + BASE) ===
+
+    /**
+     * Ventas con ítems de [desde, hasta) en el archivo y en la base, en orden cronológico
+     * Una venta presente en ambos (entre escribir el archivo y borrar sus filas) se toma una vez
+     * Si falla la base o un archivo del rango, el error se propaga en lugar de devolver el
+     * período incompleto
+     */
+    public List<Venta> leerVentasConBase(LocalDateTime desde, LocalDateTime hasta) {
+        List<Venta> archivadas = leerVentas(desde, hasta);
+        List<Venta> enBase = leerVentasDb.apply(desde, hasta);
+        if (archivadas.isEmpty()) {
+            return enBase;
+        }
+        Set<String> ids = new HashSet<>();
+        archivadas.forEach(v -> ids.add(v.getId()));
+        List<Venta> resultado = new ArrayList<>(archivadas.size() + enBase.size());
+        resultado.addAll(archivadas);
+        for (Venta venta : enBase) {
+            if (!ids.contains(venta.getId())) {
+                resultado.add(venta);
+            }
+        }
+        // Casi ordenada: solo las ventas cargadas con fecha pasada quedan fuera de lugar
+        resultado.sort(Comparator.comparing(Venta::getFechaHora));
+        return resultado;
+    }
+
+    /**
+     * Recorre en orden cronológico las líneas de venta de [desde, hasta) del archivo y de la base
+     * Los meses sin archivo se recorren con el cursor de la base; en un mes archivado se
+     * intercalan las ventas del archivo con las que la base aún tenga de ese mes
+     * @return true si se recorrieron todas las filas, false si el visitante lo detuvo
+     */
+    public boolean recorrerLineasVenta(LocalDateTime desde, LocalDateTime hasta,
+                                       VisitanteLineaVenta visitante) throws Exception {
+        LocalDateTime cursor = desde;
+        for (YearMonth mes : getMesesArchivados()) {
+            LocalDateTime inicioMes = max(desde, mes.atDay(1).atStartOfDay());
+            LocalDateTime finMes = min(hasta, mes.plusMonths(1).atDay(1).atStartOfDay());
+            if (!inicioMes.isBefore(finMes)) {
+                continue;
+            }
+            if (cursor.isBefore(inicioMes) && !recorrerLineasDb.recorrer(cursor, inicioMes, visitante)) {
+                return false;
+            }
+            if (!recorrerMesArchivado(mes, inicioMes, finMes, visitante)) {
+                return false;
+            }
+            cursor = finMes;
+        }
+        return !cursor.isBefore(hasta) || recorrerLineasDb.recorrer(cursor, hasta, visitante);
+    }
+
+    private boolean recorrerMesArchivado(YearMonth mes, LocalDateTime desde, LocalDateTime hasta,
+                                         VisitanteLineaVenta visitante) throws Exception {
+        ColumnarSalesReader lector = getLector(mes);
+        if (lector == null) {
+            throw new IOException("No se pudo leer el archivo histórico de " + mes);
+        }
+        Deque<Venta> pendientes = new ArrayDeque<>(lector.leerVentas(desde, hasta));
+        Set<String> ids = new HashSet<>();
+        pendientes.forEach(v -> ids.add(v.getId()));
+        LineaVenta fila = new LineaVenta();
+
+        boolean completo = recorrerLineasDb.recorrer(desde, hasta, linea -> {
+            if (ids.contains(linea.getVentaId())) {
+                return true; // Ya archivada: se entrega la copia del archivo
+            }
+            while (!pendientes.isEmpty() && pendientes.peekFirst().getFechaHora().isBefore(linea.getFechaHora())) {
+                if (!visitarLineas(pendientes.pollFirst(), fila, visitante)) {
+                    return false;
+                }
+            }
+            return visitante.visitar(linea);
+        });
+        if (!completo) {
+            return false;
+        }
+        while (!pendientes.isEmpty()) {
+            if (!visitarLineas(pendientes.pollFirst(), fila, visitante)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Entrega las líneas de una venta como las daría el cursor de la base
+     */
+    private static boolean visitarLineas(Venta venta, LineaVenta fila, VisitanteLineaVenta visitante) throws Exception {
+        List<Producto> items = venta.getItems();
+        if (items == null || items.isEmpty()) {
+            fila.cargar(venta.getId(), venta.getFechaHora(), venta.getTotal(), 0, null, 0.0, 0);
+            return visitante.visitar(fila);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Producto item = items.get(i);
+            // En los items de venta el stock representa la cantidad vendida
+            fila.cargar(venta.getId(), venta.getFechaHora(), venta.getTotal(), i,
+                item.getNombre(), item.getPrecio(), item.getStock());
+            if (!visitante.visitar(fila)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ventas de [desde, hasta) en el archivo y en la base
+     * Solo lee las columnas de tiempo del archivo; una venta que está en ambos durante el
+     * archivado de su mes se cuenta dos veces, así que el valor sirve como estimación
+     */
+    public long contarVentas(LocalDateTime desde, LocalDateTime hasta) {
+        long total = contarVentasDb.applyAsLong(desde, hasta);
+        for (YearMonth mes : getMesesArchivados()) {
+            LocalDateTime inicioMes = mes.atDay(1).atStartOfDay();
+            LocalDateTime finMes = mes.plusMonths(1).atDay(1).atStartOfDay();
+            if (!finMes.isAfter(desde) || !inicioMes.isBefore(hasta)) {
+                continue;
+            }
+            ColumnarSalesReader lector = getLector(mes);
+            if (lector != null) {
+                total += (long) lector.sumarIngresos(max(desde, inicioMes), min(hasta, finMes))[0];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fecha de la venta más antigua entre el archivo y la base, o null si no hay ventas
+     */
+    public LocalDateTime obtenerFechaVentaMasAntigua() {
+        LocalDateTime enBase = ventaMasAntiguaDb.get();
+        for (YearMonth mes : getMesesArchivados()) {
+            ColumnarSalesReader lector = getLector(mes);
+            if (lector == null || lector.getNumVentas() == 0) {
+                continue;
+            }
+            LocalDateTime archivada = lector.leerTodas().get(0).getFechaHora();
+            return enBase == null ? archivada : min(enBase, archivada);
+        }
+        return enBase;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Meses con archivo, en orden
+     */
+    public SortedSet<YearMonth> getMesesArchivados() {
+        return new TreeSet<>(indice().keySet());
+    }
+
+    /**
+     * Lector del mes, o null si el mes no está archivado
+     * @throws UncheckedIOException si el mes está archivado pero su archivo no se pudo abrir:
+     *         saltearlo devolvería el mes incompleto como si fuera todo
+     */
+    private ColumnarSalesReader lectorArchivado(YearMonth mes) {
+        ColumnarSalesReader lector = getLector(mes);
+        if (lector == null && indice().containsKey(mes)) {
+            throw new UncheckedIOException(new IOException("No se pudo leer el archivo histórico de " + mes));
+        }
+        return lector;
+    }
+
+    private ColumnarSalesReader getLector(YearMonth mes) {
+        Path archivo = indice().get(mes);
+        if (archivo == null) {
+            return null;
+        }
+        ColumnarSalesReader lector = lectores.get(mes);
+        if (lector != null && lector.getArchivo().equals(archivo)) {
+            return lector;
+        }
+        return lectores.compute(mes, (m, actual) -> {
+            if (actual != null && actual.getArchivo().equals(archivo)) {
+                return actual;
+            }
+            cerrarSilencioso(actual);
+            try {
+                return ColumnarSalesReader.abrir(archivo);
+            } catch (NoSuchFileException e) {
+                // Borrado por fuera del archivo: el mes deja de estar archivado
+                indice().remove(m, archivo);
+                return null;
+            } catch (IOException e) {
+                logger.error("No se pudo abrir el archivo histórico {}: {}", archivo, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    // === ÍNDICE DE GENERACIONES ===
+
+    private NavigableMap<YearMonth, Path> indice() {
+        NavigableMap<YearMonth, Path> actual = vigentes;
+        if (actual == null) {
+            synchronized (cargaIndice) {
+                actual = vigentes;
+                if (actual == null) {
+                    actual = cargarIndice();
+                    vigentes = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Lee del directorio la última generación de cada mes y borra las anteriores, que ya
+     * no están mapeadas en este proceso; un mes cuya última generación es una marca de
+     * vacío no queda archivado, y la marca se borra cuando no le queda nada debajo
+     */
+    private NavigableMap<YearMonth, Path> cargarIndice() {
+        NavigableMap<YearMonth, Path> indice = new ConcurrentSkipListMap<>();
+        generacionesEnDisco().forEach((mes, generaciones) -> {
+            Path ultima = generaciones.pollLastEntry().getValue();
+            boolean anterioresBorradas = true;
+            for (Path anterior : generaciones.values()) {
+                anterioresBorradas &= eliminarSiSePuede(anterior);
+            }
+            if (ultima.getFileName().toString().endsWith(EXTENSION)) {
+                indice.put(mes, ultima);
+            } else if (anterioresBorradas) {
+                eliminarSiSePuede(ultima);
+            }
+        });
+        return indice;
+    }
+
+    /**
+     * Archivos de datos y marcas de vacío de cada mes, por número de generación
+     */
+    private Map<YearMonth, TreeMap<Integer, Path>> generacionesEnDisco() {
+        Map<YearMonth, TreeMap<Integer, Path>> generaciones = new TreeMap<>();
+        if (!Files.isDirectory(directorio)) {
+            return generaciones;
+        }
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.forEach(archivo -> {
+                String nombre = archivo.getFileName().toString();
+                String extension = nombre.endsWith(EXTENSION) ? EXTENSION
+                    : nombre.endsWith(EXTENSION_VACIO) ? EXTENSION_VACIO : null;
+                if (!nombre.startsWith(PREFIJO) || extension == null) {
+                    return;
+                }
+                try {
+                    String[] partes = nombre.substring(PREFIJO.length(), nombre.length() - extension.length()).split("\\.");
+                    int generacion = partes.length > 1 ? Integer.parseInt(partes[1]) : 0;
+                    generaciones.computeIfAbsent(YearMonth.parse(partes[0]), m -> new TreeMap<>())
+                        .put(generacion, archivo);
+                } catch (Exception e) {
+                    logger.debug("Archivo ignorado en el archivo histórico: {}", nombre);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Error listando archivo histórico: {}", e.getMessage());
+        }
+        return generaciones;
+    }
+
+    private int siguienteGeneracion(YearMonth mes) {
+        TreeMap<Integer, Path> generaciones = generacionesEnDisco().get(mes);
+        return generaciones == null ? 0 : generaciones.lastKey() + 1;
+    }
+
+    private Path archivoDe(YearMonth mes, int generacion) {
+        return archivoDe(mes, generacion, EXTENSION);
+    }
+
+    private Path archivoDe(YearMonth mes, int generacion, String extension) {
+        return directorio.resolve(PREFIJO + mes + (generacion == 0 ? "" : "." + generacion) + extension);
+    }
+
+    private static boolean eliminarSiSePuede(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+            return true;
+        } catch (IOException e) {
+            // En Windows falla mientras el archivo siga mapeado; se reintenta al cargar el índice
+            logger.debug("Archivo histórico {} aún en uso: {}", archivo, e.getMessage());
+            return false;
+        }
+    }
+
+    // === CONTROL ===
+
+    /**
+     * Elimina todos los archivos (al limpiar la base de datos)
+     * Un mes con algún archivo aún mapeado recibe una marca de vacío como generación nueva,
+     * así no vuelve a aparecer como archivado; sus archivos se borran al cargar el índice
+     */
+    public synchronized void eliminarArchivos() {
+        cerrar();
+        generacionesEnDisco().forEach((mes, generaciones) -> {
+            boolean borradas = true;
+            for (Path archivo : generaciones.values()) {
+                borradas &= eliminarSiSePuede(archivo);
+            }
+            if (!borradas) {
+                try {
+                    Files.createFile(archivoDe(mes, generaciones.lastKey() + 1, EXTENSION_VACIO));
+                } catch (IOException e) {
+                    logger.warn("No se pudo eliminar el archivo de {}: {}", mes, e.getMessage());
+                }
+            }
+        });
+        logger.info("Archivo histórico de ventas eliminado");
+    }
+
+    /**
+     * Cierra los lectores y descarta el índice; la próxima consulta lo vuelve a leer del directorio
+     */
+    public void cerrar() {
+        for (YearMonth mes : new ArrayList<>(lectores.keySet())) {
+            cerrarLector(mes);
+        }
+        vigentes = null;
+    }
+
+    private void cerrarLector(YearMonth mes) {
+        cerrarSilencioso(lectores.remove(mes));
+    }
+
+    private static void cerrarSilencioso(ColumnarSalesReader lector) {
+        if (lector != null) {
+            try {
+                lector.close();
+            } catch (IOException e) {
+                logger.debug("Error cerrando lector de {}: {}", lector.getMes(), e.getMessage());
+            }
+        }
+    }
+}
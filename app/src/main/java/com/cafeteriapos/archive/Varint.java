@@ -0,0 +1,80 @@
+package com.cafeteriapos.archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Codificación de enteros de longitud variable (7 bits por byte) con zigzag para negativos
+ * Los valores pequeños, como deltas de tiempo o montos en centavos, ocupan 1 a 3 bytes
+ */
+final class Varint {
+
+    private Varint() {}
+
+    static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    static long desZigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    /**
+     * Lee un entero sin signo desde la posición actual del buffer
+     */
+    static long leer(ByteBuffer buffer) {
+        long resultado = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            resultado |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return resultado;
+    }
+
+    static long leerConSigno(ByteBuffer buffer) {
+        return desZigzag(leer(buffer));
+    }
+
+    /**
+     * Columna en construcción: arreglo de bytes que crece al escribir
+     */
+    static final class Columna {
+        private byte[] datos = new byte[256];
+        private int tamano = 0;
+
+        void escribir(long valor) {
+            asegurar(10);
+            while ((valor & ~0x7FL) != 0) {
+                datos[tamano++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            datos[tamano++] = (byte) valor;
+        }
+
+        void escribirConSigno(long valor) {
+            escribir(zigzag(valor));
+        }
+
+        void escribirBytes(byte[] bytes) {
+            escribir(bytes.length);
+            asegurar(bytes.length);
+            System.arraycopy(bytes, 0, datos, tamano, bytes.length);
+            tamano += bytes.length;
+        }
+
+        int getTamano() { return tamano; }
+
+        ByteBuffer comoBuffer() {
+            return ByteBuffer.wrap(datos, 0, tamano);
+        }
+
+        private void asegurar(int extra) {
+            if (tamano + extra > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, tamano + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package com.cafeteriapos.backup;
+
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.utils.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Backup incremental en línea de la base H2
+ *
+ * Cada ejecución crea un segmento con un script SQL comprimido por tabla modificada
+ * desde el backup anterior, y un manifiesto que indica en qué segmento está la copia
+ * vigente de cada tabla. Con el particionado mensual de ventas, un backup diario solo
+ * copia la partición del mes en curso y las tablas pequeñas
+ *
+ * - Lee de una conexión propia con aislamiento SNAPSHOT: copia consistente sin bloquear
+ *   la conexión compartida
+ * - Escribe en un único hilo de baja prioridad con límite de bytes por segundo
+ * - {@link #solicitarVerificacion()} restaura el último backup en una base temporal
+ *   y compara CRC y filas de cada tabla con el manifiesto
+ */
+public class IncrementalBackupEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalBackupEngine.class);
+
+    static final String EXTENSION_TABLA = ".sql.gz";
+
+    private static final Path DIRECTORIO_POR_DEFECTO = Paths.get("./data/backups/incremental");
+    private static final long LIMITE_BYTES_POR_SEGUNDO = 2L * 1024 * 1024;
+    private static final int SEGMENTOS_RETENIDOS = 14;
+    private static final int FILAS_POR_INSERT = 100;
+    private static final int TAMANO_BLOQUE_CURSOR = 500;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    // Los nombres de tabla se interpolan en SQL: solo se aceptan identificadores simples
+    private static final Pattern NOMBRE_TABLA = Pattern.compile("[a-z0-9_]+");
+    // Tablas grandes que cambian por inserciones y borrados (anulaciones, archivado): se comparan
+    // por una huella de su contenido sin copiarlas; las demás se copian y se comparan por CRC
+    private static final Pattern TABLA_ACUMULATIVA = Pattern.compile("(ventas|venta_items)_\\d{6}|operaciones_caja");
+    private static final Pattern NOMBRE_SEGMENTO = Pattern.compile("seg_(\\d{6})_\\d{8}T\\d{6}");
+    private static final DateTimeFormatter FORMATO_SEGMENTO = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    /**
+     * Origen de la conexión de lectura (por defecto una instantánea de DatabaseManager)
+     */
+    @FunctionalInterface
+    interface FuenteConexiones {
+        Connection abrir() throws SQLException;
+    }
+
+    // === DEPENDENCIAS ===
+    private final Path directorio;
+    private final FuenteConexiones instantanea;
+    private final long limiteBytesPorSegundo;
+    private final ExecutorService ejecutor;
+
+    // Backup pendiente o en curso; las solicitudes mientras tanto se suman a él
+    private final AtomicReference<CompletableFuture<ResultadoBackup>> backupEnCurso = new AtomicReference<>();
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile IncrementalBackupEngine instance;
+    private static final Object LOCK = new Object();
+
+    private IncrementalBackupEngine() {
+        this(DIRECTORIO_POR_DEFECTO, DatabaseManager::abrirConexionInstantanea, LIMITE_BYTES_POR_SEGUNDO,
+            ExecutorRegistry.getInstance().unHilo("IncrementalBackup", FaseCierre.RESPALDO, Thread.MIN_PRIORITY));
+    }
+
+    /**
+     * Constructor con directorio, conexión y ejecutor inyectables (útil para tests)
+     */
+    IncrementalBackupEngine(Path directorio, FuenteConexiones instantanea,
+                            long limiteBytesPorSegundo, ExecutorService ejecutor) {
+        this.directorio = directorio;
+        this.instantanea = instantanea;
+        this.limiteBytesPorSegundo = limiteBytesPorSegundo;
+        this.ejecutor = ejecutor;
+    }
+
+    public static IncrementalBackupEngine getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new IncrementalBackupEngine();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === SOLICITUDES ===
+
+    /**
+     * Programa un backup incremental en el hilo de backup
+     * Si ya hay uno pendiente o en curso, devuelve ese mismo
+     */
+    public CompletableFuture<ResultadoBackup> solicitarBackup() {
+        CompletableFuture<ResultadoBackup> nuevo = new CompletableFuture<>();
+        CompletableFuture<ResultadoBackup> actual = backupEnCurso.compareAndExchange(null, nuevo);
+        if (actual != null) {
+            return actual;
+        }
+        try {
+            ejecutor.execute(() -> {
+                ResultadoBackup resultado = null;
+                Throwable error = null;
+                try {
+                    resultado = ejecutarBackup();
+                } catch (Throwable e) {
+                    logger.error("Error en backup incremental: {}", e.getMessage());
+                    error = e;
+                }
+                // Se libera antes de completar para que una nueva solicitud encadenada no reciba este mismo
+                backupEnCurso.set(null);
+                if (error != null) {
+                    nuevo.completeExceptionally(error);
+                } else {
+                    nuevo.complete(resultado);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            backupEnCurso.set(null);
+            nuevo.completeExceptionally(e);
+        }
+        return nuevo;
+    }
+
+    /**
+     * Programa la verificación del último backup (se ejecuta después de cualquier backup pendiente)
+     */
+    public CompletableFuture<ResultadoVerificacion> solicitarVerificacion() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return verificarUltimo();
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, ejecutor);
+    }
+
+    // === BACKUP ===
+
+    /**
+     * Copia las tablas modificadas a un segmento nuevo
+     * El manifiesto se escribe al final: un segmento sin manifiesto quedó incompleto y se descarta
+     */
+    synchronized ResultadoBackup ejecutarBackup() throws IOException, SQLException {
+        long inicio = System.currentTimeMillis();
+        Files.createDirectories(directorio);
+
+        List<Path> completos = segmentosCompletos(directorio);
+        ManifiestoBackup anterior = completos.isEmpty() ? new ManifiestoBackup()
+            : ManifiestoBackup.leer(completos.get(completos.size() - 1).resolve(ManifiestoBackup.NOMBRE_ARCHIVO));
+
+        String segmento = String.format("seg_%06d_%s", siguienteNumero(directorio),
+            LocalDateTime.now().format(FORMATO_SEGMENTO));
+        Path dirSegmento = Files.createDirectories(directorio.resolve(segmento));
+
+        ManifiestoBackup manifiesto = new ManifiestoBackup();
+        int copiadas = 0;
+        int sinCambios = 0;
+        long bytes = 0;
+        long nanosEsperados = 0;
+
+        try (Connection conn = instantanea.abrir()) {
+            for (String tabla : listarTablas(conn)) {
+                ManifiestoBackup.Entrada previa = anterior.get(tabla);
+                boolean previaDisponible = previa != null && Files.exists(previa.getArchivo(directorio));
+                String huella = esAcumulativa(tabla) ? huellaContenido(conn, tabla) : "";
+
+                if (!huella.isEmpty() && previaDisponible && huella.equals(previa.getHuella())) {
+                    manifiesto.agregar(previa);
+                    sinCambios++;
+                    continue;
+                }
+
+                Path archivo = dirSegmento.resolve(tabla + EXTENSION_TABLA);
+                CopiaTabla copia = copiarTabla(conn, tabla, archivo);
+                nanosEsperados += copia.nanosEsperados;
+
+                if (previaDisponible && previa.getCrc() == copia.crc && previa.getFilas() == copia.filas) {
+                    // Mismo contenido que la copia anterior: se sigue usando aquella
+                    Files.delete(archivo);
+                    manifiesto.agregar(previa.conHuella(huella));
+                    sinCambios++;
+                } else {
+                    manifiesto.agregar(new ManifiestoBackup.Entrada(tabla, huella, segmento, copia.filas, copia.crc));
+                    copiadas++;
+                    bytes += copia.bytes;
+                }
+            }
+            conn.rollback();
+
+        } catch (IOException | SQLException | RuntimeException e) {
+            borrarDirectorio(dirSegmento);
+            throw e;
+        }
+
+        manifiesto.escribir(dirSegmento.resolve(ManifiestoBackup.NOMBRE_ARCHIVO));
+        int podados = podarSegmentos(directorio, SEGMENTOS_RETENIDOS);
+
+        ResultadoBackup resultado = new ResultadoBackup(segmento, copiadas, sinCambios, bytes,
+            System.currentTimeMillis() - inicio, TimeUnit.NANOSECONDS.toMillis(nanosEsperados));
+        logger.info("Backup incremental {}: {} tablas copiadas ({} KB), {} sin cambios, {} segmentos podados, {}ms ({}ms de espera por límite de E/S)",
+            segmento, copiadas, bytes / 1024, sinCambios, podados, resultado.getDuracionMs(), resultado.getEsperaMs());
+        return resultado;
+    }
+
+    private static List<String> listarTablas(Connection conn) throws SQLException {
+        String sql = """
+            SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES
+            WHERE LOWER(TABLE_SCHEMA) = 'public' AND TABLE_TYPE = 'BASE TABLE'
+            ORDER BY TABLE_NAME
+        """;
+        List<String> tablas = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String tabla = rs.getString(1);
+                if (NOMBRE_TABLA.matcher(tabla).matches()) {
+                    tablas.add(tabla);
+                } else {
+                    logger.warn("Tabla con nombre no soportado omitida del backup: {}", tabla);
+                }
+            }
+        }
+        return tablas;
+    }
+
+    /**
+     * Conteo de filas y suma de un hash de cada fila completa
+     * Un borrado seguido de una inserción deja el mismo conteo pero cambia la suma
+     */
+    static String huellaContenido(Connection conn, String tabla) throws SQLException {
+        StringJoiner columnas = new StringJoiner(", ");
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + tabla + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int c = 1; c <= meta.getColumnCount(); c++) {
+                String columna = '"' + meta.getColumnName(c).replace("\"", "\"\"") + '"';
+                columnas.add("COALESCE(CAST(" + columna + " AS VARCHAR), 'NULL')");
+            }
+        }
+        String sql = "SELECT COUNT(*), COALESCE(SUM(ORA_HASH(CONCAT_WS('|', " + columnas + "))), 0) FROM " + tabla;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) + ":" + rs.getBigDecimal(2).toPlainString() : "0:0";
+        }
+    }
+
+    /**
+     * Escribe la definición y las filas de la tabla como script SQL comprimido, con E/S limitada
+     * El CRC se calcula sobre el script sin comprimir
+     */
+    private CopiaTabla copiarTabla(Connection conn, String tabla, Path archivo) throws IOException, SQLException {
+        CRC32 crc = new CRC32();
+        long filas;
+        ThrottledOutputStream limitado;
+        try (OutputStream salida = Files.newOutputStream(archivo)) {
+            limitado = new ThrottledOutputStream(salida, limiteBytesPorSegundo);
+            GZIPOutputStream gzip = new GZIPOutputStream(limitado, TAMANO_BUFFER);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(gzip, crc), StandardCharsets.UTF_8), TAMANO_BUFFER)) {
+                for (String sentencia : definicionTabla(conn, tabla)) {
+                    writer.write(sentencia);
+                    writer.write(";\n");
+                }
+                filas = escribirFilas(conn, tabla, writer);
+            }
+        }
+        sincronizar(archivo);
+        return new CopiaTabla(filas, crc.getValue(), Files.size(archivo), limitado.getNanosEsperados());
+    }
+
+    /**
+     * Sentencias de creación de la tabla, sus restricciones e índices según H2
+     */
+    private static List<String> definicionTabla(Connection conn, String tabla) throws SQLException {
+        List<String> sentencias = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE " + tabla)) {
+            while (rs.next()) {
+                String sentencia = rs.getString(1).trim();
+                if (sentencia.endsWith(";")) {
+                    sentencia = sentencia.substring(0, sentencia.length() - 1);
+                }
+                // Usuarios y esquemas ya existen en la base destino
+                String mayusculas = sentencia.toUpperCase(Locale.ROOT);
+                boolean esDeTabla = (mayusculas.startsWith("CREATE") && !mayusculas.startsWith("CREATE USER")
+                    && !mayusculas.startsWith("CREATE SCHEMA")) || mayusculas.startsWith("ALTER TABLE");
+                if (esDeTabla) {
+                    sentencias.add(sentencia);
+                }
+            }
+        }
+        return sentencias;
+    }
+
+    private static long escribirFilas(Connection conn, String tabla, Writer writer) throws SQLException, IOException {
+        long filas = 0;
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(TAMANO_BLOQUE_CURSOR);
+            // Orden estable para que una tabla sin cambios produzca el mismo CRC
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + tabla + " ORDER BY 1")) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnas = meta.getColumnCount();
+                int[] tipos = new int[columnas];
+                for (int c = 0; c < columnas; c++) {
+                    tipos[c] = meta.getColumnType(c + 1);
+                }
+
+                int enLote = 0;
+                while (rs.next()) {
+                    writer.write(enLote == 0 ? "INSERT INTO " + tabla + " VALUES\n(" : ",\n(");
+                    for (int c = 0; c < columnas; c++) {
+                        if (c > 0) writer.write(", ");
+                        writer.write(literal(valor(rs, c + 1, tipos[c])));
+                    }
+                    writer.write(')');
+                    filas++;
+                    if (++enLote == FILAS_POR_INSERT) {
+                        writer.write(";\n");
+                        enLote = 0;
+                    }
+                }
+                if (enLote > 0) {
+                    writer.write(";\n");
+                }
+            }
+        }
+        return filas;
+    }
+
+    private static Object valor(ResultSet rs, int columna, int tipo) throws SQLException {
+        return switch (tipo) {
+            case Types.CLOB, Types.NCLOB, Types.LONGVARCHAR, Types.LONGNVARCHAR -> rs.getString(columna);
+            case Types.BLOB, Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY -> rs.getBytes(columna);
+            case Types.TIMESTAMP -> rs.getTimestamp(columna);
+            case Types.DATE -> rs.getDate(columna);
+            default -> rs.getObject(columna);
+        };
+    }
+
+    /**
+     * Literal SQL de un valor leído de la base
+     */
+    static String literal(Object valor) {
+        if (valor == null) {
+            return "NULL";
+        }
+        if (valor instanceof Boolean b) {
+            return b ? "TRUE" : "FALSE";
+        }
+        if (valor instanceof BigDecimal d) {
+            return d.toPlainString();
+        }
+        if (valor instanceof Double || valor instanceof Float) {
+            double d = ((Number) valor).doubleValue();
+            return Double.isFinite(d) ? Double.toString(d) : "CAST('" + d + "' AS DOUBLE PRECISION)";
+        }
+        if (valor instanceof Number) {
+            return valor.toString();
+        }
+        if (valor instanceof Timestamp t) {
+            return "TIMESTAMP '" + t + "'";
+        }
+        if (valor instanceof java.sql.Date d) {
+            return "DATE '" + d + "'";
+        }
+        if (valor instanceof LocalDateTime t) {
+            return "TIMESTAMP '" + t.toString().replace('T', ' ') + "'";
+        }
+        if (valor instanceof LocalDate d) {
+            return "DATE '" + d + "'";
+        }
+        if (valor instanceof byte[] bytes) {
+            return "X'" + HexFormat.of().formatHex(bytes) + "'";
+        }
+        return "'" + valor.toString().replace("'", "''") + "'";
+    }
+
+    // === RESTAURACIÓN Y VERIFICACIÓN ===
+
+    /**
+     * Restaura el último backup en una base temporal y la compara con el manifiesto
+     */
+    synchronized ResultadoVerificacion verificarUltimo() throws IOException, SQLException {
+        Path temporal = Files.createTempDirectory("verificacion_backup");
+        try {
+            ResultadoVerificacion resultado = restaurarUltimo(temporal.resolve("verificacion"));
+            if (resultado.isCorrecto()) {
+                logger.info("Backup {} verificado: {} tablas, {} filas en {}ms",
+                    resultado.getSegmento(), resultado.getTablas(), resultado.getFilas(), resultado.getDuracionMs());
+            } else {
+                logger.error("Verificación del backup {} con errores: {}", resultado.getSegmento(), resultado.getErrores());
+            }
+            return resultado;
+        } finally {
+            borrarDirectorio(temporal);
+        }
+    }
+
+    /**
+     * Restaura el último backup completo en una base nueva; nunca toca la base en uso
+     * @param baseDestino ruta de la base sin extensión (p. ej. ./data/restaurada)
+     */
+    public synchronized ResultadoVerificacion restaurarUltimo(Path baseDestino) throws IOException, SQLException {
+        if (Files.exists(baseDestino.resolveSibling(baseDestino.getFileName() + ".mv.db"))) {
+            throw new IOException("Ya existe una base en " + baseDestino + "; elija otro destino");
+        }
+        List<Path> completos = segmentosCompletos(directorio);
+        if (completos.isEmpty()) {
+            throw new IOException("No hay backups incrementales en " + directorio);
+        }
+        Path dirSegmento = completos.get(completos.size() - 1);
+        ManifiestoBackup manifiesto = ManifiestoBackup.leer(dirSegmento.resolve(ManifiestoBackup.NOMBRE_ARCHIVO));
+
+        long inicio = System.currentTimeMillis();
+        List<String> errores = new ArrayList<>();
+        long filasTotales = 0;
+        try (Connection conn = DriverManager.getConnection(DatabaseManager.urlBaseDatos(baseDestino), "sa", "");
+             Statement stmt = conn.createStatement()) {
+            for (ManifiestoBackup.Entrada entrada : manifiesto.getEntradas()) {
+                String tabla = entrada.getTabla();
+                Path archivo = entrada.getArchivo(directorio);
+                if (!NOMBRE_TABLA.matcher(tabla).matches()) {
+                    errores.add("Nombre de tabla inválido en el manifiesto: " + tabla);
+                } else if (!Files.exists(archivo)) {
+                    errores.add(tabla + ": falta " + archivo);
+                } else if (crcContenido(archivo) != entrada.getCrc()) {
+                    errores.add(tabla + ": CRC distinto al del manifiesto");
+                } else {
+                    try {
+                        stmt.execute("RUNSCRIPT FROM '" + archivo.toAbsolutePath().toString().replace("'", "''")
+                            + "' COMPRESSION GZIP CHARSET 'UTF-8'");
+                        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + tabla)) {
+                            long filas = rs.next() ? rs.getLong(1) : -1;
+                            if (filas != entrada.getFilas()) {
+                                errores.add(tabla + ": " + filas + " filas restauradas (esperadas " + entrada.getFilas() + ")");
+                            }
+                            filasTotales += Math.max(filas, 0);
+                        }
+                    } catch (SQLException e) {
+                        errores.add(tabla + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return new ResultadoVerificacion(dirSegmento.getFileName().toString(), manifiesto.getEntradas().size(),
+            filasTotales, errores, System.currentTimeMillis() - inicio);
+    }
+
+    private static long crcContenido(Path archivo) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[TAMANO_BUFFER];
+        try (InputStream entrada = new GZIPInputStream(Files.newInputStream(archivo), TAMANO_BUFFER)) {
+            int leidos;
+            while ((leidos = entrada.read(buffer)) > 0) {
+                crc.update(buffer, 0, leidos);
+            }
+        }
+        return crc.getValue();
+    }
+
+    // === SEGMENTOS ===
+
+    static boolean esAcumulativa(String tabla) {
+        return TABLA_ACUMULATIVA.matcher(tabla).matches();
+    }
+
+    /**
+     * Segmentos con manifiesto, del más antiguo al más reciente
+     */
+    static List<Path> segmentosCompletos(Path directorio) throws IOException {
+        List<Path> completos = new ArrayList<>();
+        for (Path segmento : segmentos(directorio)) {
+            if (Files.exists(segmento.resolve(ManifiestoBackup.NOMBRE_ARCHIVO))) {
+                completos.add(segmento);
+            }
+        }
+        return completos;
+    }
+
+    private static List<Path> segmentos(Path directorio) throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return List.of();
+        }
+        try (Stream<Path> contenido = Files.list(directorio)) {
+            return contenido
+                .filter(Files::isDirectory)
+                .filter(p -> NOMBRE_SEGMENTO.matcher(p.getFileName().toString()).matches())
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static int siguienteNumero(Path directorio) throws IOException {
+        int maximo = 0;
+        for (Path segmento : segmentos(directorio)) {
+            Matcher m = NOMBRE_SEGMENTO.matcher(segmento.getFileName().toString());
+            if (m.matches()) {
+                maximo = Math.max(maximo, Integer.parseInt(m.group(1)));
+            }
+        }
+        return maximo + 1;
+    }
+
+    /**
+     * Conserva los últimos {@code retenidos} segmentos completos y los que sus manifiestos
+     * referencian; borra el resto (incluidos los incompletos)
+     * @return segmentos borrados
+     */
+    static int podarSegmentos(Path directorio, int retenidos) throws IOException {
+        List<Path> completos = segmentosCompletos(directorio);
+        Set<String> conservar = new HashSet<>();
+        for (Path segmento : completos.subList(Math.max(0, completos.size() - retenidos), completos.size())) {
+            conservar.add(segmento.getFileName().toString());
+            conservar.addAll(ManifiestoBackup.leer(segmento.resolve(ManifiestoBackup.NOMBRE_ARCHIVO))
+                .segmentosReferenciados());
+        }
+        int podados = 0;
+        for (Path segmento : segmentos(directorio)) {
+            if (!conservar.contains(segmento.getFileName().toString())) {
+                borrarDirectorio(segmento);
+                podados++;
+            }
+        }
+        return podados;
+    }
+
+    private static void borrarDirectorio(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> contenido = Files.walk(dir)) {
+            contenido.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar {}: {}", p, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static void sincronizar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+    }
+
+    // === CONTROL ===
+
+    public void shutdown() {
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // === RESULTADOS ===
+
+    private static final class CopiaTabla {
+        private final long filas;
+        private final long crc;
+        private final long bytes;
+        private final long nanosEsperados;
+
+        CopiaTabla(long filas, long crc, long bytes, long nanosEsperados) {
+            this.filas = filas;
+            this.crc = crc;
+            this.bytes = bytes;
+            this.nanosEsperados = nanosEsperados;
+        }
+    }
+
+    public static class ResultadoBackup {
+        private final String segmento;
+        private final int tablasCopiadas;
+        private final int tablasSinCambios;
+        private final long bytes;
+        private final long duracionMs;
+        private final long esperaMs;
+
+        public ResultadoBackup(String segmento, int tablasCopiadas, int tablasSinCambios,
+                               long bytes, long duracionMs, long esperaMs) {
+            this.segmento = segmento;
+            this.tablasCopiadas = tablasCopiadas;
+            this.tablasSinCambios = tablasSinCambios;
+            this.bytes = bytes;
+            this.duracionMs = duracionMs;
+            this.esperaMs = esperaMs;
+        }
+
+        // Getters
+        public String getSegmento() { return segmento; }
+        public int getTablasCopiadas() { return tablasCopiadas; }
+        public int getTablasSinCambios() { return tablasSinCambios; }
+        public long getBytes() { return bytes; }
+        public long getDuracionMs() { return duracionMs; }
+        public long getEsperaMs() { return esperaMs; }
+    }
+
+    public static class ResultadoVerificacion {
+        private final String segmento;
+        private final int tablas;
+        private final long filas;
+        private final List<String> errores;
+        private final long duracionMs;
+
+        public ResultadoVerificacion(String segmento, int tablas, long filas, List<String> errores, long duracionMs) {
+            this.segmento = segmento;
+            this.tablas = tablas;
+            this.filas = filas;
+            this.errores = List.copyOf(errores);
+            this.duracionMs = duracionMs;
+        }
+
+        public boolean isCorrecto() {
+            return errores.isEmpty();
+        }
+
+        // Getters
+        public String getSegmento() { return segmento; }
+        public int getTablas() { return tablas; }
+        public long getFilas() { return filas; }
+        public List<String> getErrores() { return errores; }
+        public long getDuracionMs() { return duracionMs; }
+    }
+}
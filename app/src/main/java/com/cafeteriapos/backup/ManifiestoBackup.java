@@ -0,0 +1,121 @@
+package com.cafeteriapos.backup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Manifiesto de un segmento de backup: para cada tabla, el segmento que tiene su copia vigente
+ * Cada segmento guarda el manifiesto completo de su instante, así cualquier segmento
+ * retenido se puede restaurar por sí solo siguiendo sus referencias
+ *
+ * Formato: una línea por tabla, campos separados por tabulador
+ * <pre>tabla  huella  segmento  filas  crc</pre>
+ * La huella está vacía en las tablas que se comparan por contenido
+ */
+final class ManifiestoBackup {
+
+    static final String NOMBRE_ARCHIVO = "manifiesto.txt";
+    private static final String SEPARADOR = "\t";
+
+    /**
+     * Copia vigente de una tabla
+     */
+    static final class Entrada {
+        private final String tabla;
+        private final String huella;
+        private final String segmento;
+        private final long filas;
+        private final long crc;
+
+        Entrada(String tabla, String huella, String segmento, long filas, long crc) {
+            this.tabla = tabla;
+            this.huella = huella != null ? huella : "";
+            this.segmento = segmento;
+            this.filas = filas;
+            this.crc = crc;
+        }
+
+        Entrada conHuella(String nuevaHuella) {
+            return new Entrada(tabla, nuevaHuella, segmento, filas, crc);
+        }
+
+        // Getters
+        String getTabla() { return tabla; }
+        String getHuella() { return huella; }
+        String getSegmento() { return segmento; }
+        long getFilas() { return filas; }
+        long getCrc() { return crc; }
+
+        /**
+         * Archivo de la copia, relativo al directorio de backups
+         */
+        Path getArchivo(Path directorio) {
+            return directorio.resolve(segmento).resolve(tabla + IncrementalBackupEngine.EXTENSION_TABLA);
+        }
+    }
+
+    private final Map<String, Entrada> entradas = new TreeMap<>();
+
+    void agregar(Entrada entrada) {
+        entradas.put(entrada.getTabla(), entrada);
+    }
+
+    Entrada get(String tabla) {
+        return entradas.get(tabla);
+    }
+
+    Collection<Entrada> getEntradas() {
+        return Collections.unmodifiableCollection(entradas.values());
+    }
+
+    boolean isEmpty() {
+        return entradas.isEmpty();
+    }
+
+    Set<String> segmentosReferenciados() {
+        Set<String> segmentos = new HashSet<>();
+        entradas.values().forEach(e -> segmentos.add(e.getSegmento()));
+        return segmentos;
+    }
+
+    // === PERSISTENCIA ===
+
+    static ManifiestoBackup leer(Path archivo) throws IOException {
+        ManifiestoBackup manifiesto = new ManifiestoBackup();
+        for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+            if (linea.isBlank()) {
+                continue;
+            }
+            String[] campos = linea.split(SEPARADOR, -1);
+            if (campos.length != 5) {
+                throw new IOException("Línea de manifiesto inválida en " + archivo + ": " + linea);
+            }
+            manifiesto.agregar(new Entrada(campos[0], campos[1], campos[2],
+                Long.parseLong(campos[3]), Long.parseLong(campos[4])));
+        }
+        return manifiesto;
+    }
+
+    /**
+     * Escribe a un temporal y lo mueve: el manifiesto es lo último que se escribe
+     * de un segmento, y su presencia marca al segmento como completo
+     */
+    void escribir(Path archivo) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            for (Entrada e : entradas.values()) {
+                writer.write(String.join(SEPARADOR, e.getTabla(), e.getHuella(), e.getSegmento(),
+                    Long.toString(e.getFilas()), Long.toString(e.getCrc())));
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
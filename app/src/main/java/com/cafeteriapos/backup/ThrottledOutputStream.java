@@ -0,0 +1,92 @@
+package com.cafeteriapos.backup;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Flujo de salida con límite de bytes por segundo
+ * Tras cada bloque compara lo escrito con lo permitido desde el inicio y duerme la
+ * diferencia, así el backup no compite por el disco con la base de datos en uso
+ */
+final class ThrottledOutputStream extends FilterOutputStream {
+
+    /**
+     * Espera bloqueante (inyectable para tests)
+     */
+    @FunctionalInterface
+    interface Espera {
+        void dormir(long nanos) throws InterruptedException;
+    }
+
+    // Bloques de ~1/10 s para que el ritmo sea parejo y no a ráfagas
+    private static final int DIVISOR_BLOQUE = 10;
+
+    private final long bytesPorSegundo;
+    private final int tamanoBloque;
+    private final LongSupplier reloj;
+    private final Espera espera;
+    private final long inicio;
+
+    private long bytesEscritos;
+    private long nanosEsperados;
+
+    ThrottledOutputStream(OutputStream out, long bytesPorSegundo) {
+        this(out, bytesPorSegundo, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    /**
+     * Constructor con reloj y espera inyectables (útil para tests)
+     */
+    ThrottledOutputStream(OutputStream out, long bytesPorSegundo, LongSupplier reloj, Espera espera) {
+        super(out);
+        if (bytesPorSegundo <= 0) {
+            throw new IllegalArgumentException("El límite debe ser positivo: " + bytesPorSegundo);
+        }
+        this.bytesPorSegundo = bytesPorSegundo;
+        this.tamanoBloque = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytesPorSegundo / DIVISOR_BLOQUE));
+        this.reloj = reloj;
+        this.espera = espera;
+        this.inicio = reloj.getAsLong();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        contar(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, tamanoBloque);
+            out.write(b, off, n);
+            contar(n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void contar(int n) throws IOException {
+        bytesEscritos += n;
+        long permitidoHasta = inicio + (long) (bytesEscritos * 1_000_000_000.0 / bytesPorSegundo);
+        long adelanto = permitidoHasta - reloj.getAsLong();
+        if (adelanto > 0) {
+            try {
+                espera.dormir(adelanto);
+                nanosEsperados += adelanto;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Escritura limitada interrumpida");
+            }
+        }
+    }
+
+    // === GETTERS ===
+
+    long getBytesEscritos() { return bytesEscritos; }
+    long getNanosEsperados() { return nanosEsperados; }
+}
@@ -1,7 +1,12 @@
 package com.cafeteriapos.cache;
 
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.ProductoEliminado;
+import com.cafeteriapos.events.StockCambiado;
+import com.cafeteriapos.events.VentaRegistrada;
 import com.cafeteriapos.models.Venta;
 import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.performance.SaleTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,14 +46,22 @@ public class DashboardCacheManager {
     private static final long METRICS_TTL_MINUTES = 3;
     private static final long AGGREGATES_TTL_MINUTES = 10;
     
+    private static final int VENTAS_GRANDES_A_DESCARTAR = 5;
+    
     // === TRACKING DE INVALIDACIÓN ===
     private final Map<String, LocalDateTime> lastDataUpdate = new ConcurrentHashMap<>();
     
     private DashboardCacheManager() {
-        this.ventasCache = new PerformanceCache<>(VENTAS_CACHE_SIZE, VENTAS_TTL_MINUTES, true);
-        this.productosCache = new PerformanceCache<>(PRODUCTOS_CACHE_SIZE, PRODUCTOS_TTL_MINUTES, true);
-        this.metricsCache = new PerformanceCache<>(METRICS_CACHE_SIZE, METRICS_TTL_MINUTES, true);
-        this.aggregatesCache = new PerformanceCache<>(AGGREGATES_CACHE_SIZE, AGGREGATES_TTL_MINUTES, true);
+        this.ventasCache = new PerformanceCache<>("ventas", VENTAS_CACHE_SIZE, VENTAS_TTL_MINUTES, true);
+        this.productosCache = new PerformanceCache<>("productos", PRODUCTOS_CACHE_SIZE, PRODUCTOS_TTL_MINUTES, true);
+        this.metricsCache = new PerformanceCache<>("metrics", METRICS_CACHE_SIZE, METRICS_TTL_MINUTES, true);
+        this.aggregatesCache = new PerformanceCache<>("aggregates", AGGREGATES_CACHE_SIZE, AGGREGATES_TTL_MINUTES, true);
+        
+        // Invalidación inmediata en lugar de esperar el TTL
+        EventBus.getInstance().subscribe(VentaRegistrada.class, evento -> SaleTracer.getInstance()
+            .medir(evento.getVenta().getId(), "cache.invalidacion", this::invalidateVentasCache, "cache", "dashboard"));
+        EventBus.getInstance().subscribe(StockCambiado.class, evento -> invalidateProductosCache());
+        EventBus.getInstance().subscribe(ProductoEliminado.class, evento -> invalidateProductosCache());
         
         logger.info("DashboardCacheManager inicializado con configuración optimizada");
     }
@@ -217,6 +230,36 @@ public class DashboardCacheManager {
         logger.info("Limpieza manual de cachés ejecutada");
     }
     
+    // === PRESUPUESTOS BAJO PRESIÓN DE MEMORIA ===
+    
+    /**
+     * Ajusta la capacidad de todos los cachés a una fracción de su tamaño configurado
+     * Al reducir, primero se descartan las listas de ventas más grandes (son las que más
+     * memoria retienen) y luego se desalojan entradas LRU hasta entrar en el presupuesto
+     * @param fraccion entre 0 y 1; 1 restaura la capacidad original
+     * @return cantidad de entradas liberadas
+     */
+    public int ajustarPresupuestos(double fraccion) {
+        int liberadas = 0;
+        int capacidadVentas = presupuesto(VENTAS_CACHE_SIZE, fraccion);
+        if (capacidadVentas < ventasCache.getMaxSize()) {
+            int sobrantes = ventasCache.getStats().getCurrentSize() - capacidadVentas;
+            // Al menos las más grandes aunque haya lugar: son las que retienen memoria
+            liberadas += ventasCache.removeLargest(Math.max(sobrantes, VENTAS_GRANDES_A_DESCARTAR), List::size);
+        }
+        liberadas += ventasCache.setMaxSize(capacidadVentas);
+        liberadas += productosCache.setMaxSize(presupuesto(PRODUCTOS_CACHE_SIZE, fraccion));
+        liberadas += metricsCache.setMaxSize(presupuesto(METRICS_CACHE_SIZE, fraccion));
+        liberadas += aggregatesCache.setMaxSize(presupuesto(AGGREGATES_CACHE_SIZE, fraccion));
+        
+        logger.info("Presupuestos de caché al {}%: {} entradas liberadas", Math.round(fraccion * 100), liberadas);
+        return liberadas;
+    }
+    
+    private static int presupuesto(int tamanoConfigurado, double fraccion) {
+        return Math.max(1, (int) Math.round(tamanoConfigurado * Math.min(1.0, fraccion)));
+    }
+    
     // === ESTADÍSTICAS GLOBALES ===
     
     /**
@@ -1,17 +1,24 @@
 package com.cafeteriapos.cache;
 
+import com.cafeteriapos.performance.EventosJfr;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
 
 /**
  * Sistema de caché avanzado con LRU, TTL y gestión automática de memoria
@@ -22,14 +29,19 @@ public class PerformanceCache<K, V> {
     private static final Logger logger = LoggerFactory.getLogger(PerformanceCache.class);
     
     // === CONFIGURACIÓN DEL CACHÉ ===
-    private final int maxSize;
+    private final String nombre;
+    private volatile int maxSize;
     private final long ttlMillis;
     private final boolean enableStats;
     
     // === ESTRUCTURAS DE DATOS THREAD-SAFE ===
     private final Map<K, CacheEntry<V>> cache;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final ScheduledExecutorService cleanupExecutor;
+    private final ScheduledFuture<?> cleanupTask;
+    
+    // Un solo hilo de limpieza compartido por todos los cachés (tarea corta, de CPU)
+    private static final ScheduledExecutorService CLEANUP_EXECUTOR =
+        ExecutorRegistry.getInstance().programado("PerformanceCache-Cleanup", FaseCierre.ANALITICA);
     
     // === ESTADÍSTICAS DE PERFORMANCE ===
     private volatile long hits = 0;
@@ -41,6 +53,14 @@ public class PerformanceCache<K, V> {
      * Constructor del caché con configuración personalizada
      */
     public PerformanceCache(int maxSize, long ttlMinutes, boolean enableStats) {
+        this("PerformanceCache", maxSize, ttlMinutes, enableStats);
+    }
+    
+    /**
+     * Constructor con nombre, que identifica al caché en los eventos JFR
+     */
+    public PerformanceCache(String nombre, int maxSize, long ttlMinutes, boolean enableStats) {
+        this.nombre = nombre;
         this.maxSize = maxSize;
         this.ttlMillis = ttlMinutes * 60 * 1000L;
         this.enableStats = enableStats;
@@ -49,16 +69,10 @@ public class PerformanceCache<K, V> {
         this.cache = new ConcurrentHashMap<>(maxSize);
         
         // Limpieza automática cada 2 minutos
-        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "PerformanceCache-Cleanup");
-            t.setDaemon(true);
-            return t;
-        });
-        
-        startCleanupTask();
+        this.cleanupTask = startCleanupTask();
         
-        logger.info("PerformanceCache iniciado: maxSize={}, ttl={}min, stats={}", 
-            maxSize, ttlMinutes, enableStats);
+        logger.info("PerformanceCache '{}' iniciado: maxSize={}, ttl={}min, stats={}", 
+            nombre, maxSize, ttlMinutes, enableStats);
     }
     
     /**
@@ -72,6 +86,20 @@ public class PerformanceCache<K, V> {
      * Obtiene un valor del caché
      */
     public V get(K key) {
+        EventosJfr.LecturaCache evento = new EventosJfr.LecturaCache();
+        evento.begin();
+        V valor = buscar(key);
+        if (evento.shouldCommit()) {
+            evento.cache = nombre;
+            evento.clave = String.valueOf(key);
+            evento.acierto = valor != null;
+            evento.tamano = cache.size();
+            evento.commit();
+        }
+        return valor;
+    }
+    
+    private V buscar(K key) {
         lock.readLock().lock();
         try {
             CacheEntry<V> entry = cache.get(key);
@@ -139,10 +167,19 @@ public class PerformanceCache<K, V> {
     public V getOrCompute(K key, java.util.function.Supplier<V> supplier) {
         V value = get(key);
         if (value == null) {
+            EventosJfr.CargaCache evento = new EventosJfr.CargaCache();
+            evento.begin();
             value = supplier.get();
             if (value != null) {
                 put(key, value);
             }
+            if (evento.shouldCommit()) {
+                evento.cache = nombre;
+                evento.clave = String.valueOf(key);
+                evento.guardado = value != null;
+                evento.tamano = cache.size();
+                evento.commit();
+            }
         }
         return value;
     }
@@ -172,50 +209,97 @@ public class PerformanceCache<K, V> {
         }
     }
     
+    // === AJUSTE POR PRESIÓN DE MEMORIA ===
+    
     /**
-     * Obtiene estadísticas del caché
+     * Cambia la capacidad máxima; si hay más entradas que la nueva capacidad se
+     * desalojan las menos usadas recientemente
+     * @return cantidad de entradas desalojadas
      */
-    public CacheStats getStats() {
-        lock.readLock().lock();
+    public int setMaxSize(int nuevoMaxSize) {
+        if (nuevoMaxSize < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + nuevoMaxSize);
+        }
+        lock.writeLock().lock();
         try {
-            long totalRequests = hits + misses;
-            double hitRate = totalRequests > 0 ? (double) hits / totalRequests : 0.0;
-            
-            return new CacheStats(
-                cache.size(),
-                maxSize,
-                hits,
-                misses,
-                hitRate,
-                evictions,
-                cleanups
-            );
+            this.maxSize = nuevoMaxSize;
+            int desalojadas = 0;
+            while (cache.size() > nuevoMaxSize) {
+                evictLRU();
+                desalojadas++;
+            }
+            return desalojadas;
         } finally {
-            lock.readLock().unlock();
+            lock.writeLock().unlock();
         }
     }
     
     /**
-     * Cierra el caché y libera recursos
+     * Elimina las {@code cantidad} entradas de mayor peso (las que más memoria retienen)
+     * @param peso estimación del tamaño de un valor, por ejemplo la cantidad de elementos de una lista
+     * @return cantidad de entradas eliminadas
      */
-    public void shutdown() {
-        cleanupExecutor.shutdown();
+    public int removeLargest(int cantidad, ToLongFunction<V> peso) {
+        EventosJfr.DesalojoCache evento = new EventosJfr.DesalojoCache();
+        evento.begin();
+        lock.writeLock().lock();
         try {
-            if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                cleanupExecutor.shutdownNow();
+            List<Map.Entry<K, CacheEntry<V>>> entradas = new ArrayList<>(cache.entrySet());
+            entradas.sort(Comparator.comparingLong(
+                (Map.Entry<K, CacheEntry<V>> e) -> peso.applyAsLong(e.getValue().getValue())).reversed());
+            int eliminadas = 0;
+            for (int i = 0; i < entradas.size() && eliminadas < cantidad; i++) {
+                cache.remove(entradas.get(i).getKey());
+                evictions++;
+                eliminadas++;
             }
-        } catch (InterruptedException e) {
-            cleanupExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
+            emitirDesalojo(evento, "mayores", eliminadas);
+            return eliminadas;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Obtiene estadísticas del caché
+     * Sin tomar el lock: los contadores son volátiles, así que una extracción de métricas
+     * nunca espera a un put en curso (los valores pueden diferir en una operación)
+     */
+    public CacheStats getStats() {
+        long hits = this.hits;
+        long misses = this.misses;
+        long totalRequests = hits + misses;
+        double hitRate = totalRequests > 0 ? (double) hits / totalRequests : 0.0;
+        
+        return new CacheStats(
+            cache.size(),
+            maxSize,
+            hits,
+            misses,
+            hitRate,
+            evictions,
+            cleanups
+        );
+    }
+    
+    /**
+     * Cierra el caché y libera recursos
+     */
+    public void shutdown() {
+        // El hilo es compartido: solo se cancela la tarea de este caché
+        cleanupTask.cancel(false);
         clear();
         logger.info("PerformanceCache cerrado");
     }
     
     // === MÉTODOS PRIVADOS ===
     
-    private void startCleanupTask() {
-        cleanupExecutor.scheduleAtFixedRate(() -> {
+    private ScheduledFuture<?> startCleanupTask() {
+        return CLEANUP_EXECUTOR.scheduleAtFixedRate(() -> {
             try {
                 cleanupExpired();
             } catch (Exception e) {
@@ -225,6 +309,8 @@ public class PerformanceCache<K, V> {
     }
     
     private void cleanupExpired() {
+        EventosJfr.DesalojoCache evento = new EventosJfr.DesalojoCache();
+        evento.begin();
         lock.writeLock().lock();
         try {
             int removedCount = 0;
@@ -241,6 +327,7 @@ public class PerformanceCache<K, V> {
             if (removedCount > 0) {
                 cleanups++;
                 logger.debug("Cleanup automático: {} entradas expiradas removidas", removedCount);
+                emitirDesalojo(evento, "expiradas", removedCount);
             }
             
         } finally {
@@ -249,13 +336,17 @@ public class PerformanceCache<K, V> {
     }
     
     private void evictLRU() {
+        EventosJfr.DesalojoCache evento = new EventosJfr.DesalojoCache();
+        evento.begin();
+        
         // Encontrar la entrada menos recientemente usada
+        // Sin cota inicial: con accesos en el mismo instante igual se elige una entrada
         K lruKey = null;
-        LocalDateTime oldestAccess = LocalDateTime.now();
+        LocalDateTime oldestAccess = null;
         
         for (Map.Entry<K, CacheEntry<V>> entry : cache.entrySet()) {
             LocalDateTime accessTime = entry.getValue().getLastAccessed();
-            if (accessTime.isBefore(oldestAccess)) {
+            if (oldestAccess == null || accessTime.isBefore(oldestAccess)) {
                 oldestAccess = accessTime;
                 lruKey = entry.getKey();
             }
@@ -265,6 +356,17 @@ public class PerformanceCache<K, V> {
             cache.remove(lruKey);
             evictions++;
             logger.debug("Entrada LRU evicted: key={}", lruKey);
+            emitirDesalojo(evento, "lru", 1);
+        }
+    }
+    
+    private void emitirDesalojo(EventosJfr.DesalojoCache evento, String motivo, int entradas) {
+        if (evento.shouldCommit()) {
+            evento.cache = nombre;
+            evento.motivo = motivo;
+            evento.entradas = entradas;
+            evento.tamano = cache.size();
+            evento.commit();
         }
     }
     
@@ -0,0 +1,206 @@
+package com.cafeteriapos.charts;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Modelo de datos de los gráficos del dashboard
+ * Compara los nuevos agregados con lo que ya se muestra y solo modifica
+ * los puntos que cambiaron, en lugar de reconstruir series completas
+ */
+public class DashboardChartModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardChartModel.class);
+
+    private static final DateTimeFormatter FORMATO_DIA = DateTimeFormatter.ofPattern("dd/MM");
+    static final String SIN_DATOS = "Sin datos disponibles";
+
+    // === DATOS MOSTRADOS (listas vivas de los gráficos) ===
+    private final ObservableList<XYChart.Data<String, Number>> puntosVentas;
+    private final ObservableList<PieChart.Data> porcionesProductos;
+
+    // Índice por producto para localizar porciones sin recorrer la lista
+    private final Map<String, PieChart.Data> porcionPorProducto = new HashMap<>();
+
+    /**
+     * @param puntosVentas datos de la serie del BarChart de ventas diarias
+     * @param porcionesProductos datos del PieChart de productos top
+     */
+    public DashboardChartModel(ObservableList<XYChart.Data<String, Number>> puntosVentas,
+                               ObservableList<PieChart.Data> porcionesProductos) {
+        this.puntosVentas = puntosVentas;
+        this.porcionesProductos = porcionesProductos;
+    }
+
+    // === AGREGACIÓN ===
+
+    /**
+     * Total vendido por día para los últimos {@code dias} días, en orden cronológico
+     */
+    public static LinkedHashMap<String, Double> calcularVentasDiarias(List<Venta> ventas, LocalDate hoy, int dias) {
+        LocalDate desde = hoy.minusDays(dias - 1L);
+        double[] totales = new double[dias];
+
+        if (ventas != null) {
+            for (Venta venta : ventas) {
+                LocalDate fecha = venta.getFecha();
+                if (!fecha.isBefore(desde) && !fecha.isAfter(hoy)) {
+                    totales[(int) (fecha.toEpochDay() - desde.toEpochDay())] += venta.getTotal();
+                }
+            }
+        }
+
+        LinkedHashMap<String, Double> resultado = new LinkedHashMap<>();
+        for (int i = 0; i < dias; i++) {
+            resultado.put(desde.plusDays(i).format(FORMATO_DIA), totales[i]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Unidades vendidas de los {@code limite} productos más vendidos, de mayor a menor
+     */
+    public static LinkedHashMap<String, Integer> calcularProductosTop(List<Venta> ventas, int limite) {
+        Map<String, Integer> ventasPorProducto = new HashMap<>();
+
+        if (ventas != null) {
+            for (Venta venta : ventas) {
+                if (venta.getItems() == null) continue;
+                for (Producto prod : venta.getItems()) {
+                    if (prod.getNombre() != null && !prod.getNombre().trim().isEmpty()) {
+                        ventasPorProducto.merge(prod.getNombre().trim(), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        LinkedHashMap<String, Integer> resultado = new LinkedHashMap<>();
+        ventasPorProducto.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()))
+            .limit(limite)
+            .forEach(entry -> resultado.put(entry.getKey(), entry.getValue()));
+        return resultado;
+    }
+
+    // === APLICACIÓN DE DIFERENCIAS (hilo FX) ===
+
+    /**
+     * Aplica los totales diarios sobre la serie mostrada
+     * @return número de puntos agregados, eliminados o modificados
+     */
+    public int aplicarVentasDiarias(LinkedHashMap<String, Double> totalesPorDia) {
+        int cambios = 0;
+
+        // Quitar los días que salieron de la ventana
+        Iterator<XYChart.Data<String, Number>> it = puntosVentas.iterator();
+        while (it.hasNext()) {
+            if (!totalesPorDia.containsKey(it.next().getXValue())) {
+                it.remove();
+                cambios++;
+            }
+        }
+
+        int indice = 0;
+        for (Map.Entry<String, Double> entry : totalesPorDia.entrySet()) {
+            XYChart.Data<String, Number> actual = indice < puntosVentas.size() ? puntosVentas.get(indice) : null;
+
+            if (actual != null && actual.getXValue().equals(entry.getKey())) {
+                if (!mismoValor(actual.getYValue(), entry.getValue())) {
+                    actual.setYValue(entry.getValue());
+                    cambios++;
+                }
+            } else {
+                puntosVentas.add(indice, new XYChart.Data<>(entry.getKey(), entry.getValue()));
+                cambios++;
+            }
+            indice++;
+        }
+
+        if (cambios > 0) {
+            logger.debug("Gráfico de ventas diarias: {} puntos modificados", cambios);
+        }
+        return cambios;
+    }
+
+    /**
+     * Aplica el ranking de productos sobre el gráfico circular, en el orden del ranking
+     * @return número de porciones agregadas, eliminadas o modificadas (un reordenamiento cuenta uno)
+     */
+    public int aplicarProductosTop(LinkedHashMap<String, Integer> unidadesPorProducto) {
+        Map<String, Integer> objetivo = unidadesPorProducto;
+        if (objetivo.isEmpty()) {
+            objetivo = Map.of(SIN_DATOS, 1);
+        }
+
+        int cambios = 0;
+
+        // Quitar productos que salieron del top
+        Iterator<Map.Entry<String, PieChart.Data>> it = porcionPorProducto.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, PieChart.Data> entry = it.next();
+            if (!objetivo.containsKey(entry.getKey())) {
+                porcionesProductos.remove(entry.getValue());
+                it.remove();
+                cambios++;
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : objetivo.entrySet()) {
+            String producto = entry.getKey();
+            int unidades = entry.getValue();
+            String etiqueta = etiquetaPorcion(producto, unidades);
+
+            PieChart.Data porcion = porcionPorProducto.get(producto);
+            if (porcion == null) {
+                porcion = new PieChart.Data(etiqueta, unidades);
+                porcionPorProducto.put(producto, porcion);
+                porcionesProductos.add(porcion);
+                cambios++;
+            } else if (porcion.getPieValue() != unidades) {
+                porcion.setPieValue(unidades);
+                porcion.setName(etiqueta);
+                cambios++;
+            }
+        }
+
+        // Las porciones siguen el orden del ranking: si un producto cambió de puesto o entró
+        // al top por encima de otros, se reordenan reutilizando las mismas porciones
+        List<PieChart.Data> ordenadas = new ArrayList<>(objetivo.size());
+        for (String producto : objetivo.keySet()) {
+            ordenadas.add(porcionPorProducto.get(producto));
+        }
+        if (!ordenadas.equals(porcionesProductos)) {
+            porcionesProductos.setAll(ordenadas);
+            cambios++;
+        }
+
+        if (cambios > 0) {
+            logger.debug("Gráfico de productos top: {} porciones modificadas", cambios);
+        }
+        return cambios;
+    }
+
+    // === MÉTODOS PRIVADOS ===
+
+    private static String etiquetaPorcion(String producto, int unidades) {
+        if (SIN_DATOS.equals(producto)) {
+            return SIN_DATOS;
+        }
+        String nombreCorto = producto.length() > 15 ? producto.substring(0, 12) + "..." : producto;
+        return nombreCorto + " (" + unidades + ")";
+    }
+
+    private static boolean mismoValor(Number actual, double nuevo) {
+        return actual != null && Double.compare(actual.doubleValue(), nuevo) == 0;
+    }
+}
@@ -1,10 +1,30 @@
 package com.cafeteriapos.controllers;
 
+import com.cafeteriapos.analytics.AgregadoVentas;
+import com.cafeteriapos.analytics.KllSketch;
+import com.cafeteriapos.analytics.ProductRotationIndex;
+import com.cafeteriapos.analytics.TicketDistributionService;
+import com.cafeteriapos.archive.SalesArchive;
 import com.cafeteriapos.cache.DashboardCacheManager;
+import com.cafeteriapos.charts.DashboardChartModel;
+import com.cafeteriapos.events.AlertaAnomalia;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.ProductoEliminado;
+import com.cafeteriapos.events.StockCambiado;
+import com.cafeteriapos.events.VentaRegistrada;
+import com.cafeteriapos.export.VentasCsvExporter;
+import com.cafeteriapos.models.PronosticoProducto;
 import com.cafeteriapos.models.Producto;
 import com.cafeteriapos.models.Venta;
 import com.cafeteriapos.performance.BackgroundProcessor;
 import com.cafeteriapos.performance.DatabaseQueryOptimizer;
+import com.cafeteriapos.performance.EventosJfr;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.FxStallWatchdog;
+import com.cafeteriapos.performance.RefreshCoalescer;
+import com.cafeteriapos.performance.RefreshScheduler;
+import com.cafeteriapos.performance.SaleTracer;
+import com.cafeteriapos.utils.AsyncDatabase;
 import com.cafeteriapos.utils.DatabaseManager;
 import javafx.animation.*;
 import javafx.application.Platform;
@@ -18,24 +38,32 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Controlador para el Dashboard moderno con estadísticas avanzadas
@@ -45,6 +73,10 @@ public class DashboardController implements Initializable {
     
     private static final Logger logger = LoggerFactory.getLogger(DashboardController.class);
     
+    // Tareas lanzadas desde la vista (exportación, limpieza, precarga): compartidas entre instancias
+    private static final ExecutorService TAREAS_DASHBOARD =
+        ExecutorRegistry.getInstance().porTareaVirtual("Dashboard-Tareas", ExecutorRegistry.FaseCierre.INTERFAZ);
+    
     // === NUEVOS CAMPOS DEL DASHBOARD MODERNO ===
     
     // Tarjeta Ventas del Día
@@ -74,8 +106,8 @@ public class DashboardController implements Initializable {
     @FXML private Button btnActualizar;
     
     // === DATA STORAGE ===
-    private List<Venta> ventasData;
-    private List<Producto> productosData;
+    private List<Venta> ventasData = new ArrayList<>();
+    private List<Producto> productosData = new ArrayList<>();
     
     // === SISTEMAS DE PERFORMANCE AVANZADOS ===
     private DashboardCacheManager cacheManager;
@@ -86,13 +118,28 @@ public class DashboardController implements Initializable {
     private static final long CACHE_DURATION = 5L * 60 * 1000; // 5 minutos en milisegundos
     private volatile boolean performanceSystemInitialized = false;
     
-    // === TIMER PARA ACTUALIZACIÓN AUTOMÁTICA ===
-    private Timeline autoUpdateTimeline;
+    // === ACTUALIZACIÓN PUSH VÍA EVENTBUS ===
+    private final List<EventBus.Suscripcion> suscripciones = new ArrayList<>();
+    private final Queue<Venta> ventasPendientes = new ConcurrentLinkedQueue<>();
+    private final Queue<StockCambiado> stockPendiente = new ConcurrentLinkedQueue<>();
+    private final Queue<String> eliminadosPendientes = new ConcurrentLinkedQueue<>();
+    private final RefreshCoalescer eventosCoalescer = new RefreshCoalescer("DashboardEventos", this::aplicarEventosPendientes);
+    
+    // === MODELO DE GRÁFICOS CON ACTUALIZACIÓN INCREMENTAL ===
+    private DashboardChartModel chartModel;
+    private final RefreshCoalescer graficosCoalescer = new RefreshCoalescer("DashboardGraficos", this::renderizarGraficos);
+    // Ventas aplicadas cuya traza se cierra con el próximo dibujo (solo hilo FX)
+    private final List<String> ventasPorRenderizar = new ArrayList<>();
     
-    // === OPTIMIZACIÓN INTELIGENTE DE ACTUALIZACIONES ===
-    private volatile long lastDataHash = 0;
-    private volatile long lastUpdateTime = 0;
-    private static final long MIN_UPDATE_INTERVAL = 2000; // 2 segundos mínimo entre actualizaciones
+    // === REFRESCO DE RECONCILIACIÓN ADAPTATIVO ===
+    private static final java.time.Duration REFRESCO_MINIMO = java.time.Duration.ofSeconds(15);
+    private static final java.time.Duration REFRESCO_MAXIMO = java.time.Duration.ofMinutes(5);
+    private RefreshScheduler.Registro refrescoProgramado;
+    
+    // Días de anticipación para avisar de un agotamiento pronosticado
+    private static final int DIAS_AVISO_AGOTAMIENTO = 3;
+    // Días sin ventas para considerar un producto sin rotación
+    private static final int DIAS_SIN_ROTACION = 30;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -107,8 +154,11 @@ public class DashboardController implements Initializable {
         // Cargar datos iniciales de manera optimizada
         cargarDatosOptimizado();
         
-        // Iniciar actualización automática
-        iniciarActualizacionAutomatica();
+        // Suscribirse a ventas y cambios de stock (sin polling)
+        suscribirEventos();
+        
+        // Recarga completa periódica según ritmo de ventas y visibilidad
+        programarRefrescoPeriodico();
         
         // Actualizar vista con animaciones
         actualizarDatos();
@@ -138,7 +188,7 @@ public class DashboardController implements Initializable {
             CompletableFuture.runAsync(() -> {
                 queryOptimizer.warmupCache();
                 logger.info("Cache inicial precargado exitosamente");
-            }).exceptionally(throwable -> {
+            }, TAREAS_DASHBOARD).exceptionally(throwable -> {
                 logger.error("Error en precarga inicial del caché", throwable);
                 return null;
             });
@@ -198,44 +248,55 @@ public class DashboardController implements Initializable {
         if (xAxisDias != null) {
             xAxisDias.setLabel("Días");
         }
+        
+        // Sin animación: los puntos se modifican en sitio en cada refresco
+        XYChart.Series<String, Number> serieVentas = new XYChart.Series<>();
+        serieVentas.setName("Ventas Diarias");
         if (chartVentasDiarias != null) {
             chartVentasDiarias.setLegendVisible(false);
-            chartVentasDiarias.setAnimated(true);
+            chartVentasDiarias.setAnimated(false);
+            chartVentasDiarias.getData().setAll(List.of(serieVentas));
         }
         
         // Configurar PieChart
+        ObservableList<PieChart.Data> porcionesProductos = FXCollections.observableArrayList();
         if (chartProductosTop != null) {
             chartProductosTop.setLegendVisible(true);
-            chartProductosTop.setAnimated(true);
+            chartProductosTop.setAnimated(false);
+            chartProductosTop.setData(porcionesProductos);
         }
         
+        chartModel = new DashboardChartModel(serieVentas.getData(), porcionesProductos);
+        
         logger.debug("Gráficos configurados correctamente");
     }
     
     /**
-     * Carga los datos reales desde Database Manager - ULTRA RÁPIDO H2
+     * Carga los datos reales desde H2 fuera del hilo FX (fachada asíncrona)
+     * Al llegar, se vuelven a pintar métricas y gráficos con los datos nuevos
      */
     private void cargarDatos() {
-        try {
-            logger.info("Cargando datos reales para dashboard desde H2...");
-            
-            // Cargar productos reales desde H2 Database (1-5ms)
-            productosData = DatabaseManager.leerProductos();
-            logger.debug("Productos cargados desde H2: {}", productosData.size());
-            
-            // Cargar ventas reales desde H2 Database (1-5ms)
-            ventasData = DatabaseManager.leerVentas();
-            logger.debug("Ventas cargadas desde H2: {}", ventasData.size());
-            
-            logger.info("Datos reales cargados exitosamente desde H2: {} productos, {} ventas", 
-                productosData.size(), ventasData.size());
-                
-        } catch (Exception e) {
-            logger.error("Error cargando datos reales desde H2: {}", e.getMessage());
-            // Inicializar listas vacías para evitar errores
-            productosData = new ArrayList<>();
-            ventasData = new ArrayList<>();
-        }
+        logger.info("Cargando datos reales para dashboard desde H2...");
+        AsyncDatabase db = AsyncDatabase.getInstance();
+        CompletableFuture<List<Producto>> productosFuture = db.leerProductos();
+        CompletableFuture<List<Venta>> ventasFuture = db.leerVentas();
+        
+        productosFuture.thenCombine(ventasFuture, Map::entry)
+            .whenComplete((datos, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    logger.error("Error cargando datos reales desde H2: {}", error.getMessage());
+                    // Inicializar listas vacías para evitar errores
+                    productosData = new ArrayList<>();
+                    ventasData = new ArrayList<>();
+                    return;
+                }
+                productosData = datos.getKey();
+                ventasData = datos.getValue();
+                logger.info("Datos reales cargados exitosamente desde H2: {} productos, {} ventas", 
+                    productosData.size(), ventasData.size());
+                actualizarMetricasModernas();
+                solicitarRenderGraficos();
+            }));
     }
     
     /**
@@ -243,6 +304,7 @@ public class DashboardController implements Initializable {
      */
     @FXML
     public void actualizarDatos() {
+        FxStallWatchdog.getInstance().marcarAccion("actualizarDatos");
         logger.info("Actualizando datos del dashboard");
         
         // Animar botón de actualización
@@ -272,8 +334,7 @@ public class DashboardController implements Initializable {
                 actualizarMetricasModernas();
                 
                 // Actualizar gráficos
-                actualizarGraficoVentasDiarias();
-                actualizarGraficoProductosTop();
+                solicitarRenderGraficos();
                 
                 // Actualizar timestamp
                 actualizarTimestamp();
@@ -295,6 +356,8 @@ public class DashboardController implements Initializable {
      */
     private void actualizarDatosOptimizado() {
         logger.debug("Actualizando datos con sistema optimizado (timeouts cortos)...");
+        EventosJfr.RefrescoDashboard eventoRefresco = new EventosJfr.RefrescoDashboard();
+        eventoRefresco.begin();
         
         // === FORZAR RECARGA COMPLETA PARA DATOS ACTUALIZADOS ===
         // Sincronizar datos en memoria para fallback CON RECARGA FORZADA
@@ -316,8 +379,7 @@ public class DashboardController implements Initializable {
                         
                     // FORZAR ACTUALIZACIÓN INMEDIATA DE MÉTRICAS
                     actualizarMetricasModernas();
-                    actualizarGraficoVentasDiarias();
-                    actualizarGraficoProductosTop();
+                    solicitarRenderGraficos();
                     actualizarTimestamp();
                     verificarAlertas();
                     
@@ -335,13 +397,8 @@ public class DashboardController implements Initializable {
                 // Actualizar métricas usando datos optimizados
                 actualizarMetricasConDatos(metrics);
                 
-                // Actualizar gráficos de manera asíncrona
-                CompletableFuture.runAsync(() -> {
-                    Platform.runLater(() -> {
-                        actualizarGraficoVentasDiarias();
-                        actualizarGraficoProductosTop();
-                    });
-                });
+                // Actualizar gráficos (agrupado en un solo pulso)
+                solicitarRenderGraficos();
                 
                 // Actualizar timestamp
                 actualizarTimestamp();
@@ -353,15 +410,16 @@ public class DashboardController implements Initializable {
                 });
                 
                 logger.info("Dashboard actualizado con sistema optimizado");
+                emitirRefresco(eventoRefresco, "optimizado");
                 
             } catch (Exception e) {
                 logger.error("Error en actualización optimizada", e);
                 // Fallback al método tradicional
                 actualizarMetricasModernas();
-                actualizarGraficoVentasDiarias();
-                actualizarGraficoProductosTop();
+                solicitarRenderGraficos();
                 actualizarTimestamp();
                 verificarAlertas();
+                emitirRefresco(eventoRefresco, "respaldo");
             }
         })).exceptionally(throwable -> {
             logger.warn("Timeout en métricas optimizadas (15s), recargando datos frescos: {}", throwable.getMessage());
@@ -373,26 +431,38 @@ public class DashboardController implements Initializable {
                     
                     // Cargar datos actualizados
                     actualizarMetricasModernas();
-                    actualizarGraficoVentasDiarias();
-                    actualizarGraficoProductosTop();
+                    solicitarRenderGraficos();
                     actualizarTimestamp();
                     verificarAlertas();
                     
                     logger.info("Fallback ejecutado con datos actualizados");
+                    emitirRefresco(eventoRefresco, "respaldo");
                 } catch (Exception e) {
                     logger.error("Error en fallback con datos frescos", e);
                     // Último recurso: usar datos en memoria pero invalidar caché para la próxima
                     queryOptimizer.invalidateCache();
                     actualizarMetricasModernas();
-                    actualizarGraficoVentasDiarias();
-                    actualizarGraficoProductosTop();
+                    solicitarRenderGraficos();
                     actualizarTimestamp();
+                    emitirRefresco(eventoRefresco, "error");
                 }
             });
             return null;
         });
     }
     
+    /**
+     * Cierra el evento JFR del ciclo de refresco con lo que quedó en pantalla
+     */
+    private void emitirRefresco(EventosJfr.RefrescoDashboard evento, String resultado) {
+        if (evento.shouldCommit()) {
+            evento.resultado = resultado;
+            evento.ventas = ventasData != null ? ventasData.size() : 0;
+            evento.productos = productosData != null ? productosData.size() : 0;
+            evento.commit();
+        }
+    }
+    
     /**
      * Actualiza métricas usando datos precalculados
      */
@@ -417,6 +487,7 @@ public class DashboardController implements Initializable {
                 promedio = ingresoHoy.doubleValue() / ventasHoy.doubleValue();
             }
             lblPromedioVenta.setText(String.format("$%.2f", promedio));
+            actualizarDistribucionTicket();
         }
         
         // Tarjeta Producto Estrella
@@ -499,6 +570,7 @@ public class DashboardController implements Initializable {
             }
             if (lblPromedioVenta != null) {
                 lblPromedioVenta.setText(String.format("Promedio: $%.0f", promedioVenta));
+                actualizarDistribucionTicket();
             }
             
             // Actualizar ventasData para mantener compatibilidad
@@ -670,140 +742,60 @@ public class DashboardController implements Initializable {
     }
     
     /**
-     * Actualiza el gráfico de barras de ventas diarias
+     * Solicita redibujar los gráficos; varias solicitudes en el mismo pulso
+     * (eventos, botón, callbacks del optimizador) se ejecutan una sola vez
      */
+    private void solicitarRenderGraficos() {
+        graficosCoalescer.solicitar();
+    }
+    
     /**
-     * Actualiza el gráfico de ventas diarias con animaciones suaves
+     * Redibuja ambos gráficos aplicando solo las diferencias (hilo FX)
      */
-    private void actualizarGraficoVentasDiarias() {
-        if (chartVentasDiarias == null) return;
-        
-        // === PROTECCIÓN CONTRA NULL ===
-        if (ventasData == null) {
-            logger.warn("ventasData es null en gráfico ventas diarias, usando datos vacíos");
-            ventasData = new ArrayList<>();
+    private void renderizarGraficos() {
+        long inicio = System.nanoTime();
+        actualizarGraficoVentasDiarias();
+        actualizarGraficoProductosTop();
+
+        if (!ventasPorRenderizar.isEmpty()) {
+            SaleTracer tracer = SaleTracer.getInstance();
+            long fin = System.nanoTime();
+            for (String ventaId : ventasPorRenderizar) {
+                tracer.registrar(ventaId, "dashboard.render", inicio, fin);
+                tracer.terminar(ventaId);
+            }
+            ventasPorRenderizar.clear();
         }
+    }
+    
+    /**
+     * Actualiza el gráfico de barras de ventas diarias (últimos 7 días)
+     */
+    private void actualizarGraficoVentasDiarias() {
+        if (chartVentasDiarias == null || chartModel == null) return;
         
-        // Crear nueva serie con animación
-        XYChart.Series<String, Number> nuevaSerie = new XYChart.Series<>();
-        nuevaSerie.setName("Ventas Diarias");
-        
-        // Agrupar ventas por día
-        Map<LocalDate, Double> ventasPorDia = ventasData.stream()
-            .collect(Collectors.groupingBy(
-                Venta::getFecha,
-                Collectors.summingDouble(Venta::getTotal)
-            ));
-        
-        // Crear datos para últimos 7 días
-        LocalDate hoy = LocalDate.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM");
-        
-        for (int i = 6; i >= 0; i--) {
-            LocalDate fecha = hoy.minusDays(i);
-            String diaStr = fecha.format(formatter);
-            double total = ventasPorDia.getOrDefault(fecha, 0.0);
-            
-            nuevaSerie.getData().add(new XYChart.Data<>(diaStr, total));
+        try {
+            LinkedHashMap<String, Double> ventasPorDia =
+                DashboardChartModel.calcularVentasDiarias(ventasData, LocalDate.now(), 7);
+            chartModel.aplicarVentasDiarias(ventasPorDia);
+        } catch (Exception e) {
+            logger.error("Error actualizando gráfico de ventas diarias", e);
         }
-        
-        // Actualización suave del gráfico
-        Platform.runLater(() -> {
-            try {
-                chartVentasDiarias.getData().clear();
-                chartVentasDiarias.getData().add(nuevaSerie);
-                
-                // Animación de aparición para cada punto
-                for (XYChart.Data<String, Number> data : nuevaSerie.getData()) {
-                    if (data.getNode() != null) {
-                        data.getNode().setOpacity(0);
-                        FadeTransition fadeIn = new FadeTransition(Duration.millis(500), data.getNode());
-                        fadeIn.setFromValue(0);
-                        fadeIn.setToValue(1);
-                        fadeIn.play();
-                    }
-                }
-                
-                logger.debug("Gráfico de ventas diarias actualizado con {} datos", nuevaSerie.getData().size());
-            } catch (Exception e) {
-                logger.error("Error actualizando gráfico de ventas diarias", e);
-            }
-        });
     }
     
     /**
-     * Actualiza el gráfico circular de productos más vendidos con animaciones
+     * Actualiza el gráfico circular de productos más vendidos (top 5)
      */
     private void actualizarGraficoProductosTop() {
-        if (chartProductosTop == null) return;
-        
-        // === PROTECCIÓN CONTRA NULL ===
-        if (productosData == null) {
-            logger.warn("productosData es null en gráfico productos, usando datos vacíos");
-            productosData = new ArrayList<>();
-        }
-        if (ventasData == null) {
-            logger.warn("ventasData es null en gráfico productos, usando datos vacíos");
-            ventasData = new ArrayList<>();
-        }
+        if (chartProductosTop == null || chartModel == null) return;
         
-        ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
-        
-        if (!productosData.isEmpty() && !ventasData.isEmpty()) {
-            // Calcular ventas reales por producto con mejor algoritmo
-            Map<String, Integer> ventasPorProducto = new HashMap<>();
-            
-            for (Venta venta : ventasData) {
-                if (venta.getItems() != null) {
-                    for (Producto prod : venta.getItems()) {
-                        if (prod.getNombre() != null && !prod.getNombre().trim().isEmpty()) {
-                            String nombre = prod.getNombre().trim();
-                            ventasPorProducto.put(nombre, 
-                                ventasPorProducto.getOrDefault(nombre, 0) + 1);
-                        }
-                    }
-                }
-            }
-            
-            // Tomar los top 5 productos más vendidos
-            ventasPorProducto.entrySet().stream()
-                .filter(entry -> entry.getValue() > 0) // Solo productos con ventas
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(5)
-                .forEach(entry -> {
-                    String nombreCorto = entry.getKey().length() > 15 ? 
-                        entry.getKey().substring(0, 12) + "..." : entry.getKey();
-                    pieChartData.add(new PieChart.Data(nombreCorto + " (" + entry.getValue() + ")", entry.getValue()));
-                });
-        }
-        
-        if (pieChartData.isEmpty()) {
-            // Datos por defecto si no hay ventas
-            pieChartData.add(new PieChart.Data("Sin datos disponibles", 1));
+        try {
+            LinkedHashMap<String, Integer> productosTop =
+                DashboardChartModel.calcularProductosTop(ventasData, 5);
+            chartModel.aplicarProductosTop(productosTop);
+        } catch (Exception e) {
+            logger.error("Error actualizando gráfico de productos top", e);
         }
-        
-        // Actualización suave del gráfico
-        Platform.runLater(() -> {
-            try {
-                // Guardar datos anteriores para comparación
-                ObservableList<PieChart.Data> datosAnteriores = FXCollections.observableArrayList(chartProductosTop.getData());
-                
-                chartProductosTop.setData(pieChartData);
-                
-                // Animación solo si hay datos reales
-                if (pieChartData.size() > 1 || !pieChartData.get(0).getName().contains("Sin datos")) {
-                    chartProductosTop.setOpacity(0.8);
-                    FadeTransition fadeIn = new FadeTransition(Duration.millis(800), chartProductosTop);
-                    fadeIn.setFromValue(0.8);
-                    fadeIn.setToValue(1.0);
-                    fadeIn.play();
-                }
-                
-                logger.debug("Gráfico de productos top actualizado con {} productos", pieChartData.size());
-            } catch (Exception e) {
-                logger.error("Error actualizando gráfico de productos top", e);
-            }
-        });
     }
     
     // === PUNTO 1: FUNCIONALIDADES DE BOTONES ===
@@ -813,32 +805,128 @@ public class DashboardController implements Initializable {
      */
     @FXML
     public void exportarReporte() {
+        FxStallWatchdog.getInstance().marcarAccion("exportarReporte");
         logger.info("Iniciando exportación de reporte...");
         
         try {
+            Stage stage = (Stage) lblVentasHoy.getScene().getWindow();
+            Optional<LocalDate[]> rango = solicitarRangoExportacion(stage);
+            if (rango.isEmpty()) {
+                return;
+            }
+            LocalDate desde = rango.get()[0];
+            LocalDate hasta = rango.get()[1];
+            
             FileChooser fileChooser = new FileChooser();
-            fileChooser.setTitle("Guardar Reporte");
-            fileChooser.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("Archivos CSV", "*.csv"),
-                new FileChooser.ExtensionFilter("Archivos de Texto", "*.txt")
-            );
-            fileChooser.setInitialFileName("reporte_dashboard_" + 
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm")) + ".csv");
+            fileChooser.setTitle("Exportar Ventas");
+            FileChooser.ExtensionFilter filtroCsv = new FileChooser.ExtensionFilter("Archivos CSV", "*.csv");
+            FileChooser.ExtensionFilter filtroGzip = new FileChooser.ExtensionFilter("CSV comprimido (gzip)", "*.csv.gz");
+            fileChooser.getExtensionFilters().addAll(filtroCsv, filtroGzip);
+            fileChooser.setInitialFileName("ventas_" + desde + "_" + hasta + ".csv");
             
-            Stage stage = (Stage) lblVentasHoy.getScene().getWindow();
             File file = fileChooser.showSaveDialog(stage);
-            
-            if (file != null) {
-                generarReporteCSV(file);
-                mostrarAlerta("Éxito", "Reporte exportado exitosamente a: " + file.getAbsolutePath(), Alert.AlertType.INFORMATION);
+            if (file == null) {
+                return;
+            }
+            java.nio.file.Path destino = file.toPath();
+            if (fileChooser.getSelectedExtensionFilter() == filtroGzip && !VentasCsvExporter.esGzip(destino)) {
+                destino = destino.resolveSibling(destino.getFileName() + ".gz");
             }
             
+            iniciarExportacion(desde, hasta, destino);
+            
         } catch (Exception e) {
             logger.error("Error exportando reporte: {}", e.getMessage());
             mostrarAlerta("Error", "Error al exportar reporte: " + e.getMessage(), Alert.AlertType.ERROR);
         }
     }
     
+    /**
+     * Pide el rango de fechas a exportar (por defecto los últimos 30 días)
+     */
+    private Optional<LocalDate[]> solicitarRangoExportacion(Window owner) {
+        DatePicker desdePicker = new DatePicker(LocalDate.now().minusDays(29));
+        DatePicker hastaPicker = new DatePicker(LocalDate.now());
+        
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Desde:"), desdePicker);
+        grid.addRow(1, new Label("Hasta:"), hastaPicker);
+        
+        Dialog<LocalDate[]> dialog = new Dialog<>();
+        dialog.initOwner(owner);
+        dialog.setTitle("Exportar Ventas");
+        dialog.setHeaderText("Ventas e ítems del período seleccionado");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        dialog.getDialogPane().lookupButton(ButtonType.OK).disableProperty().bind(
+            desdePicker.valueProperty().isNull()
+                .or(hastaPicker.valueProperty().isNull())
+                .or(javafx.beans.binding.Bindings.createBooleanBinding(
+                    () -> desdePicker.getValue() != null && hastaPicker.getValue() != null
+                        && desdePicker.getValue().isAfter(hastaPicker.getValue()),
+                    desdePicker.valueProperty(), hastaPicker.valueProperty())));
+        dialog.setResultConverter(boton -> boton == ButtonType.OK
+            ? new LocalDate[]{desdePicker.getValue(), hastaPicker.getValue()}
+            : null);
+        
+        return dialog.showAndWait();
+    }
+    
+    /**
+     * Exporta en segundo plano mostrando el avance; el diálogo permite cancelar
+     */
+    private void iniciarExportacion(LocalDate desde, LocalDate hasta, java.nio.file.Path destino) {
+        Task<VentasCsvExporter.ResultadoExportacion> exportacion = new Task<>() {
+            @Override
+            protected VentasCsvExporter.ResultadoExportacion call() throws Exception {
+                updateMessage("Preparando exportación...");
+                return new VentasCsvExporter().exportar(desde, hasta, destino,
+                    (procesadas, totales) -> {
+                        updateProgress(procesadas, Math.max(totales, 1));
+                        updateMessage(String.format("%,d de %,d ventas", procesadas, totales));
+                    },
+                    this::isCancelled);
+            }
+        };
+        
+        ProgressBar barra = new ProgressBar();
+        barra.setPrefWidth(320);
+        barra.progressProperty().bind(exportacion.progressProperty());
+        Label mensaje = new Label();
+        mensaje.textProperty().bind(exportacion.messageProperty());
+        
+        Alert progreso = new Alert(Alert.AlertType.NONE);
+        progreso.initOwner(lblVentasHoy.getScene().getWindow());
+        progreso.setTitle("Exportando Ventas");
+        progreso.setHeaderText(destino.getFileName().toString());
+        progreso.getDialogPane().setContent(new VBox(8, barra, mensaje));
+        progreso.getButtonTypes().setAll(ButtonType.CANCEL);
+        // Cerrar el diálogo (botón o ventana) cancela la exportación si sigue en curso
+        progreso.setOnHidden(e -> exportacion.cancel());
+        
+        exportacion.setOnSucceeded(e -> {
+            progreso.close();
+            VentasCsvExporter.ResultadoExportacion resultado = exportacion.getValue();
+            mostrarAlerta("Éxito", String.format("Exportadas %,d ventas (%,d filas) a:%n%s",
+                resultado.getVentas(), resultado.getFilas(), resultado.getArchivo()), Alert.AlertType.INFORMATION);
+        });
+        exportacion.setOnCancelled(e -> {
+            progreso.close();
+            logger.info("Exportación cancelada por el usuario");
+        });
+        exportacion.setOnFailed(e -> {
+            progreso.close();
+            Throwable error = exportacion.getException();
+            logger.error("Error exportando ventas", error);
+            mostrarAlerta("Error", "Error al exportar ventas: " + error.getMessage(), Alert.AlertType.ERROR);
+        });
+        
+        TAREAS_DASHBOARD.execute(exportacion);
+        progreso.show();
+    }
+    
     /**
      * Configura opciones del dashboard
      */
@@ -865,6 +953,7 @@ public class DashboardController implements Initializable {
      */
     @FXML
     public void limpiarBaseDatos() {
+        FxStallWatchdog.getInstance().marcarAccion("limpiarBaseDatos");
         logger.info("Solicitando limpieza completa de la base de datos...");
         
         Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
@@ -893,7 +982,11 @@ public class DashboardController implements Initializable {
                     @Override
                     protected Boolean call() throws Exception {
                         updateMessage("Limpiando base de datos...");
-                        return DatabaseManager.limpiarBaseDatos();
+                        boolean exitoso = DatabaseManager.limpiarBaseDatos();
+                        if (exitoso) {
+                            SalesArchive.getInstance().eliminarArchivos();
+                        }
+                        return exitoso;
                     }
                     
                     @Override
@@ -944,9 +1037,7 @@ public class DashboardController implements Initializable {
                 progreso.getButtonTypes().clear(); // Sin botones mientras procesa
                 
                 // Ejecutar task en background
-                Thread limpiezaThread = new Thread(limpiezaTask);
-                limpiezaThread.setDaemon(true);
-                limpiezaThread.start();
+                TAREAS_DASHBOARD.execute(limpiezaTask);
                 
                 // Cerrar diálogo de progreso cuando termine
                 limpiezaTask.setOnSucceeded(e -> progreso.close());
@@ -957,6 +1048,39 @@ public class DashboardController implements Initializable {
         });
     }
     
+    /**
+     * Muestra en el tooltip del promedio los cuantiles de ticket de hoy y de los últimos 30 días
+     * El promedio se distorsiona con un pedido grande; la mediana y el p90/p99 no
+     */
+    private void actualizarDistribucionTicket() {
+        LocalDate hoy = LocalDate.now();
+        // Lee resúmenes diarios: pasa por la fachada para respetar el límite de conexiones
+        AsyncDatabase.getInstance().ejecutar("distribucionTicket", () -> {
+            TicketDistributionService servicio = TicketDistributionService.getInstance();
+            return List.of(servicio.combinarRango(hoy, hoy), servicio.combinarRango(hoy.minusDays(29), hoy));
+        }).thenAccept(sketches -> Platform.runLater(() -> {
+            if (lblPromedioVenta == null) return;
+            String texto = "Ticket de hoy\n" + describirCuantiles(sketches.get(0)) +
+                "\n\nÚltimos 30 días\n" + describirCuantiles(sketches.get(1));
+            if (lblPromedioVenta.getTooltip() == null) {
+                lblPromedioVenta.setTooltip(new Tooltip(texto));
+            } else {
+                lblPromedioVenta.getTooltip().setText(texto);
+            }
+        })).exceptionally(throwable -> {
+            logger.warn("Error calculando distribución de tickets: {}", throwable.getMessage());
+            return null;
+        });
+    }
+    
+    private static String describirCuantiles(KllSketch sketch) {
+        if (sketch.getConteo() == 0) {
+            return "Sin ventas";
+        }
+        return String.format("Mediana: $%.2f | P90: $%.2f | P99: $%.2f (%d ventas)",
+            sketch.cuantil(0.5), sketch.cuantil(0.9), sketch.cuantil(0.99), sketch.getConteo());
+    }
+    
     /**
      * Invalida completamente el cache del sistema
      */
@@ -966,6 +1090,8 @@ public class DashboardController implements Initializable {
                 queryOptimizer.invalidateCache();
                 logger.debug("Cache del DatabaseQueryOptimizer invalidado");
             }
+            TicketDistributionService.getInstance().reiniciar();
+            ProductRotationIndex.getInstance().reiniciar();
             // Note: DashboardCacheManager no tiene método limpiarTodo, 
             // pero se puede invalidar específicamente cada caché si fuera necesario
         } catch (Exception e) {
@@ -1046,61 +1172,176 @@ public class DashboardController implements Initializable {
     }
     
     /**
-     * Inicia actualización automática cada 10 segundos (para detección rápida de cambios)
+     * Suscribe el dashboard a los eventos de dominio; reemplaza el polling periódico
      */
-    private void iniciarActualizacionAutomatica() {
-        if (autoUpdateTimeline != null) {
-            autoUpdateTimeline.stop();
+    private void suscribirEventos() {
+        EventBus bus = EventBus.getInstance();
+        
+        suscripciones.add(bus.subscribe(VentaRegistrada.class, evento -> {
+            ventasPendientes.add(evento.getVenta());
+            eventosCoalescer.solicitar();
+        }));
+        suscripciones.add(bus.subscribe(StockCambiado.class, evento -> {
+            stockPendiente.add(evento);
+            eventosCoalescer.solicitar();
+        }));
+        suscripciones.add(bus.subscribe(ProductoEliminado.class, evento -> {
+            eliminadosPendientes.add(evento.getProducto());
+            eventosCoalescer.solicitar();
+        }));
+        suscripciones.add(bus.subscribe(AlertaAnomalia.class,
+            alerta -> Platform.runLater(() -> mostrarAlertaAnomalia(alerta))));
+        
+        logger.info("Dashboard suscrito a eventos de ventas, stock y anomalías");
+    }
+    
+    /**
+     * Muestra una alerta del detector en tiempo real sin bloquear la vista
+     */
+    private void mostrarAlertaAnomalia(AlertaAnomalia alerta) {
+        String titulo = switch (alerta.getTipo()) {
+            case INGRESO_INUSUAL -> "Ingreso inusual";
+            case TERMINAL_SILENCIOSA -> "Terminal sin ventas";
+        };
+        Alert aviso = new Alert(Alert.AlertType.WARNING);
+        aviso.setTitle("⚠️ " + titulo);
+        aviso.setHeaderText(titulo);
+        aviso.setContentText(alerta.getMensaje());
+        aviso.show();
+    }
+    
+    /**
+     * Registra la recarga completa en el planificador central
+     * Recoge cambios que no pasan por el EventBus (p. ej. ventas de otra terminal)
+     */
+    private void programarRefrescoPeriodico() {
+        refrescoProgramado = RefreshScheduler.getInstance().registrar(
+            "Dashboard", this::refrescarReconciliacion, REFRESCO_MINIMO, REFRESCO_MAXIMO, this::esVisible);
+    }
+    
+    private void refrescarReconciliacion() {
+        logger.debug("Refresco programado del dashboard");
+        if (performanceSystemInitialized) {
+            queryOptimizer.invalidateCache();
+            actualizarDatosOptimizado();
+        } else {
+            cargarDatos();
+            solicitarRenderGraficos();
+            actualizarTimestamp();
         }
-        
-        autoUpdateTimeline = new Timeline(
-            new KeyFrame(Duration.seconds(10), e -> {
-                logger.debug("Actualización automática iniciada");
-                // Verificar si necesitamos actualizar antes de hacer la carga completa
-                actualizarDatosInteligenteAsync();
-            })
-        );
-        autoUpdateTimeline.setCycleCount(Timeline.INDEFINITE);
-        autoUpdateTimeline.play();
-        
-        logger.info("Sistema de actualización automática iniciado (cada 10 segundos)");
     }
     
     /**
-     * Actualización inteligente que verifica cambios antes de actualizar UI
+     * El dashboard se ve si está en una ventana abierta y no minimizada
+     */
+    private boolean esVisible() {
+        if (lblVentasHoy == null || lblVentasHoy.getScene() == null) {
+            return false;
+        }
+        Window ventana = lblVentasHoy.getScene().getWindow();
+        return ventana != null && ventana.isShowing()
+            && !(ventana instanceof Stage stage && stage.isIconified());
+    }
+    
+    /**
+     * Incorpora en memoria las ventas, cambios de stock y eliminaciones recibidos y refresca la vista
+     * Se ejecuta en el hilo FX, una vez por pulso aunque lleguen varios eventos
      */
-    private void actualizarDatosInteligenteAsync() {
-        long currentTime = System.currentTimeMillis();
+    private void aplicarEventosPendientes() {
+        FxStallWatchdog.getInstance().marcarAccion("aplicarEventosPendientes");
+        long inicio = System.nanoTime();
+        List<Venta> nuevas = new ArrayList<>();
+        Venta venta;
+        while ((venta = ventasPendientes.poll()) != null) {
+            nuevas.add(venta);
+        }
+        
+        boolean stockActualizado = false;
+        StockCambiado cambio;
+        while ((cambio = stockPendiente.poll()) != null) {
+            stockActualizado |= aplicarCambioStock(cambio);
+        }
+        String eliminado;
+        while ((eliminado = eliminadosPendientes.poll()) != null) {
+            stockActualizado |= quitarProducto(eliminado);
+        }
         
-        // Verificar tiempo mínimo entre actualizaciones
-        if (currentTime - lastUpdateTime < MIN_UPDATE_INTERVAL) {
-            logger.debug("Saltando actualización - muy pronto desde la última ({} ms)", 
-                currentTime - lastUpdateTime);
+        if (nuevas.isEmpty() && !stockActualizado) {
             return;
         }
         
-        // Verificar cambios en datos de manera asíncrona
-        CompletableFuture.supplyAsync(() -> {
-            // Calcular hash rápido de datos actuales
-            long ventasCount = DatabaseManager.leerVentas().size();
-            long productosCount = DatabaseManager.leerProductos().size();
-            return ventasCount * 31 + productosCount * 17; // Hash simple pero efectivo
-        }).thenAccept(newHash -> {
-            if (newHash != lastDataHash) {
-                logger.debug("Detectados cambios en datos (hash: {} -> {}), actualizando dashboard", 
-                    lastDataHash, newHash);
-                lastDataHash = newHash;
-                lastUpdateTime = currentTime;
-                Platform.runLater(this::actualizarDatos);
-            } else {
-                logger.debug("No hay cambios en datos, saltando actualización UI");
+        if (!nuevas.isEmpty()) {
+            // Copia nueva: la lista actual puede ser la misma instancia cacheada por el optimizador
+            List<Venta> actuales = ventasData != null ? ventasData : List.of();
+            Set<String> idsActuales = new HashSet<>();
+            actuales.forEach(v -> idsActuales.add(v.getId()));
+            
+            List<Venta> combinadas = new ArrayList<>(actuales.size() + nuevas.size());
+            // leerVentas ordena por fecha descendente: las más recientes primero
+            for (int i = nuevas.size() - 1; i >= 0; i--) {
+                if (!idsActuales.contains(nuevas.get(i).getId())) {
+                    combinadas.add(nuevas.get(i));
+                }
             }
-        }).exceptionally(throwable -> {
-            logger.error("Error en verificación inteligente de datos", throwable);
-            // Fallback a actualización normal en caso de error
-            Platform.runLater(this::actualizarDatos);
-            return null;
-        });
+            combinadas.addAll(actuales);
+            
+            actualizarMetricasConDatos(combinadas, LocalDate.now());
+            solicitarRenderGraficos();
+            verificarAlertas();
+
+            SaleTracer tracer = SaleTracer.getInstance();
+            long fin = System.nanoTime();
+            String lote = String.valueOf(nuevas.size());
+            for (Venta nueva : nuevas) {
+                tracer.registrar(nueva.getId(), "dashboard.metricas", inicio, fin, "ventas", lote);
+                ventasPorRenderizar.add(nueva.getId());
+            }
+        }
+        
+        actualizarTimestamp();
+        logger.debug("Dashboard actualizado por eventos: {} ventas nuevas", nuevas.size());
+    }
+    
+    /**
+     * Aplica un cambio de stock sobre los productos en memoria
+     * Copia nueva con un producto nuevo: la lista y sus productos pueden ser los cacheados por
+     * el optimizador, y quien los esté leyendo no debe ver un cambio a medio aplicar
+     */
+    private boolean aplicarCambioStock(StockCambiado cambio) {
+        if (productosData == null) {
+            return false;
+        }
+        List<Producto> actualizada = new ArrayList<>(productosData);
+        Producto nuevo = new Producto(cambio.getProducto(), cambio.getPrecio(), cambio.getStock());
+        boolean reemplazado = false;
+        for (int i = 0; i < actualizada.size(); i++) {
+            if (actualizada.get(i).getNombre().equals(cambio.getProducto())) {
+                actualizada.set(i, nuevo);
+                reemplazado = true;
+                break;
+            }
+        }
+        if (!reemplazado) {
+            actualizada.add(nuevo);
+        }
+        productosData = actualizada;
+        return true;
+    }
+    
+    /**
+     * Quita un producto eliminado de los productos en memoria
+     */
+    private boolean quitarProducto(String nombre) {
+        if (productosData == null) {
+            return false;
+        }
+        // Copia nueva: la lista actual puede ser la misma instancia cacheada por el optimizador
+        List<Producto> restantes = new ArrayList<>(productosData);
+        if (!restantes.removeIf(producto -> producto.getNombre().equals(nombre))) {
+            return false;
+        }
+        productosData = restantes;
+        return true;
     }
     
     /**
@@ -1126,20 +1367,6 @@ public class DashboardController implements Initializable {
         });
     }
     
-    /**
-     * Método estático para acceso desde otras clases
-     */
-    public static void notificarNuevaVenta() {
-        // Este método puede ser llamado desde VentasController o DatabaseManager
-        logger.info("Nueva venta detectada - solicitando actualización inmediata del dashboard");
-        
-        // Buscar instancia activa del dashboard y actualizar
-        Platform.runLater(() -> {
-            // La actualización se hará en el próximo ciclo de auto-refresh (ahora cada 10 segundos)
-            logger.debug("Notificación de nueva venta procesada");
-        });
-    }
-    
     // === PUNTO 3: MEJORAS DE UX/UI ===
     
     /**
@@ -1235,99 +1462,54 @@ public class DashboardController implements Initializable {
     // === MÉTODOS AUXILIARES ===
     
     /**
-     * Genera reporte CSV detallado
-     */
-    private void generarReporteCSV(File file) throws IOException {
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write("REPORTE DASHBOARD - " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n\n");
-            
-            // Métricas generales
-            writer.write("=== MÉTRICAS GENERALES ===\n");
-            writer.write("Ventas Hoy," + (lblVentasHoy != null ? lblVentasHoy.getText() : "N/A") + "\n");
-            writer.write("Transacciones," + (lblTransaccionesHoy != null ? lblTransaccionesHoy.getText() : "N/A") + "\n");
-            writer.write("Promedio Venta," + (lblPromedioVenta != null ? lblPromedioVenta.getText() : "N/A") + "\n");
-            writer.write("Producto Top," + (lblProductoTop != null ? lblProductoTop.getText() : "N/A") + "\n");
-            
-            // Detalle de ventas por día
-            writer.write("\n=== VENTAS POR DÍA (Últimos 7 días) ===\n");
-            writer.write("Fecha,Total Ventas,Número Transacciones\n");
-            
-            LocalDate hoy = LocalDate.now();
-            for (int i = 6; i >= 0; i--) {
-                LocalDate fecha = hoy.minusDays(i);
-                List<Venta> ventasDia = obtenerVentasCache(fecha);
-                double totalDia = ventasDia.stream().mapToDouble(Venta::getTotal).sum();
-                
-                writer.write(String.format("%s,%.2f,%d\n", 
-                    fecha.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")), 
-                    totalDia, 
-                    ventasDia.size()));
-            }
-            
-            writer.write("\n=== PRODUCTOS TOP ===\n");
-            writer.write("Producto,Cantidad Vendida,Ingresos Generados\n");
-            
-            // Top productos de las ventas
-            Map<String, Integer> ventasPorProducto = new HashMap<>();
-            Map<String, Double> ingresosPorProducto = new HashMap<>();
-            
-            for (Venta venta : ventasData) {
-                if (venta.getItems() != null) {
-                    for (Producto producto : venta.getItems()) {
-                        String nombre = producto.getNombre();
-                        ventasPorProducto.put(nombre, ventasPorProducto.getOrDefault(nombre, 0) + 1);
-                        ingresosPorProducto.put(nombre, 
-                            ingresosPorProducto.getOrDefault(nombre, 0.0) + producto.getPrecio());
-                    }
-                }
-            }
-            
-            ventasPorProducto.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(10)
-                .forEach(entry -> {
-                    try {
-                        writer.write(String.format("%s,%d,%.2f\n", 
-                            entry.getKey(), 
-                            entry.getValue(),
-                            ingresosPorProducto.getOrDefault(entry.getKey(), 0.0)));
-                    } catch (IOException e) {
-                        logger.error("Error escribiendo producto en CSV: {}", e.getMessage());
-                    }
-                });
-        }
-        
-        logger.info("Reporte CSV generado exitosamente: {}", file.getAbsolutePath());
-    }
-    
-    /**
-     * Genera reporte detallado de balance de forma INMEDIATA (sin timeouts)
+     * Genera reporte detallado de balance a partir del resumen mensual del año
      */
     private void generarReporteDetallado() {
         LocalDate hoy = LocalDate.now();
-        LocalDate inicioMes = hoy.withDayOfMonth(1);
+        LocalDate inicioAnio = hoy.withDayOfYear(1);
         
-        // OPTIMIZACIÓN: Usar datos en memoria directamente para velocidad máxima
-        logger.info("Generando reporte usando datos en memoria para máxima velocidad...");
-        
-        List<Venta> todasVentas = ventasData != null ? 
-            new ArrayList<>(ventasData) : 
-            new ArrayList<>();
+        if (!performanceSystemInitialized) {
+            // Las ventas en memoria del dashboard no traen items: no alcanzan para el reporte
+            mostrarAlerta("Error", "El reporte detallado no está disponible: los sistemas de performance no se inicializaron",
+                Alert.AlertType.ERROR);
+            return;
+        }
         
-        mostrarReporteDetallado(hoy, inicioMes, todasVentas);
-        logger.info("Reporte completo mostrado INSTANTÁNEAMENTE: {} ventas totales", todasVentas.size());
+        // Resumen del año agregado en paralelo sobre el historial con items
+        logger.info("Generando reporte con agregación paralela desde {}...", inicioAnio);
+        queryOptimizer.getResumenMensualOptimized(inicioAnio, hoy)
+            .whenComplete((resumen, throwable) -> Platform.runLater(() -> {
+                if (throwable != null) {
+                    Throwable causa = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                    logger.error("Error generando reporte detallado", causa);
+                    mostrarAlerta("Error", "Error al generar el reporte detallado: " + causa.getMessage(),
+                        Alert.AlertType.ERROR);
+                    return;
+                }
+                mostrarReporteDetallado(hoy, resumen);
+            }));
     }
     
     /**
      * Muestra el reporte detallado de balance
      */
-    private void mostrarReporteDetallado(LocalDate hoy, LocalDate inicioMes, List<Venta> todasVentas) {
-        List<Venta> ventasMes = todasVentas.stream()
-            .filter(v -> !v.getFecha().isBefore(inicioMes))
-            .toList();
+    private void mostrarReporteDetallado(LocalDate hoy, SortedMap<YearMonth, AgregadoVentas> resumen) {
+        FxStallWatchdog.getInstance().marcarAccion("mostrarReporteDetallado");
+        AgregadoVentas mes = resumen.getOrDefault(YearMonth.from(hoy), new AgregadoVentas());
+        AgregadoVentas anio = new AgregadoVentas();
+        resumen.forEach((ym, parcial) -> {
+            if (ym.getYear() == hoy.getYear()) {
+                anio.combinar(parcial);
+            }
+        });
         
-        double totalIngresosMes = ventasMes.stream().mapToDouble(Venta::getTotal).sum();
+        double totalIngresosMes = mes.getIngresos();
         double promedioVentasDiarias = hoy.getDayOfMonth() > 0 ? totalIngresosMes / hoy.getDayOfMonth() : 0.0;
+        String productoTopMes = mes.getUnidadesPorProducto().entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .map(e -> e.getKey() + " (" + e.getValue() + " uds)")
+            .orElse("Sin datos");
         
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Reporte Completo de Balance");
@@ -1337,19 +1519,27 @@ public class DashboardController implements Initializable {
             "💰 Total Ingresos: $%.2f\n" +
             "📈 Promedio Diario: $%.2f\n" +
             "🛒 Total Transacciones: %d\n" +
+            "🎫 Ticket Mediano / P90: $%.2f / $%.2f\n" +
+            "⭐ Producto del Mes: %s\n" +
             "📅 Días Transcurridos: %d\n" +
             "🎯 Proyección Mensual: $%.2f\n\n" +
+            "📆 ACUMULADO DEL AÑO: $%.2f en %d transacciones\n\n" +
             "📈 TENDENCIA: %s",
             totalIngresosMes,
             promedioVentasDiarias,
-            ventasMes.size(),
+            mes.getTransacciones(),
+            mes.getCuantilTicket(0.5),
+            mes.getCuantilTicket(0.9),
+            productoTopMes,
             hoy.getDayOfMonth(),
             promedioVentasDiarias * 30,
+            anio.getIngresos(),
+            anio.getTransacciones(),
             totalIngresosMes > 0 ? "Positiva ✅" : "Requiere Atención ⚠️"
         ));
         alert.showAndWait();
         
-        logger.info("Reporte detallado mostrado exitosamente: {} transacciones del mes", ventasMes.size());
+        logger.info("Reporte detallado mostrado exitosamente: {} transacciones del mes", mes.getTransacciones());
     }
     
     /**
@@ -1375,6 +1565,7 @@ public class DashboardController implements Initializable {
      * Muestra el detalle de ventas en un diálogo
      */
     private void mostrarDetalleVentas(LocalDate fecha, List<Venta> ventas) {
+        FxStallWatchdog.getInstance().marcarAccion("mostrarDetalleVentas");
         StringBuilder detalle = new StringBuilder();
         detalle.append("📅 VENTAS DEL DÍA - ").append(fecha.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))).append("\n\n");
         
@@ -1438,6 +1629,9 @@ public class DashboardController implements Initializable {
             List<Venta> ventasHoy = obtenerVentasCache(hoy);
             double totalHoy = ventasHoy.stream().mapToDouble(Venta::getTotal).sum();
             
+            // Alerta: Productos que se agotarán pronto según la demanda pronosticada
+            verificarProductosPorAgotarse();
+            
             // Alerta: Sin ventas en el día
             if (ventasHoy.isEmpty()) {
                 logger.warn("⚠️ Alerta: No hay ventas registradas para hoy");
@@ -1463,6 +1657,23 @@ public class DashboardController implements Initializable {
         }
     }
     
+    /**
+     * Avisa de los productos cuyo stock se agotará en pocos días al ritmo de venta pronosticado,
+     * aunque hoy todavía superen el umbral de stock bajo
+     */
+    private void verificarProductosPorAgotarse() {
+        if (backgroundProcessor == null) {
+            return;
+        }
+        for (PronosticoProducto pronostico : backgroundProcessor.getProductosPorAgotarse(DIAS_AVISO_AGOTAMIENTO)) {
+            logger.warn("⚠️ Alerta: {} se agotará en {} días (stock {}, demanda ~{}/día)",
+                pronostico.getProducto(),
+                String.format("%.1f", pronostico.getDiasHastaAgotarse()),
+                pronostico.getStock(),
+                String.format("%.1f", pronostico.getDemandaDiaria()));
+        }
+    }
+    
     /**
      * Calcula promedio de ventas semanal
      */
@@ -1484,31 +1695,40 @@ public class DashboardController implements Initializable {
     }
     
     /**
-     * Verifica productos que no han tenido rotación
+     * Verifica productos que no han tenido rotación (consulta el índice de bitmaps diarios)
      */
     private void verificarProductosSinRotacion() {
         // === PROTECCIÓN CONTRA NULL ===
-        if (productosData == null || ventasData == null) {
+        if (productosData == null) {
             logger.debug("Datos no disponibles para verificar rotación de productos");
             return;
         }
         
-        Set<String> productosVendidos = ventasData.stream()
-            .filter(v -> v.getItems() != null)
-            .flatMap(v -> v.getItems().stream())
-            .map(Producto::getNombre)
-            .collect(Collectors.toSet());
-        
-        List<String> productosSinRotacion = productosData.stream()
-            .map(Producto::getNombre)
-            .filter(nombre -> !productosVendidos.contains(nombre))
-            .toList();
+        List<String> productosSinRotacion = ProductRotationIndex.getInstance().productosSinVenta(
+            productosData.stream().map(Producto::getNombre).toList(), DIAS_SIN_ROTACION);
         
         if (!productosSinRotacion.isEmpty()) {
-            logger.warn("⚠️ Productos sin rotación: {}", String.join(", ", productosSinRotacion));
+            logger.warn("⚠️ Productos sin rotación en {} días: {}", DIAS_SIN_ROTACION, String.join(", ", productosSinRotacion));
         }
     }
     
+    /**
+     * Deja de recibir eventos y refrescos programados; se llama al reemplazar la vista en MainController
+     */
+    public void detener() {
+        if (refrescoProgramado != null) {
+            refrescoProgramado.cancelar();
+            refrescoProgramado = null;
+        }
+        suscripciones.forEach(EventBus.Suscripcion::cancelar);
+        suscripciones.clear();
+        ventasPendientes.clear();
+        stockPendiente.clear();
+        eliminadosPendientes.clear();
+        ventasPorRenderizar.clear();
+        logger.debug("Dashboard desuscrito de eventos");
+    }
+    
     /**
      * Limpia los recursos del sistema de performance
      * Debe ser llamado al cerrar la aplicación
@@ -1517,10 +1737,8 @@ public class DashboardController implements Initializable {
         try {
             logger.info("Limpiando recursos del Dashboard Controller...");
             
-            // Detener timeline de actualización automática
-            if (autoUpdateTimeline != null) {
-                autoUpdateTimeline.stop();
-            }
+            // Cancelar suscripciones a eventos
+            detener();
             
             // Cerrar sistemas de performance
             if (performanceSystemInitialized) {
@@ -1,5 +1,7 @@
 package com.cafeteriapos.controllers;
 
+import com.cafeteriapos.performance.FxStallWatchdog;
+import com.cafeteriapos.performance.RefreshScheduler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
@@ -21,6 +23,26 @@ public class MainController {
 
     @FXML private StackPane contenidoPane;
 
+    // Controlador de la vista mostrada, para liberar sus suscripciones al cambiar de vista
+    private Object controladorActual;
+
+    @FXML
+    public void initialize() {
+        // Al restaurar la ventana minimizada, refrescar las vistas que omitieron refrescos
+        contenidoPane.sceneProperty().addListener((obsScene, sceneAnterior, scene) -> {
+            if (scene == null) return;
+            scene.windowProperty().addListener((obsWindow, ventanaAnterior, ventana) -> {
+                if (ventana instanceof Stage stage) {
+                    stage.iconifiedProperty().addListener((obs, antes, minimizada) -> {
+                        if (!minimizada) {
+                            RefreshScheduler.getInstance().notificarCambioDeVista();
+                        }
+                    });
+                }
+            });
+        });
+    }
+
     @FXML
     private void home() {
         cargarVista("/com/cafeteriapos/views/MainView.fxml");
@@ -42,6 +64,7 @@ public class MainController {
     }
 
     private void cargarVista(String fxmlPath) {
+        FxStallWatchdog.getInstance().marcarAccion("cargarVista " + fxmlPath);
         try {
             // Verificación adicional del recurso
             URL resourceUrl = getClass().getResource(fxmlPath);
@@ -57,7 +80,10 @@ public class MainController {
             FXMLLoader loader = new FXMLLoader(resourceUrl);
             Parent vista = loader.load();
             
+            liberarControladorActual();
+            controladorActual = loader.getController();
             contenidoPane.getChildren().setAll(vista);
+            RefreshScheduler.getInstance().notificarCambioDeVista();
         } catch (IOException e) {
             mostrarError("Error Crítico", 
                 "No se pudo cargar:\n" + fxmlPath + 
@@ -67,6 +93,18 @@ public class MainController {
         }
     }   
 
+    /**
+     * Libera los recursos de la vista que se va a reemplazar
+     */
+    private void liberarControladorActual() {
+        if (controladorActual instanceof DashboardController dashboard) {
+            dashboard.detener();
+        } else if (controladorActual instanceof ProductosController productos) {
+            productos.shutdown();
+        }
+        controladorActual = null;
+    }
+
 
     @FXML
     private void cerrarSesion() {
@@ -117,6 +155,7 @@ public class MainController {
     }
 
     private void regresarALogin() {
+        liberarControladorActual();
         cerrarVentanaActual();
         try {
             Stage stage = new Stage();
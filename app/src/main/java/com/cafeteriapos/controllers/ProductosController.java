@@ -1,29 +1,43 @@
 package com.cafeteriapos.controllers;
 
+import com.cafeteriapos.backup.IncrementalBackupEngine;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.ProductoEliminado;
+import com.cafeteriapos.events.StockCambiado;
 import com.cafeteriapos.models.Producto;
-import com.cafeteriapos.utils.DatabaseManager;
-import com.cafeteriapos.performance.DatabaseQueryOptimizer;
+import com.cafeteriapos.performance.FxStallWatchdog;
+import com.cafeteriapos.performance.RefreshScheduler;
+import com.cafeteriapos.utils.AsyncDatabase;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.Stage;
+import javafx.stage.Window;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ProductosController {
     private static final Logger logger = LoggerFactory.getLogger(ProductosController.class);
     
-    // Sistema de actualización automática
-    private ScheduledExecutorService actualizacionService;
-    private DatabaseQueryOptimizer optimizer;
+    // Actualización push de stock vía EventBus
+    private EventBus.Suscripcion suscripcionStock;
+    private EventBus.Suscripcion suscripcionEliminados;
+    
+    // Recarga periódica adaptativa para cambios hechos fuera de este proceso
+    private static final Duration REFRESCO_MINIMO = Duration.ofSeconds(30);
+    private static final Duration REFRESCO_MAXIMO = Duration.ofMinutes(10);
+    private RefreshScheduler.Registro refrescoProgramado;
+    // Altas en la tabla; una recarga leída antes de un alta no debe quitarla
+    private final AtomicInteger altasEnTabla = new AtomicInteger();
 
     // Componentes UI
     @FXML private TableView<Producto> tablaProductos;
@@ -47,85 +61,126 @@ public class ProductosController {
     }
     
     /**
-     * Inicializa el sistema de actualización automática de productos
+     * Suscribe la tabla a los cambios de stock y eliminaciones confirmados (sin polling)
      */
     private void inicializarSistemaActualizacion() {
-        try {
-            // Obtener instancia del optimizer
-            optimizer = DatabaseQueryOptimizer.getInstance();
-            
-            // Configurar actualización automática cada 10 segundos
-            actualizacionService = Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "ProductosController-Updater");
-                t.setDaemon(true);
-                return t;
-            });
-            
-            // Verificar cambios cada 10 segundos
-            actualizacionService.scheduleAtFixedRate(this::verificarCambiosEnProductos, 
-                                                   10, 10, TimeUnit.SECONDS);
-            
-            logger.info("Sistema de actualización automática de productos iniciado");
-            
-        } catch (Exception e) {
-            logger.error("Error al inicializar sistema de actualización: {}", e.getMessage());
+        suscripcionStock = EventBus.getInstance().subscribe(StockCambiado.class,
+            evento -> Platform.runLater(() -> aplicarCambioStock(evento)));
+        suscripcionEliminados = EventBus.getInstance().subscribe(ProductoEliminado.class,
+            evento -> Platform.runLater(() -> quitarProducto(evento.getProducto())));
+        
+        refrescoProgramado = RefreshScheduler.getInstance().registrar(
+            "Productos", this::recargarEnSegundoPlano, REFRESCO_MINIMO, REFRESCO_MAXIMO, this::esVisible);
+        
+        logger.info("Sistema de actualización de productos suscrito a cambios de stock");
+    }
+    
+    /**
+     * Refleja en la tabla un cambio de stock o precio (hilo FX)
+     */
+    private void aplicarCambioStock(StockCambiado evento) {
+        aplicarProducto(evento.getProducto(), evento.getPrecio(), evento.getStock());
+    }
+    
+    private void aplicarProducto(String nombre, double precio, int stock) {
+        for (Producto producto : productos) {
+            if (producto.getNombre().equals(nombre)) {
+                producto.setStock(stock);
+                producto.setPrecio(precio);
+                tablaProductos.refresh();
+                return;
+            }
         }
+        
+        altasEnTabla.incrementAndGet();
+        productos.add(new Producto(nombre, precio, stock));
+        logger.debug("Producto agregado por actualización: {}", nombre);
     }
     
     /**
-     * Verifica si hay cambios en los productos y recarga si es necesario
+     * Quita de la tabla un producto eliminado (hilo FX)
      */
-    private void verificarCambiosEnProductos() {
-        try {
-            // Usar DatabaseManager para obtener productos actuales desde H2 (1-5ms)
-            List<Producto> productosActuales = DatabaseManager.leerProductos();
-            
-            // Comparar con los productos en memoria
-            if (productosActuales.size() != productos.size() || 
-                !productosActuales.equals(productos)) {
-                
-                logger.info("Cambios detectados en productos, recargando datos...");
-                
-                // Actualizar en el hilo de JavaFX
-                Platform.runLater(() -> {
-                    productos.setAll(productosActuales);
-                    logger.info("Productos actualizados: {} productos cargados", productosActuales.size());
-                });
+    private void quitarProducto(String nombre) {
+        if (productos.removeIf(producto -> producto.getNombre().equals(nombre))) {
+            logger.debug("Producto quitado por eliminación: {}", nombre);
+        }
+    }
+    
+    /**
+     * Relee los productos fuera del hilo FX y aplica las diferencias sin perder la selección
+     * Las filas que ya no están en la base (eliminadas desde otro proceso) se quitan
+     */
+    private void recargarEnSegundoPlano() {
+        int altasAlLeer = altasEnTabla.get();
+        AsyncDatabase.getInstance().leerProductos().whenComplete((leidos, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                logger.warn("Error en recarga programada de productos", error);
+                return;
             }
-            
-        } catch (Exception e) {
-            logger.debug("Error en verificación de cambios: {}", e.getMessage());
+            Set<String> nombres = new HashSet<>();
+            leidos.forEach(p -> nombres.add(p.getNombre()));
+            if (altasEnTabla.get() == altasAlLeer
+                    && productos.removeIf(producto -> !nombres.contains(producto.getNombre()))) {
+                logger.debug("Productos eliminados fuera de la vista quitados de la tabla");
+            }
+            leidos.forEach(p -> aplicarProducto(p.getNombre(), p.getPrecio(), p.getStock()));
+        }));
+    }
+    
+    /**
+     * Ventana mostrada y no minimizada; si no, el refresco programado se omite
+     */
+    private boolean esVisible() {
+        if (tablaProductos == null || tablaProductos.getScene() == null) {
+            return false;
         }
+        Window ventana = tablaProductos.getScene().getWindow();
+        return ventana != null && ventana.isShowing()
+            && !(ventana instanceof Stage stage && stage.isIconified());
     }
 
     /**
-     * Método para recrear el archivo Excel en caso de corrupción extrema
+     * Backup incremental en segundo plano, seguido de la verificación de restauración
+     * La copia corre en el hilo del motor de backup; la interfaz sigue disponible mientras tanto
      */
     @FXML
     private void crearBackupBaseDatos() {
+        FxStallWatchdog.getInstance().marcarAccion("crearBackupBaseDatos");
         Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
         confirmacion.setTitle("Crear Backup Base de Datos");
         confirmacion.setHeaderText("¿Crear backup de la base de datos?");
         confirmacion.setContentText(
-            "Esta acción creará un backup completo de la base de datos H2.\n" +
-            "El backup se guardará en la carpeta data.\n\n" +
+            "Se copiarán los cambios desde el último backup y luego se verificará\n" +
+            "que el backup se pueda restaurar. El proceso corre en segundo plano.\n" +
+            "Los backups se guardan en data/backups/incremental.\n\n" +
             "¿Desea continuar?");
 
         confirmacion.showAndWait().ifPresent(response -> {
-            if (response == ButtonType.OK) {
-                if (DatabaseManager.crearBackup()) {
-                    mostrarAlerta("Éxito", 
-                        "Backup de base de datos creado exitosamente.\n" +
-                        "El archivo de backup se encuentra en la carpeta data.");
-                    
-                    // Recargar productos después del backup
-                    cargarProductos();
-                } else {
-                    mostrarError("Error", 
-                        "No se pudo crear el backup de la base de datos.\n" +
-                        "Verifique los permisos del directorio.");
-                }
+            if (response != ButtonType.OK) {
+                return;
             }
+            IncrementalBackupEngine motor = IncrementalBackupEngine.getInstance();
+            motor.solicitarBackup()
+                .thenCompose(backup -> motor.solicitarVerificacion()
+                    .thenApply(verificacion -> Map.entry(backup, verificacion)))
+                .whenComplete((resultado, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        logger.error("Error creando backup incremental", error);
+                        mostrarError("Error",
+                            "No se pudo crear el backup de la base de datos.\n" +
+                            "Verifique los permisos del directorio.");
+                    } else if (!resultado.getValue().isCorrecto()) {
+                        mostrarError("Backup no verificado",
+                            "El backup " + resultado.getKey().getSegmento() + " no pasó la verificación:\n" +
+                            String.join("\n", resultado.getValue().getErrores()));
+                    } else {
+                        IncrementalBackupEngine.ResultadoBackup backup = resultado.getKey();
+                        mostrarAlerta("Éxito", String.format(
+                            "Backup %s creado y verificado.%n%d tablas copiadas, %d sin cambios (%d KB).%n%d filas restauradas en la verificación.",
+                            backup.getSegmento(), backup.getTablasCopiadas(), backup.getTablasSinCambios(),
+                            backup.getBytes() / 1024, resultado.getValue().getFilas()));
+                    }
+                }));
         });
     }
 
@@ -159,8 +214,17 @@ public class ProductosController {
     }
 
     private void cargarProductos() {
-        try {
-            List<Producto> productosLeidos = DatabaseManager.leerProductos();
+        AsyncDatabase.getInstance().leerProductos().whenComplete((productosLeidos, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                mostrarError("Error al cargar productos", 
+                    "Error al cargar productos: " + error.getMessage() + "\n" +
+                    "La aplicación continuará con una lista vacía.\n" +
+                    "Puede agregar nuevos productos normalmente.");
+                
+                // Asegurar que la lista esté inicializada aunque haya error
+                productos.clear();
+                return;
+            }
             productos.setAll(productosLeidos);
             
             if (productosLeidos.isEmpty()) {
@@ -170,16 +234,7 @@ public class ProductosController {
             } else {
                 logger.info("Productos cargados: {}", productosLeidos.size());
             }
-            
-        } catch (Exception e) {
-            mostrarError("Error al cargar productos", 
-                "Error al cargar productos: " + e.getMessage() + "\n" +
-                "La aplicación continuará con una lista vacía.\n" +
-                "Puede agregar nuevos productos normalmente.");
-            
-            // Asegurar que la lista esté inicializada aunque haya error
-            productos.clear();
-        }
+        }));
     }
 
     @FXML
@@ -201,9 +256,18 @@ public class ProductosController {
                 throw new IllegalStateException("El producto ya existe");
             }
 
+            altasEnTabla.incrementAndGet();
             productos.add(producto);
-            DatabaseManager.guardarProducto(producto);
             limpiarFormulario();
+            AsyncDatabase.getInstance().guardarProducto(producto).whenComplete((ok, error) -> {
+                if (error != null) {
+                    Platform.runLater(() -> {
+                        // Revertir el cambio en la lista local
+                        productos.remove(producto);
+                        mostrarError("Error", "No se pudo guardar el producto: " + error.getMessage());
+                    });
+                }
+            });
             
         } catch (NumberFormatException e) {
             mostrarError("Formato inválido", "Ingrese un precio válido (ej: 5.99)");
@@ -244,16 +308,18 @@ public class ProductosController {
 
             confirmacion.showAndWait().ifPresent(response -> {
                 if (response == ButtonType.OK) {
-                    try {
-                        productos.remove(seleccionado);
-                        DatabaseManager.eliminarProducto(seleccionado);
-                        mostrarAlerta("Éxito", "Producto eliminado correctamente");
-                        limpiarFormulario();
-                    } catch (Exception e) {
-                        mostrarError("Error", "No se pudo eliminar el producto: " + e.getMessage());
-                        // Revertir el cambio en la lista local
-                        productos.add(seleccionado);
-                    }
+                    productos.remove(seleccionado);
+                    AsyncDatabase.getInstance().eliminarProducto(seleccionado)
+                        .whenComplete((ok, error) -> Platform.runLater(() -> {
+                            if (error != null) {
+                                mostrarError("Error", "No se pudo eliminar el producto: " + error.getMessage());
+                                // Revertir el cambio en la lista local
+                                productos.add(seleccionado);
+                            } else {
+                                mostrarAlerta("Éxito", "Producto eliminado correctamente");
+                                limpiarFormulario();
+                            }
+                        }));
                 }
             });
         } else {
@@ -281,10 +347,15 @@ public class ProductosController {
                 seleccionado.setStock(spinnerStock.getValue());
                 
                 tablaProductos.refresh();
-                DatabaseManager.actualizarProducto(seleccionado); // Usar método actualizar
                 limpiarFormulario();
-                
-                mostrarAlerta("Éxito", "Producto actualizado correctamente");
+                AsyncDatabase.getInstance().actualizarProducto(seleccionado)
+                    .whenComplete((ok, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            mostrarError("Error", "Error al actualizar producto: " + error.getMessage());
+                        } else {
+                            mostrarAlerta("Éxito", "Producto actualizado correctamente");
+                        }
+                    }));
                 
             } catch (NumberFormatException e) {
                 mostrarError("Error", "El precio debe ser un número válido");
@@ -324,17 +395,18 @@ public class ProductosController {
      * Método de limpieza cuando se destruye el controller
      */
     public void shutdown() {
-        if (actualizacionService != null && !actualizacionService.isShutdown()) {
-            actualizacionService.shutdown();
-            try {
-                if (!actualizacionService.awaitTermination(2, TimeUnit.SECONDS)) {
-                    actualizacionService.shutdownNow();
-                }
-                logger.info("Sistema de actualización de productos detenido correctamente");
-            } catch (InterruptedException e) {
-                actualizacionService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        if (refrescoProgramado != null) {
+            refrescoProgramado.cancelar();
+            refrescoProgramado = null;
+        }
+        if (suscripcionEliminados != null) {
+            suscripcionEliminados.cancelar();
+            suscripcionEliminados = null;
+        }
+        if (suscripcionStock != null) {
+            suscripcionStock.cancelar();
+            suscripcionStock = null;
+            logger.info("Sistema de actualización de productos detenido correctamente");
         }
     }
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.cafeteriapos.controllers;
 
+import com.cafeteriapos.journal.SalesJournal;
 import com.cafeteriapos.models.Producto;
 import com.cafeteriapos.models.Venta;
-import com.cafeteriapos.utils.CajaManager;
-import com.cafeteriapos.utils.DatabaseManager;
+import com.cafeteriapos.performance.FxStallWatchdog;
+import com.cafeteriapos.performance.SaleTracer;
+import com.cafeteriapos.utils.AsyncDatabase;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -18,6 +21,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 public class VentasController {
     private static final Logger logger = LoggerFactory.getLogger(VentasController.class);
@@ -35,36 +39,23 @@ public class VentasController {
     @FXML private TextField tfBusqueda;
     @FXML private Spinner<Integer> spinnerCantidad;
     @FXML private Spinner<Integer> spinnerEliminar;
+    @FXML private Button btnNuevaVenta;
+    @FXML private Button btnAgregar;
+    @FXML private Button btnRemover;
+    @FXML private Button btnFinalizar;
 
     // Datos
     private final ObservableList<ItemCarrito> carrito = FXCollections.observableArrayList();
     private final FilteredList<Producto> productosFiltrados;
     private final ObservableList<Producto> productosDisponibles;
+    private boolean registrando; // Solo se usa en el hilo FX
 
     public VentasController() {
-        productosDisponibles = FXCollections.observableArrayList(cargarProductosSafely());
+        // Se llena en initialize(), fuera del hilo FX
+        productosDisponibles = FXCollections.observableArrayList();
         productosFiltrados = new FilteredList<>(productosDisponibles);
     }
 
-    private List<Producto> cargarProductosSafely() {
-        try {
-            List<Producto> productos = DatabaseManager.leerProductos();
-            
-            // Si no hay productos, crear algunos en memoria sin guardar en BD por ahora
-            if (productos.isEmpty()) {
-                logger.info("No se encontraron productos. Usando productos de ejemplo en memoria...");
-                return crearProductosDeEjemploEnMemoria();
-            }
-            
-            return productos;
-        } catch (Exception e) {
-            logger.error("Error al cargar productos desde Excel: {}", e.getMessage());
-            logger.info("Usando productos de ejemplo en memoria...");
-            // Retornar productos de ejemplo en memoria si hay error
-            return crearProductosDeEjemploEnMemoria();
-        }
-    }
-
     private List<Producto> crearProductosDeEjemploEnMemoria() {
         List<Producto> productos = new ArrayList<>();
         productos.add(new Producto("Café Americano", 2.50, 50));
@@ -141,7 +132,20 @@ public class VentasController {
     }
 
     private void cargarProductos() {
-        productosDisponibles.setAll(DatabaseManager.leerProductos());
+        AsyncDatabase.getInstance().leerProductos().whenComplete((productos, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                logger.error("Error al cargar productos: {}", error.getMessage());
+                logger.info("Usando productos de ejemplo en memoria...");
+                // Productos de ejemplo en memoria si hay error
+                productosDisponibles.setAll(crearProductosDeEjemploEnMemoria());
+            } else if (productos.isEmpty()) {
+                // Si no hay productos, crear algunos en memoria sin guardar en BD por ahora
+                logger.info("No se encontraron productos. Usando productos de ejemplo en memoria...");
+                productosDisponibles.setAll(crearProductosDeEjemploEnMemoria());
+            } else {
+                productosDisponibles.setAll(productos);
+            }
+        }));
     }
 
     private void configurarBusqueda() {
@@ -232,6 +236,12 @@ public class VentasController {
 
     @FXML
     private void finalizarVenta() {
+        FxStallWatchdog.getInstance().marcarAccion("finalizarVenta");
+        long inicio = System.nanoTime();
+        if (registrando) {
+            // La venta anterior aún se está escribiendo en el journal (los controles están deshabilitados)
+            return;
+        }
         if (carrito.isEmpty()) {
             mostrarAlerta("Error", "El carrito está vacío");
             return;
@@ -243,6 +253,11 @@ public class VentasController {
         }
 
         Venta venta = crearVenta();
+        // La traza sigue a la venta por su ID hasta que el dashboard la dibuja
+        SaleTracer tracer = SaleTracer.getInstance();
+        tracer.iniciar(venta.getId(), inicio);
+        tracer.registrar(venta.getId(), "carrito.validacion", inicio, System.nanoTime(),
+            "items", String.valueOf(carrito.size()));
         registrarVenta(venta);
     }
 
@@ -277,28 +292,30 @@ public class VentasController {
     }
 
     private void registrarVenta(Venta venta) {
-        try {
-            // Actualizar stocks de los productos originales en la lista
-            carrito.forEach(itemCarrito -> {
-                // Buscar el producto original en la lista de productos disponibles
+        setRegistrando(true);
+        List<ItemCarrito> vendidos = List.copyOf(carrito);
+        // El journal deja la venta en disco fuera del hilo FX; stock y caja se actualizan en la base en segundo plano
+        SalesJournal.registrarEnSegundoPlano(venta).whenComplete((secuencia, error) -> Platform.runLater(() -> {
+            setRegistrando(false);
+            if (error != null) {
+                Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("Error registrando venta {}: {}", venta.getId(), causa.getMessage());
+                mostrarAlerta("Error", "No se pudo registrar: " + causa.getMessage());
+                return;
+            }
+
+            // Reflejar el nuevo stock en la lista sin esperar a la base
+            vendidos.forEach(itemCarrito -> {
                 Producto productoOriginal = productosDisponibles.stream()
                     .filter(p -> p.getNombre().equals(itemCarrito.getProducto().getNombre()))
                     .findFirst()
                     .orElse(null);
                 
                 if (productoOriginal != null) {
-                    // Actualizar el stock del producto original
                     int nuevoStock = productoOriginal.getStock() - itemCarrito.getCantidad();
                     productoOriginal.setStock(Math.max(0, nuevoStock)); // Asegurar que no sea negativo
-                    
-                    // Guardar el producto actualizado en H2 Database
-                    DatabaseManager.actualizarProducto(productoOriginal);
                 }
             });
-
-            // Guardar la venta en H2 Database
-            DatabaseManager.guardarVenta(venta);
-            CajaManager.registrarVenta(venta.getId(), venta.getTotal());
             
             mostrarAlerta("Éxito", String.format(
                 "Venta registrada\nID: %s\nTotal: $%.2f", 
@@ -308,10 +325,21 @@ public class VentasController {
             
             // Refrescar la tabla para mostrar los nuevos stocks
             tablaProductos.refresh();
+        }));
+    }
 
-        } catch (Exception e) {
-            mostrarAlerta("Error", "No se pudo registrar: " + e.getMessage());
-        }
+    /**
+     * Mientras la venta se escribe, el carrito no se puede editar: al terminar bien se
+     * vacía, y así no se pierde nada agregado en el medio ni cambia lo que se vendió
+     */
+    private void setRegistrando(boolean valor) {
+        registrando = valor;
+        btnFinalizar.setDisable(valor);
+        btnAgregar.setDisable(valor);
+        btnRemover.setDisable(valor);
+        btnNuevaVenta.setDisable(valor);
+        spinnerCantidad.setDisable(valor);
+        spinnerEliminar.setDisable(valor);
     }
 
     private double calcularTotal() {
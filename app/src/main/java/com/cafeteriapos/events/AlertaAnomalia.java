@@ -0,0 +1,40 @@
+package com.cafeteriapos.events;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado cuando el detector en tiempo real encuentra una anomalía
+ */
+public class AlertaAnomalia {
+
+    public enum Tipo {
+        INGRESO_INUSUAL,
+        TERMINAL_SILENCIOSA
+    }
+
+    private final Tipo tipo;
+    private final String mensaje;
+    private final double valorObservado;
+    private final double valorEsperado;
+    private final LocalDateTime fechaHora;
+
+    public AlertaAnomalia(Tipo tipo, String mensaje, double valorObservado, double valorEsperado) {
+        this.tipo = tipo;
+        this.mensaje = mensaje;
+        this.valorObservado = valorObservado;
+        this.valorEsperado = valorEsperado;
+        this.fechaHora = LocalDateTime.now();
+    }
+
+    // Getters
+    public Tipo getTipo() { return tipo; }
+    public String getMensaje() { return mensaje; }
+    public double getValorObservado() { return valorObservado; }
+    public double getValorEsperado() { return valorEsperado; }
+    public LocalDateTime getFechaHora() { return fechaHora; }
+
+    @Override
+    public String toString() {
+        return tipo + ": " + mensaje;
+    }
+}
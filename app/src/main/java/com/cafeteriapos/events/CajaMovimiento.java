@@ -0,0 +1,26 @@
+package com.cafeteriapos.events;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado cuando se registra una operación de caja
+ */
+public class CajaMovimiento {
+    private final String tipo;
+    private final double monto;
+    private final String referencia;
+    private final LocalDateTime fechaHora;
+
+    public CajaMovimiento(String tipo, double monto, String referencia) {
+        this.tipo = tipo;
+        this.monto = monto;
+        this.referencia = referencia;
+        this.fechaHora = LocalDateTime.now();
+    }
+
+    // Getters
+    public String getTipo() { return tipo; }
+    public double getMonto() { return monto; }
+    public String getReferencia() { return referencia; }
+    public LocalDateTime getFechaHora() { return fechaHora; }
+}
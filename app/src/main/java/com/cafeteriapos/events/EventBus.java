@@ -0,0 +1,106 @@
+package com.cafeteriapos.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos de dominio en proceso
+ * Los eventos se publican después del commit en H2 y se entregan de forma
+ * síncrona en el hilo que publica; los suscriptores de UI deben pasar al hilo FX
+ */
+public class EventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventBus.class);
+
+    // === SUSCRIPTORES POR TIPO DE EVENTO ===
+    private final Map<Class<?>, List<Consumer<Object>>> suscriptores = new ConcurrentHashMap<>();
+
+    // === ESTADÍSTICAS ===
+    private final AtomicLong eventosPublicados = new AtomicLong(0);
+    private final AtomicLong entregas = new AtomicLong(0);
+    private final AtomicLong erroresEntrega = new AtomicLong(0);
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile EventBus instance;
+    private static final Object LOCK = new Object();
+
+    EventBus() {
+    }
+
+    public static EventBus getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new EventBus();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Registra un manejador para un tipo de evento
+     * @return suscripción que permite cancelar el registro
+     */
+    @SuppressWarnings("unchecked")
+    public <E> Suscripcion subscribe(Class<E> tipo, Consumer<? super E> manejador) {
+        Consumer<Object> consumidor = evento -> manejador.accept((E) evento);
+        List<Consumer<Object>> lista = suscriptores.computeIfAbsent(tipo, k -> new CopyOnWriteArrayList<>());
+        lista.add(consumidor);
+
+        logger.debug("Suscripción registrada para {}", tipo.getSimpleName());
+        return () -> lista.remove(consumidor);
+    }
+
+    /**
+     * Publica un evento a todos sus suscriptores
+     * Un error en un manejador no interrumpe al resto ni al publicador
+     */
+    public void publish(Object evento) {
+        if (evento == null) {
+            return;
+        }
+        eventosPublicados.incrementAndGet();
+
+        List<Consumer<Object>> lista = suscriptores.get(evento.getClass());
+        if (lista == null || lista.isEmpty()) {
+            return;
+        }
+
+        for (Consumer<Object> consumidor : lista) {
+            try {
+                consumidor.accept(evento);
+                entregas.incrementAndGet();
+            } catch (Exception e) {
+                erroresEntrega.incrementAndGet();
+                logger.error("Error entregando evento {}", evento.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public int getSuscriptores(Class<?> tipo) {
+        List<Consumer<Object>> lista = suscriptores.get(tipo);
+        return lista != null ? lista.size() : 0;
+    }
+
+    public long getEventosPublicados() { return eventosPublicados.get(); }
+    public long getEntregas() { return entregas.get(); }
+    public long getErroresEntrega() { return erroresEntrega.get(); }
+
+    /**
+     * Manejador de una suscripción activa
+     */
+    @FunctionalInterface
+    public interface Suscripcion {
+        void cancelar();
+    }
+}
@@ -0,0 +1,15 @@
+package com.cafeteriapos.events;
+
+/**
+ * Evento publicado cuando un producto se elimina de la base de datos
+ */
+public class ProductoEliminado {
+    private final String producto;
+
+    public ProductoEliminado(String producto) {
+        this.producto = producto;
+    }
+
+    // Getters
+    public String getProducto() { return producto; }
+}
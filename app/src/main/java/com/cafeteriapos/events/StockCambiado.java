@@ -0,0 +1,21 @@
+package com.cafeteriapos.events;
+
+/**
+ * Evento publicado cuando el stock o el precio de un producto cambia en la base de datos
+ */
+public class StockCambiado {
+    private final String producto;
+    private final int stock;
+    private final double precio;
+
+    public StockCambiado(String producto, int stock, double precio) {
+        this.producto = producto;
+        this.stock = stock;
+        this.precio = precio;
+    }
+
+    // Getters
+    public String getProducto() { return producto; }
+    public int getStock() { return stock; }
+    public double getPrecio() { return precio; }
+}
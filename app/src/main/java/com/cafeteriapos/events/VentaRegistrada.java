@@ -0,0 +1,22 @@
+package com.cafeteriapos.events;
+
+import com.cafeteriapos.models.Venta;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado cuando una venta queda confirmada en la base de datos
+ */
+public class VentaRegistrada {
+    private final Venta venta;
+    private final LocalDateTime registradaEn;
+
+    public VentaRegistrada(Venta venta) {
+        this.venta = venta;
+        this.registradaEn = LocalDateTime.now();
+    }
+
+    // Getters
+    public Venta getVenta() { return venta; }
+    public LocalDateTime getRegistradaEn() { return registradaEn; }
+}
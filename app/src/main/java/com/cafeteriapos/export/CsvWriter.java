@@ -0,0 +1,163 @@
+package com.cafeteriapos.export;
+
+import java.io.*;
+import java.time.LocalDateTime;
+
+/**
+ * Escritor CSV con búfer y formateo sin asignaciones por campo
+ * Números y fechas se escriben dígito a dígito en un arreglo reutilizable en lugar
+ * de usar String.format, así exportar millones de filas no genera basura por línea
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final char SEPARADOR = ',';
+
+    private final Writer salida;
+    private final char[] digitos = new char[20];
+    private boolean primerCampo = true;
+
+    public CsvWriter(Writer destino) {
+        this.salida = destino instanceof BufferedWriter ? destino : new BufferedWriter(destino, TAMANO_BUFFER);
+    }
+
+    // === CAMPOS ===
+
+    /**
+     * Texto; se entrecomilla solo si contiene separador, comillas o saltos de línea
+     */
+    public CsvWriter texto(String valor) throws IOException {
+        separar();
+        if (valor == null) {
+            return this;
+        }
+        if (!requiereComillas(valor)) {
+            salida.write(valor);
+            return this;
+        }
+        salida.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') salida.write('"');
+            salida.write(c);
+        }
+        salida.write('"');
+        return this;
+    }
+
+    public CsvWriter entero(long valor) throws IOException {
+        separar();
+        escribirEntero(valor);
+        return this;
+    }
+
+    /**
+     * Importe con dos decimales, redondeado al centavo
+     */
+    public CsvWriter decimal(double valor) throws IOException {
+        separar();
+        long centavos = Math.round(valor * 100);
+        if (centavos < 0) {
+            salida.write('-');
+            centavos = -centavos;
+        }
+        escribirEntero(centavos / 100);
+        salida.write('.');
+        int resto = (int) (centavos % 100);
+        salida.write('0' + resto / 10);
+        salida.write('0' + resto % 10);
+        return this;
+    }
+
+    /**
+     * Fecha y hora en formato yyyy-MM-dd HH:mm:ss
+     */
+    public CsvWriter fechaHora(LocalDateTime valor) throws IOException {
+        separar();
+        if (valor == null) {
+            return this;
+        }
+        escribirConCeros(valor.getYear(), 4);
+        salida.write('-');
+        escribirConCeros(valor.getMonthValue(), 2);
+        salida.write('-');
+        escribirConCeros(valor.getDayOfMonth(), 2);
+        salida.write(' ');
+        escribirConCeros(valor.getHour(), 2);
+        salida.write(':');
+        escribirConCeros(valor.getMinute(), 2);
+        salida.write(':');
+        escribirConCeros(valor.getSecond(), 2);
+        return this;
+    }
+
+    /**
+     * Campo vacío (p. ej. columnas de ítem en una venta sin ítems)
+     */
+    public CsvWriter vacio() throws IOException {
+        separar();
+        return this;
+    }
+
+    public void finLinea() throws IOException {
+        salida.write('\n');
+        primerCampo = true;
+    }
+
+    // === CONTROL ===
+
+    @Override
+    public void flush() throws IOException {
+        salida.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        salida.close();
+    }
+
+    // === FORMATEO ===
+
+    private void separar() throws IOException {
+        if (!primerCampo) {
+            salida.write(SEPARADOR);
+        }
+        primerCampo = false;
+    }
+
+    private static boolean requiereComillas(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == SEPARADOR || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void escribirEntero(long valor) throws IOException {
+        if (valor == Long.MIN_VALUE) {
+            salida.write(Long.toString(valor));
+            return;
+        }
+        if (valor < 0) {
+            salida.write('-');
+            valor = -valor;
+        }
+        int pos = digitos.length;
+        do {
+            digitos[--pos] = (char) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor != 0);
+        salida.write(digitos, pos, digitos.length - pos);
+    }
+
+    private void escribirConCeros(int valor, int ancho) throws IOException {
+        int pos = digitos.length;
+        for (int i = 0; i < ancho || valor != 0; i++) {
+            digitos[--pos] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        salida.write(digitos, pos, digitos.length - pos);
+    }
+}
@@ -0,0 +1,187 @@
+package com.cafeteriapos.export;
+
+import com.cafeteriapos.archive.SalesArchive;
+import com.cafeteriapos.models.LineaVenta;
+import com.cafeteriapos.utils.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongBiFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de ventas e ítems a CSV (o CSV comprimido con gzip) en flujo
+ * Las filas se leen con un cursor y se escriben al archivo a medida que llegan,
+ * así la memoria usada es la misma para un día que para varios años (los meses
+ * archivados se decodifican de a uno)
+ * Se escribe a un archivo temporal que reemplaza al destino solo al terminar bien
+ */
+public class VentasCsvExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(VentasCsvExporter.class);
+
+    // Cada cuántas filas se informa progreso y se revisa la cancelación
+    private static final int FILAS_POR_AVISO = 1000;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final String SUFIJO_TEMPORAL = ".parcial";
+
+    /**
+     * Recibe el avance de la exportación
+     */
+    @FunctionalInterface
+    public interface Progreso {
+        void actualizar(long ventasProcesadas, long ventasTotales);
+    }
+
+    /**
+     * Origen de las filas (por defecto el cursor de DatabaseManager)
+     */
+    @FunctionalInterface
+    interface FuenteLineas {
+        boolean recorrer(LocalDateTime desde, LocalDateTime hasta,
+                         DatabaseManager.VisitanteLineaVenta visitante) throws Exception;
+    }
+
+    private final FuenteLineas fuente;
+    private final ToLongBiFunction<LocalDateTime, LocalDateTime> contador;
+
+    /**
+     * Exportador del historial completo: meses archivados y base de datos
+     */
+    public VentasCsvExporter() {
+        this(SalesArchive.getInstance()::recorrerLineasVenta, SalesArchive.getInstance()::contarVentas);
+    }
+
+    /**
+     * Constructor con origen de datos inyectable (útil para tests)
+     */
+    VentasCsvExporter(FuenteLineas fuente, ToLongBiFunction<LocalDateTime, LocalDateTime> contador) {
+        this.fuente = fuente;
+        this.contador = contador;
+    }
+
+    /**
+     * Exporta las ventas de [desde, hasta] (días completos) con una fila por ítem
+     * El destino se comprime con gzip si su nombre termina en ".gz"
+     * @throws CancellationException si {@code cancelado} se activa; el destino no se modifica
+     */
+    public ResultadoExportacion exportar(LocalDate desde, LocalDate hasta, Path destino,
+                                         Progreso progreso, BooleanSupplier cancelado) throws Exception {
+        long inicio = System.currentTimeMillis();
+        LocalDateTime desdeHora = desde.atStartOfDay();
+        LocalDateTime hastaHora = hasta.plusDays(1).atStartOfDay();
+        long ventasTotales = contador.applyAsLong(desdeHora, hastaHora);
+        progreso.actualizar(0, ventasTotales);
+
+        Path temporal = destino.resolveSibling(destino.getFileName() + SUFIJO_TEMPORAL);
+        long[] contadores = new long[2]; // [ventas, filas]
+        boolean completo = false;
+
+        try (CsvWriter csv = new CsvWriter(abrir(temporal, esGzip(destino)))) {
+            csv.texto("venta_id").texto("fecha_hora").texto("total_venta").texto("linea")
+                .texto("producto").texto("precio_unitario").texto("cantidad").texto("subtotal");
+            csv.finLinea();
+
+            String[] ventaAnterior = {null};
+            completo = fuente.recorrer(desdeHora, hastaHora, fila -> {
+                if (!fila.getVentaId().equals(ventaAnterior[0])) {
+                    ventaAnterior[0] = fila.getVentaId();
+                    contadores[0]++;
+                }
+                escribirFila(csv, fila);
+                if (++contadores[1] % FILAS_POR_AVISO == 0) {
+                    progreso.actualizar(contadores[0], ventasTotales);
+                    return !cancelado.getAsBoolean();
+                }
+                return true;
+            });
+        } finally {
+            if (!completo) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+
+        if (!completo) {
+            logger.info("Exportación cancelada tras {} ventas", contadores[0]);
+            throw new CancellationException("Exportación cancelada");
+        }
+
+        reemplazar(temporal, destino);
+        progreso.actualizar(contadores[0], Math.max(ventasTotales, contadores[0]));
+
+        ResultadoExportacion resultado = new ResultadoExportacion(destino, contadores[0], contadores[1],
+            Files.size(destino), System.currentTimeMillis() - inicio);
+        logger.info("Exportadas {} ventas ({} filas, {} KB) a {} en {}ms", resultado.getVentas(),
+            resultado.getFilas(), resultado.getBytes() / 1024, destino, resultado.getDuracionMs());
+        return resultado;
+    }
+
+    public static boolean esGzip(Path archivo) {
+        return archivo.getFileName().toString().toLowerCase().endsWith(".gz");
+    }
+
+    // === ESCRITURA ===
+
+    private static void escribirFila(CsvWriter csv, LineaVenta fila) throws IOException {
+        csv.texto(fila.getVentaId()).fechaHora(fila.getFechaHora()).decimal(fila.getTotalVenta());
+        if (fila.tieneItem()) {
+            csv.entero(fila.getLinea())
+                .texto(fila.getProducto())
+                .decimal(fila.getPrecio())
+                .entero(fila.getCantidad())
+                .decimal(fila.getPrecio() * fila.getCantidad());
+        } else {
+            // Venta anterior al registro de ítems
+            csv.vacio().vacio().vacio().vacio().vacio();
+        }
+        csv.finLinea();
+    }
+
+    private static Writer abrir(Path archivo, boolean gzip) throws IOException {
+        OutputStream salida = Files.newOutputStream(archivo);
+        if (gzip) {
+            salida = new GZIPOutputStream(salida, TAMANO_BUFFER);
+        }
+        return new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+
+    private static void reemplazar(Path temporal, Path destino) throws IOException {
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // === RESULTADO ===
+
+    public static class ResultadoExportacion {
+        private final Path archivo;
+        private final long ventas;
+        private final long filas;
+        private final long bytes;
+        private final long duracionMs;
+
+        public ResultadoExportacion(Path archivo, long ventas, long filas, long bytes, long duracionMs) {
+            this.archivo = archivo;
+            this.ventas = ventas;
+            this.filas = filas;
+            this.bytes = bytes;
+            this.duracionMs = duracionMs;
+        }
+
+        // Getters
+        public Path getArchivo() { return archivo; }
+        public long getVentas() { return ventas; }
+        public long getFilas() { return filas; }
+        public long getBytes() { return bytes; }
+        public long getDuracionMs() { return duracionMs; }
+    }
+}
@@ -0,0 +1,865 @@
+package com.cafeteriapos.journal;
+
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.EventosJfr;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.performance.SaleTracer;
+import com.cafeteriapos.utils.CajaManager;
+import com.cafeteriapos.utils.DatabaseManager;
+import com.cafeteriapos.utils.SalesGroupCommitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de ventas con escritura anticipada (write-ahead)
+ *
+ * Una venta se considera registrada cuando está escrita y sincronizada a disco en el
+ * journal: segmentos de tamaño fijo mapeados en memoria, con un registro por venta
+ * (longitud, CRC, secuencia, datos). Un hilo aplicador la pasa después a H2 de forma
+ * idempotente; si la base no está disponible reintenta con espera creciente, y al
+ * reiniciar se reaplican las ventas posteriores al último checkpoint
+ *
+ * La sincronización se agrupa: mientras un hilo fuerza el segmento a disco, las ventas
+ * que llegan esperan a esa misma sincronización o a la siguiente, no a una propia
+ *
+ * Un lote que sigue fallando tras {@link #MAXIMO_INTENTOS_POR_DEFECTO} intentos se aplica
+ * venta por venta y las que fallan solas pasan a cuarentena (un archivo por venta en
+ * {@code cuarentena/}): así una venta defectuosa no detiene a las siguientes. Si fallan
+ * todas y la base no responde, es una caída y no una venta defectuosa: el lote se sigue
+ * reintentando entero sin mover el checkpoint. Las ventas en cuarentena se vuelven a
+ * intentar al abrir el journal y luego periódicamente
+ *
+ * Las ventas sin aplicar se guardan en memoria hasta una capacidad fija: con la cola llena,
+ * {@link #registrar} espera un plazo corto a que el aplicador libere lugar y, si no, falla
+ * sin escribir la venta. Así una ráfaga de ventas con la base lenta o caída no hace crecer
+ * la memoria sin límite
+ */
+public class SalesJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesJournal.class);
+
+    private static final Path DIRECTORIO_POR_DEFECTO = Paths.get("./data/journal");
+    private static final int TAMANO_SEGMENTO_POR_DEFECTO = 4 * 1024 * 1024;
+
+    private static final int MAGIC = 0x43504A31; // "CPJ1"
+    private static final int TAMANO_CABECERA_SEGMENTO = 8;  // magic + número de segmento
+    private static final int TAMANO_CABECERA_REGISTRO = 16; // longitud + CRC + secuencia
+    private static final String PREFIJO = "journal_";
+    private static final String EXTENSION = ".seg";
+    private static final String ARCHIVO_CHECKPOINT = "aplicado.chk";
+    private static final String DIRECTORIO_CUARENTENA = "cuarentena";
+    private static final String EXTENSION_CUARENTENA = ".venta";
+
+    private static final long REINTENTO_INICIAL_MS = 500;
+    private static final long REINTENTO_MAXIMO_MS = 30_000;
+    private static final int REGISTROS_POR_CHECKPOINT = 100;
+    private static final int TAMANO_MAXIMO_LOTE = 64;
+    static final int MAXIMO_INTENTOS_POR_DEFECTO = 10;
+    private static final Duration INTERVALO_CUARENTENA_POR_DEFECTO = Duration.ofMinutes(5);
+    // Alcanza para varios días de ventas con la base caída
+    static final int CAPACIDAD_PENDIENTES_POR_DEFECTO = 10_000;
+    private static final Duration ESPERA_CAPACIDAD_POR_DEFECTO = Duration.ofSeconds(2);
+
+    /**
+     * Destino de las ventas del journal (por defecto la base de datos), en lotes en orden
+     * Debe ser idempotente: una venta puede llegar más de una vez tras un corte
+     */
+    @FunctionalInterface
+    interface Aplicador {
+        void aplicar(List<Venta> lote) throws Exception;
+    }
+
+    // === DEPENDENCIAS ===
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final Aplicador aplicador;
+    private final int maximoIntentos;
+    private final BooleanSupplier baseDisponible;
+    private final long intervaloCuarentenaNanos;
+    private final int capacidadPendientes;
+    private final long esperaCapacidadNanos;
+
+    // === ESCRITURA (protegido por escritura) ===
+    private final Object escritura = new Object();
+    private Segmento actual;
+    private long ultimaSecuencia;
+
+    // === DURABILIDAD (sincronización agrupada) ===
+    private final ReentrantLock lockDurable = new ReentrantLock();
+    private final Condition sincronizado = lockDurable.newCondition();
+    private boolean sincronizando;
+    private long secuenciaDurable;
+
+    // === APLICACIÓN ===
+    // En orden de secuencia: se encolan con el lock de escritura tomado. La capacidad se
+    // reserva en sinAplicar antes de escribir (ver reservarLugar); solo la recuperación al
+    // abrir encola sin reservar, porque esas ventas ya están en el journal
+    private final BlockingQueue<Registro> pendientes = new LinkedBlockingQueue<>();
+    private final Object lugarLibre = new Object();
+    private final Map<Integer, Long> ultimaSecuenciaPorSegmento = new ConcurrentHashMap<>();
+    private final Object senal = new Object();
+    private final AtomicInteger sinAplicar = new AtomicInteger(0);
+    private volatile long aplicadoHasta;
+    private volatile boolean activo;
+    private volatile String ultimoError;
+    private final AtomicInteger enCuarentena = new AtomicInteger(0);
+    private final AtomicLong ventasEnviadasACuarentena = new AtomicLong(0);
+    private ExecutorService hiloAplicador;
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile SalesJournal instance;
+    private static final Object LOCK = new Object();
+
+    /**
+     * Constructor con directorio y destino inyectables (útil para tests)
+     * El journal no se usa hasta llamar a {@link #abrir()}
+     */
+    SalesJournal(Path directorio, int tamanoSegmento, Aplicador aplicador) {
+        this(directorio, tamanoSegmento, aplicador, MAXIMO_INTENTOS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor con límite de intentos por lote inyectable (útil para tests)
+     */
+    SalesJournal(Path directorio, int tamanoSegmento, Aplicador aplicador, int maximoIntentos) {
+        this(directorio, tamanoSegmento, aplicador, maximoIntentos, () -> true, INTERVALO_CUARENTENA_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor con comprobación de la base y periodo de reintento de la cuarentena
+     * inyectables (útil para tests)
+     */
+    SalesJournal(Path directorio, int tamanoSegmento, Aplicador aplicador, int maximoIntentos,
+                 BooleanSupplier baseDisponible, Duration intervaloCuarentena) {
+        this(directorio, tamanoSegmento, aplicador, maximoIntentos, baseDisponible, intervaloCuarentena,
+            CAPACIDAD_PENDIENTES_POR_DEFECTO, ESPERA_CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor con capacidad de ventas sin aplicar y espera por lugar inyectables (útil para tests)
+     */
+    SalesJournal(Path directorio, int tamanoSegmento, Aplicador aplicador, int maximoIntentos,
+                 BooleanSupplier baseDisponible, Duration intervaloCuarentena,
+                 int capacidadPendientes, Duration esperaCapacidad) {
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.aplicador = aplicador;
+        this.maximoIntentos = maximoIntentos;
+        this.baseDisponible = baseDisponible;
+        this.intervaloCuarentenaNanos = intervaloCuarentena.toNanos();
+        this.capacidadPendientes = capacidadPendientes;
+        this.esperaCapacidadNanos = esperaCapacidad.toNanos();
+    }
+
+    public static SalesJournal getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    SalesJournal journal = new SalesJournal(DIRECTORIO_POR_DEFECTO, TAMANO_SEGMENTO_POR_DEFECTO,
+                        SalesJournal::aplicarEnBase, MAXIMO_INTENTOS_POR_DEFECTO,
+                        DatabaseManager::verificarConexion, INTERVALO_CUARENTENA_POR_DEFECTO);
+                    try {
+                        journal.abrir();
+                    } catch (IOException e) {
+                        logger.error("No se pudo abrir el journal de ventas: {}", e.getMessage());
+                        throw new UncheckedIOException("No se pudo abrir el journal de ventas", e);
+                    }
+                    instance = journal;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Escribe el lote con el escritor agrupado (un solo commit) y publica la caja de las
+     * ventas que no estaban ya escritas; si el lote falla no se escribió ninguna
+     */
+    private static void aplicarEnBase(List<Venta> lote) throws Exception {
+        List<Boolean> escritas = SalesGroupCommitter.getInstance().escribir(lote);
+        for (int i = 0; i < lote.size(); i++) {
+            Venta venta = lote.get(i);
+            if (escritas.get(i)) {
+                SaleTracer.getInstance().medir(venta.getId(), "caja.movimiento",
+                    () -> CajaManager.publicarVenta(venta.getId(), venta.getTotal()));
+            }
+        }
+    }
+
+    // === REGISTRO ===
+
+    /**
+     * Escribe la venta en el journal y espera a que esté en disco
+     * Al volver, la venta sobrevive a un corte de luz o a una base bloqueada;
+     * se aplicará a la base en segundo plano
+     * @return secuencia asignada
+     * @throws IOException si no se pudo escribir, o si la cola de ventas sin aplicar sigue
+     *         llena tras la espera (la venta no se registró)
+     */
+    public long registrar(Venta venta) throws IOException {
+        if (!activo) {
+            throw new IllegalStateException("Journal de ventas cerrado");
+        }
+        SaleTracer tracer = SaleTracer.getInstance();
+        EventosJfr.FaseVenta faseEscritura = new EventosJfr.FaseVenta();
+        faseEscritura.begin();
+        long inicio = System.nanoTime();
+        byte[] datos = VentaCodec.codificar(venta);
+        reservarLugar();
+        long secuencia;
+        try {
+            synchronized (escritura) {
+                secuencia = anexar(datos);
+                pendientes.add(new Registro(secuencia, venta));
+            }
+        } catch (IOException | RuntimeException e) {
+            liberarLugares(1);
+            throw e;
+        }
+        emitirFase(faseEscritura, "escritura", venta.getId(), 1, datos.length);
+        long escrita = System.nanoTime();
+        tracer.registrar(venta.getId(), "journal.escritura", inicio, escrita,
+            "secuencia", String.valueOf(secuencia), "bytes", String.valueOf(datos.length));
+
+        EventosJfr.FaseVenta faseSincronizacion = new EventosJfr.FaseVenta();
+        faseSincronizacion.begin();
+        esperarDurable(secuencia);
+        emitirFase(faseSincronizacion, "sincronizacion", venta.getId(), 1, datos.length);
+        tracer.registrar(venta.getId(), "journal.sincronizacion", escrita, System.nanoTime());
+        return secuencia;
+    }
+
+    /**
+     * Registra la venta en un hilo virtual: la escritura, la sincronización a disco y, en la
+     * primera venta, la apertura del journal no bloquean el hilo de JavaFX
+     * @return secuencia asignada, disponible cuando la venta ya está en disco en el journal
+     *         (la escritura en la base ocurre después, en lote, en el hilo aplicador)
+     */
+    public static CompletableFuture<Long> registrarEnSegundoPlano(Venta venta) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getInstance().registrar(venta);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, HilosRegistro.EJECUTOR);
+    }
+
+    /**
+     * Reserva el lugar de una venta en la cola de sin aplicar; si está llena espera hasta
+     * {@code esperaCapacidad} a que el aplicador avance
+     */
+    private void reservarLugar() throws IOException {
+        long limite = System.nanoTime() + esperaCapacidadNanos;
+        synchronized (lugarLibre) {
+            while (sinAplicar.get() >= capacidadPendientes) {
+                long restante = limite - System.nanoTime();
+                if (restante <= 0 || !activo) {
+                    throw new IOException("Journal de ventas lleno: " + sinAplicar.get()
+                        + " ventas sin aplicar a la base");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lugarLibre, restante);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Registro de venta interrumpido esperando lugar en el journal");
+                }
+            }
+            sinAplicar.incrementAndGet();
+        }
+    }
+
+    private void liberarLugares(int ventas) {
+        synchronized (lugarLibre) {
+            sinAplicar.addAndGet(-ventas);
+            lugarLibre.notifyAll();
+        }
+    }
+
+    private static final class HilosRegistro {
+        static final ExecutorService EJECUTOR =
+            ExecutorRegistry.getInstance().porTareaVirtual("SalesJournal-Registro", FaseCierre.PERSISTENCIA);
+    }
+
+    private static void emitirFase(EventosJfr.FaseVenta evento, String fase, String ventaId, int ventas, long bytes) {
+        if (evento.shouldCommit()) {
+            evento.fase = fase;
+            evento.ventaId = ventaId;
+            evento.ventas = ventas;
+            evento.bytes = bytes;
+            evento.commit();
+        }
+    }
+
+    /**
+     * Escribe el registro en el segmento actual (llamado con el lock de escritura tomado)
+     */
+    private long anexar(byte[] datos) throws IOException {
+        int tamano = TAMANO_CABECERA_REGISTRO + datos.length;
+        if (tamano > tamanoSegmento - TAMANO_CABECERA_SEGMENTO) {
+            throw new IOException("Venta demasiado grande para el journal: " + datos.length + " bytes");
+        }
+        if (actual.posicion + tamano > actual.mapa.capacity()) {
+            rotarSegmento();
+        }
+
+        long secuencia = ultimaSecuencia + 1;
+        int posicion = actual.posicion;
+        MappedByteBuffer mapa = actual.mapa;
+        mapa.put(posicion + TAMANO_CABECERA_REGISTRO, datos);
+        mapa.putLong(posicion + 8, secuencia);
+        mapa.putInt(posicion + 4, crc(secuencia, datos));
+        // La longitud va al final: hasta entonces el registro no existe para la recuperación
+        mapa.putInt(posicion, datos.length);
+
+        ultimaSecuencia = secuencia;
+        actual.posicion = posicion + tamano;
+        ultimaSecuenciaPorSegmento.put(actual.numero, secuencia);
+        return secuencia;
+    }
+
+    private void rotarSegmento() throws IOException {
+        Segmento anterior = actual;
+        forzar(anterior.mapa);
+        actual = Segmento.crear(archivoDe(anterior.numero + 1), anterior.numero + 1, tamanoSegmento);
+        anterior.cerrar();
+        logger.debug("Journal de ventas: segmento {} abierto", actual.numero);
+    }
+
+    /**
+     * Espera a que la secuencia esté en disco; si nadie está sincronizando, sincroniza
+     * este hilo por todos los registros escritos hasta ahora
+     */
+    private void esperarDurable(long secuencia) throws IOException {
+        lockDurable.lock();
+        try {
+            while (secuenciaDurable < secuencia) {
+                if (sincronizando) {
+                    sincronizado.awaitUninterruptibly();
+                    continue;
+                }
+                sincronizando = true;
+                long objetivo;
+                MappedByteBuffer mapa;
+                synchronized (escritura) {
+                    objetivo = ultimaSecuencia;
+                    mapa = actual.mapa;
+                }
+                lockDurable.unlock();
+                try {
+                    // Los segmentos anteriores se sincronizaron al rotar
+                    forzar(mapa);
+                } finally {
+                    lockDurable.lock();
+                    sincronizando = false;
+                    sincronizado.signalAll();
+                }
+                secuenciaDurable = Math.max(secuenciaDurable, objetivo);
+            }
+        } finally {
+            lockDurable.unlock();
+        }
+    }
+
+    private static void forzar(MappedByteBuffer mapa) throws IOException {
+        try {
+            mapa.force();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // === APLICACIÓN EN SEGUNDO PLANO ===
+
+    private void bucleAplicacion() {
+        reintentarCuarentena();
+        long ultimoReintentoCuarentena = System.nanoTime();
+        List<Registro> lote = new ArrayList<>(TAMANO_MAXIMO_LOTE);
+        int desdeCheckpoint = 0;
+        while (activo) {
+            if (enCuarentena.get() > 0 && System.nanoTime() - ultimoReintentoCuarentena >= intervaloCuarentenaNanos) {
+                reintentarCuarentena();
+                ultimoReintentoCuarentena = System.nanoTime();
+            }
+
+            Registro primero;
+            try {
+                primero = pendientes.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (primero == null) {
+                if (desdeCheckpoint > 0) {
+                    guardarCheckpoint();
+                    desdeCheckpoint = 0;
+                }
+                continue;
+            }
+
+            // Lo acumulado mientras la base estaba ocupada viaja en un solo lote
+            lote.clear();
+            lote.add(primero);
+            pendientes.drainTo(lote, TAMANO_MAXIMO_LOTE - 1);
+            if (!aplicarConReintentos(lote)) {
+                // Cierre durante los reintentos: las ventas siguen en el journal y se reaplican al abrir
+                return;
+            }
+            aplicadoHasta = lote.get(lote.size() - 1).secuencia;
+            liberarLugares(lote.size());
+
+            desdeCheckpoint += lote.size();
+            if (desdeCheckpoint >= REGISTROS_POR_CHECKPOINT || pendientes.isEmpty()) {
+                guardarCheckpoint();
+                desdeCheckpoint = 0;
+            }
+        }
+    }
+
+    /**
+     * Reintenta el lote con espera creciente; tras el máximo de intentos lo aplica venta por
+     * venta y deja en cuarentena las que fallan solas. Si fallan todas con la base caída
+     * se sigue reintentando el lote entero
+     * @return false si el journal se cerró antes de poder aplicar
+     */
+    private boolean aplicarConReintentos(List<Registro> lote) {
+        List<Venta> ventas = new ArrayList<>(lote.size());
+        lote.forEach(r -> ventas.add(r.venta));
+        String primeraId = ventas.get(0).getId();
+
+        long espera = REINTENTO_INICIAL_MS;
+        int intentos = 0;
+        while (activo) {
+            try {
+                esperarDurable(lote.get(lote.size() - 1).secuencia);
+                EventosJfr.FaseVenta faseAplicacion = new EventosJfr.FaseVenta();
+                faseAplicacion.begin();
+                aplicador.aplicar(ventas);
+                emitirFase(faseAplicacion, "aplicacion", ventas.size() == 1 ? primeraId : "", ventas.size(), 0);
+                if (intentos > 0) {
+                    logger.info("Lote de {} ventas aplicado tras {} reintentos", ventas.size(), intentos);
+                    ultimoError = null;
+                }
+                return true;
+            } catch (Exception e) {
+                intentos++;
+                ultimoError = e.getMessage();
+                if (intentos >= maximoIntentos && apartarEnCuarentena(lote)) {
+                    return true;
+                }
+                if (intentos == 1) {
+                    logger.warn("No se pudieron aplicar {} ventas (desde {}) a la base; se reintentará: {}",
+                        ventas.size(), primeraId, e.getMessage());
+                } else {
+                    logger.debug("Reintento {} del lote desde {} fallido: {}", intentos, primeraId, e.getMessage());
+                }
+                synchronized (senal) {
+                    try {
+                        senal.wait(espera);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                espera = Math.min(espera * 2, REINTENTO_MAXIMO_MS);
+            }
+        }
+        return false;
+    }
+
+    // === CUARENTENA ===
+
+    /**
+     * Aplica cada venta del lote por separado y guarda en cuarentena las que fallan, salvo
+     * que no se haya aplicado ninguna con la base caída: entonces no hay venta defectuosa
+     * que apartar
+     * @return false si el lote se debe seguir reintentando entero
+     */
+    private boolean apartarEnCuarentena(List<Registro> lote) {
+        Map<Registro, Exception> fallidas = new LinkedHashMap<>();
+        for (Registro registro : lote) {
+            try {
+                aplicador.aplicar(List.of(registro.venta));
+            } catch (Exception e) {
+                fallidas.put(registro, e);
+            }
+        }
+        if (fallidas.size() == lote.size() && !baseDisponible.getAsBoolean()) {
+            logger.warn("Ninguna de las {} ventas se pudo aplicar y la base no responde; el lote se sigue reintentando",
+                lote.size());
+            return false;
+        }
+
+        boolean guardadas = true;
+        for (Map.Entry<Registro, Exception> fallida : fallidas.entrySet()) {
+            Registro registro = fallida.getKey();
+            try {
+                Path carpeta = Files.createDirectories(directorio.resolve(DIRECTORIO_CUARENTENA));
+                Path archivo = carpeta.resolve(String.format("%020d%s", registro.secuencia, EXTENSION_CUARENTENA));
+                try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    canal.write(ByteBuffer.wrap(VentaCodec.codificar(registro.venta)));
+                    canal.force(true);
+                }
+                enCuarentena.incrementAndGet();
+                ventasEnviadasACuarentena.incrementAndGet();
+                logger.error("Venta {} (secuencia {}) en cuarentena tras {} intentos: {}",
+                    registro.venta.getId(), registro.secuencia, maximoIntentos, fallida.getValue().getMessage());
+            } catch (IOException io) {
+                logger.error("No se pudo poner en cuarentena la venta {}: {}", registro.venta.getId(), io.getMessage());
+                guardadas = false;
+            }
+        }
+        return guardadas;
+    }
+
+    /**
+     * Un intento por cada venta en cuarentena, al abrir y cada cierto tiempo mientras quede
+     * alguna; las que se aplican salen de la cuarentena
+     */
+    private void reintentarCuarentena() {
+        Path carpeta = directorio.resolve(DIRECTORIO_CUARENTENA);
+        if (!Files.isDirectory(carpeta)) {
+            return;
+        }
+        List<Path> archivos;
+        try (Stream<Path> listado = Files.list(carpeta)) {
+            archivos = listado.filter(p -> p.getFileName().toString().endsWith(EXTENSION_CUARENTENA)).sorted().toList();
+        } catch (IOException e) {
+            logger.warn("No se pudo leer la cuarentena del journal: {}", e.getMessage());
+            return;
+        }
+        int restantes = 0;
+        for (Path archivo : archivos) {
+            try {
+                Venta venta = VentaCodec.decodificar(Files.readAllBytes(archivo));
+                aplicador.aplicar(List.of(venta));
+                Files.delete(archivo);
+                logger.info("Venta {} en cuarentena aplicada", venta.getId());
+            } catch (Exception e) {
+                restantes++;
+                logger.warn("Venta en cuarentena {} sigue sin aplicarse: {}", archivo.getFileName(), e.getMessage());
+            }
+        }
+        enCuarentena.set(restantes);
+    }
+
+    // === CHECKPOINT Y LIMPIEZA ===
+
+    private void guardarCheckpoint() {
+        try {
+            Path archivo = directorio.resolve(ARCHIVO_CHECKPOINT);
+            Path temporal = directorio.resolve(ARCHIVO_CHECKPOINT + ".tmp");
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                canal.write(ByteBuffer.allocate(Long.BYTES).putLong(0, aplicadoHasta));
+                canal.force(true);
+            }
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+            eliminarSegmentosAplicados();
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar el checkpoint del journal: {}", e.getMessage());
+        }
+    }
+
+    private long leerCheckpoint() throws IOException {
+        Path archivo = directorio.resolve(ARCHIVO_CHECKPOINT);
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(archivo);
+        if (bytes.length != Long.BYTES) {
+            // Sin checkpoint válido se reaplica todo; la aplicación es idempotente
+            logger.warn("Checkpoint del journal inválido; se reaplicarán todas las ventas del journal");
+            return 0;
+        }
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+
+    /**
+     * Borra los segmentos cerrados cuyas ventas ya están todas en la base
+     */
+    private void eliminarSegmentosAplicados() throws IOException {
+        int numeroActual;
+        synchronized (escritura) {
+            numeroActual = actual.numero;
+        }
+        for (Path archivo : listarSegmentos()) {
+            int numero = numeroDe(archivo);
+            Long ultima = ultimaSecuenciaPorSegmento.get(numero);
+            if (numero < numeroActual && (ultima == null || ultima <= aplicadoHasta)) {
+                try {
+                    Files.deleteIfExists(archivo);
+                    ultimaSecuenciaPorSegmento.remove(numero);
+                } catch (IOException e) {
+                    // En algunos sistemas el archivo sigue mapeado hasta que se libera el buffer
+                    logger.debug("Segmento {} aún no se puede borrar: {}", archivo, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // === APERTURA Y RECUPERACIÓN ===
+
+    /**
+     * Recupera los segmentos existentes, encola las ventas posteriores al checkpoint
+     * e inicia el hilo aplicador
+     */
+    synchronized void abrir() throws IOException {
+        Files.createDirectories(directorio);
+        aplicadoHasta = leerCheckpoint();
+        long maxima = aplicadoHasta;
+
+        Segmento ultimo = null;
+        for (Path archivo : listarSegmentos()) {
+            if (ultimo != null) {
+                ultimo.cerrar();
+            }
+            ultimo = Segmento.abrir(archivo, numeroDe(archivo));
+            maxima = Math.max(maxima, recuperar(ultimo));
+        }
+
+        synchronized (escritura) {
+            actual = ultimo != null ? ultimo : Segmento.crear(archivoDe(1), 1, tamanoSegmento);
+            ultimaSecuencia = maxima;
+        }
+        secuenciaDurable = maxima;
+        eliminarSegmentosAplicados();
+
+        activo = true;
+        hiloAplicador = ExecutorRegistry.getInstance().unHilo("SalesJournal-Aplicador", FaseCierre.PERSISTENCIA);
+        hiloAplicador.execute(this::bucleAplicacion);
+
+        logger.info("Journal de ventas abierto en {}: {} ventas pendientes de aplicar", directorio, pendientes.size());
+    }
+
+    /**
+     * Recorre los registros válidos del segmento; se detiene en el primero incompleto
+     * @return mayor secuencia encontrada (0 si no hay registros)
+     */
+    private long recuperar(Segmento segmento) throws IOException {
+        MappedByteBuffer mapa = segmento.mapa;
+        if (mapa.capacity() < TAMANO_CABECERA_SEGMENTO || mapa.getInt(0) != MAGIC) {
+            throw new IOException("Segmento de journal inválido: " + segmento.archivo);
+        }
+
+        int posicion = TAMANO_CABECERA_SEGMENTO;
+        long maxima = 0;
+        while (posicion + TAMANO_CABECERA_REGISTRO <= mapa.capacity()) {
+            int longitud = mapa.getInt(posicion);
+            if (longitud <= 0 || posicion + TAMANO_CABECERA_REGISTRO + longitud > mapa.capacity()) {
+                break;
+            }
+            int crcGuardado = mapa.getInt(posicion + 4);
+            long secuencia = mapa.getLong(posicion + 8);
+            byte[] datos = new byte[longitud];
+            mapa.get(posicion + TAMANO_CABECERA_REGISTRO, datos);
+            if (crc(secuencia, datos) != crcGuardado) {
+                logger.warn("Registro incompleto en {} (posición {}); se descarta desde ahí", segmento.archivo, posicion);
+                break;
+            }
+            if (secuencia > aplicadoHasta) {
+                pendientes.add(new Registro(secuencia, VentaCodec.decodificar(datos)));
+                sinAplicar.incrementAndGet();
+            }
+            maxima = Math.max(maxima, secuencia);
+            posicion += TAMANO_CABECERA_REGISTRO + longitud;
+        }
+
+        // Lo que sigue puede ser un registro a medio escribir: se borra para no confundirlo con datos
+        for (int i = posicion; i < mapa.capacity(); i++) {
+            if (mapa.get(i) != 0) {
+                mapa.put(i, (byte) 0);
+            }
+        }
+        segmento.posicion = posicion;
+        if (maxima > 0) {
+            ultimaSecuenciaPorSegmento.put(segmento.numero, maxima);
+        }
+        return maxima;
+    }
+
+    private List<Path> listarSegmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos
+                .filter(p -> p.getFileName().toString().startsWith(PREFIJO) && p.getFileName().toString().endsWith(EXTENSION))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private Path archivoDe(int numero) {
+        return directorio.resolve(String.format("%s%08d%s", PREFIJO, numero, EXTENSION));
+    }
+
+    private static int numeroDe(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        return Integer.parseInt(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+    }
+
+    private static int crc(long secuencia, byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, secuencia));
+        crc.update(datos);
+        return (int) crc.getValue();
+    }
+
+    // === CONTROL ===
+
+    /**
+     * Espera a que no queden ventas por aplicar
+     * @return true si se vació antes del plazo
+     */
+    public boolean esperarAplicadas(Duration plazo) throws InterruptedException {
+        long limite = System.nanoTime() + plazo.toNanos();
+        while (getPendientes() > 0) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Detiene el aplicador sin interrumpirlo (interrumpir a H2 durante E/S puede cerrar la base)
+     * Las ventas sin aplicar quedan en el journal para el próximo arranque
+     */
+    public synchronized void shutdown() {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        synchronized (senal) {
+            senal.notifyAll();
+        }
+        synchronized (lugarLibre) {
+            lugarLibre.notifyAll();
+        }
+        hiloAplicador.shutdown();
+        boolean aplicadorDetenido = false;
+        try {
+            aplicadorDetenido = hiloAplicador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (escritura) {
+            try {
+                forzar(actual.mapa);
+            } catch (IOException e) {
+                logger.warn("Error sincronizando el journal al cerrar: {}", e.getMessage());
+            }
+            if (aplicadorDetenido) {
+                guardarCheckpoint();
+            }
+            actual.cerrar();
+        }
+        logger.info("Journal de ventas cerrado; {} ventas pendientes de aplicar", getPendientes());
+    }
+
+    // === GETTERS ===
+
+    public int getPendientes() {
+        return sinAplicar.get();
+    }
+
+    public long getUltimaSecuencia() {
+        synchronized (escritura) {
+            return ultimaSecuencia;
+        }
+    }
+
+    public long getAplicadoHasta() { return aplicadoHasta; }
+    public String getUltimoError() { return ultimoError; }
+    public int getEnCuarentena() { return enCuarentena.get(); }
+    public long getVentasEnviadasACuarentena() { return ventasEnviadasACuarentena.get(); }
+
+    // === ESTRUCTURAS INTERNAS ===
+
+    private static final class Registro {
+        private final long secuencia;
+        private final Venta venta;
+
+        Registro(long secuencia, Venta venta) {
+            this.secuencia = secuencia;
+            this.venta = venta;
+        }
+    }
+
+    /**
+     * Archivo de segmento mapeado en memoria
+     */
+    private static final class Segmento {
+        private final Path archivo;
+        private final int numero;
+        private final FileChannel canal;
+        private final MappedByteBuffer mapa;
+        private int posicion;
+
+        private Segmento(Path archivo, int numero, FileChannel canal, MappedByteBuffer mapa) {
+            this.archivo = archivo;
+            this.numero = numero;
+            this.canal = canal;
+            this.mapa = mapa;
+        }
+
+        static Segmento crear(Path archivo, int numero, int tamano) throws IOException {
+            FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+                mapa.putInt(0, MAGIC);
+                mapa.putInt(4, numero);
+                mapa.force();
+                Segmento segmento = new Segmento(archivo, numero, canal, mapa);
+                segmento.posicion = TAMANO_CABECERA_SEGMENTO;
+                return segmento;
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        static Segmento abrir(Path archivo, int numero) throws IOException {
+            FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new Segmento(archivo, numero, canal, canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size()));
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        void cerrar() {
+            // El mapeo se libera cuando el buffer deja de ser alcanzable
+            try {
+                canal.close();
+            } catch (IOException e) {
+                logger.debug("Error cerrando segmento {}: {}", archivo, e.getMessage());
+            }
+        }
+    }
+}
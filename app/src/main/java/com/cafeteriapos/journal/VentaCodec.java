@@ -0,0 +1,58 @@
+package com.cafeteriapos.journal;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificación binaria de una venta para el journal
+ * <pre>
+ * id (UTF) | segundos epoch | nanos | total | nº items | por item: nombre (UTF), precio, cantidad
+ * </pre>
+ * La fecha se guarda como hora local sin zona (igual que en la base) para que no cambie
+ * al aplicarla en otra zona horaria
+ */
+final class VentaCodec {
+
+    private VentaCodec() {}
+
+    static byte[] codificar(Venta venta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + venta.getItems().size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(venta.getId());
+            out.writeLong(venta.getFechaHora().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(venta.getFechaHora().getNano());
+            out.writeDouble(venta.getTotal());
+            out.writeInt(venta.getItems().size());
+            for (Producto item : venta.getItems()) {
+                out.writeUTF(item.getNombre());
+                out.writeDouble(item.getPrecio());
+                // En los items de venta el stock representa la cantidad vendida
+                out.writeInt(item.getStock());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static Venta decodificar(byte[] datos) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(datos))) {
+            String id = in.readUTF();
+            LocalDateTime fechaHora = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            double total = in.readDouble();
+            int cantidadItems = in.readInt();
+            if (cantidadItems < 0 || cantidadItems > datos.length) {
+                throw new IOException("Cantidad de items inválida en el journal: " + cantidadItems);
+            }
+            List<Producto> items = new ArrayList<>(cantidadItems);
+            for (int i = 0; i < cantidadItems; i++) {
+                items.add(new Producto(in.readUTF(), in.readDouble(), in.readInt()));
+            }
+            return new Venta(id, fechaHora, items, total);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cafeteriapos.models;
+
+import java.time.LocalDate;
+
+/**
+ * Estado persistido del modelo de demanda (Holt-Winters) de un producto
+ * Permite continuar el pronóstico día a día sin releer el historial de ventas
+ */
+public class EstadoDemanda {
+    private final String producto;
+    private final double nivel;
+    private final double tendencia;
+    private final double[] estacionalidad;
+    private final LocalDate ultimoDia;
+    private final int diasObservados;
+
+    public EstadoDemanda(String producto, double nivel, double tendencia, double[] estacionalidad,
+                         LocalDate ultimoDia, int diasObservados) {
+        this.producto = producto;
+        this.nivel = nivel;
+        this.tendencia = tendencia;
+        this.estacionalidad = estacionalidad;
+        this.ultimoDia = ultimoDia;
+        this.diasObservados = diasObservados;
+    }
+
+    // Getters
+    public String getProducto() { return producto; }
+    public double getNivel() { return nivel; }
+    public double getTendencia() { return tendencia; }
+    public double[] getEstacionalidad() { return estacionalidad; }
+    public LocalDate getUltimoDia() { return ultimoDia; }
+    public int getDiasObservados() { return diasObservados; }
+}
@@ -0,0 +1,45 @@
+package com.cafeteriapos.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de un recorrido de ventas con sus ítems (una por ítem)
+ * Se reutiliza la misma instancia para cada fila del cursor, así recorrer
+ * cualquier rango de fechas no acumula objetos; no debe guardarse entre filas
+ */
+public class LineaVenta {
+    private String ventaId;
+    private LocalDateTime fechaHora;
+    private double totalVenta;
+    private int linea;
+    private String producto;
+    private double precio;
+    private int cantidad;
+
+    /**
+     * Carga los valores de la fila actual; {@code producto} es null en ventas sin ítems registrados
+     */
+    public void cargar(String ventaId, LocalDateTime fechaHora, double totalVenta,
+                       int linea, String producto, double precio, int cantidad) {
+        this.ventaId = ventaId;
+        this.fechaHora = fechaHora;
+        this.totalVenta = totalVenta;
+        this.linea = linea;
+        this.producto = producto;
+        this.precio = precio;
+        this.cantidad = cantidad;
+    }
+
+    // Getters
+    public String getVentaId() { return ventaId; }
+    public LocalDateTime getFechaHora() { return fechaHora; }
+    public double getTotalVenta() { return totalVenta; }
+    public int getLinea() { return linea; }
+    public String getProducto() { return producto; }
+    public double getPrecio() { return precio; }
+    public int getCantidad() { return cantidad; }
+
+    public boolean tieneItem() {
+        return producto != null;
+    }
+}
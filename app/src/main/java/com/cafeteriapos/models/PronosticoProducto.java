@@ -0,0 +1,30 @@
+package com.cafeteriapos.models;
+
+/**
+ * Pronóstico de demanda y días estimados hasta agotar el stock de un producto
+ */
+public class PronosticoProducto {
+    private final String producto;
+    private final int stock;
+    private final double demandaDiaria;
+    private final double diasHastaAgotarse;
+
+    public PronosticoProducto(String producto, int stock, double demandaDiaria, double diasHastaAgotarse) {
+        this.producto = producto;
+        this.stock = stock;
+        this.demandaDiaria = demandaDiaria;
+        this.diasHastaAgotarse = diasHastaAgotarse;
+    }
+
+    // Getters
+    public String getProducto() { return producto; }
+    public int getStock() { return stock; }
+    /** Demanda diaria promedio pronosticada para la próxima semana */
+    public double getDemandaDiaria() { return demandaDiaria; }
+    /** Días hasta agotarse; infinito si no se agota dentro del horizonte del pronóstico */
+    public double getDiasHastaAgotarse() { return diasHastaAgotarse; }
+
+    public boolean seAgotaEn(int dias) {
+        return diasHastaAgotarse <= dias;
+    }
+}
@@ -0,0 +1,28 @@
+package com.cafeteriapos.models;
+
+import java.time.LocalDate;
+
+/**
+ * Resumen persistido de las ventas de un día
+ * Incluye el sketch serializado de montos de ticket para calcular cuantiles
+ * de cualquier período combinando días, sin releer las ventas
+ */
+public class ResumenDiario {
+    private final LocalDate fecha;
+    private final long transacciones;
+    private final double ingresos;
+    private final byte[] sketchTicket;
+
+    public ResumenDiario(LocalDate fecha, long transacciones, double ingresos, byte[] sketchTicket) {
+        this.fecha = fecha;
+        this.transacciones = transacciones;
+        this.ingresos = ingresos;
+        this.sketchTicket = sketchTicket;
+    }
+
+    // Getters
+    public LocalDate getFecha() { return fecha; }
+    public long getTransacciones() { return transacciones; }
+    public double getIngresos() { return ingresos; }
+    public byte[] getSketchTicket() { return sketchTicket; }
+}
@@ -1,10 +1,25 @@
 package com.cafeteriapos.performance;
 
+import com.cafeteriapos.analytics.AnomalyDetector;
+import com.cafeteriapos.analytics.DemandForecaster;
+import com.cafeteriapos.archive.SalesArchive;
+import com.cafeteriapos.backup.IncrementalBackupEngine;
 import com.cafeteriapos.cache.DashboardCacheManager;
+import com.cafeteriapos.models.PronosticoProducto;
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.performance.PriorityTaskScheduler.Admision;
+import com.cafeteriapos.performance.PriorityTaskScheduler.EstadisticasClase;
+import com.cafeteriapos.performance.PriorityTaskScheduler.Prioridad;
+import com.cafeteriapos.utils.DatabaseManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
@@ -20,31 +35,48 @@ public class BackgroundProcessor {
     
     private static final Logger logger = LoggerFactory.getLogger(BackgroundProcessor.class);
     
-    // === CONFIGURACIÓN ===
-    private static final int CORE_POOL_SIZE = 2;
-    private static final int MAX_POOL_SIZE = 6;
-    private static final long KEEP_ALIVE_TIME = 60L;
-    private static final int QUEUE_CAPACITY = 100;
-    
     // === INTERVALOS DE TAREAS (en minutos) ===
     private static final long CACHE_REFRESH_INTERVAL = 5;
-    private static final long ANALYTICS_INTERVAL = 10;
     private static final long CLEANUP_INTERVAL = 15;
     private static final long HEALTH_CHECK_INTERVAL = 2;
+    private static final long ARCHIVE_INTERVAL = TimeUnit.DAYS.toMinutes(1);
+    private static final long ARCHIVE_INITIAL_DELAY = 10;
+    
+    // === PLANIFICACIÓN POR PRIORIDAD ===
+    private static final int MAXIMO_TAREAS_EN_EJECUCION = 4;
+    private static final int CAPACIDAD_PENDIENTES = 100;
+    // Una tarea de la UI que no empezó en este plazo ya no le sirve a nadie
+    private static final Duration PLAZO_INTERACTIVO = Duration.ofSeconds(10);
+    private static final Duration PLAZO_PRONOSTICO = Duration.ofHours(1);
     
     // === EJECUTORES ===
-    private final ThreadPoolExecutor mainExecutor;
+    // Las tareas se bloquean en JDBC: un hilo virtual por tarea; el planificador solo las despacha
+    private final ExecutorService mainExecutor;
     private final ScheduledExecutorService scheduledExecutor;
-    private final CompletionService<TaskResult> completionService;
+    private final PriorityTaskScheduler taskScheduler;
     
     // === DEPENDENCIAS ===
     private final DashboardCacheManager cacheManager;
     private final DatabaseQueryOptimizer queryOptimizer;
     
+    // === DETECCIÓN DE ANOMALÍAS EN TIEMPO REAL ===
+    private static final int DIAS_ENTRENAMIENTO_ANOMALIAS = 28;
+    private final AnomalyDetector anomalyDetector = new AnomalyDetector();
+    
+    // === PRONÓSTICO DE DEMANDA (ciclo nocturno) ===
+    private static final LocalTime HORA_PRONOSTICO_DEMANDA = LocalTime.of(2, 0);
+    private static final int DIAS_HISTORIA_PRONOSTICO = 90;
+    private final DemandForecaster demandForecaster = new DemandForecaster();
+    private volatile List<PronosticoProducto> pronosticosDemanda = List.of();
+    
+    // === BACKUP INCREMENTAL (ciclo nocturno, después del pronóstico) ===
+    private static final LocalTime HORA_BACKUP_INCREMENTAL = LocalTime.of(3, 0);
+    
     // === ESTADO ===
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicInteger activeTasks = new AtomicInteger(0);
     private final AtomicLong totalTasksExecuted = new AtomicLong(0);
+    private final AtomicLong completedTasks = new AtomicLong(0);
     private final Map<String, TaskStatistics> taskStats = new ConcurrentHashMap<>();
     
     // === INSTANCIA SINGLETON ===
@@ -52,21 +84,14 @@ public class BackgroundProcessor {
     private static final Object LOCK = new Object();
     
     private BackgroundProcessor() {
-        // Thread pool personalizado con manejo de cola
-        this.mainExecutor = new ThreadPoolExecutor(
-            CORE_POOL_SIZE,
-            MAX_POOL_SIZE,
-            KEEP_ALIVE_TIME,
-            TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(QUEUE_CAPACITY),
-            new CustomThreadFactory("BackgroundProcessor"),
-            new ThreadPoolExecutor.CallerRunsPolicy() // Fallback policy
-        );
-        
-        this.scheduledExecutor = Executors.newScheduledThreadPool(3, 
-            new CustomThreadFactory("BGProcessor-Scheduled"));
+        ExecutorRegistry ejecutores = ExecutorRegistry.getInstance();
+        this.mainExecutor = ejecutores.porTareaVirtual("BackgroundProcessor", FaseCierre.ANALITICA);
+        this.scheduledExecutor = ejecutores.programado("BGProcessor-Scheduled", FaseCierre.ANALITICA);
+        // Nadie más lo detiene al cerrar la aplicación
+        ejecutores.alCerrar(FaseCierre.ANALITICA, "BackgroundProcessor", this::stop);
         
-        this.completionService = new ExecutorCompletionService<>(mainExecutor);
+        this.taskScheduler = new PriorityTaskScheduler("BackgroundProcessor", mainExecutor,
+            MAXIMO_TAREAS_EN_EJECUCION, CAPACIDAD_PENDIENTES);
         
         this.cacheManager = DashboardCacheManager.getInstance();
         this.queryOptimizer = DatabaseQueryOptimizer.getInstance();
@@ -95,7 +120,8 @@ public class BackgroundProcessor {
             logger.info("Iniciando BackgroundProcessor...");
             
             schedulePeriodicTasks();
-            startTaskMonitoring();
+            iniciarDeteccionAnomalias();
+            demandForecastTask();
             
             logger.info("BackgroundProcessor iniciado exitosamente");
         }
@@ -108,12 +134,18 @@ public class BackgroundProcessor {
         if (isRunning.compareAndSet(true, false)) {
             logger.info("Deteniendo BackgroundProcessor...");
             
+            anomalyDetector.detener();
             scheduledExecutor.shutdown();
+            int descartadas = taskScheduler.cerrar();
+            if (descartadas > 0) {
+                logger.info("{} tareas pendientes descartadas al detener", descartadas);
+            }
             mainExecutor.shutdown();
             
             try {
+                // Sin shutdownNow en el ejecutor principal: sus tareas hacen JDBC
                 if (!mainExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
-                    mainExecutor.shutdownNow();
+                    logger.warn("Tareas de fondo aún en curso al detener el BackgroundProcessor");
                 }
                 if (!scheduledExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
                     scheduledExecutor.shutdownNow();
@@ -145,15 +177,7 @@ public class BackgroundProcessor {
             TimeUnit.MINUTES
         );
         
-        // Tarea 2: Análisis de tendencias
-        scheduledExecutor.scheduleAtFixedRate(
-            this::analyticsTask,
-            ANALYTICS_INTERVAL,
-            ANALYTICS_INTERVAL,
-            TimeUnit.MINUTES
-        );
-        
-        // Tarea 3: Limpieza automática
+        // Tarea 2: Limpieza automática
         scheduledExecutor.scheduleAtFixedRate(
             this::cleanupTask,
             CLEANUP_INTERVAL,
@@ -161,7 +185,7 @@ public class BackgroundProcessor {
             TimeUnit.MINUTES
         );
         
-        // Tarea 4: Health check
+        // Tarea 3: Health check
         scheduledExecutor.scheduleAtFixedRate(
             this::healthCheckTask,
             HEALTH_CHECK_INTERVAL,
@@ -169,13 +193,75 @@ public class BackgroundProcessor {
             TimeUnit.MINUTES
         );
         
+        // Tarea 4: Pronóstico de demanda, cada noche fuera del horario de ventas
+        scheduledExecutor.scheduleAtFixedRate(
+            this::demandForecastTask,
+            minutosHasta(HORA_PRONOSTICO_DEMANDA),
+            TimeUnit.DAYS.toMinutes(1),
+            TimeUnit.MINUTES
+        );
+        
+        // Tarea 5: Archivado de meses cerrados antiguos (se eliminan sus particiones de ventas)
+        scheduledExecutor.scheduleAtFixedRate(
+            this::archiveTask,
+            ARCHIVE_INITIAL_DELAY,
+            ARCHIVE_INTERVAL,
+            TimeUnit.MINUTES
+        );
+        
+        // Tarea 6: Backup incremental nocturno
+        scheduledExecutor.scheduleAtFixedRate(
+            this::incrementalBackupTask,
+            minutosHasta(HORA_BACKUP_INCREMENTAL),
+            TimeUnit.DAYS.toMinutes(1),
+            TimeUnit.MINUTES
+        );
+        
         logger.info("Tareas periódicas programadas exitosamente");
     }
     
+    /**
+     * Minutos hasta la próxima vez que el reloj marque la hora indicada
+     */
+    private static long minutosHasta(LocalTime hora) {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime proximaEjecucion = ahora.toLocalDate().atTime(hora);
+        if (!proximaEjecucion.isAfter(ahora)) {
+            proximaEjecucion = proximaEjecucion.plusDays(1);
+        }
+        return Duration.between(ahora, proximaEjecucion).toMinutes();
+    }
+    
+    /**
+     * Entrena el detector con las últimas semanas y luego lo suscribe al flujo de ventas
+     * Las anomalías se detectan solo por evento, no con un análisis periódico
+     */
+    private void iniciarDeteccionAnomalias() {
+        submitTask("AnomalyTraining", Prioridad.ANALITICA, PLAZO_PRONOSTICO, () -> {
+            try {
+                LocalDateTime ahora = LocalDateTime.now();
+                LocalDateTime desde = ahora.minusDays(DIAS_ENTRENAMIENTO_ANOMALIAS);
+                // Solo las particiones (o el archivo) del período, ya en orden cronológico
+                List<Venta> historicas = conPermiso(() -> SalesArchive.getInstance().leerVentasConBase(desde, ahora));
+                
+                anomalyDetector.entrenar(historicas);
+                anomalyDetector.iniciar();
+                
+                return new TaskResult("AnomalyTraining", true,
+                    "Detector entrenado con " + historicas.size() + " ventas");
+                
+            } catch (Exception e) {
+                logger.error("Error entrenando detector de anomalías", e);
+                anomalyDetector.iniciar();
+                return new TaskResult("AnomalyTraining", false, "Error: " + e.getMessage());
+            }
+        });
+    }
+    
     // === IMPLEMENTACIÓN DE TAREAS ===
     
     private void refreshCacheTask() {
-        submitTask("CacheRefresh", () -> {
+        submitTask("CacheRefresh", Prioridad.REFRESCO_CACHE, Duration.ofMinutes(CACHE_REFRESH_INTERVAL), () -> {
             try {
                 logger.debug("Iniciando actualización automática de caché...");
                 
@@ -197,71 +283,130 @@ public class BackgroundProcessor {
         });
     }
     
-    private void analyticsTask() {
-        submitTask("Analytics", () -> {
+    /**
+     * Informa el estado de la memoria; la reacción a la presión (reducir cachés, pausar
+     * analítica) la hace MemoryPressureMonitor con las notificaciones de la JVM, sin
+     * forzar recolecciones que detengan la caja
+     */
+    private void cleanupTask() {
+        submitTask("Cleanup", Prioridad.MANTENIMIENTO, Duration.ofMinutes(CLEANUP_INTERVAL), () -> {
             try {
-                logger.debug("Ejecutando análisis de tendencias...");
-                
-                // Calcular métricas avanzadas de manera asíncrona
-                CompletableFuture<Map<String, Object>> metricsFuture = 
-                    queryOptimizer.calcularMetricasDashboard();
-                
-                Map<String, Object> metrics = metricsFuture.get(30, TimeUnit.SECONDS);
-                
-                // Analizar tendencias
-                analyzeTrends(metrics);
+                logger.debug("Ejecutando limpieza automática...");
                 
-                // Detectar anomalías
-                detectAnomalies(metrics);
+                Runtime runtime = Runtime.getRuntime();
+                long memoriaUsada = runtime.totalMemory() - runtime.freeMemory();
+                MemoryPressureMonitor presion = MemoryPressureMonitor.getInstance();
                 
-                return new TaskResult("Analytics", true, 
-                    "Análisis completado - " + metrics.size() + " métricas procesadas");
+                return new TaskResult("Cleanup", true, 
+                    String.format("Limpieza completada - Memoria en uso: %d MB, presión %s, cachés al %d%%", 
+                        memoriaUsada / (1024 * 1024), presion.getNivel(),
+                        Math.round(presion.getFraccionPresupuesto() * 100)));
                 
             } catch (Exception e) {
-                logger.error("Error en análisis de tendencias", e);
-                return new TaskResult("Analytics", false, "Error: " + e.getMessage());
+                logger.error("Error en limpieza automática", e);
+                return new TaskResult("Cleanup", false, "Error: " + e.getMessage());
             }
         });
     }
     
-    private void cleanupTask() {
-        submitTask("Cleanup", () -> {
+    /**
+     * Incorpora al modelo de demanda los días cerrados desde la última ejecución y
+     * recalcula los días hasta agotarse de cada producto
+     * Solo se leen las ventas de los días nuevos; el estado del modelo se persiste
+     */
+    private void demandForecastTask() {
+        if (analiticaPausada("DemandForecast")) {
+            return;
+        }
+        submitTask("DemandForecast", Prioridad.ANALITICA, PLAZO_PRONOSTICO, () -> {
             try {
-                logger.debug("Ejecutando limpieza automática...");
-                
-                // Limpiar caché expirado (ya manejado automáticamente, pero forzamos)
-                Runtime runtime = Runtime.getRuntime();
-                long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
-                
-                // Ejecutar garbage collection si es necesario
-                if (memoryBefore > runtime.totalMemory() * 0.8) {
-                    System.gc();
-                    logger.debug("Garbage collection ejecutado debido a alta utilización de memoria");
+                synchronized (demandForecaster) {
+                    long inicio = System.nanoTime();
+                    LocalDate hoy = LocalDate.now();
+                    LocalDate ayer = hoy.minusDays(1);
+                    
+                    if (demandForecaster.getProductosModelados() == 0) {
+                        demandForecaster.cargar(conPermiso(DatabaseManager::leerEstadosDemanda));
+                    }
+                    LocalDate desde = demandForecaster.getUltimoDiaProcesado()
+                        .map(dia -> dia.plusDays(1))
+                        .orElse(hoy.minusDays(DIAS_HISTORIA_PRONOSTICO));
+                    
+                    int diasNuevos = 0;
+                    if (!desde.isAfter(ayer)) {
+                        // Si la lectura falla, lanza antes de tocar el modelo: ningún día queda procesado sin sus ventas
+                        Map<LocalDate, Map<String, Integer>> unidades = conPermiso(() -> DatabaseManager.obtenerUnidadesPorDia(desde, ayer));
+                        for (LocalDate dia = desde; !dia.isAfter(ayer); dia = dia.plusDays(1)) {
+                            demandForecaster.actualizarDia(dia, unidades.getOrDefault(dia, Map.of()));
+                            diasNuevos++;
+                        }
+                        conPermiso(() -> {
+                            DatabaseManager.guardarEstadosDemanda(demandForecaster.exportar());
+                            return null;
+                        });
+                    }
+                    
+                    pronosticosDemanda = List.copyOf(
+                        demandForecaster.pronosticarInventario(conPermiso(DatabaseManager::leerProductos), hoy));
+                    
+                    long ms = (System.nanoTime() - inicio) / 1_000_000;
+                    logger.info("Pronóstico de demanda: {} productos, {} días nuevos en {}ms",
+                        pronosticosDemanda.size(), diasNuevos, ms);
+                    
+                    return new TaskResult("DemandForecast", true,
+                        pronosticosDemanda.size() + " productos pronosticados");
                 }
-                
-                long memoryAfter = runtime.totalMemory() - runtime.freeMemory();
-                long memoryFreed = memoryBefore - memoryAfter;
-                
-                return new TaskResult("Cleanup", true, 
-                    String.format("Limpieza completada - Memoria liberada: %d MB", 
-                        memoryFreed / (1024 * 1024)));
+            } catch (Exception e) {
+                logger.error("Error en pronóstico de demanda", e);
+                return new TaskResult("DemandForecast", false, "Error: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Mueve a archivos columnares los meses que quedaron fuera de la ventana en línea
+     */
+    private void archiveTask() {
+        submitTask("SalesArchive", Prioridad.MANTENIMIENTO, Duration.ofMinutes(ARCHIVE_INTERVAL), () -> {
+            try {
+                YearMonth limite = YearMonth.now().minusMonths(SalesArchive.MESES_EN_LINEA);
+                int archivados = SalesArchive.getInstance().archivarMesesAnteriores(limite);
+                if (archivados > 0) {
+                    queryOptimizer.invalidateCache();
+                }
+                return new TaskResult("SalesArchive", true, archivados + " meses archivados");
                 
             } catch (Exception e) {
-                logger.error("Error en limpieza automática", e);
-                return new TaskResult("Cleanup", false, "Error: " + e.getMessage());
+                logger.error("Error archivando ventas históricas", e);
+                return new TaskResult("SalesArchive", false, "Error: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Pide el backup incremental; corre en el hilo propio del motor, con E/S limitada,
+     * para no ocupar el pool de tareas durante la copia
+     */
+    private void incrementalBackupTask() {
+        IncrementalBackupEngine.getInstance().solicitarBackup().whenComplete((resultado, error) -> {
+            if (error != null) {
+                logger.error("Backup incremental nocturno fallido: {}", error.getMessage());
+            } else {
+                logger.info("Backup incremental nocturno {}: {} tablas copiadas",
+                    resultado.getSegmento(), resultado.getTablasCopiadas());
             }
         });
     }
     
     private void healthCheckTask() {
-        submitTask("HealthCheck", () -> {
+        submitTask("HealthCheck", Prioridad.MANTENIMIENTO, Duration.ofMinutes(HEALTH_CHECK_INTERVAL), () -> {
             try {
                 Map<String, Object> healthData = new HashMap<>();
                 
-                // Verificar estado del executor
-                healthData.put("activeThreads", mainExecutor.getActiveCount());
-                healthData.put("queueSize", mainExecutor.getQueue().size());
-                healthData.put("completedTasks", mainExecutor.getCompletedTaskCount());
+                // Verificar estado del executor (un hilo virtual por tarea activa)
+                healthData.put("activeThreads", activeTasks.get());
+                healthData.put("queueSize", taskScheduler.getPendientes());
+                healthData.put("completedTasks", completedTasks.get());
                 
                 // Verificar memoria
                 Runtime runtime = Runtime.getRuntime();
@@ -293,72 +438,80 @@ public class BackgroundProcessor {
         });
     }
     
-    // === ANÁLISIS AVANZADO ===
-    
-    private void analyzeTrends(Map<String, Object> metrics) {
-        try {
-            // Análisis de tendencias de ventas
-            Number ventasHoy = (Number) metrics.get("ventasHoy");
-            Number ventasSemana = (Number) metrics.get("ventasSemana");
-            
-            if (ventasHoy != null && ventasSemana != null) {
-                double promedioSemanal = ventasSemana.doubleValue() / 7.0;
-                double tendencia = (ventasHoy.doubleValue() / promedioSemanal - 1.0) * 100;
-                
-                if (Math.abs(tendencia) > 20) {
-                    logger.info("Tendencia significativa detectada: {:.1f}% vs promedio semanal", 
-                        tendencia);
-                }
-            }
-            
-            // Análisis de productos
-            String productoMasVendido = (String) metrics.get("productoMasVendido");
-            if (productoMasVendido != null && !"N/A".equals(productoMasVendido)) {
-                logger.debug("Producto top: {}", productoMasVendido);
-            }
-            
-        } catch (Exception e) {
-            logger.debug("Error en análisis de tendencias: {}", e.getMessage());
+    /**
+     * Bajo presión de memoria se omite la analítica periódica (la próxima ejecución la retoma)
+     */
+    private boolean analiticaPausada(String taskName) {
+        if (MemoryPressureMonitor.getInstance().isAnaliticaPausada()) {
+            logger.info("Tarea '{}' omitida: analítica pausada por presión de memoria", taskName);
+            return true;
         }
+        return false;
     }
     
-    private void detectAnomalies(Map<String, Object> metrics) {
-        try {
-            // Detectar anomalías en ingresos
-            Number ingresoHoy = (Number) metrics.get("ingresoHoy");
-            Number ingresoSemana = (Number) metrics.get("ingresoSemana");
-            
-            if (ingresoHoy != null && ingresoSemana != null) {
-                double promedioIngreso = ingresoSemana.doubleValue() / 7.0;
-                double desviacion = Math.abs(ingresoHoy.doubleValue() - promedioIngreso) / promedioIngreso;
-                
-                if (desviacion > 0.5) { // 50% de desviación
-                    logger.warn("Anomalía en ingresos detectada: ${:.2f} vs promedio ${:.2f}", 
-                        ingresoHoy.doubleValue(), promedioIngreso);
-                }
+    /**
+     * Llamada a la base con permiso de concurrencia (ver BlockingIoExecutors)
+     */
+    private static <T> T conPermiso(BlockingIoExecutors.OperacionBaseDatos<T> operacion) {
+        return BlockingIoExecutors.conPermisoBaseDatosSinComprobar(operacion);
+    }
+    
+    // === PRONÓSTICO DE DEMANDA ===
+    
+    /**
+     * Último pronóstico calculado, ordenado por días hasta agotarse (vacío hasta la primera ejecución)
+     */
+    public List<PronosticoProducto> getPronosticosDemanda() {
+        return pronosticosDemanda;
+    }
+    
+    /**
+     * Productos que se agotarán dentro de {@code dias} según el último pronóstico
+     */
+    public List<PronosticoProducto> getProductosPorAgotarse(int dias) {
+        List<PronosticoProducto> resultado = new ArrayList<>();
+        for (PronosticoProducto pronostico : pronosticosDemanda) {
+            if (!pronostico.seAgotaEn(dias)) {
+                break; // Ordenados por días hasta agotarse
             }
-            
-        } catch (Exception e) {
-            logger.debug("Error en detección de anomalías: {}", e.getMessage());
+            resultado.add(pronostico);
         }
+        return resultado;
     }
     
     // === GESTIÓN DE TAREAS ===
     
-    public void submitTask(String taskName, Callable<TaskResult> task) {
+    /**
+     * Envía una tarea de la interfaz (máxima prioridad, plazo corto)
+     */
+    public Admision submitTask(String taskName, Callable<TaskResult> task) {
+        return submitTask(taskName, Prioridad.INTERACTIVA, PLAZO_INTERACTIVO, task);
+    }
+    
+    /**
+     * Envía una tarea al planificador por prioridad
+     * Si ya hay una pendiente con el mismo nombre se agrupa con ella; si no empieza
+     * dentro del plazo se descarta
+     */
+    public Admision submitTask(String taskName, Prioridad prioridad, Duration plazo, Callable<TaskResult> task) {
         if (!isRunning.get()) {
             logger.warn("Intento de enviar tarea '{}' con procesador detenido", taskName);
-            return;
+            return Admision.RECHAZADA;
         }
         
-        activeTasks.incrementAndGet();
-        totalTasksExecuted.incrementAndGet();
-        
-        completionService.submit(() -> {
+        long encolada = System.nanoTime();
+        return taskScheduler.enviar(taskName, prioridad, plazo, () -> {
+            activeTasks.incrementAndGet();
+            totalTasksExecuted.incrementAndGet();
+            EventosJfr.TareaSegundoPlano evento = new EventosJfr.TareaSegundoPlano();
+            evento.begin();
+            long espera = System.nanoTime() - encolada;
+            boolean exito = false;
             long startTime = System.currentTimeMillis();
             try {
                 TaskResult result = task.call();
                 long executionTime = System.currentTimeMillis() - startTime;
+                exito = result.isSuccess();
                 
                 recordTaskStatistics(taskName, executionTime, true);
                 
@@ -370,37 +523,24 @@ public class BackgroundProcessor {
                         taskName, executionTime, result.getMessage());
                 }
                 
-                return result;
-                
             } catch (Exception e) {
                 long executionTime = System.currentTimeMillis() - startTime;
                 recordTaskStatistics(taskName, executionTime, false);
                 
                 logger.error("Error ejecutando tarea '{}'", taskName, e);
-                return new TaskResult(taskName, false, "Excepción: " + e.getMessage());
                 
             } finally {
                 activeTasks.decrementAndGet();
-            }
-        });
-    }
-    
-    private void startTaskMonitoring() {
-        CompletableFuture.runAsync(() -> {
-            while (isRunning.get()) {
-                try {
-                    Future<TaskResult> completedTask = completionService.poll(1, TimeUnit.SECONDS);
-                    if (completedTask != null) {
-                        // Tarea completada procesada en submitTask
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    logger.debug("Error en monitoreo de tareas: {}", e.getMessage());
+                completedTasks.incrementAndGet();
+                if (evento.shouldCommit()) {
+                    evento.tarea = taskName;
+                    evento.prioridad = prioridad.name();
+                    evento.espera = espera;
+                    evento.exito = exito;
+                    evento.commit();
                 }
             }
-        }, mainExecutor);
+        });
     }
     
     private void recordTaskStatistics(String taskName, long executionTime, boolean success) {
@@ -420,10 +560,11 @@ public class BackgroundProcessor {
             isRunning.get(),
             activeTasks.get(),
             totalTasksExecuted.get(),
-            mainExecutor.getActiveCount(),
-            mainExecutor.getQueue().size(),
-            mainExecutor.getCompletedTaskCount(),
-            new HashMap<>(taskStats)
+            activeTasks.get(),
+            taskScheduler.getPendientes(),
+            completedTasks.get(),
+            new HashMap<>(taskStats),
+            taskScheduler.getEstadisticas()
         );
     }
     
@@ -434,7 +575,12 @@ public class BackgroundProcessor {
         logger.info("Tareas activas: {}", stats.getActiveTasks());
         logger.info("Total ejecutadas: {}", stats.getTotalTasksExecuted());
         logger.info("Hilos activos: {}", stats.getActiveThreads());
-        logger.info("Cola de espera: {}", stats.getQueueSize());
+        logger.info("Tareas pendientes: {}", stats.getQueueSize());
+        logger.info("Esperando permiso de base: {}", BlockingIoExecutors.getEsperandoPermiso());
+        
+        logger.info("Colas por prioridad:");
+        stats.getColasPorPrioridad().forEach((prioridad, cola) ->
+            logger.info("  {}: {}", prioridad, cola));
         
         logger.info("Estadísticas por tarea:");
         for (TaskStatistics taskStat : stats.getTaskStatistics().values()) {
@@ -448,25 +594,6 @@ public class BackgroundProcessor {
     
     // === CLASES INTERNAS ===
     
-    private static class CustomThreadFactory implements ThreadFactory {
-        private final AtomicInteger threadNumber = new AtomicInteger(1);
-        private final String namePrefix;
-        
-        CustomThreadFactory(String namePrefix) {
-            this.namePrefix = namePrefix + "-";
-        }
-        
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, namePrefix + threadNumber.getAndIncrement());
-            t.setDaemon(true);
-            if (t.getPriority() != Thread.NORM_PRIORITY) {
-                t.setPriority(Thread.NORM_PRIORITY);
-            }
-            return t;
-        }
-    }
-    
     public static class TaskResult {
         private final String taskName;
         private final boolean success;
@@ -525,10 +652,12 @@ public class BackgroundProcessor {
         private final int queueSize;
         private final long completedTasks;
         private final Map<String, TaskStatistics> taskStatistics;
+        private final Map<Prioridad, EstadisticasClase> colasPorPrioridad;
         
         public BackgroundProcessorStats(boolean running, int activeTasks, long totalTasksExecuted,
                                       int activeThreads, int queueSize, long completedTasks,
-                                      Map<String, TaskStatistics> taskStatistics) {
+                                      Map<String, TaskStatistics> taskStatistics,
+                                      Map<Prioridad, EstadisticasClase> colasPorPrioridad) {
             this.running = running;
             this.activeTasks = activeTasks;
             this.totalTasksExecuted = totalTasksExecuted;
@@ -536,6 +665,7 @@ public class BackgroundProcessor {
             this.queueSize = queueSize;
             this.completedTasks = completedTasks;
             this.taskStatistics = taskStatistics;
+            this.colasPorPrioridad = colasPorPrioridad;
         }
         
         // Getters
@@ -546,5 +676,6 @@ public class BackgroundProcessor {
         public int getQueueSize() { return queueSize; }
         public long getCompletedTasks() { return completedTasks; }
         public Map<String, TaskStatistics> getTaskStatistics() { return taskStatistics; }
+        public Map<Prioridad, EstadisticasClase> getColasPorPrioridad() { return colasPorPrioridad; }
     }
 }
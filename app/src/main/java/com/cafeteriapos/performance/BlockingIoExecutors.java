@@ -0,0 +1,137 @@
+package com.cafeteriapos.performance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modelo de ejecución para E/S bloqueante: un hilo virtual por tarea y un semáforo
+ * que limita cuántas tareas usan la base a la vez
+ *
+ * Los hilos virtuales no ocupan un hilo de plataforma mientras esperan JDBC o disco,
+ * así una consulta lenta no deja sin hilos al resto. Pero DatabaseManager serializa con
+ * {@code synchronized}, y en JDK 21 un hilo virtual bloqueado dentro de un monitor fija
+ * su hilo portador: el semáforo acota a {@link #PERMISOS_BASE_DATOS} los portadores que
+ * pueden quedar fijados. Los hilos de plataforma quedan para el cálculo (agregaciones)
+ *
+ * Con JFR se ve la diferencia: los eventos jdk.VirtualThreadPinned muestran los portadores
+ * fijados, y los hilos llevan el nombre de su ejecutor
+ */
+public final class BlockingIoExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingIoExecutors.class);
+
+    /**
+     * Operaciones de base simultáneas: la conexión compartida más una instantánea
+     * La conexión de transacciones de DatabaseManager no suma un permiso: solo se usa con su
+     * lock tomado, así que nunca corre en paralelo a otra transacción, y su usuario principal,
+     * el aplicador del journal, es un hilo de plataforma propio que no pide permisos ni fija
+     * portadores. Un permiso más solo agregaría un hilo virtual esperando ese mismo lock
+     */
+    public static final int PERMISOS_BASE_DATOS = 2;
+
+    private static final Semaphore permisosBaseDatos = new Semaphore(PERMISOS_BASE_DATOS, true);
+    // Profundidad por hilo: una operación anidada no pide un segundo permiso
+    private static final ThreadLocal<int[]> profundidad = ThreadLocal.withInitial(() -> new int[1]);
+
+    // === ESTADÍSTICAS ===
+    private static final AtomicInteger esperandoPermiso = new AtomicInteger(0);
+    private static final AtomicLong nanosEsperandoPermiso = new AtomicLong(0);
+    private static final AtomicLong operacionesBaseDatos = new AtomicLong(0);
+
+    @FunctionalInterface
+    public interface OperacionBaseDatos<T> {
+        T ejecutar() throws Exception;
+    }
+
+    private BlockingIoExecutors() {}
+
+    // === EJECUTORES ===
+
+    /**
+     * Ejecutor con un hilo virtual nuevo por tarea, para trabajo que se bloquea en E/S
+     * @param nombre prefijo de los hilos (visible en volcados de hilos y en JFR)
+     */
+    public static ExecutorService virtualPorTarea(String nombre) {
+        return Executors.newThreadPerTaskExecutor(fabricaVirtual(nombre));
+    }
+
+    public static ThreadFactory fabricaVirtual(String nombre) {
+        return Thread.ofVirtual().name(nombre + "-", 1).factory();
+    }
+
+    // === LÍMITE DE CONCURRENCIA EN LA BASE ===
+
+    /**
+     * Ejecuta la operación con un permiso de base de datos, esperando si no hay
+     * Si el hilo ya tiene un permiso (operación anidada) no pide otro
+     */
+    public static <T> T conPermisoBaseDatos(OperacionBaseDatos<T> operacion) throws Exception {
+        int[] nivel = profundidad.get();
+        if (nivel[0] > 0) {
+            nivel[0]++;
+            try {
+                return operacion.ejecutar();
+            } finally {
+                nivel[0]--;
+            }
+        }
+
+        adquirir();
+        nivel[0] = 1;
+        try {
+            operacionesBaseDatos.incrementAndGet();
+            return operacion.ejecutar();
+        } finally {
+            nivel[0] = 0;
+            permisosBaseDatos.release();
+        }
+    }
+
+    /**
+     * Variante para operaciones que solo lanzan excepciones no comprobadas
+     */
+    public static <T> T conPermisoBaseDatosSinComprobar(OperacionBaseDatos<T> operacion) {
+        try {
+            return conPermisoBaseDatos(operacion);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrumpido esperando permiso de base de datos");
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void adquirir() throws InterruptedException {
+        if (permisosBaseDatos.tryAcquire()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        esperandoPermiso.incrementAndGet();
+        try {
+            permisosBaseDatos.acquire();
+        } finally {
+            esperandoPermiso.decrementAndGet();
+            long espera = System.nanoTime() - inicio;
+            nanosEsperandoPermiso.addAndGet(espera);
+            if (espera > TimeUnit.SECONDS.toNanos(1)) {
+                logger.debug("Espera de {} ms por un permiso de base de datos", espera / 1_000_000);
+            }
+        }
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public static int getPermisosDisponibles() { return permisosBaseDatos.availablePermits(); }
+    public static int getEsperandoPermiso() { return esperandoPermiso.get(); }
+    public static long getOperacionesBaseDatos() { return operacionesBaseDatos.get(); }
+
+    public static long getMillisEsperandoPermiso() {
+        return nanosEsperandoPermiso.get() / 1_000_000;
+    }
+}
@@ -1,7 +1,13 @@
 package com.cafeteriapos.performance;
 
+import com.cafeteriapos.analytics.AgregadoVentas;
+import com.cafeteriapos.analytics.SalesAggregationService;
+import com.cafeteriapos.archive.SalesArchive;
 import com.cafeteriapos.cache.DashboardCacheManager;
-import com.cafeteriapos.controllers.DashboardController;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.ProductoEliminado;
+import com.cafeteriapos.events.StockCambiado;
+import com.cafeteriapos.events.VentaRegistrada;
 import com.cafeteriapos.models.Producto;
 import com.cafeteriapos.models.Venta;
 import com.cafeteriapos.utils.DatabaseManager;
@@ -10,11 +16,12 @@ import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -33,12 +40,13 @@ public class DatabaseQueryOptimizer {
     private static final long CACHE_TTL_MS = 30_000;
     private static final long STATS_CACHE_TTL_MS = 60_000; // 1 minuto para estadísticas
     
-    // Pool de hilos para operaciones asíncronas
-    private final ExecutorService executor = Executors.newFixedThreadPool(4, r -> {
-        Thread t = new Thread(r, "DatabaseQueryOptimizer-" + System.currentTimeMillis());
-        t.setDaemon(true);
-        return t;
-    });
+    // Un hilo virtual por consulta: la espera de JDBC no ocupa hilos de plataforma;
+    // la concurrencia en la base la limita BlockingIoExecutors
+    private final ExecutorService executor =
+        ExecutorRegistry.getInstance().porTareaVirtual("DatabaseQueryOptimizer", ExecutorRegistry.FaseCierre.ANALITICA);
+    
+    // Agregación paralela para reportes sobre historiales grandes (se crea al primer uso)
+    private volatile SalesAggregationService aggregationService;
     
     // Cache manager para integración
     private DashboardCacheManager cacheManager;
@@ -48,6 +56,11 @@ public class DatabaseQueryOptimizer {
     private final Map<String, Long> totalExecutionTime = new ConcurrentHashMap<>();
     
     private DatabaseQueryOptimizer() {
+        // Invalidación push: el caché se entera de cada venta/cambio de stock confirmado
+        EventBus.getInstance().subscribe(VentaRegistrada.class, evento -> onVentaSaved());
+        EventBus.getInstance().subscribe(StockCambiado.class, evento -> onStockChanged());
+        EventBus.getInstance().subscribe(ProductoEliminado.class, evento -> onStockChanged());
+        
         logger.info("DatabaseQueryOptimizer inicializado");
     }
     
@@ -87,7 +100,7 @@ public class DatabaseQueryOptimizer {
                 }
                 
                 // Cache miss - obtener de H2 Database
-                List<Producto> productos = DatabaseManager.leerProductos();
+                List<Producto> productos = conPermiso(DatabaseManager::leerProductos);
                 
                 // Guardar en cache
                 putCachedData(cacheKey, productos);
@@ -122,7 +135,7 @@ public class DatabaseQueryOptimizer {
                 }
                 
                 // Cache miss - obtener de H2 Database
-                List<Venta> ventas = DatabaseManager.leerVentas();
+                List<Venta> ventas = conPermiso(DatabaseManager::leerVentas);
                 
                 // Guardar en cache
                 putCachedData(cacheKey, ventas);
@@ -157,8 +170,8 @@ public class DatabaseQueryOptimizer {
                 }
                 
                 // Calcular hash basado en conteos rápidos
-                long ventasCount = DatabaseManager.leerVentas().size();
-                long productosCount = DatabaseManager.leerProductos().size();
+                long ventasCount = conPermiso(DatabaseManager::contarVentasEnLinea);
+                long productosCount = conPermiso(DatabaseManager::leerProductos).size();
                 long hash = ventasCount * 31 + productosCount * 17 + System.currentTimeMillis() / 60000; // Cambiar cada minuto
                 
                 putCachedData(cacheKey, hash, 5000);
@@ -193,24 +206,32 @@ public class DatabaseQueryOptimizer {
                 Map<String, Object> metrics = new HashMap<>();
                 
                 // Usar métodos optimizados de DatabaseManager
-                double totalVentasHoy = DatabaseManager.obtenerTotalVentasHoy();
-                long cantidadVentasHoy = DatabaseManager.obtenerConteoVentasHoy();
+                double totalVentasHoy = conPermiso(DatabaseManager::obtenerTotalVentasHoy);
+                long cantidadVentasHoy = conPermiso(DatabaseManager::obtenerConteoVentasHoy);
                 
                 // Calcular total ventas del mes filtrando ventas
-                List<Venta> todasVentas = DatabaseManager.leerVentas();
+                List<Venta> todasVentas = conPermiso(DatabaseManager::leerVentas);
                 LocalDate inicioMes = LocalDate.now().withDayOfMonth(1);
                 double totalVentasMes = todasVentas.stream()
                     .filter(v -> !v.getFechaHora().toLocalDate().isBefore(inicioMes))
                     .mapToDouble(Venta::getTotal)
                     .sum();
                 
+                // Últimos 7 días incluyendo hoy
+                LocalDate inicioSemana = LocalDate.now().minusDays(6);
+                
                 metrics.put("totalVentasHoy", totalVentasHoy);
                 metrics.put("cantidadVentasHoy", cantidadVentasHoy);
                 metrics.put("totalVentasMes", totalVentasMes);
+                
+                // Claves que lee el dashboard
+                metrics.put("ventasHoy", cantidadVentasHoy);
+                metrics.put("ingresoHoy", totalVentasHoy);
+                metrics.put("productoMasVendido", conPermiso(() -> DatabaseManager.obtenerProductoMasVendido(inicioSemana.atStartOfDay())));
                 metrics.put("promedioVentaDiaria", cantidadVentasHoy > 0 ? totalVentasHoy / cantidadVentasHoy : 0.0);
                 
                 // Obtener datos adicionales de productos
-                List<Producto> productos = DatabaseManager.leerProductos();
+                List<Producto> productos = conPermiso(DatabaseManager::leerProductos);
                 metrics.put("totalProductos", productos.size());
                 metrics.put("stockTotal", productos.stream().mapToInt(Producto::getStock).sum());
                 
@@ -252,12 +273,9 @@ public class DatabaseQueryOptimizer {
                     return cached;
                 }
                 
-                // Obtener todas las ventas y filtrar (para este caso simple)
-                // En una implementación más avanzada, se haría la consulta SQL directamente
-                List<Venta> todasVentas = DatabaseManager.leerVentas();
-                List<Venta> ventasFiltradas = todasVentas.stream()
-                    .filter(v -> v.getFechaHora().toLocalDate().equals(fecha))
-                    .collect(Collectors.toList());
+                // Solo el día pedido; si su mes está archivado se lee de su archivo
+                List<Venta> ventasFiltradas = conPermiso(() -> SalesArchive.getInstance()
+                    .leerVentasConBase(fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay()));
                 
                 // Guardar en cache
                 putCachedData(cacheKey, ventasFiltradas);
@@ -320,6 +338,62 @@ public class DatabaseQueryOptimizer {
         }, executor);
     }
     
+    /**
+     * Resumen por mes de las ventas del período, con items, agregado en paralelo
+     * Pensado para reportes anuales y fiscales sobre historiales grandes
+     * Si falla la lectura, el future se completa con el error
+     */
+    public CompletableFuture<SortedMap<YearMonth, AgregadoVentas>> getResumenMensualOptimized(LocalDate desde, LocalDate hasta) {
+        return CompletableFuture.supplyAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            String cacheKey = "ventas_resumen_" + desde + "_" + hasta;
+            
+            try {
+                SortedMap<YearMonth, AgregadoVentas> cached = getCachedData(cacheKey, STATS_CACHE_TTL_MS);
+                if (cached != null) {
+                    recordMetric("resumen_mensual_cache_hit", startTime);
+                    return cached;
+                }
+                
+                // Meses cerrados antiguos viven en el archivo columnar; los recientes en H2
+                LocalDateTime inicio = desde.atStartOfDay();
+                LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+                List<Venta> ventas = conPermiso(() -> SalesArchive.getInstance().leerVentasConBase(inicio, fin));
+                SortedMap<YearMonth, AgregadoVentas> resumen = getAggregationService().agregarPorMes(ventas);
+                
+                putCachedData(cacheKey, resumen, STATS_CACHE_TTL_MS);
+                recordMetric("resumen_mensual_calculated", startTime);
+                logger.info("Resumen mensual calculado: {} ventas en {} meses", ventas.size(), resumen.size());
+                
+                return resumen;
+                
+            } catch (Exception e) {
+                logger.error("Error calculando resumen mensual", e);
+                recordMetric("resumen_mensual_error", startTime);
+                // Un resumen vacío se confundiría con un año sin ventas: el error llega al que llama
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+    
+    /**
+     * Llamada a la base con permiso de concurrencia (ver BlockingIoExecutors)
+     */
+    private static <T> T conPermiso(BlockingIoExecutors.OperacionBaseDatos<T> operacion) {
+        return BlockingIoExecutors.conPermisoBaseDatosSinComprobar(operacion);
+    }
+    
+    private SalesAggregationService getAggregationService() {
+        if (aggregationService == null) {
+            synchronized (this) {
+                if (aggregationService == null) {
+                    aggregationService = new SalesAggregationService();
+                }
+            }
+        }
+        return aggregationService;
+    }
+    
     /**
      * Invalida el cache cuando se realizan cambios
      */
@@ -353,13 +427,7 @@ public class DatabaseQueryOptimizer {
                 invalidateCache("ventas");
                 invalidateCache("dashboard_metrics");
                 
-                // Notificar al dashboard para actualización en tiempo real
-                try {
-                    DashboardController.notificarNuevaVenta();
-                    logger.debug("Notificación enviada al dashboard para actualización inmediata");
-                } catch (Exception e) {
-                    logger.warn("Error notificando al dashboard: {}", e.getMessage());
-                }
+                // El dashboard recibe la venta directamente por el EventBus
                 
                 // Pre-cargar datos actualizados en segundo plano
                 getVentasOptimized().join();
@@ -371,6 +439,14 @@ public class DatabaseQueryOptimizer {
         }, executor);
     }
     
+    /**
+     * Notifica cuando cambia el stock o precio de un producto (para invalidar cache)
+     */
+    public void onStockChanged() {
+        invalidateCache("productos");
+        invalidateCache("dashboard_metrics");
+    }
+    
     /**
      * Precarga cache con datos frecuentemente usados
      */
@@ -393,6 +469,9 @@ public class DatabaseQueryOptimizer {
      */
     public void shutdown() {
         executor.shutdown();
+        if (aggregationService != null) {
+            aggregationService.shutdown();
+        }
         cache.clear();
         cacheTimestamps.clear();
         logger.info("DatabaseQueryOptimizer cerrado exitosamente");
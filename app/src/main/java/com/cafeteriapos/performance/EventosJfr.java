@@ -0,0 +1,201 @@
+package com.cafeteriapos.performance;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos de dominio para JDK Flight Recorder
+ *
+ * Vienen desactivados: se activan con el perfil jfr/cafeteriapos.jfc que se distribuye con la
+ * aplicación, p. ej. {@code -XX:StartFlightRecording:settings=jfr/cafeteriapos.jfc,duration=60s,filename=pos.jfr}.
+ * Desactivado, un evento cuesta una comprobación de {@code shouldCommit()} y la JIT elimina
+ * su reserva de memoria, así que pueden quedar en los caminos calientes
+ *
+ * Los eventos con {@code begin()} / {@code commit()} usan la duración propia de JFR y respetan el
+ * umbral del perfil. {@link OperacionBaseDatos} se emite al terminar la operación con la duración
+ * medida por DatabaseManager en su campo {@code duracion}
+ */
+public final class EventosJfr {
+
+    static final String CATEGORIA = "CafeteriaPOS";
+
+    private EventosJfr() {
+    }
+
+    // === VENTAS ===
+
+    @Name("com.cafeteriapos.FaseVenta")
+    @Label("Fase de venta")
+    @Description("Una fase del registro de una venta: escritura en el journal, sincronización a disco o aplicación a la base")
+    @Category({CATEGORIA, "Ventas"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class FaseVenta extends Event {
+        @Label("Fase")
+        public String fase;
+
+        @Label("ID de venta")
+        @Description("Vacío si la fase procesa un lote")
+        public String ventaId;
+
+        @Label("Ventas")
+        public int ventas;
+
+        @Label("Tamaño")
+        @DataAmount
+        public long bytes;
+    }
+
+    // === BASE DE DATOS ===
+
+    @Name("com.cafeteriapos.OperacionBaseDatos")
+    @Label("Operación de base de datos")
+    @Description("Operación pública de DatabaseManager, con su duración medida")
+    @Category({CATEGORIA, "Base de datos"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class OperacionBaseDatos extends Event {
+        @Label("Operación")
+        public String operacion;
+
+        @Label("Duración")
+        @Timespan(Timespan.NANOSECONDS)
+        public long duracion;
+
+        @Label("Éxito")
+        public boolean exito;
+    }
+
+    // === CACHÉ ===
+
+    @Name("com.cafeteriapos.LecturaCache")
+    @Label("Lectura de caché")
+    @Description("get en un PerformanceCache; por defecto solo las que tardan (contención del lock)")
+    @Category({CATEGORIA, "Caché"})
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static class LecturaCache extends Event {
+        @Label("Caché")
+        public String cache;
+
+        @Label("Clave")
+        public String clave;
+
+        @Label("Acierto")
+        public boolean acierto;
+
+        @Label("Tamaño del caché")
+        public int tamano;
+    }
+
+    @Name("com.cafeteriapos.CargaCache")
+    @Label("Carga de caché")
+    @Description("Cálculo del valor ausente en getOrCompute")
+    @Category({CATEGORIA, "Caché"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class CargaCache extends Event {
+        @Label("Caché")
+        public String cache;
+
+        @Label("Clave")
+        public String clave;
+
+        @Label("Guardado")
+        @Description("false si el cálculo no devolvió valor")
+        public boolean guardado;
+
+        @Label("Tamaño del caché")
+        public int tamano;
+    }
+
+    @Name("com.cafeteriapos.DesalojoCache")
+    @Label("Desalojo de caché")
+    @Description("Entradas quitadas por capacidad (lru), vencimiento (expiradas) o presión de memoria (mayores)")
+    @Category({CATEGORIA, "Caché"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class DesalojoCache extends Event {
+        @Label("Caché")
+        public String cache;
+
+        @Label("Motivo")
+        public String motivo;
+
+        @Label("Entradas")
+        public int entradas;
+
+        @Label("Tamaño del caché")
+        public int tamano;
+    }
+
+    // === INTERFAZ ===
+
+    @Name("com.cafeteriapos.CicloRefresco")
+    @Label("Ciclo de refresco")
+    @Description("Un ciclo de RefreshScheduler en el hilo de JavaFX; omitido si la vista no se ve")
+    @Category({CATEGORIA, "Interfaz"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class CicloRefresco extends Event {
+        @Label("Vista")
+        public String vista;
+
+        @Label("Ejecutado")
+        public boolean ejecutado;
+
+        @Label("Próximo intervalo")
+        @Timespan(Timespan.MILLISECONDS)
+        public long proximoIntervalo;
+    }
+
+    @Name("com.cafeteriapos.RefrescoDashboard")
+    @Label("Refresco del dashboard")
+    @Description("Desde que se piden los datos hasta que las métricas quedan pintadas")
+    @Category({CATEGORIA, "Interfaz"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class RefrescoDashboard extends Event {
+        @Label("Resultado")
+        @Description("optimizado, respaldo o error")
+        public String resultado;
+
+        @Label("Ventas")
+        public int ventas;
+
+        @Label("Productos")
+        public int productos;
+    }
+
+    // === TAREAS EN SEGUNDO PLANO ===
+
+    @Name("com.cafeteriapos.TareaSegundoPlano")
+    @Label("Tarea en segundo plano")
+    @Description("Ejecución de una tarea de BackgroundProcessor")
+    @Category({CATEGORIA, "Tareas"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class TareaSegundoPlano extends Event {
+        @Label("Tarea")
+        public String tarea;
+
+        @Label("Prioridad")
+        public String prioridad;
+
+        @Label("Espera en cola")
+        @Timespan(Timespan.NANOSECONDS)
+        public long espera;
+
+        @Label("Éxito")
+        public boolean exito;
+    }
+}
@@ -0,0 +1,481 @@
+package com.cafeteriapos.performance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Registro central de ejecutores de la aplicación
+ *
+ * Todo pool o hilo de fondo se crea aquí: así cada uno tiene nombre (visible en volcados
+ * de hilos y en JFR), métricas (cola, activos, latencia, rechazos) y un lugar en el orden
+ * de cierre. Al cerrar, las fases se recorren en orden: primero las acciones de cierre de
+ * la fase (vaciar colas, persistir estado) y luego sus ejecutores
+ *
+ * El cierre nunca interrumpe hilos: una tarea de base interrumpida durante E/S puede
+ * cerrar el archivo de H2. Lo que no termina en el plazo queda en el log
+ */
+public final class ExecutorRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorRegistry.class);
+
+    private static final Duration PLAZO_POR_FASE = Duration.ofSeconds(10);
+
+    /**
+     * Fases de cierre, en el orden en que se cierran
+     */
+    public enum FaseCierre {
+        /** Refrescos y tareas lanzadas desde las vistas */
+        INTERFAZ,
+        /** Procesos en segundo plano, analítica y cachés */
+        ANALITICA,
+        /** Backup incremental */
+        RESPALDO,
+        /** Escritura de ventas y acceso a la base: lo último antes de cerrar la conexión */
+        PERSISTENCIA
+    }
+
+    // === REGISTROS ===
+    private final Map<String, Registro> registros = new LinkedHashMap<>();
+    private final Map<FaseCierre, List<AccionCierre>> accionesCierre = new EnumMap<>(FaseCierre.class);
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile ExecutorRegistry instance;
+    private static final Object LOCK = new Object();
+
+    ExecutorRegistry() {
+        for (FaseCierre fase : FaseCierre.values()) {
+            accionesCierre.put(fase, new ArrayList<>());
+        }
+    }
+
+    public static ExecutorRegistry getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new ExecutorRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === CREACIÓN DE EJECUTORES ===
+
+    /**
+     * Un hilo virtual por tarea, para trabajo que se bloquea en E/S
+     */
+    public ExecutorService porTareaVirtual(String nombre, FaseCierre fase) {
+        String unico = nombreUnico(nombre);
+        EjecutorInstrumentado ejecutor = new EjecutorInstrumentado(BlockingIoExecutors.virtualPorTarea(unico));
+        agregar(new Registro(unico, fase, "virtual", ejecutor, ejecutor.contadores, ejecutor::getEnCola));
+        return ejecutor;
+    }
+
+    /**
+     * Un único hilo de plataforma (daemon) que ejecuta las tareas en orden
+     */
+    public ExecutorService unHilo(String nombre, FaseCierre fase) {
+        return unHilo(nombre, fase, Thread.NORM_PRIORITY);
+    }
+
+    public ExecutorService unHilo(String nombre, FaseCierre fase, int prioridadHilo) {
+        String unico = nombreUnico(nombre);
+        ExecutorService base = Executors.newSingleThreadExecutor(fabrica(unico, prioridadHilo));
+        EjecutorInstrumentado ejecutor = new EjecutorInstrumentado(base);
+        agregar(new Registro(unico, fase, "un hilo", ejecutor, ejecutor.contadores, ejecutor::getEnCola));
+        return ejecutor;
+    }
+
+    /**
+     * Ejecutor programado de un hilo (daemon) para tareas periódicas o diferidas
+     */
+    public ScheduledExecutorService programado(String nombre, FaseCierre fase) {
+        String unico = nombreUnico(nombre);
+        ProgramadorInstrumentado ejecutor = new ProgramadorInstrumentado(fabrica(unico, Thread.NORM_PRIORITY));
+        agregar(new Registro(unico, fase, "programado", ejecutor, ejecutor.contadores, ejecutor::getVencidasEnCola));
+        return ejecutor;
+    }
+
+    /**
+     * Registra un pool creado fuera del registro (por ejemplo un ForkJoinPool con fábrica
+     * propia) para incluirlo en las métricas y en el cierre
+     */
+    public <E extends ExecutorService> E registrar(String nombre, FaseCierre fase, E ejecutor) {
+        String unico = nombreUnico(nombre);
+        IntSupplier enCola = () -> -1;
+        Contadores contadores = null;
+        if (ejecutor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) ejecutor;
+            enCola = () -> (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+            contadores = new ContadoresForkJoin(pool);
+        }
+        agregar(new Registro(unico, fase, "externo", ejecutor, contadores, enCola));
+        return ejecutor;
+    }
+
+    /**
+     * Acción a ejecutar al cerrar la fase, antes de apagar sus ejecutores
+     * (las acciones de una fase corren en el orden en que se registraron)
+     */
+    public synchronized void alCerrar(FaseCierre fase, String nombre, Runnable accion) {
+        accionesCierre.get(fase).add(new AccionCierre(nombre, accion));
+    }
+
+    private static ThreadFactory fabrica(String nombre, int prioridad) {
+        return r -> {
+            Thread t = new Thread(r, nombre);
+            t.setDaemon(true);
+            t.setPriority(prioridad);
+            return t;
+        };
+    }
+
+    private synchronized void agregar(Registro registro) {
+        // Los ejecutores ya terminados (por ejemplo de instancias de test) se olvidan
+        registros.values().removeIf(r -> r.ejecutor.isTerminated());
+        registros.put(registro.nombre, registro);
+    }
+
+    private synchronized String nombreUnico(String nombre) {
+        if (!registros.containsKey(nombre) || registros.get(nombre).ejecutor.isTerminated()) {
+            return nombre;
+        }
+        int sufijo = 2;
+        while (registros.containsKey(nombre + "#" + sufijo)) {
+            sufijo++;
+        }
+        return nombre + "#" + sufijo;
+    }
+
+    // === CIERRE ORDENADO ===
+
+    /**
+     * Cierra todas las fases en orden
+     */
+    public void cerrarTodo() {
+        long inicio = System.nanoTime();
+        for (FaseCierre fase : FaseCierre.values()) {
+            cerrarFase(fase, PLAZO_POR_FASE);
+        }
+        logger.info("Ejecutores cerrados en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+        imprimirMetricas();
+    }
+
+    /**
+     * Ejecuta las acciones de cierre de la fase y apaga sus ejecutores, esperando
+     * como máximo el plazo a que terminen las tareas en curso
+     */
+    public void cerrarFase(FaseCierre fase, Duration plazo) {
+        List<AccionCierre> acciones;
+        List<Registro> ejecutores;
+        synchronized (this) {
+            acciones = new ArrayList<>(accionesCierre.get(fase));
+            accionesCierre.get(fase).clear();
+            ejecutores = new ArrayList<>();
+            for (Registro registro : registros.values()) {
+                if (registro.fase == fase) {
+                    ejecutores.add(registro);
+                }
+            }
+        }
+
+        for (AccionCierre accion : acciones) {
+            try {
+                accion.accion.run();
+            } catch (Exception e) {
+                logger.error("Error en la acción de cierre '{}' ({})", accion.nombre, fase, e);
+            }
+        }
+
+        ejecutores.forEach(r -> r.ejecutor.shutdown());
+        long limite = System.nanoTime() + plazo.toNanos();
+        for (Registro registro : ejecutores) {
+            try {
+                long restante = limite - System.nanoTime();
+                if (!registro.ejecutor.awaitTermination(Math.max(0, restante), TimeUnit.NANOSECONDS)) {
+                    // Sin shutdownNow: interrumpir una tarea de base puede cerrar H2
+                    logger.warn("Ejecutor '{}' ({}) sigue con tareas al cerrar: {}", registro.nombre, fase,
+                        registro.metricas());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        logger.debug("Fase de cierre {} completada: {} acciones, {} ejecutores", fase, acciones.size(), ejecutores.size());
+    }
+
+    // === MÉTRICAS ===
+
+    /**
+     * Métricas de todos los ejecutores registrados, en orden de registro
+     */
+    public synchronized List<MetricasEjecutor> getMetricas() {
+        List<MetricasEjecutor> resultado = new ArrayList<>(registros.size());
+        for (Registro registro : registros.values()) {
+            resultado.add(registro.metricas());
+        }
+        return resultado;
+    }
+
+    public void imprimirMetricas() {
+        logger.info("=== EJECUTORES ===");
+        for (MetricasEjecutor metricas : getMetricas()) {
+            logger.info("  {}", metricas);
+        }
+    }
+
+    // === CLASES INTERNAS ===
+
+    private static final class AccionCierre {
+        private final String nombre;
+        private final Runnable accion;
+
+        AccionCierre(String nombre, Runnable accion) {
+            this.nombre = nombre;
+            this.accion = accion;
+        }
+    }
+
+    private static final class Registro {
+        private final String nombre;
+        private final FaseCierre fase;
+        private final String tipo;
+        private final ExecutorService ejecutor;
+        private final Contadores contadores;
+        private final IntSupplier enCola;
+
+        Registro(String nombre, FaseCierre fase, String tipo, ExecutorService ejecutor,
+                 Contadores contadores, IntSupplier enCola) {
+            this.nombre = nombre;
+            this.fase = fase;
+            this.tipo = tipo;
+            this.ejecutor = ejecutor;
+            this.contadores = contadores;
+            this.enCola = enCola;
+        }
+
+        MetricasEjecutor metricas() {
+            Contadores c = contadores != null ? contadores : Contadores.VACIOS;
+            return new MetricasEjecutor(nombre, fase, tipo, enCola.getAsInt(), c.getActivos(),
+                c.enviadas.get(), c.completadas.get(), c.rechazadas.get(),
+                c.nanosEspera.get(), c.nanosEjecucion.get(), c.nanosEjecucionMaxima.get(),
+                ejecutor.isShutdown());
+        }
+    }
+
+    /**
+     * Contadores de un ejecutor; los tiempos en nanosegundos
+     */
+    static class Contadores {
+        static final Contadores VACIOS = new Contadores();
+
+        final AtomicLong enviadas = new AtomicLong();
+        final AtomicLong iniciadas = new AtomicLong();
+        final AtomicLong completadas = new AtomicLong();
+        final AtomicLong rechazadas = new AtomicLong();
+        final AtomicInteger activos = new AtomicInteger();
+        final AtomicLong nanosEspera = new AtomicLong();
+        final AtomicLong nanosEjecucion = new AtomicLong();
+        final AtomicLong nanosEjecucionMaxima = new AtomicLong();
+
+        int getActivos() {
+            return activos.get();
+        }
+
+        void inicio(long nanosEnCola) {
+            iniciadas.incrementAndGet();
+            activos.incrementAndGet();
+            nanosEspera.addAndGet(nanosEnCola);
+        }
+
+        void fin(long nanosEnEjecucion) {
+            activos.decrementAndGet();
+            completadas.incrementAndGet();
+            nanosEjecucion.addAndGet(nanosEnEjecucion);
+            nanosEjecucionMaxima.accumulateAndGet(nanosEnEjecucion, Math::max);
+        }
+    }
+
+    private static final class ContadoresForkJoin extends Contadores {
+        private final ForkJoinPool pool;
+
+        ContadoresForkJoin(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        int getActivos() {
+            return pool.getActiveThreadCount();
+        }
+    }
+
+    /**
+     * Envoltorio que mide espera en cola, ejecución y rechazos de cualquier ejecutor
+     */
+    static final class EjecutorInstrumentado extends AbstractExecutorService {
+        private final ExecutorService delegado;
+        final Contadores contadores = new Contadores();
+
+        EjecutorInstrumentado(ExecutorService delegado) {
+            this.delegado = delegado;
+        }
+
+        @Override
+        public void execute(Runnable tarea) {
+            long encolada = System.nanoTime();
+            contadores.enviadas.incrementAndGet();
+            try {
+                delegado.execute(() -> {
+                    long inicio = System.nanoTime();
+                    contadores.inicio(inicio - encolada);
+                    try {
+                        tarea.run();
+                    } finally {
+                        contadores.fin(System.nanoTime() - inicio);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                contadores.enviadas.decrementAndGet();
+                contadores.rechazadas.incrementAndGet();
+                throw e;
+            }
+        }
+
+        int getEnCola() {
+            return (int) (contadores.enviadas.get() - contadores.iniciadas.get());
+        }
+
+        @Override public void shutdown() { delegado.shutdown(); }
+        @Override public List<Runnable> shutdownNow() { return delegado.shutdownNow(); }
+        @Override public boolean isShutdown() { return delegado.isShutdown(); }
+        @Override public boolean isTerminated() { return delegado.isTerminated(); }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegado.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Ejecutor programado que mide cada ejecución; la espera se cuenta desde que la tarea vence
+     */
+    static final class ProgramadorInstrumentado extends ScheduledThreadPoolExecutor {
+        final Contadores contadores = new Contadores();
+        private final ThreadLocal<long[]> inicio = ThreadLocal.withInitial(() -> new long[1]);
+
+        ProgramadorInstrumentado(ThreadFactory fabrica) {
+            super(1, fabrica);
+            setRemoveOnCancelPolicy(true);
+            // Al cerrar se descartan también las tareas diferidas: no se espera su vencimiento
+            setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            setRejectedExecutionHandler((tarea, ejecutor) -> {
+                contadores.rechazadas.incrementAndGet();
+                throw new RejectedExecutionException("Ejecutor programado cerrado");
+            });
+        }
+
+        @Override
+        protected void beforeExecute(Thread hilo, Runnable tarea) {
+            super.beforeExecute(hilo, tarea);
+            long atraso = tarea instanceof Delayed ? Math.max(0, -((Delayed) tarea).getDelay(TimeUnit.NANOSECONDS)) : 0;
+            contadores.enviadas.incrementAndGet();
+            contadores.inicio(atraso);
+            inicio.get()[0] = System.nanoTime();
+        }
+
+        @Override
+        protected void afterExecute(Runnable tarea, Throwable error) {
+            contadores.fin(System.nanoTime() - inicio.get()[0]);
+            super.afterExecute(tarea, error);
+        }
+
+        /**
+         * Tareas ya vencidas que aún no empezaron (las diferidas no cuentan como cola)
+         */
+        int getVencidasEnCola() {
+            int vencidas = 0;
+            for (Runnable tarea : getQueue()) {
+                if (tarea instanceof Delayed && ((Delayed) tarea).getDelay(TimeUnit.NANOSECONDS) <= 0) {
+                    vencidas++;
+                }
+            }
+            return vencidas;
+        }
+    }
+
+    // === CLASE INTERNA: MÉTRICAS ===
+
+    public static class MetricasEjecutor {
+        private final String nombre;
+        private final FaseCierre fase;
+        private final String tipo;
+        private final int enCola;
+        private final int activos;
+        private final long enviadas;
+        private final long completadas;
+        private final long rechazadas;
+        private final long nanosEspera;
+        private final long nanosEjecucion;
+        private final long nanosEjecucionMaxima;
+        private final boolean cerrado;
+
+        public MetricasEjecutor(String nombre, FaseCierre fase, String tipo, int enCola, int activos,
+                                long enviadas, long completadas, long rechazadas, long nanosEspera,
+                                long nanosEjecucion, long nanosEjecucionMaxima, boolean cerrado) {
+            this.nombre = nombre;
+            this.fase = fase;
+            this.tipo = tipo;
+            this.enCola = enCola;
+            this.activos = activos;
+            this.enviadas = enviadas;
+            this.completadas = completadas;
+            this.rechazadas = rechazadas;
+            this.nanosEspera = nanosEspera;
+            this.nanosEjecucion = nanosEjecucion;
+            this.nanosEjecucionMaxima = nanosEjecucionMaxima;
+            this.cerrado = cerrado;
+        }
+
+        // Getters
+        public String getNombre() { return nombre; }
+        public FaseCierre getFase() { return fase; }
+        public String getTipo() { return tipo; }
+        /** Tareas esperando empezar; -1 si el ejecutor no lo informa */
+        public int getEnCola() { return enCola; }
+        public int getActivos() { return activos; }
+        public long getEnviadas() { return enviadas; }
+        public long getCompletadas() { return completadas; }
+        public long getRechazadas() { return rechazadas; }
+        public long getNanosEspera() { return nanosEspera; }
+        public long getNanosEjecucion() { return nanosEjecucion; }
+        public boolean isCerrado() { return cerrado; }
+
+        public double getEsperaMediaMs() {
+            return completadas > 0 ? nanosEspera / 1e6 / completadas : 0.0;
+        }
+
+        public double getEjecucionMediaMs() {
+            return completadas > 0 ? nanosEjecucion / 1e6 / completadas : 0.0;
+        }
+
+        public double getEjecucionMaximaMs() {
+            return nanosEjecucionMaxima / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%s, %s]%s cola=%d activos=%d completadas=%d rechazadas=%d "
+                    + "espera media=%.1fms ejecución media=%.1fms máx=%.1fms",
+                nombre, tipo, fase, cerrado ? " (cerrado)" : "", enCola, activos, completadas, rechazadas,
+                getEsperaMediaMs(), getEjecucionMediaMs(), getEjecucionMaximaMs());
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.performance.LatencyHistogram.ResumenLatencia;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Detecta bloqueos del hilo de JavaFX
+ *
+ * Cada {@link #INTERVALO_MS} ms un hilo vigilante publica un latido con Platform.runLater y mide
+ * cuánto tarda en ejecutarse. Si un latido lleva pendiente más que el umbral, el vigilante toma la
+ * pila del hilo FX en ese momento (lo que lo está bloqueando) junto con la acción marcada con
+ * {@link #marcarAccion(String)}; al ejecutarse el latido se registra el bloqueo con su duración total.
+ * Solo hay un latido pendiente a la vez, así que un hilo FX bloqueado no acumula latidos en su cola
+ *
+ * Los diálogos con showAndWait() no cuentan como bloqueo: su bucle anidado sigue atendiendo latidos.
+ * El umbral se configura con -Dcafeteriapos.fx.bloqueo.ms (500 ms por defecto)
+ */
+public class FxStallWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxStallWatchdog.class);
+
+    static final String PROPIEDAD_UMBRAL_MS = "cafeteriapos.fx.bloqueo.ms";
+    private static final long UMBRAL_POR_DEFECTO_MS = 500;
+    static final long INTERVALO_MS = 100;
+    private static final int CAPACIDAD_RECIENTES = 20;
+    private static final int MAXIMO_MARCOS_PILA = 40;
+    static final String ACCION_DESCONOCIDA = "desconocida";
+    static final String PILA_NO_CAPTURADA = "(pila no capturada: el bloqueo terminó entre dos revisiones)";
+
+    private static final long SIN_LATIDO = Long.MIN_VALUE;
+
+    // === DEPENDENCIAS ===
+    private final Executor despachador;
+    private final LongSupplier relojNanos;
+    private final long umbralNanos;
+    private ScheduledExecutorService vigilante;
+
+    // === ESTADO ===
+    private volatile Thread hiloFx;
+    private volatile String accionActual;
+    // Instante en que se publicó el latido pendiente, o SIN_LATIDO
+    private final AtomicLong latidoPendiente = new AtomicLong(SIN_LATIDO);
+    private final AtomicReference<Captura> capturaEnCurso = new AtomicReference<>();
+
+    // === ESTADÍSTICAS ===
+    private final LatencyHistogram retrasos;
+    private final Map<String, AtomicLong> bloqueosPorAccion = new ConcurrentHashMap<>();
+    private final AtomicLong bloqueos = new AtomicLong(0);
+    private final AtomicLong nanosBloqueado = new AtomicLong(0);
+    private final AtomicLong nanosBloqueoMaximo = new AtomicLong(0);
+    private final Deque<BloqueoFx> recientes = new ArrayDeque<>();
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile FxStallWatchdog instance;
+    private static final Object LOCK = new Object();
+
+    private FxStallWatchdog() {
+        this(Platform::runLater, System::nanoTime,
+            Duration.ofMillis(Long.getLong(PROPIEDAD_UMBRAL_MS, UMBRAL_POR_DEFECTO_MS)));
+    }
+
+    /**
+     * Constructor con despachador, reloj y umbral inyectables (útil para tests)
+     */
+    FxStallWatchdog(Executor despachador, LongSupplier relojNanos, Duration umbral) {
+        this.despachador = despachador;
+        this.relojNanos = relojNanos;
+        this.umbralNanos = umbral.toNanos();
+        this.retrasos = new LatencyHistogram("latidoFx", relojNanos);
+    }
+
+    public static FxStallWatchdog getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new FxStallWatchdog();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === CONTROL ===
+
+    /**
+     * Empieza a vigilar; llamar con el toolkit de JavaFX ya iniciado
+     */
+    public synchronized void iniciar() {
+        if (vigilante != null) {
+            return;
+        }
+        vigilante = ExecutorRegistry.getInstance().programado("FX-Watchdog", FaseCierre.INTERFAZ);
+        vigilante.scheduleWithFixedDelay(this::revisarSeguro, INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+        logger.info("Vigilancia del hilo FX iniciada (umbral {} ms)", TimeUnit.NANOSECONDS.toMillis(umbralNanos));
+    }
+
+    public synchronized void detener() {
+        if (vigilante != null) {
+            vigilante.shutdown();
+            vigilante = null;
+            logger.info("Vigilancia del hilo FX detenida - Bloqueos: {}", bloqueos.get());
+        }
+    }
+
+    // === ACCIONES ===
+
+    /**
+     * Nombra lo que el hilo FX va a ejecutar, para atribuirle un posible bloqueo
+     * La marca vale hasta que el hilo FX vuelve a su cola de eventos (el siguiente latido la borra),
+     * así que basta con llamarlo al inicio del manejador. Desde otro hilo no tiene efecto
+     */
+    public void marcarAccion(String nombre) {
+        if (Thread.currentThread() == hiloFx) {
+            accionActual = nombre;
+        }
+    }
+
+    // === LATIDOS ===
+
+    private void revisarSeguro() {
+        try {
+            revisar();
+        } catch (Exception e) {
+            // Una excepción cancelaría la tarea periódica
+            logger.warn("Error revisando el hilo FX: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Una pasada del vigilante: publica un latido si no hay uno pendiente o revisa cuánto lleva
+     */
+    void revisar() {
+        long ahora = relojNanos.getAsLong();
+        long enviado = latidoPendiente.get();
+        if (enviado == SIN_LATIDO) {
+            if (latidoPendiente.compareAndSet(SIN_LATIDO, ahora)) {
+                despachador.execute(() -> latido(ahora));
+            }
+            return;
+        }
+        if (ahora - enviado < umbralNanos) {
+            return;
+        }
+        Captura actual = capturaEnCurso.get();
+        if (actual != null && actual.latido == enviado) {
+            return; // Este bloqueo ya se capturó
+        }
+
+        Thread fx = hiloFx;
+        String accion = accionActual;
+        String pila = fx != null ? formatearPila(fx.getStackTrace()) : "(hilo FX aún no identificado)";
+        Captura captura = new Captura(enviado, accion, pila);
+        capturaEnCurso.set(captura);
+        if (latidoPendiente.get() != enviado) {
+            // El latido corrió mientras se tomaba la pila: ya no hay bloqueo
+            capturaEnCurso.compareAndSet(captura, null);
+            return;
+        }
+        logger.warn("Hilo FX bloqueado hace {} ms en '{}':\n{}", TimeUnit.NANOSECONDS.toMillis(ahora - enviado),
+            accion != null ? accion : ACCION_DESCONOCIDA, pila);
+    }
+
+    /**
+     * Se ejecuta en el hilo FX; cuanto más tarda en correr, más tiempo estuvo ocupado el hilo
+     */
+    private void latido(long enviado) {
+        if (hiloFx == null) {
+            hiloFx = Thread.currentThread();
+        }
+        long retraso = relojNanos.getAsLong() - enviado;
+        String accion = accionActual;
+        accionActual = null;
+        // Primero liberar el latido y después tomar la captura: si el vigilante la publicó
+        // viendo el latido pendiente, aquí se la encuentra
+        latidoPendiente.set(SIN_LATIDO);
+        Captura captura = capturaEnCurso.getAndSet(null);
+
+        boolean bloqueado = retraso >= umbralNanos;
+        retrasos.registrar(retraso, !bloqueado);
+        if (!bloqueado) {
+            return;
+        }
+
+        if (captura != null && captura.latido == enviado) {
+            accion = captura.accion;
+        } else {
+            captura = null;
+        }
+        registrarBloqueo(new BloqueoFx(LocalDateTime.now(), retraso / 1_000_000.0,
+            accion != null ? accion : ACCION_DESCONOCIDA, captura != null ? captura.pila : PILA_NO_CAPTURADA));
+    }
+
+    private void registrarBloqueo(BloqueoFx bloqueo) {
+        bloqueos.incrementAndGet();
+        bloqueosPorAccion.computeIfAbsent(bloqueo.getAccion(), a -> new AtomicLong()).incrementAndGet();
+        long nanos = (long) (bloqueo.getDuracionMs() * 1_000_000);
+        nanosBloqueado.addAndGet(nanos);
+        nanosBloqueoMaximo.accumulateAndGet(nanos, Math::max);
+        synchronized (recientes) {
+            if (recientes.size() == CAPACIDAD_RECIENTES) {
+                recientes.removeFirst();
+            }
+            recientes.addLast(bloqueo);
+        }
+        logger.warn("Hilo FX estuvo bloqueado {} ms en '{}'", Math.round(bloqueo.getDuracionMs()), bloqueo.getAccion());
+    }
+
+    private static String formatearPila(StackTraceElement[] marcos) {
+        StringBuilder texto = new StringBuilder();
+        int mostrados = Math.min(marcos.length, MAXIMO_MARCOS_PILA);
+        for (int i = 0; i < mostrados; i++) {
+            texto.append("    at ").append(marcos[i]).append('\n');
+        }
+        if (marcos.length > mostrados) {
+            texto.append("    ... ").append(marcos.length - mostrados).append(" más\n");
+        }
+        return texto.toString();
+    }
+
+    // === CONSULTA ===
+
+    /**
+     * Bloqueos terminados, del más antiguo al más reciente
+     */
+    public List<BloqueoFx> getRecientes() {
+        synchronized (recientes) {
+            return new ArrayList<>(recientes);
+        }
+    }
+
+    /**
+     * Bloqueos terminados por acción, ordenados por nombre
+     */
+    public Map<String, Long> getBloqueosPorAccion() {
+        Map<String, Long> resultado = new TreeMap<>();
+        bloqueosPorAccion.forEach((accion, conteo) -> resultado.put(accion, conteo.get()));
+        return resultado;
+    }
+
+    /**
+     * Cuánto lleva bloqueado el hilo FX ahora mismo (0 si responde)
+     */
+    public double getBloqueoEnCursoMs() {
+        long enviado = latidoPendiente.get();
+        if (enviado == SIN_LATIDO) {
+            return 0.0;
+        }
+        long transcurrido = relojNanos.getAsLong() - enviado;
+        return transcurrido >= umbralNanos ? transcurrido / 1_000_000.0 : 0.0;
+    }
+
+    /**
+     * Retraso de los latidos en el último minuto; los errores son los latidos que superaron el umbral
+     */
+    public ResumenLatencia getRetrasos() { return retrasos.resumen(); }
+
+    public long getBloqueos() { return bloqueos.get(); }
+    public double getTiempoBloqueadoMs() { return nanosBloqueado.get() / 1_000_000.0; }
+    public double getBloqueoMaximoMs() { return nanosBloqueoMaximo.get() / 1_000_000.0; }
+    public Duration getUmbral() { return Duration.ofNanos(umbralNanos); }
+
+    // === CLASES INTERNAS ===
+
+    /**
+     * Pila y acción tomadas mientras el latido {@code latido} seguía pendiente
+     */
+    private static class Captura {
+        private final long latido;
+        private final String accion;
+        private final String pila;
+
+        private Captura(long latido, String accion, String pila) {
+            this.latido = latido;
+            this.accion = accion;
+            this.pila = pila;
+        }
+    }
+
+    /**
+     * Un bloqueo terminado del hilo FX
+     */
+    public static class BloqueoFx {
+        private final LocalDateTime fin;
+        private final double duracionMs;
+        private final String accion;
+        private final String pila;
+
+        public BloqueoFx(LocalDateTime fin, double duracionMs, String accion, String pila) {
+            this.fin = fin;
+            this.duracionMs = duracionMs;
+            this.accion = accion;
+            this.pila = pila;
+        }
+
+        // Getters
+        public LocalDateTime getFin() { return fin; }
+        public double getDuracionMs() { return duracionMs; }
+        public String getAccion() { return accion; }
+        public String getPila() { return pila; }
+
+        @Override
+        public String toString() {
+            return String.format("Bloqueo FX de %.0f ms en '%s'", duracionMs, accion);
+        }
+    }
+}
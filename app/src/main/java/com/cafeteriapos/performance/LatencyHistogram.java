@@ -0,0 +1,265 @@
+package com.cafeteriapos.performance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Histograma de latencias concurrente con cubetas logarítmicas al estilo HDR
+ *
+ * Cada potencia de dos de microsegundos se divide en {@link #SUBCUBETAS} cubetas lineales,
+ * así el error relativo de los percentiles queda acotado (~6%) sin importar la magnitud.
+ * Todas las cubetas se reservan al construir: registrar solo incrementa contadores atómicos
+ * y no reserva memoria, por lo que puede llamarse en cada operación de base
+ *
+ * Los conteos se reparten en {@link #RANURAS} ranuras de {@link #DURACION_RANURA_NS} ns que
+ * se reciclan al rotar, de modo que {@link #resumen()} describe aproximadamente el último minuto.
+ * A diferencia de {@link com.cafeteriapos.analytics.LogHistogram} (montos, un solo hilo),
+ * este histograma admite escritores concurrentes
+ */
+public class LatencyHistogram {
+
+    // === CONFIGURACIÓN DE CUBETAS ===
+    static final int BITS_SUBCUBETA = 4;
+    static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // Latencias desde 1 µs hasta 2^27 µs (~134 s); lo que supere el rango cae en la última cubeta
+    private static final int EXPONENTE_MAXIMO = 26;
+    static final int CUBETAS = SUBCUBETAS + (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    // === CONFIGURACIÓN DE VENTANA ===
+    static final int RANURAS = 6;
+    static final long DURACION_RANURA_NS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String nombre;
+    private final Ranura[] ranuras = new Ranura[RANURAS];
+    private final LongSupplier relojNanos;
+
+    // === TOTALES DESDE EL INICIO ===
+    private final AtomicLong conteoTotal = new AtomicLong(0);
+    private final AtomicLong erroresTotales = new AtomicLong(0);
+
+    public LatencyHistogram(String nombre) {
+        this(nombre, System::nanoTime);
+    }
+
+    /**
+     * Constructor con reloj inyectable (útil para tests)
+     */
+    LatencyHistogram(String nombre, LongSupplier relojNanos) {
+        this.nombre = nombre;
+        this.relojNanos = relojNanos;
+        for (int i = 0; i < RANURAS; i++) {
+            ranuras[i] = new Ranura();
+        }
+    }
+
+    // === REGISTRO ===
+
+    /**
+     * Registra la duración de una operación sin reservar memoria
+     * @param nanos duración en nanosegundos
+     * @param exito false si la operación terminó con error
+     */
+    public void registrar(long nanos, boolean exito) {
+        Ranura ranura = ranuraActual();
+        long micros = Math.max(0, nanos / 1_000);
+        ranura.cubetas.incrementAndGet(indiceDe(micros));
+        ranura.conteo.incrementAndGet();
+        ranura.sumaMicros.addAndGet(micros);
+        ranura.maximoMicros.accumulateAndGet(micros, Math::max);
+        conteoTotal.incrementAndGet();
+        if (!exito) {
+            ranura.errores.incrementAndGet();
+            erroresTotales.incrementAndGet();
+        }
+    }
+
+    private Ranura ranuraActual() {
+        long epoca = relojNanos.getAsLong() / DURACION_RANURA_NS;
+        Ranura ranura = ranuras[(int) Math.floorMod(epoca, (long) RANURAS)];
+        if (ranura.epoca != epoca) {
+            // Rotación: el primer escritor de la nueva época vacía la ranura reciclada
+            synchronized (ranura) {
+                if (ranura.epoca != epoca) {
+                    ranura.reiniciar();
+                    ranura.epoca = epoca;
+                }
+            }
+        }
+        return ranura;
+    }
+
+    // === CONSULTA ===
+
+    /**
+     * Combina las ranuras vigentes (último minuto) en un resumen con percentiles
+     * La lectura no bloquea a los escritores; con tráfico concurrente es aproximada
+     */
+    public ResumenLatencia resumen() {
+        long epocaActual = relojNanos.getAsLong() / DURACION_RANURA_NS;
+        long[] cubetas = new long[CUBETAS];
+        long conteo = 0;
+        long errores = 0;
+        long suma = 0;
+        long maximo = 0;
+        for (Ranura ranura : ranuras) {
+            long epoca = ranura.epoca;
+            if (epoca <= epocaActual - RANURAS || epoca > epocaActual) {
+                continue; // Ranura vencida o aún sin usar
+            }
+            for (int i = 0; i < CUBETAS; i++) {
+                cubetas[i] += ranura.cubetas.get(i);
+            }
+            conteo += ranura.conteo.get();
+            errores += ranura.errores.get();
+            suma += ranura.sumaMicros.get();
+            maximo = Math.max(maximo, ranura.maximoMicros.get());
+        }
+
+        return new ResumenLatencia(
+            nombre,
+            conteo,
+            errores,
+            conteoTotal.get(),
+            erroresTotales.get(),
+            conteo > 0 ? suma / 1_000.0 / conteo : 0.0,
+            percentilMs(cubetas, conteo, maximo, 0.50),
+            percentilMs(cubetas, conteo, maximo, 0.95),
+            percentilMs(cubetas, conteo, maximo, 0.99),
+            maximo / 1_000.0
+        );
+    }
+
+    /**
+     * Vacía la ventana y los totales
+     */
+    public void reiniciar() {
+        for (Ranura ranura : ranuras) {
+            synchronized (ranura) {
+                ranura.reiniciar();
+                ranura.epoca = Long.MIN_VALUE;
+            }
+        }
+        conteoTotal.set(0);
+        erroresTotales.set(0);
+    }
+
+    public String getNombre() { return nombre; }
+
+    // === CUBETAS ===
+
+    /**
+     * Índice de cubeta para una latencia en microsegundos
+     * Debajo de {@link #SUBCUBETAS} µs cada valor tiene su cubeta; arriba, cada potencia
+     * de dos se divide en {@link #SUBCUBETAS} partes iguales
+     */
+    static int indiceDe(long micros) {
+        if (micros < SUBCUBETAS) {
+            return (int) micros;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponente > EXPONENTE_MAXIMO) {
+            return CUBETAS - 1;
+        }
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        int sub = (int) (micros >>> desplazamiento) & (SUBCUBETAS - 1);
+        return SUBCUBETAS + desplazamiento * SUBCUBETAS + sub;
+    }
+
+    /**
+     * Mayor latencia en microsegundos que cae en la cubeta (equivalente más alto, como HDR)
+     */
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int desplazamiento = (indice - SUBCUBETAS) / SUBCUBETAS;
+        int sub = (indice - SUBCUBETAS) % SUBCUBETAS;
+        long inferior = (long) (SUBCUBETAS + sub) << desplazamiento;
+        return inferior + (1L << desplazamiento) - 1;
+    }
+
+    private static double percentilMs(long[] cubetas, long conteo, long maximoMicros, double q) {
+        if (conteo == 0) {
+            return 0.0;
+        }
+        long rango = (long) Math.ceil(q * conteo);
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= rango) {
+                // Acotar al máximo observado para no reportar más de lo que se midió
+                return Math.min(limiteSuperior(i), maximoMicros) / 1_000.0;
+            }
+        }
+        return maximoMicros / 1_000.0;
+    }
+
+    // === CLASES INTERNAS ===
+
+    /**
+     * Conteos de un tramo de {@link #DURACION_RANURA_NS} ns
+     */
+    private static class Ranura {
+        private volatile long epoca = Long.MIN_VALUE;
+        private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+        private final AtomicLong conteo = new AtomicLong(0);
+        private final AtomicLong errores = new AtomicLong(0);
+        private final AtomicLong sumaMicros = new AtomicLong(0);
+        private final AtomicLong maximoMicros = new AtomicLong(0);
+
+        private void reiniciar() {
+            for (int i = 0; i < CUBETAS; i++) {
+                cubetas.set(i, 0);
+            }
+            conteo.set(0);
+            errores.set(0);
+            sumaMicros.set(0);
+            maximoMicros.set(0);
+        }
+    }
+
+    /**
+     * Percentiles de la ventana de un minuto más los totales desde el inicio
+     */
+    public static class ResumenLatencia {
+        private final String operacion;
+        private final long conteo;
+        private final long errores;
+        private final long conteoTotal;
+        private final long erroresTotales;
+        private final double mediaMs;
+        private final double p50Ms;
+        private final double p95Ms;
+        private final double p99Ms;
+        private final double maximoMs;
+
+        public ResumenLatencia(String operacion, long conteo, long errores, long conteoTotal,
+                               long erroresTotales, double mediaMs, double p50Ms, double p95Ms,
+                               double p99Ms, double maximoMs) {
+            this.operacion = operacion;
+            this.conteo = conteo;
+            this.errores = errores;
+            this.conteoTotal = conteoTotal;
+            this.erroresTotales = erroresTotales;
+            this.mediaMs = mediaMs;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maximoMs = maximoMs;
+        }
+
+        // Getters
+        public String getOperacion() { return operacion; }
+        public long getConteo() { return conteo; }
+        public long getErrores() { return errores; }
+        public long getConteoTotal() { return conteoTotal; }
+        public long getErroresTotales() { return erroresTotales; }
+        public double getMediaMs() { return mediaMs; }
+        public double getP50Ms() { return p50Ms; }
+        public double getP95Ms() { return p95Ms; }
+        public double getP99Ms() { return p99Ms; }
+        public double getMaximoMs() { return maximoMs; }
+    }
+}
@@ -0,0 +1,321 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.cache.DashboardCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Reacciona a la presión de memoria sin forzar recolecciones
+ *
+ * Escucha las notificaciones de la JVM en lugar de llamar a System.gc() (que detiene la
+ * caja durante la pausa): el umbral de uso tras recolección de la generación vieja, el
+ * umbral de uso instantáneo y el fin de cada recolección. Lo que cuenta es la ocupación
+ * que queda después de recolectar, no la de antes
+ *
+ * Bajo presión reduce los presupuestos de {@link DashboardCacheManager} (primero descarta
+ * las listas de ventas más grandes) y pausa la analítica periódica. Cuando la ocupación
+ * baja, la capacidad se restaura de a un paso por minuto para no volver a llenar la
+ * memoria de golpe. Cada cambio queda en el historial y en el log
+ */
+public class MemoryPressureMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryPressureMonitor.class);
+
+    public enum Nivel {
+        NORMAL,
+        ALTA,
+        CRITICA
+    }
+
+    /**
+     * Acción sobre los cachés: ajusta su capacidad a una fracción de la configurada
+     * @return entradas liberadas
+     */
+    @FunctionalInterface
+    interface AjustePresupuesto {
+        int ajustar(double fraccion);
+    }
+
+    // === UMBRALES (ocupación de la generación vieja) ===
+    private static final double UMBRAL_ALTA = 0.80;
+    private static final double UMBRAL_CRITICA = 0.90;
+    private static final double UMBRAL_USO_INSTANTANEO = 0.95;
+    private static final double UMBRAL_RECUPERACION = 0.60;
+
+    // === PRESUPUESTOS DE CACHÉ ===
+    private static final double FRACCION_ALTA = 0.50;
+    private static final double FRACCION_CRITICA = 0.25;
+    private static final double PASO_RECUPERACION = 0.25;
+    private static final Duration ESPERA_ENTRE_PASOS = Duration.ofMinutes(1);
+
+    private static final int MAXIMO_HISTORIAL = 50;
+    private static final String NOTIFICACION_GC = "com.sun.management.gc.notification";
+
+    // === DEPENDENCIAS ===
+    private final AjustePresupuesto ajuste;
+    private final LongSupplier relojNanos;
+
+    // === ESTADO (protegido por this) ===
+    private Nivel nivel = Nivel.NORMAL;
+    private double fraccionPresupuesto = 1.0;
+    private long ultimoCambioNanos;
+    private final ArrayDeque<EventoPresion> historial = new ArrayDeque<>();
+    private long eventosDescarte = 0;
+
+    // === SUSCRIPCIONES ===
+    private final List<MemoryPoolMXBean> poolsViejos = new ArrayList<>();
+    private final List<NotificationEmitter> emisores = new ArrayList<>();
+    private final NotificationListener oyente = this::alRecibirNotificacion;
+    private boolean iniciado = false;
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile MemoryPressureMonitor instance;
+    private static final Object LOCK = new Object();
+
+    private MemoryPressureMonitor() {
+        this(fraccion -> DashboardCacheManager.getInstance().ajustarPresupuestos(fraccion), System::nanoTime);
+    }
+
+    /**
+     * Constructor con ajuste de cachés y reloj inyectables (útil para tests)
+     */
+    MemoryPressureMonitor(AjustePresupuesto ajuste, LongSupplier relojNanos) {
+        this.ajuste = ajuste;
+        this.relojNanos = relojNanos;
+        this.ultimoCambioNanos = relojNanos.getAsLong();
+    }
+
+    public static MemoryPressureMonitor getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new MemoryPressureMonitor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === SUSCRIPCIÓN A LA JVM ===
+
+    /**
+     * Configura los umbrales de la generación vieja y se suscribe a sus notificaciones
+     * y a las de fin de recolección
+     */
+    public synchronized void iniciar() {
+        if (iniciado) {
+            return;
+        }
+        iniciado = true;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // Solo la generación vieja admite ambos umbrales (eden y survivor no)
+            long maximo = pool.getUsage().getMax();
+            if (pool.getType() != MemoryType.HEAP || maximo <= 0
+                    || !pool.isUsageThresholdSupported() || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            pool.setCollectionUsageThreshold((long) (maximo * UMBRAL_ALTA));
+            pool.setUsageThreshold((long) (maximo * UMBRAL_USO_INSTANTANEO));
+            poolsViejos.add(pool);
+            logger.info("Umbrales de memoria en '{}': {} MB tras recolección, {} MB de uso",
+                pool.getName(), (long) (maximo * UMBRAL_ALTA) / (1024 * 1024),
+                (long) (maximo * UMBRAL_USO_INSTANTANEO) / (1024 * 1024));
+        }
+        if (poolsViejos.isEmpty()) {
+            logger.warn("Ningún pool de memoria admite umbrales; no se vigilará la presión de memoria");
+            return;
+        }
+
+        suscribir(ManagementFactory.getMemoryMXBean());
+        for (GarbageCollectorMXBean recolector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            suscribir(recolector);
+        }
+    }
+
+    private void suscribir(Object bean) {
+        if (bean instanceof NotificationEmitter) {
+            NotificationEmitter emisor = (NotificationEmitter) bean;
+            emisor.addNotificationListener(oyente, null, null);
+            emisores.add(emisor);
+        }
+    }
+
+    public synchronized void detener() {
+        for (NotificationEmitter emisor : emisores) {
+            try {
+                emisor.removeNotificationListener(oyente);
+            } catch (ListenerNotFoundException e) {
+                // Ya no estaba suscrito
+            }
+        }
+        emisores.clear();
+        poolsViejos.clear();
+        iniciado = false;
+    }
+
+    /**
+     * Corre en el hilo de notificaciones de la JVM: solo ajusta cachés, que es rápido
+     */
+    private void alRecibirNotificacion(Notification notificacion, Object handback) {
+        String tipo = notificacion.getType();
+        try {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(tipo)
+                    || NOTIFICACION_GC.equals(tipo)) {
+                evaluar(ocupacion(true), tipo);
+            } else if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(tipo)) {
+                // La generación vieja casi llena antes de recolectar: se trata como crítica
+                evaluar(Math.max(ocupacion(false), UMBRAL_CRITICA), tipo);
+            }
+        } catch (Exception e) {
+            logger.error("Error procesando notificación de memoria '{}'", tipo, e);
+        }
+    }
+
+    /**
+     * Mayor ocupación entre los pools viejos
+     * @param trasRecoleccion true para el uso que quedó tras la última recolección
+     */
+    private double ocupacion(boolean trasRecoleccion) {
+        double mayor = 0;
+        for (MemoryPoolMXBean pool : poolsViejos) {
+            MemoryUsage uso = trasRecoleccion ? pool.getCollectionUsage() : pool.getUsage();
+            if (uso != null && uso.getMax() > 0) {
+                mayor = Math.max(mayor, (double) uso.getUsed() / uso.getMax());
+            }
+        }
+        return mayor;
+    }
+
+    // === REACCIÓN ===
+
+    /**
+     * Aplica la política según la ocupación observada
+     * Sobre el umbral alto reduce presupuestos; bajo el de recuperación los restaura
+     * de a un paso; entre ambos mantiene el estado actual
+     */
+    synchronized void evaluar(double ocupacion, String origen) {
+        long ahora = relojNanos.getAsLong();
+
+        if (ocupacion >= UMBRAL_ALTA) {
+            Nivel nuevoNivel = ocupacion >= UMBRAL_CRITICA ? Nivel.CRITICA : Nivel.ALTA;
+            double objetivo = nuevoNivel == Nivel.CRITICA ? FRACCION_CRITICA : FRACCION_ALTA;
+            // Mientras dure la presión se posterga la recuperación
+            ultimoCambioNanos = ahora;
+            if (objetivo < fraccionPresupuesto) {
+                double anterior = fraccionPresupuesto;
+                int liberadas = ajuste.ajustar(objetivo);
+                fraccionPresupuesto = objetivo;
+                nivel = nuevoNivel;
+                eventosDescarte++;
+                registrar(new EventoPresion(nuevoNivel, ocupacion, anterior, objetivo, liberadas, origen));
+                logger.warn("Presión de memoria {} ({}% ocupado): cachés al {}%, {} entradas liberadas, analítica pausada",
+                    nuevoNivel, Math.round(ocupacion * 100), Math.round(objetivo * 100), liberadas);
+            } else if (nuevoNivel.ordinal() > nivel.ordinal()) {
+                nivel = nuevoNivel;
+            }
+            return;
+        }
+
+        if (ocupacion < UMBRAL_RECUPERACION && fraccionPresupuesto < 1.0
+                && ahora - ultimoCambioNanos >= ESPERA_ENTRE_PASOS.toNanos()) {
+            double anterior = fraccionPresupuesto;
+            double nueva = Math.min(1.0, fraccionPresupuesto + PASO_RECUPERACION);
+            ajuste.ajustar(nueva);
+            fraccionPresupuesto = nueva;
+            nivel = nueva >= 1.0 ? Nivel.NORMAL : Nivel.ALTA;
+            ultimoCambioNanos = ahora;
+            registrar(new EventoPresion(nivel, ocupacion, anterior, nueva, 0, origen));
+            logger.info("Presión de memoria en baja ({}% ocupado): cachés al {}%{}",
+                Math.round(ocupacion * 100), Math.round(nueva * 100),
+                nueva >= 1.0 ? ", analítica reanudada" : "");
+        }
+    }
+
+    private void registrar(EventoPresion evento) {
+        if (historial.size() == MAXIMO_HISTORIAL) {
+            historial.removeFirst();
+        }
+        historial.addLast(evento);
+    }
+
+    // === CONSULTAS ===
+
+    /**
+     * La analítica periódica se pausa hasta recuperar la capacidad completa de los cachés
+     */
+    public synchronized boolean isAnaliticaPausada() {
+        return fraccionPresupuesto < 1.0;
+    }
+
+    public synchronized Nivel getNivel() { return nivel; }
+    public synchronized double getFraccionPresupuesto() { return fraccionPresupuesto; }
+    public synchronized long getEventosDescarte() { return eventosDescarte; }
+
+    /**
+     * Últimos cambios de presupuesto, del más antiguo al más reciente
+     */
+    public synchronized List<EventoPresion> getHistorial() {
+        return new ArrayList<>(historial);
+    }
+
+    // === CLASE INTERNA: EVENTO ===
+
+    public static class EventoPresion {
+        private final LocalDateTime fechaHora;
+        private final Nivel nivel;
+        private final double ocupacion;
+        private final double fraccionAnterior;
+        private final double fraccionNueva;
+        private final int entradasLiberadas;
+        private final String origen;
+
+        public EventoPresion(Nivel nivel, double ocupacion, double fraccionAnterior, double fraccionNueva,
+                             int entradasLiberadas, String origen) {
+            this.fechaHora = LocalDateTime.now();
+            this.nivel = nivel;
+            this.ocupacion = ocupacion;
+            this.fraccionAnterior = fraccionAnterior;
+            this.fraccionNueva = fraccionNueva;
+            this.entradasLiberadas = entradasLiberadas;
+            this.origen = origen;
+        }
+
+        // Getters
+        public LocalDateTime getFechaHora() { return fechaHora; }
+        public Nivel getNivel() { return nivel; }
+        public double getOcupacion() { return ocupacion; }
+        public double getFraccionAnterior() { return fraccionAnterior; }
+        public double getFraccionNueva() { return fraccionNueva; }
+        public int getEntradasLiberadas() { return entradasLiberadas; }
+        public String getOrigen() { return origen; }
+
+        public boolean isDescarte() {
+            return fraccionNueva < fraccionAnterior;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s ocupación=%.0f%% caché %.0f%%→%.0f%% liberadas=%d (%s)",
+                fechaHora, nivel, ocupacion * 100, fraccionAnterior * 100, fraccionNueva * 100,
+                entradasLiberadas, origen);
+        }
+    }
+}
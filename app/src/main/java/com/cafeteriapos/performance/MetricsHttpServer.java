@@ -0,0 +1,179 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Servidor HTTP opcional que expone las métricas en formato Prometheus en
+ * {@code http://127.0.0.1:<puerto>/metrics} y las trazas de venta recientes en {@code /traces}
+ * (JSON para Perfetto UI o chrome://tracing)
+ *
+ * Solo escucha en loopback y solo arranca si se define el puerto, p. ej.
+ * {@code -Dcafeteriapos.metricas.puerto=9464}. Atiende con un único hilo de prioridad mínima:
+ * las extracciones concurrentes esperan su turno en lugar de competir con la caja por CPU
+ */
+public class MetricsHttpServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+    static final String PROPIEDAD_PUERTO = "cafeteriapos.metricas.puerto";
+    static final String RUTA = "/metrics";
+    static final String RUTA_TRAZAS = "/traces";
+    static final String TIPO_JSON = "application/json; charset=utf-8";
+
+    private final Supplier<String> exportador;
+    private final Supplier<String> trazas;
+    private HttpServer servidor;
+    private ExecutorService hilo;
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile MetricsHttpServer instance;
+    private static final Object LOCK = new Object();
+
+    private MetricsHttpServer() {
+        this(new PrometheusExporter()::exportar, SaleTracer.getInstance()::exportarJson);
+    }
+
+    /**
+     * Constructor con exportadores inyectables (útil para tests)
+     */
+    MetricsHttpServer(Supplier<String> exportador, Supplier<String> trazas) {
+        this.exportador = exportador;
+        this.trazas = trazas;
+    }
+
+    public static MetricsHttpServer getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new MetricsHttpServer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === CONTROL ===
+
+    /**
+     * Arranca el servidor si la propiedad {@value #PROPIEDAD_PUERTO} está definida
+     * @return true si quedó escuchando
+     */
+    public boolean iniciarSiConfigurado() {
+        String puerto = System.getProperty(PROPIEDAD_PUERTO);
+        if (puerto == null || puerto.isBlank()) {
+            logger.debug("Endpoint de métricas desactivado (sin -D{})", PROPIEDAD_PUERTO);
+            return false;
+        }
+        try {
+            return iniciar(Integer.parseInt(puerto.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Puerto de métricas inválido: '{}'", puerto);
+            return false;
+        }
+    }
+
+    /**
+     * Arranca el servidor en loopback; un fallo al abrir el puerto no afecta al POS
+     * @param puerto 0 para un puerto libre cualquiera
+     * @return true si quedó escuchando
+     */
+    public synchronized boolean iniciar(int puerto) {
+        if (servidor != null) {
+            return true;
+        }
+        try {
+            HttpServer nuevo = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 0);
+            nuevo.createContext(RUTA, intercambio ->
+                atender(intercambio, RUTA, exportador, PrometheusExporter.TIPO_CONTENIDO));
+            nuevo.createContext(RUTA_TRAZAS, intercambio ->
+                atender(intercambio, RUTA_TRAZAS, trazas, TIPO_JSON));
+            hilo = ExecutorRegistry.getInstance().unHilo("Metricas-HTTP", FaseCierre.ANALITICA, Thread.MIN_PRIORITY);
+            nuevo.setExecutor(hilo);
+            nuevo.start();
+            servidor = nuevo;
+            ExecutorRegistry.getInstance().alCerrar(FaseCierre.ANALITICA, "MetricsHttpServer", this::detener);
+            logger.info("Métricas Prometheus en http://{}:{}{} (trazas de venta en {})",
+                InetAddress.getLoopbackAddress().getHostAddress(), getPuerto(), RUTA, RUTA_TRAZAS);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("No se pudo abrir el endpoint de métricas en el puerto {}: {}", puerto, e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized void detener() {
+        if (servidor == null) {
+            return;
+        }
+        // Sin espera: una extracción a medias no vale la pena al cerrar
+        servidor.stop(0);
+        servidor = null;
+        hilo.shutdown();
+        logger.info("Endpoint de métricas detenido");
+    }
+
+    /**
+     * Puerto en el que escucha, o -1 si está detenido
+     */
+    public synchronized int getPuerto() {
+        return servidor != null ? servidor.getAddress().getPort() : -1;
+    }
+
+    // === ATENCIÓN ===
+
+    private static void atender(HttpExchange intercambio, String ruta, Supplier<String> contenido,
+                                String tipo) throws IOException {
+        try (intercambio) {
+            if (!ruta.equals(intercambio.getRequestURI().getPath())) {
+                responder(intercambio, 404, "No encontrado\n");
+                return;
+            }
+            String metodo = intercambio.getRequestMethod();
+            if (!"GET".equals(metodo) && !"HEAD".equals(metodo)) {
+                intercambio.getResponseHeaders().set("Allow", "GET, HEAD");
+                responder(intercambio, 405, "Método no permitido\n");
+                return;
+            }
+
+            String texto;
+            try {
+                texto = contenido.get();
+            } catch (Exception e) {
+                logger.warn("Error generando {}: {}", ruta, e.getMessage());
+                responder(intercambio, 500, "Error generando " + ruta + "\n");
+                return;
+            }
+            intercambio.getResponseHeaders().set("Content-Type", tipo);
+            if ("HEAD".equals(metodo)) {
+                intercambio.sendResponseHeaders(200, -1);
+                return;
+            }
+            byte[] cuerpo = texto.getBytes(StandardCharsets.UTF_8);
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        }
+    }
+
+    private static void responder(HttpExchange intercambio, int codigo, String mensaje) throws IOException {
+        byte[] cuerpo = mensaje.getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.cafeteriapos.performance;
 
 import com.cafeteriapos.cache.DashboardCacheManager;
+import com.cafeteriapos.performance.LatencyHistogram.ResumenLatencia;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -24,6 +28,9 @@ public class PerformanceMonitor {
     private final AtomicLong failedQueries = new AtomicLong(0);
     private final AtomicLong totalResponseTime = new AtomicLong(0);
     
+    // === LATENCIAS POR OPERACIÓN ===
+    private final Map<String, LatencyHistogram> latencias = new ConcurrentHashMap<>();
+    
     // === MÉTRICAS DE CACHÉ ===
     private final AtomicLong cacheHits = new AtomicLong(0);
     private final AtomicLong cacheMisses = new AtomicLong(0);
@@ -79,6 +86,37 @@ public class PerformanceMonitor {
         }
     }
     
+    /**
+     * Registra la duración de una operación de base con nombre (p. ej. "leerVentas")
+     * Sin reservar memoria una vez creado el histograma de la operación, así que puede
+     * llamarse en cada consulta; también alimenta los totales de {@link #recordQuery}
+     * @param nanos duración medida con System.nanoTime()
+     */
+    public void recordOperation(String operacion, long nanos, boolean success) {
+        LatencyHistogram histograma = latencias.get(operacion);
+        if (histograma == null) {
+            histograma = latencias.computeIfAbsent(operacion, LatencyHistogram::new);
+        }
+        histograma.registrar(nanos, success);
+        
+        totalQueries.incrementAndGet();
+        totalResponseTime.addAndGet(nanos / 1_000_000);
+        if (success) {
+            successfulQueries.incrementAndGet();
+        } else {
+            failedQueries.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Percentiles del último minuto por operación, ordenados por nombre
+     */
+    public Map<String, ResumenLatencia> getLatencias() {
+        Map<String, ResumenLatencia> resumenes = new TreeMap<>();
+        latencias.forEach((operacion, histograma) -> resumenes.put(operacion, histograma.resumen()));
+        return resumenes;
+    }
+    
     /**
      * Registra un hit de caché
      */
@@ -200,6 +238,23 @@ public class PerformanceMonitor {
         map.put("start_time", metrics.getStartTime().format(FORMATTER));
         map.put("current_time", metrics.getCurrentTime().format(FORMATTER));
         
+        // Latencias por operación de base (ventana de un minuto)
+        Map<String, Object> operaciones = new TreeMap<>();
+        getLatencias().forEach((operacion, resumen) -> {
+            Map<String, Object> valores = new LinkedHashMap<>();
+            valores.put("count", resumen.getConteo());
+            valores.put("errors", resumen.getErrores());
+            valores.put("total_count", resumen.getConteoTotal());
+            valores.put("total_errors", resumen.getErroresTotales());
+            valores.put("avg_ms", resumen.getMediaMs());
+            valores.put("p50_ms", resumen.getP50Ms());
+            valores.put("p95_ms", resumen.getP95Ms());
+            valores.put("p99_ms", resumen.getP99Ms());
+            valores.put("max_ms", resumen.getMaximoMs());
+            operaciones.put(operacion, valores);
+        });
+        map.put("db_latency", operaciones);
+        
         return map;
     }
     
@@ -250,6 +305,7 @@ public class PerformanceMonitor {
         memoryChecks.set(0);
         maxMemoryUsage = 0.0;
         averageMemoryUsage = 0.0;
+        latencias.values().forEach(LatencyHistogram::reiniciar);
         
         logger.info("Estadísticas de performance reseteadas");
     }
@@ -0,0 +1,310 @@
+package com.cafeteriapos.performance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Planificador de tareas en segundo plano por clases de prioridad
+ *
+ * Las tareas esperan en una cola por clase y se despachan siempre desde la clase más
+ * prioritaria, en orden de llegada dentro de cada clase, con un máximo de tareas en
+ * ejecución. Además:
+ * <ul>
+ *   <li>Cada tarea tiene un plazo: si vence antes de empezar se descarta, porque su
+ *       resultado ya no sirve (la próxima ejecución periódica lo reemplaza)</li>
+ *   <li>Una tarea con el mismo nombre que otra aún pendiente se agrupa con ella</li>
+ *   <li>Con la cola llena se descarta la tarea pendiente más antigua de la clase menos
+ *       prioritaria, nunca una de clase superior a la que llega</li>
+ * </ul>
+ */
+public class PriorityTaskScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriorityTaskScheduler.class);
+
+    /**
+     * Clases de prioridad, de mayor a menor
+     */
+    public enum Prioridad {
+        INTERACTIVA,
+        REFRESCO_CACHE,
+        ANALITICA,
+        MANTENIMIENTO
+    }
+
+    /**
+     * Resultado de enviar una tarea
+     */
+    public enum Admision {
+        ENCOLADA,
+        AGRUPADA,
+        RECHAZADA
+    }
+
+    private static final Prioridad[] PRIORIDADES = Prioridad.values();
+
+    private static final class Entrada {
+        private final String nombre;
+        private final Runnable tarea;
+        private Prioridad prioridad;
+        private long limiteNanos;
+
+        Entrada(String nombre, Runnable tarea, Prioridad prioridad, long limiteNanos) {
+            this.nombre = nombre;
+            this.tarea = tarea;
+            this.prioridad = prioridad;
+            this.limiteNanos = limiteNanos;
+        }
+    }
+
+    // === CONFIGURACIÓN ===
+    private final String nombre;
+    private final Executor executor;
+    private final int maximoEnEjecucion;
+    private final int capacidad;
+    private final LongSupplier relojNanos;
+
+    // === ESTADO (protegido por this) ===
+    private final List<ArrayDeque<Entrada>> colas = new ArrayList<>(PRIORIDADES.length);
+    private final Map<String, Entrada> pendientesPorNombre = new HashMap<>();
+    private int pendientes = 0;
+    private int enEjecucion = 0;
+    private boolean cerrado = false;
+
+    // === ESTADÍSTICAS POR CLASE (protegidas por this) ===
+    private final long[] ejecutadas = new long[PRIORIDADES.length];
+    private final long[] vencidas = new long[PRIORIDADES.length];
+    private final long[] agrupadas = new long[PRIORIDADES.length];
+    private final long[] descartadas = new long[PRIORIDADES.length];
+
+    public PriorityTaskScheduler(String nombre, Executor executor, int maximoEnEjecucion, int capacidad) {
+        this(nombre, executor, maximoEnEjecucion, capacidad, System::nanoTime);
+    }
+
+    /**
+     * Constructor con reloj inyectable (útil para tests)
+     */
+    PriorityTaskScheduler(String nombre, Executor executor, int maximoEnEjecucion, int capacidad,
+                          LongSupplier relojNanos) {
+        this.nombre = nombre;
+        this.executor = executor;
+        this.maximoEnEjecucion = maximoEnEjecucion;
+        this.capacidad = capacidad;
+        this.relojNanos = relojNanos;
+        for (int i = 0; i < PRIORIDADES.length; i++) {
+            colas.add(new ArrayDeque<>());
+        }
+    }
+
+    // === ENVÍO ===
+
+    /**
+     * Encola una tarea
+     * @param nombreTarea tareas con el mismo nombre pendientes a la vez se ejecutan una sola vez
+     * @param plazo tiempo máximo de espera antes de empezar; pasado ese tiempo se descarta
+     */
+    public Admision enviar(String nombreTarea, Prioridad prioridad, Duration plazo, Runnable tarea) {
+        long limite = relojNanos.getAsLong() + plazo.toNanos();
+        List<Entrada> listas;
+        synchronized (this) {
+            if (cerrado) {
+                descartadas[prioridad.ordinal()]++;
+                return Admision.RECHAZADA;
+            }
+
+            Entrada existente = pendientesPorNombre.get(nombreTarea);
+            if (existente != null) {
+                agrupar(existente, prioridad, limite);
+                return Admision.AGRUPADA;
+            }
+
+            if (pendientes >= capacidad && !descartarMenosPrioritaria(prioridad)) {
+                descartadas[prioridad.ordinal()]++;
+                logger.warn("{}: cola llena, tarea '{}' ({}) rechazada", nombre, nombreTarea, prioridad);
+                return Admision.RECHAZADA;
+            }
+
+            Entrada entrada = new Entrada(nombreTarea, tarea, prioridad, limite);
+            colas.get(prioridad.ordinal()).addLast(entrada);
+            pendientesPorNombre.put(nombreTarea, entrada);
+            pendientes++;
+            listas = tomarDespachables();
+        }
+        lanzar(listas);
+        return Admision.ENCOLADA;
+    }
+
+    /**
+     * La tarea pendiente toma la prioridad más alta y el plazo más tardío de ambos envíos
+     */
+    private void agrupar(Entrada existente, Prioridad prioridad, long limite) {
+        agrupadas[prioridad.ordinal()]++;
+        existente.limiteNanos = Math.max(existente.limiteNanos, limite);
+        if (prioridad.ordinal() < existente.prioridad.ordinal()) {
+            colas.get(existente.prioridad.ordinal()).remove(existente);
+            existente.prioridad = prioridad;
+            colas.get(prioridad.ordinal()).addLast(existente);
+        }
+    }
+
+    /**
+     * Libera un lugar descartando la pendiente más antigua de la clase menos prioritaria,
+     * siempre que esa clase no sea superior a la de la tarea que llega
+     */
+    private boolean descartarMenosPrioritaria(Prioridad entrante) {
+        for (int i = PRIORIDADES.length - 1; i >= entrante.ordinal(); i--) {
+            Entrada victima = colas.get(i).pollFirst();
+            if (victima != null) {
+                quitarPendiente(victima);
+                descartadas[i]++;
+                logger.warn("{}: cola llena, se descarta '{}' ({})", nombre, victima.nombre, victima.prioridad);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // === DESPACHO ===
+
+    /**
+     * Saca de las colas las tareas que caben en los lugares libres, descartando las vencidas
+     */
+    private List<Entrada> tomarDespachables() {
+        List<Entrada> listas = null;
+        long ahora = relojNanos.getAsLong();
+        while (enEjecucion < maximoEnEjecucion && pendientes > 0) {
+            Entrada siguiente = siguientePorPrioridad();
+            quitarPendiente(siguiente);
+            int clase = siguiente.prioridad.ordinal();
+            if (ahora - siguiente.limiteNanos > 0) {
+                vencidas[clase]++;
+                logger.debug("{}: tarea '{}' descartada, venció su plazo antes de empezar", nombre, siguiente.nombre);
+                continue;
+            }
+            ejecutadas[clase]++;
+            enEjecucion++;
+            if (listas == null) {
+                listas = new ArrayList<>();
+            }
+            listas.add(siguiente);
+        }
+        return listas == null ? List.of() : listas;
+    }
+
+    private Entrada siguientePorPrioridad() {
+        for (ArrayDeque<Entrada> cola : colas) {
+            if (!cola.isEmpty()) {
+                return cola.pollFirst();
+            }
+        }
+        throw new IllegalStateException("Contador de pendientes inconsistente");
+    }
+
+    private void quitarPendiente(Entrada entrada) {
+        pendientesPorNombre.remove(entrada.nombre);
+        pendientes--;
+    }
+
+    /**
+     * Entrega las tareas al executor fuera del lock
+     */
+    private void lanzar(List<Entrada> listas) {
+        for (Entrada entrada : listas) {
+            try {
+                executor.execute(() -> ejecutar(entrada));
+            } catch (RejectedExecutionException e) {
+                logger.warn("{}: executor rechazó la tarea '{}'", nombre, entrada.nombre);
+                finalizar();
+            }
+        }
+    }
+
+    private void ejecutar(Entrada entrada) {
+        try {
+            entrada.tarea.run();
+        } catch (Exception e) {
+            logger.error("{}: error en la tarea '{}'", nombre, entrada.nombre, e);
+        } finally {
+            finalizar();
+        }
+    }
+
+    private void finalizar() {
+        List<Entrada> listas;
+        synchronized (this) {
+            enEjecucion--;
+            listas = cerrado ? List.of() : tomarDespachables();
+        }
+        lanzar(listas);
+    }
+
+    // === CIERRE ===
+
+    /**
+     * Deja de aceptar tareas y descarta las pendientes; las que están en ejecución terminan
+     * @return cantidad de tareas pendientes descartadas
+     */
+    public synchronized int cerrar() {
+        cerrado = true;
+        int descartadasAlCerrar = pendientes;
+        for (int i = 0; i < PRIORIDADES.length; i++) {
+            descartadas[i] += colas.get(i).size();
+            colas.get(i).clear();
+        }
+        pendientesPorNombre.clear();
+        pendientes = 0;
+        return descartadasAlCerrar;
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public synchronized int getPendientes() { return pendientes; }
+    public synchronized int getEnEjecucion() { return enEjecucion; }
+
+    /**
+     * Instantánea de las métricas de cada clase, en orden de prioridad
+     */
+    public synchronized Map<Prioridad, EstadisticasClase> getEstadisticas() {
+        Map<Prioridad, EstadisticasClase> resultado = new EnumMap<>(Prioridad.class);
+        for (Prioridad prioridad : PRIORIDADES) {
+            int i = prioridad.ordinal();
+            resultado.put(prioridad, new EstadisticasClase(colas.get(i).size(),
+                ejecutadas[i], vencidas[i], agrupadas[i], descartadas[i]));
+        }
+        return resultado;
+    }
+
+    public static class EstadisticasClase {
+        private final int pendientes;
+        private final long ejecutadas;
+        private final long vencidas;
+        private final long agrupadas;
+        private final long descartadas;
+
+        public EstadisticasClase(int pendientes, long ejecutadas, long vencidas, long agrupadas, long descartadas) {
+            this.pendientes = pendientes;
+            this.ejecutadas = ejecutadas;
+            this.vencidas = vencidas;
+            this.agrupadas = agrupadas;
+            this.descartadas = descartadas;
+        }
+
+        // Getters
+        public int getPendientes() { return pendientes; }
+        public long getEjecutadas() { return ejecutadas; }
+        public long getVencidas() { return vencidas; }
+        public long getAgrupadas() { return agrupadas; }
+        public long getDescartadas() { return descartadas; }
+
+        @Override
+        public String toString() {
+            return String.format("pendientes=%d, ejecutadas=%d, vencidas=%d, agrupadas=%d, descartadas=%d",
+                pendientes, ejecutadas, vencidas, agrupadas, descartadas);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.cache.DashboardCacheManager;
+import com.cafeteriapos.cache.PerformanceCache.CacheStats;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.journal.SalesJournal;
+import com.cafeteriapos.performance.BackgroundProcessor.BackgroundProcessorStats;
+import com.cafeteriapos.performance.ExecutorRegistry.MetricasEjecutor;
+import com.cafeteriapos.performance.LatencyHistogram.ResumenLatencia;
+import com.cafeteriapos.performance.PriorityTaskScheduler.EstadisticasClase;
+import com.cafeteriapos.performance.PriorityTaskScheduler.Prioridad;
+import com.cafeteriapos.utils.AsyncDatabase;
+import com.cafeteriapos.utils.SalesGroupCommitter;
+import com.cafeteriapos.utils.SlowQueryLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Genera todas las métricas del POS en el formato de texto de Prometheus (versión 0.0.4)
+ *
+ * Cada extracción lee contadores atómicos o volátiles de los componentes y arma el texto en un
+ * StringBuilder propio, sin estado compartido entre extracciones. No toma los locks del camino
+ * de cobro: el journal se lee por sus contadores atómicos (no por {@code getUltimaSecuencia()}),
+ * el escritor agrupado de ventas solo expone contadores y la tasa de ventas de RefreshScheduler se omite
+ *
+ * Una sección que falla no corta la extracción: se anota en {@code cafeteriapos_scrape_section_ok}
+ */
+public class PrometheusExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusExporter.class);
+
+    public static final String TIPO_CONTENIDO = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PREFIJO = "cafeteriapos_";
+    private static final double NANOS_POR_SEGUNDO = 1_000_000_000.0;
+
+    /**
+     * Genera el texto completo de una extracción
+     */
+    public String exportar() {
+        long inicio = System.nanoTime();
+        Exposicion exposicion = new Exposicion();
+        Map<String, Boolean> secciones = new LinkedHashMap<>();
+
+        seccion("cache", exposicion, secciones, this::escribirCaches);
+        seccion("db", exposicion, secciones, this::escribirBaseDatos);
+        seccion("executor", exposicion, secciones, this::escribirEjecutores);
+        seccion("background", exposicion, secciones, this::escribirSegundoPlano);
+        seccion("sales", exposicion, secciones, this::escribirVentas);
+        seccion("fx", exposicion, secciones, this::escribirHiloFx);
+        seccion("jvm", exposicion, secciones, this::escribirJvm);
+
+        exposicion.familia("scrape_section_ok", "gauge", "1 si la sección se generó sin errores");
+        secciones.forEach((nombre, ok) -> exposicion.muestra("scrape_section_ok", ok ? 1 : 0, "section", nombre));
+        exposicion.familia("scrape_duration_seconds", "gauge", "Duración de la extracción anterior a esta línea");
+        exposicion.muestra("scrape_duration_seconds", (System.nanoTime() - inicio) / NANOS_POR_SEGUNDO);
+        return exposicion.toString();
+    }
+
+    private void seccion(String nombre, Exposicion exposicion, Map<String, Boolean> secciones,
+                         Consumer<Exposicion> escritor) {
+        try {
+            escritor.accept(exposicion);
+            secciones.put(nombre, true);
+        } catch (Exception e) {
+            logger.debug("Error generando métricas de '{}': {}", nombre, e.getMessage());
+            secciones.put(nombre, false);
+        }
+    }
+
+    // === CACHÉ ===
+
+    private void escribirCaches(Exposicion e) {
+        DashboardCacheManager.DashboardCacheStats todas = DashboardCacheManager.getInstance().getAllStats();
+        Map<String, CacheStats> caches = new LinkedHashMap<>();
+        caches.put("ventas", todas.getVentasStats());
+        caches.put("productos", todas.getProductosStats());
+        caches.put("metrics", todas.getMetricsStats());
+        caches.put("aggregates", todas.getAggregatesStats());
+
+        e.porEtiqueta("cache_entries", "gauge", "Entradas en el caché", "cache", caches, CacheStats::getCurrentSize);
+        e.porEtiqueta("cache_capacity", "gauge", "Capacidad vigente del caché (reducida bajo presión de memoria)",
+            "cache", caches, CacheStats::getMaxSize);
+        e.porEtiqueta("cache_hits_total", "counter", "Aciertos del caché", "cache", caches, CacheStats::getHits);
+        e.porEtiqueta("cache_misses_total", "counter", "Fallos del caché", "cache", caches, CacheStats::getMisses);
+        e.porEtiqueta("cache_evictions_total", "counter", "Entradas desalojadas por capacidad", "cache", caches,
+            CacheStats::getEvictions);
+        e.porEtiqueta("cache_cleanups_total", "counter", "Entradas vencidas quitadas por la limpieza", "cache", caches,
+            CacheStats::getCleanups);
+    }
+
+    // === BASE DE DATOS ===
+
+    private void escribirBaseDatos(Exposicion e) {
+        Map<String, ResumenLatencia> latencias = PerformanceMonitor.getInstance().getLatencias();
+
+        e.porEtiqueta("db_operations_total", "counter", "Operaciones de DatabaseManager", "operation", latencias,
+            ResumenLatencia::getConteoTotal);
+        e.porEtiqueta("db_errors_total", "counter", "Operaciones de DatabaseManager que terminaron con error",
+            "operation", latencias, ResumenLatencia::getErroresTotales);
+
+        e.familia("db_latency_seconds", "gauge", "Percentiles de latencia del último minuto por operación");
+        latencias.forEach((operacion, resumen) -> {
+            e.muestra("db_latency_seconds", resumen.getP50Ms() / 1_000, "operation", operacion, "quantile", "0.5");
+            e.muestra("db_latency_seconds", resumen.getP95Ms() / 1_000, "operation", operacion, "quantile", "0.95");
+            e.muestra("db_latency_seconds", resumen.getP99Ms() / 1_000, "operation", operacion, "quantile", "0.99");
+        });
+        e.porEtiqueta("db_latency_max_seconds", "gauge", "Latencia máxima del último minuto por operación",
+            "operation", latencias, r -> r.getMaximoMs() / 1_000);
+
+        SlowQueryLog consultasLentas = SlowQueryLog.getInstance();
+        e.familia("db_slow_queries_total", "counter", "Sentencias que superaron el umbral de consulta lenta");
+        e.muestra("db_slow_queries_total", consultasLentas.getTotalConsultasLentas());
+        e.familia("db_slow_query_plans_skipped_total", "counter", "Planes no capturados por tener la cola llena");
+        e.muestra("db_slow_query_plans_skipped_total", consultasLentas.getPlanesOmitidos());
+
+        AsyncDatabase async = AsyncDatabase.getInstance();
+        e.familia("db_async_total", "counter", "Operaciones de AsyncDatabase por resultado");
+        e.muestra("db_async_total", async.getCompletadas(), "result", "completed");
+        e.muestra("db_async_total", async.getFallidas(), "result", "failed");
+        e.muestra("db_async_total", async.getVencidas(), "result", "expired");
+        e.muestra("db_async_total", async.getRechazadas(), "result", "rejected");
+    }
+
+    // === EJECUTORES ===
+
+    private void escribirEjecutores(Exposicion e) {
+        Map<String, MetricasEjecutor> ejecutores = new LinkedHashMap<>();
+        for (MetricasEjecutor metricas : ExecutorRegistry.getInstance().getMetricas()) {
+            ejecutores.put(metricas.getNombre(), metricas);
+        }
+
+        e.familia("executor_info", "gauge", "Fase de cierre y tipo de cada ejecutor registrado");
+        ejecutores.forEach((nombre, m) -> e.muestra("executor_info", 1,
+            "executor", nombre, "phase", m.getFase().name(), "type", m.getTipo()));
+        e.porEtiqueta("executor_queued", "gauge", "Tareas en cola (-1 si el ejecutor no lo informa)", "executor",
+            ejecutores, MetricasEjecutor::getEnCola);
+        e.porEtiqueta("executor_active", "gauge", "Tareas en ejecución", "executor", ejecutores,
+            MetricasEjecutor::getActivos);
+        e.porEtiqueta("executor_submitted_total", "counter", "Tareas enviadas", "executor", ejecutores,
+            MetricasEjecutor::getEnviadas);
+        e.porEtiqueta("executor_completed_total", "counter", "Tareas terminadas", "executor", ejecutores,
+            MetricasEjecutor::getCompletadas);
+        e.porEtiqueta("executor_rejected_total", "counter", "Tareas rechazadas", "executor", ejecutores,
+            MetricasEjecutor::getRechazadas);
+        e.porEtiqueta("executor_wait_seconds_total", "counter", "Tiempo acumulado de espera en cola", "executor",
+            ejecutores, m -> m.getNanosEspera() / NANOS_POR_SEGUNDO);
+        e.porEtiqueta("executor_run_seconds_total", "counter", "Tiempo acumulado de ejecución", "executor",
+            ejecutores, m -> m.getNanosEjecucion() / NANOS_POR_SEGUNDO);
+    }
+
+    // === TAREAS EN SEGUNDO PLANO ===
+
+    private void escribirSegundoPlano(Exposicion e) {
+        BackgroundProcessorStats stats = BackgroundProcessor.getInstance().getStats();
+
+        e.familia("background_running", "gauge", "1 si BackgroundProcessor está iniciado");
+        e.muestra("background_running", stats.isRunning() ? 1 : 0);
+        e.familia("background_active_tasks", "gauge", "Tareas en ejecución");
+        e.muestra("background_active_tasks", stats.getActiveTasks());
+        e.familia("background_tasks_executed_total", "counter", "Tareas ejecutadas");
+        e.muestra("background_tasks_executed_total", stats.getTotalTasksExecuted());
+
+        Map<String, EstadisticasClase> clases = new LinkedHashMap<>();
+        for (Map.Entry<Prioridad, EstadisticasClase> entrada : stats.getColasPorPrioridad().entrySet()) {
+            clases.put(entrada.getKey().name(), entrada.getValue());
+        }
+        e.porEtiqueta("background_pending", "gauge", "Tareas pendientes por prioridad", "priority", clases,
+            EstadisticasClase::getPendientes);
+        e.porEtiqueta("background_dequeued_total", "counter", "Tareas despachadas por prioridad", "priority", clases,
+            EstadisticasClase::getEjecutadas);
+        e.porEtiqueta("background_expired_total", "counter", "Tareas descartadas por vencer su plazo", "priority",
+            clases, EstadisticasClase::getVencidas);
+        e.porEtiqueta("background_coalesced_total", "counter", "Tareas agrupadas con otra pendiente del mismo nombre",
+            "priority", clases, EstadisticasClase::getAgrupadas);
+        e.porEtiqueta("background_dropped_total", "counter", "Tareas descartadas por cola llena", "priority", clases,
+            EstadisticasClase::getDescartadas);
+    }
+
+    // === VENTAS ===
+
+    private void escribirVentas(Exposicion e) {
+        SalesGroupCommitter committer = SalesGroupCommitter.getInstance();
+        e.familia("sales_written_total", "counter", "Ventas escritas en la base por el commit agrupado del journal");
+        e.muestra("sales_written_total", committer.getVentasEscritas());
+        e.familia("sales_batches_total", "counter", "Lotes del commit agrupado del journal por resultado");
+        e.muestra("sales_batches_total", committer.getLotesEscritos(), "result", "written");
+        e.muestra("sales_batches_total", committer.getLotesFallidos(), "result", "failed");
+
+        SalesJournal journal = SalesJournal.getInstance();
+        e.familia("sales_journal_pending", "gauge", "Ventas en el journal aún no aplicadas a la base");
+        e.muestra("sales_journal_pending", journal.getPendientes());
+        e.familia("sales_journal_applied_sequence", "gauge", "Última secuencia del journal aplicada a la base");
+        e.muestra("sales_journal_applied_sequence", journal.getAplicadoHasta());
+        e.familia("sales_journal_quarantined", "gauge", "Ventas del journal en cuarentena (fallaron tras todos los reintentos)");
+        e.muestra("sales_journal_quarantined", journal.getEnCuarentena());
+        e.familia("sales_journal_quarantined_total", "counter", "Ventas del journal enviadas a cuarentena");
+        e.muestra("sales_journal_quarantined_total", journal.getVentasEnviadasACuarentena());
+
+        RefreshScheduler refrescos = RefreshScheduler.getInstance();
+        e.familia("ui_refreshes_total", "counter", "Ciclos de refresco programado por resultado");
+        e.muestra("ui_refreshes_total", refrescos.getRefrescosEjecutados(), "result", "executed");
+        e.muestra("ui_refreshes_total", refrescos.getRefrescosOmitidos(), "result", "skipped");
+
+        EventBus bus = EventBus.getInstance();
+        e.familia("events_published_total", "counter", "Eventos publicados en el EventBus");
+        e.muestra("events_published_total", bus.getEventosPublicados());
+        e.familia("events_delivered_total", "counter", "Entregas a suscriptores por resultado");
+        e.muestra("events_delivered_total", bus.getEntregas(), "result", "ok");
+        e.muestra("events_delivered_total", bus.getErroresEntrega(), "result", "error");
+
+        SaleTracer tracer = SaleTracer.getInstance();
+        ResumenLatencia extremo = tracer.getExtremoAExtremo();
+        e.familia("sales_end_to_end_seconds", "gauge",
+            "Percentiles del último minuto desde el clic hasta el dashboard (ventas trazadas)");
+        e.muestra("sales_end_to_end_seconds", extremo.getP50Ms() / 1_000, "quantile", "0.5");
+        e.muestra("sales_end_to_end_seconds", extremo.getP95Ms() / 1_000, "quantile", "0.95");
+        e.muestra("sales_end_to_end_seconds", extremo.getP99Ms() / 1_000, "quantile", "0.99");
+        e.familia("sales_traces_active", "gauge", "Trazas de venta abiertas esperando el dashboard");
+        e.muestra("sales_traces_active", tracer.getTrazasActivas());
+    }
+
+    // === HILO DE JAVAFX ===
+
+    private void escribirHiloFx(Exposicion e) {
+        FxStallWatchdog vigilante = FxStallWatchdog.getInstance();
+
+        e.porEtiqueta("ui_fx_stalls_total", "counter", "Bloqueos del hilo FX por acción marcada", "action",
+            vigilante.getBloqueosPorAccion(), Long::doubleValue);
+        e.familia("ui_fx_stall_seconds_total", "counter", "Tiempo acumulado con el hilo FX bloqueado");
+        e.muestra("ui_fx_stall_seconds_total", vigilante.getTiempoBloqueadoMs() / 1_000);
+        e.familia("ui_fx_stall_max_seconds", "gauge", "Bloqueo más largo del hilo FX desde el arranque");
+        e.muestra("ui_fx_stall_max_seconds", vigilante.getBloqueoMaximoMs() / 1_000);
+        e.familia("ui_fx_stalled_seconds", "gauge", "Duración del bloqueo en curso (0 si el hilo FX responde)");
+        e.muestra("ui_fx_stalled_seconds", vigilante.getBloqueoEnCursoMs() / 1_000);
+
+        ResumenLatencia retrasos = vigilante.getRetrasos();
+        e.familia("ui_fx_heartbeat_delay_seconds", "gauge", "Percentiles del retraso de los latidos en el último minuto");
+        e.muestra("ui_fx_heartbeat_delay_seconds", retrasos.getP50Ms() / 1_000, "quantile", "0.5");
+        e.muestra("ui_fx_heartbeat_delay_seconds", retrasos.getP95Ms() / 1_000, "quantile", "0.95");
+        e.muestra("ui_fx_heartbeat_delay_seconds", retrasos.getP99Ms() / 1_000, "quantile", "0.99");
+    }
+
+    // === JVM ===
+
+    private void escribirJvm(Exposicion e) {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memoria.getHeapMemoryUsage();
+        MemoryUsage noHeap = memoria.getNonHeapMemoryUsage();
+        e.familia("jvm_memory_bytes", "gauge", "Memoria de la JVM por área y medida");
+        e.muestra("jvm_memory_bytes", heap.getUsed(), "area", "heap", "kind", "used");
+        e.muestra("jvm_memory_bytes", heap.getCommitted(), "area", "heap", "kind", "committed");
+        e.muestra("jvm_memory_bytes", heap.getMax(), "area", "heap", "kind", "max");
+        e.muestra("jvm_memory_bytes", noHeap.getUsed(), "area", "nonheap", "kind", "used");
+        e.muestra("jvm_memory_bytes", noHeap.getCommitted(), "area", "nonheap", "kind", "committed");
+
+        Map<String, GarbageCollectorMXBean> colectores = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            colectores.put(gc.getName(), gc);
+        }
+        e.porEtiqueta("jvm_gc_collections_total", "counter", "Recolecciones por colector", "gc", colectores,
+            GarbageCollectorMXBean::getCollectionCount);
+        e.porEtiqueta("jvm_gc_seconds_total", "counter", "Tiempo acumulado de recolección por colector", "gc",
+            colectores, gc -> gc.getCollectionTime() / 1_000.0);
+
+        MemoryPressureMonitor presion = MemoryPressureMonitor.getInstance();
+        e.familia("memory_pressure_level", "gauge", "Presión de memoria: 0 normal, 1 alta, 2 crítica");
+        e.muestra("memory_pressure_level", presion.getNivel().ordinal());
+        e.familia("memory_cache_budget_ratio", "gauge", "Fracción de la capacidad configurada que usan los cachés");
+        e.muestra("memory_cache_budget_ratio", presion.getFraccionPresupuesto());
+
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        e.familia("jvm_threads", "gauge", "Hilos de plataforma vivos por tipo");
+        e.muestra("jvm_threads", hilos.getThreadCount(), "kind", "live");
+        e.muestra("jvm_threads", hilos.getDaemonThreadCount(), "kind", "daemon");
+
+        OperatingSystemMXBean so = ManagementFactory.getOperatingSystemMXBean();
+        e.familia("process_cpu_load_ratio", "gauge", "Uso de CPU del proceso (-1 si la JVM no lo informa)");
+        e.muestra("process_cpu_load_ratio", so instanceof com.sun.management.OperatingSystemMXBean
+            ? ((com.sun.management.OperatingSystemMXBean) so).getProcessCpuLoad() : -1);
+        e.familia("system_load_average", "gauge", "Carga media del sistema en el último minuto");
+        e.muestra("system_load_average", so.getSystemLoadAverage());
+
+        e.familia("process_uptime_seconds", "gauge", "Tiempo desde el arranque de la JVM");
+        e.muestra("process_uptime_seconds", ManagementFactory.getRuntimeMXBean().getUptime() / 1_000.0);
+    }
+
+    // === FORMATO ===
+
+    /**
+     * Texto de una extracción; las muestras de una familia deben escribirse juntas tras su cabecera
+     */
+    static class Exposicion {
+        private final StringBuilder texto = new StringBuilder(16 * 1024);
+
+        void familia(String nombre, String tipo, String ayuda) {
+            texto.append("# HELP ").append(PREFIJO).append(nombre).append(' ');
+            escaparAyuda(ayuda);
+            texto.append('\n');
+            texto.append("# TYPE ").append(PREFIJO).append(nombre).append(' ').append(tipo).append('\n');
+        }
+
+        /**
+         * @param etiquetas pares nombre, valor
+         */
+        void muestra(String nombre, double valor, String... etiquetas) {
+            texto.append(PREFIJO).append(nombre);
+            if (etiquetas.length > 0) {
+                texto.append('{');
+                for (int i = 0; i < etiquetas.length; i += 2) {
+                    if (i > 0) {
+                        texto.append(',');
+                    }
+                    texto.append(etiquetas[i]).append("=\"");
+                    escaparValor(etiquetas[i + 1]);
+                    texto.append('"');
+                }
+                texto.append('}');
+            }
+            texto.append(' ').append(formatear(valor)).append('\n');
+        }
+
+        /**
+         * Familia con una muestra por elemento, identificado por una sola etiqueta
+         */
+        <T> void porEtiqueta(String nombre, String tipo, String ayuda, String etiqueta, Map<String, T> elementos,
+                             ToDoubleFunction<T> valor) {
+            familia(nombre, tipo, ayuda);
+            elementos.forEach((clave, elemento) -> muestra(nombre, valor.applyAsDouble(elemento), etiqueta, clave));
+        }
+
+        static String formatear(double valor) {
+            if (Double.isNaN(valor)) {
+                return "NaN";
+            }
+            if (Double.isInfinite(valor)) {
+                return valor > 0 ? "+Inf" : "-Inf";
+            }
+            if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+                return Long.toString((long) valor);
+            }
+            return Double.toString(valor);
+        }
+
+        private void escaparAyuda(String ayuda) {
+            for (int i = 0; i < ayuda.length(); i++) {
+                char c = ayuda.charAt(i);
+                switch (c) {
+                    case '\\' -> texto.append("\\\\");
+                    case '\n' -> texto.append("\\n");
+                    default -> texto.append(c);
+                }
+            }
+        }
+
+        private void escaparValor(String valor) {
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                switch (c) {
+                    case '\\' -> texto.append("\\\\");
+                    case '"' -> texto.append("\\\"");
+                    case '\n' -> texto.append("\\n");
+                    default -> texto.append(c);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return texto.toString();
+        }
+    }
+}
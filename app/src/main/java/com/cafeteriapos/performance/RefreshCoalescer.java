@@ -0,0 +1,81 @@
+package com.cafeteriapos.performance;
+
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupa solicitudes de refresco de UI en una sola ejecución por pulso
+ * Varias llamadas a {@link #solicitar()} antes de que el hilo FX procese la
+ * anterior se traducen en un único Platform.runLater
+ */
+public class RefreshCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshCoalescer.class);
+
+    private final String nombre;
+    private final Executor dispatcher;
+    private final Runnable accion;
+
+    // === ESTADO ===
+    private final AtomicBoolean pendiente = new AtomicBoolean(false);
+
+    // === ESTADÍSTICAS ===
+    private final AtomicLong solicitudes = new AtomicLong(0);
+    private final AtomicLong ejecuciones = new AtomicLong(0);
+
+    /**
+     * Crea un coalescer que ejecuta la acción en el hilo de JavaFX
+     */
+    public RefreshCoalescer(String nombre, Runnable accion) {
+        this(nombre, Platform::runLater, accion);
+    }
+
+    /**
+     * Crea un coalescer con un dispatcher personalizado (útil para tests)
+     */
+    public RefreshCoalescer(String nombre, Executor dispatcher, Runnable accion) {
+        this.nombre = nombre;
+        this.dispatcher = dispatcher;
+        this.accion = accion;
+    }
+
+    /**
+     * Solicita un refresco; si ya hay uno pendiente se agrupa con él
+     */
+    public void solicitar() {
+        solicitudes.incrementAndGet();
+        if (pendiente.compareAndSet(false, true)) {
+            dispatcher.execute(this::ejecutar);
+        }
+    }
+
+    private void ejecutar() {
+        // Liberar antes de ejecutar: una solicitud durante la acción programa otro pulso
+        pendiente.set(false);
+        ejecuciones.incrementAndGet();
+        FxStallWatchdog.getInstance().marcarAccion("refresco " + nombre);
+        try {
+            accion.run();
+        } catch (Exception e) {
+            logger.error("Error ejecutando refresco agrupado '{}'", nombre, e);
+        }
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public boolean isPendiente() { return pendiente.get(); }
+    public long getSolicitudes() { return solicitudes.get(); }
+    public long getEjecuciones() { return ejecuciones.get(); }
+
+    /**
+     * Número de solicitudes absorbidas por otra ejecución ya programada
+     */
+    public long getSolicitudesAgrupadas() {
+        return solicitudes.get() - ejecuciones.get() - (pendiente.get() ? 1 : 0);
+    }
+}
@@ -0,0 +1,272 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.VentaRegistrada;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Planificador central de refrescos de vistas
+ * El intervalo de cada vista se adapta al ritmo de ventas: se acorta durante
+ * los picos y se alarga cuando la tienda está inactiva o la vista no se ve,
+ * siempre dentro de los límites mínimo y máximo de cada registro
+ */
+public class RefreshScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    // === CONFIGURACIÓN ===
+    // Vida media del promedio exponencial de ventas por minuto
+    private static final double VIDA_MEDIA_TASA_MINUTOS = 5.0;
+    // Ventas por minuto a partir de las cuales se usa el intervalo mínimo
+    private static final double TASA_PICO_VENTAS_MINUTO = 2.0;
+
+    private static final double NANOS_POR_MINUTO = 60_000_000_000.0;
+    private static final double TAU_MINUTOS = VIDA_MEDIA_TASA_MINUTOS / Math.log(2);
+
+    // === EJECUTORES ===
+    private final ScheduledExecutorService scheduler;
+    private final Executor dispatcher;
+    private final LongSupplier reloj;
+
+    // === ESTADO ===
+    private final Map<String, Registro> registros = new ConcurrentHashMap<>();
+    private final Object tasaLock = new Object();
+    private double tasaVentas = 0.0;
+    private long ultimaVentaNanos;
+
+    // === ESTADÍSTICAS ===
+    private final AtomicLong refrescosEjecutados = new AtomicLong(0);
+    private final AtomicLong refrescosOmitidos = new AtomicLong(0);
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile RefreshScheduler instance;
+    private static final Object LOCK = new Object();
+
+    private RefreshScheduler() {
+        this(ExecutorRegistry.getInstance().programado("RefreshScheduler", ExecutorRegistry.FaseCierre.INTERFAZ),
+            Platform::runLater, System::nanoTime);
+
+        EventBus.getInstance().subscribe(VentaRegistrada.class, evento -> registrarVenta());
+        logger.info("RefreshScheduler inicializado");
+    }
+
+    /**
+     * Constructor con ejecutores y reloj inyectables (útil para tests)
+     */
+    RefreshScheduler(ScheduledExecutorService scheduler, Executor dispatcher, LongSupplier reloj) {
+        this.scheduler = scheduler;
+        this.dispatcher = dispatcher;
+        this.reloj = reloj;
+        this.ultimaVentaNanos = reloj.getAsLong();
+    }
+
+    public static RefreshScheduler getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new RefreshScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === REGISTRO DE VISTAS ===
+
+    /**
+     * Registra un refresco periódico adaptativo
+     * @param nombre identificador único; un registro previo con el mismo nombre se cancela
+     * @param accion refresco a ejecutar en el hilo FX
+     * @param minimo intervalo durante picos de ventas
+     * @param maximo intervalo con la tienda inactiva o la vista oculta
+     * @param visible indica si la vista se está mostrando; se evalúa en el hilo FX
+     */
+    public Registro registrar(String nombre, Runnable accion, Duration minimo, Duration maximo,
+                              BooleanSupplier visible) {
+        if (minimo.compareTo(maximo) > 0) {
+            throw new IllegalArgumentException("El intervalo mínimo no puede superar al máximo: " + nombre);
+        }
+
+        Registro registro = new Registro(nombre, accion, minimo.toMillis(), maximo.toMillis(), visible);
+        Registro anterior = registros.put(nombre, registro);
+        if (anterior != null) {
+            anterior.cancelar();
+        }
+
+        registro.programar(registro.calcularIntervalo());
+        logger.debug("Refresco '{}' registrado ({}s - {}s)", nombre, minimo.toSeconds(), maximo.toSeconds());
+        return registro;
+    }
+
+    /**
+     * Avisa que cambió la vista mostrada o la visibilidad de la ventana
+     * Los registros que omitieron refrescos y vuelven a verse se refrescan de inmediato
+     */
+    public void notificarCambioDeVista() {
+        registros.values().stream()
+            .filter(Registro::isDesactualizado)
+            .forEach(registro -> registro.programar(0));
+    }
+
+    // === RITMO DE VENTAS ===
+
+    /**
+     * Incorpora una venta al promedio exponencial de ventas por minuto
+     */
+    void registrarVenta() {
+        long ahora = reloj.getAsLong();
+        synchronized (tasaLock) {
+            tasaVentas = tasaDecaida(ahora) + 1.0 / TAU_MINUTOS;
+            ultimaVentaNanos = ahora;
+        }
+    }
+
+    /**
+     * Ventas por minuto estimadas con promedio exponencial
+     */
+    public double getTasaVentasPorMinuto() {
+        synchronized (tasaLock) {
+            return tasaDecaida(reloj.getAsLong());
+        }
+    }
+
+    private double tasaDecaida(long ahora) {
+        double minutos = (ahora - ultimaVentaNanos) / NANOS_POR_MINUTO;
+        return tasaVentas * Math.exp(-minutos / TAU_MINUTOS);
+    }
+
+    // === CONTROL ===
+
+    public void shutdown() {
+        registros.values().forEach(Registro::cancelar);
+        scheduler.shutdownNow();
+        logger.info("RefreshScheduler detenido - Ejecutados: {}, Omitidos: {}",
+            refrescosEjecutados.get(), refrescosOmitidos.get());
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public long getRefrescosEjecutados() { return refrescosEjecutados.get(); }
+    public long getRefrescosOmitidos() { return refrescosOmitidos.get(); }
+    public int getRegistrosActivos() { return registros.size(); }
+
+    // === CLASES INTERNAS ===
+
+    /**
+     * Refresco registrado; se reprograma a sí mismo tras cada ciclo
+     */
+    public class Registro {
+        private final String nombre;
+        private final Runnable accion;
+        private final long minimoMs;
+        private final long maximoMs;
+        private final BooleanSupplier visible;
+
+        private volatile ScheduledFuture<?> proximo;
+        private volatile boolean cancelado = false;
+        private volatile boolean desactualizado = false;
+        private volatile long ultimoIntervaloMs;
+        private final AtomicLong ejecutados = new AtomicLong(0);
+        private final AtomicLong omitidos = new AtomicLong(0);
+
+        private Registro(String nombre, Runnable accion, long minimoMs, long maximoMs, BooleanSupplier visible) {
+            this.nombre = nombre;
+            this.accion = accion;
+            this.minimoMs = minimoMs;
+            this.maximoMs = maximoMs;
+            this.visible = visible;
+        }
+
+        /**
+         * Intervalo actual interpolado entre el máximo (sin ventas) y el mínimo (pico)
+         */
+        long calcularIntervalo() {
+            double carga = Math.min(1.0, getTasaVentasPorMinuto() / TASA_PICO_VENTAS_MINUTO);
+            return Math.round(maximoMs - (maximoMs - minimoMs) * carga);
+        }
+
+        private synchronized void programar(long demoraMs) {
+            if (cancelado) {
+                return;
+            }
+            if (proximo != null) {
+                proximo.cancel(false);
+            }
+            ultimoIntervaloMs = demoraMs;
+            try {
+                proximo = scheduler.schedule(() -> dispatcher.execute(this::ejecutarCiclo),
+                    demoraMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Planificador detenido; refresco '{}' no reprogramado", nombre);
+            }
+        }
+
+        /**
+         * Ejecuta o, si la vista no se ve, omite el refresco; devuelve la próxima demora
+         */
+        long ejecutarCiclo() {
+            if (cancelado) {
+                return -1;
+            }
+
+            EventosJfr.CicloRefresco evento = new EventosJfr.CicloRefresco();
+            evento.begin();
+            long siguiente;
+            boolean ejecutado = visible.getAsBoolean();
+            if (ejecutado) {
+                desactualizado = false;
+                ejecutados.incrementAndGet();
+                refrescosEjecutados.incrementAndGet();
+                FxStallWatchdog.getInstance().marcarAccion("refresco " + nombre);
+                try {
+                    accion.run();
+                } catch (Exception e) {
+                    logger.error("Error en refresco programado '{}'", nombre, e);
+                }
+                siguiente = calcularIntervalo();
+            } else {
+                // Vista oculta: no refrescar, marcar como desactualizada y esperar el máximo
+                desactualizado = true;
+                omitidos.incrementAndGet();
+                refrescosOmitidos.incrementAndGet();
+                siguiente = maximoMs;
+            }
+            if (evento.shouldCommit()) {
+                evento.vista = nombre;
+                evento.ejecutado = ejecutado;
+                evento.proximoIntervalo = siguiente;
+                evento.commit();
+            }
+
+            programar(siguiente);
+            return siguiente;
+        }
+
+        /**
+         * Detiene los refrescos de este registro
+         */
+        public synchronized void cancelar() {
+            cancelado = true;
+            if (proximo != null) {
+                proximo.cancel(false);
+            }
+            registros.remove(nombre, this);
+        }
+
+        public String getNombre() { return nombre; }
+        public boolean isCancelado() { return cancelado; }
+        public boolean isDesactualizado() { return desactualizado; }
+        public long getUltimoIntervaloMs() { return ultimoIntervaloMs; }
+        public long getEjecutados() { return ejecutados.get(); }
+        public long getOmitidos() { return omitidos.get(); }
+    }
+}
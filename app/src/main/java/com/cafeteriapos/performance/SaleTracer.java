@@ -0,0 +1,358 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.LatencyHistogram.ResumenLatencia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Trazas de venta de extremo a extremo: desde el clic en "Finalizar venta" hasta que la venta
+ * se ve en el dashboard
+ *
+ * La venta cruza varios hilos (FX, registro y aplicador del journal, EventBus) y viaja
+ * como objeto, así que la traza se busca por el ID de la venta: cada etapa registra su tramo con
+ * {@link #medir} o {@link #registrar}. Una venta sin traza iniciada (recuperada
+ * del journal o de otra terminal) no registra nada
+ *
+ * Los tramos terminados van a un anillo sin locks de {@link #CAPACIDAD_POR_DEFECTO} entradas y se
+ * exportan en el formato Trace Event de Chrome ({@link #exportarJson()}), que abren Perfetto UI o
+ * chrome://tracing: cada venta aparece como un proceso y cada hilo como una fila
+ */
+public class SaleTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaleTracer.class);
+
+    static final int CAPACIDAD_POR_DEFECTO = 4096;
+    static final int MAXIMO_TRAZAS_ACTIVAS = 1024;
+    static final long VIGENCIA_TRAZA_NANOS = TimeUnit.MINUTES.toNanos(5);
+    static final String TRAMO_RAIZ = "venta";
+
+
+    // === DEPENDENCIAS ===
+    private final LongSupplier relojNanos;
+    private final long origenNanos;
+    private final long origenEpocaMicros;
+
+    // === ESTADO ===
+    private final Map<String, Traza> activas = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Tramo> anillo;
+    private final AtomicLong siguiente = new AtomicLong(0);
+    private final AtomicLong numeroTraza = new AtomicLong(0);
+    private final AtomicLong trazasDescartadas = new AtomicLong(0);
+    private final LatencyHistogram extremoAExtremo;
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile SaleTracer instance;
+    private static final Object LOCK = new Object();
+
+    private SaleTracer() {
+        this(CAPACIDAD_POR_DEFECTO, System::nanoTime);
+    }
+
+    /**
+     * Constructor con capacidad y reloj inyectables (útil para tests)
+     */
+    SaleTracer(int capacidad, LongSupplier relojNanos) {
+        this.relojNanos = relojNanos;
+        this.anillo = new AtomicReferenceArray<>(capacidad);
+        this.origenNanos = relojNanos.getAsLong();
+        this.origenEpocaMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.extremoAExtremo = new LatencyHistogram("ventaExtremoAExtremo", relojNanos);
+    }
+
+    public static SaleTracer getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new SaleTracer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === TRAZAS ===
+
+    /**
+     * Abre la traza de una venta
+     * @param inicioNanos instante del clic (System.nanoTime()), anterior a conocer el ID
+     */
+    public void iniciar(String ventaId, long inicioNanos) {
+        if (activas.size() >= MAXIMO_TRAZAS_ACTIVAS) {
+            long ahora = relojNanos.getAsLong();
+            activas.values().removeIf(t -> ahora - t.inicioNanos > VIGENCIA_TRAZA_NANOS);
+            if (activas.size() >= MAXIMO_TRAZAS_ACTIVAS) {
+                trazasDescartadas.incrementAndGet();
+                logger.debug("Demasiadas trazas abiertas; la venta {} no se traza", ventaId);
+                return;
+            }
+        }
+        String id = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        activas.put(ventaId, new Traza(id, numeroTraza.incrementAndGet(), inicioNanos));
+    }
+
+    /**
+     * Cierra la traza con el tramo raíz (del clic hasta ahora) y mide la latencia de extremo a extremo
+     */
+    public void terminar(String ventaId) {
+        Traza traza = activas.remove(ventaId);
+        if (traza == null) {
+            return;
+        }
+        long fin = relojNanos.getAsLong();
+        guardar(new Tramo(traza, ventaId, TRAMO_RAIZ, Thread.currentThread().getName(),
+            traza.inicioNanos, fin - traza.inicioNanos, Map.of()));
+        extremoAExtremo.registrar(fin - traza.inicioNanos, true);
+    }
+
+    /**
+     * ID de la traza de una venta en curso, o null si no se está trazando
+     */
+    public String getTrazaId(String ventaId) {
+        Traza traza = activas.get(ventaId);
+        return traza != null ? traza.id : null;
+    }
+
+    // === TRAMOS ===
+
+    /**
+     * Ejecuta el cuerpo en el hilo actual y lo registra como tramo (también si lanza una excepción)
+     * Sin traza solo ejecuta el cuerpo
+     * @param atributos pares nombre, valor
+     */
+    public void medir(String ventaId, String nombre, Runnable cuerpo, String... atributos) {
+        if (!activas.containsKey(ventaId)) {
+            cuerpo.run();
+            return;
+        }
+        long inicio = relojNanos.getAsLong();
+        try {
+            cuerpo.run();
+        } finally {
+            registrar(ventaId, nombre, inicio, relojNanos.getAsLong(), atributos);
+        }
+    }
+
+    /**
+     * Registra un tramo ya medido, p. ej. una escritura por lotes que se atribuye a cada venta
+     * @param atributos pares nombre, valor
+     */
+    public void registrar(String ventaId, String nombre, long inicioNanos, long finNanos, String... atributos) {
+        Traza traza = activas.get(ventaId);
+        if (traza == null) {
+            return;
+        }
+        Map<String, String> mapa = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < atributos.length; i += 2) {
+            mapa.put(atributos[i], atributos[i + 1]);
+        }
+        guardar(new Tramo(traza, ventaId, nombre, Thread.currentThread().getName(),
+            inicioNanos, finNanos - inicioNanos, mapa));
+    }
+
+    private void guardar(Tramo tramo) {
+        long indice = siguiente.getAndIncrement();
+        anillo.set((int) (indice % anillo.length()), tramo);
+    }
+
+    // === CONSULTA ===
+
+    /**
+     * Tramos del anillo ordenados por inicio
+     */
+    public List<Tramo> getTramos() {
+        List<Tramo> tramos = new ArrayList<>();
+        for (int i = 0; i < anillo.length(); i++) {
+            Tramo tramo = anillo.get(i);
+            if (tramo != null) {
+                tramos.add(tramo);
+            }
+        }
+        // A igual inicio, el tramo que contiene va antes que el contenido
+        tramos.sort(Comparator.comparingLong(Tramo::getInicioNanos)
+            .thenComparing(Comparator.comparingLong(Tramo::getDuracionNanos).reversed()));
+        return tramos;
+    }
+
+    /**
+     * Tramos de una traza ordenados por inicio
+     */
+    public List<Tramo> getTramos(String trazaId) {
+        List<Tramo> tramos = new ArrayList<>();
+        for (Tramo tramo : getTramos()) {
+            if (tramo.getTrazaId().equals(trazaId)) {
+                tramos.add(tramo);
+            }
+        }
+        return tramos;
+    }
+
+    /**
+     * Percentiles del último minuto desde el clic hasta el dashboard
+     */
+    public ResumenLatencia getExtremoAExtremo() { return extremoAExtremo.resumen(); }
+
+    public long getTramosRegistrados() { return siguiente.get(); }
+    public int getTrazasActivas() { return activas.size(); }
+    public long getTrazasDescartadas() { return trazasDescartadas.get(); }
+
+    // === EXPORTACIÓN ===
+
+    /**
+     * Tramos del anillo en formato Trace Event de Chrome (Perfetto UI, chrome://tracing)
+     */
+    public String exportarJson() {
+        List<Tramo> tramos = getTramos();
+        StringBuilder json = new StringBuilder(256 + tramos.size() * 200);
+        json.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+        // Metadatos: un proceso por venta y un número estable por hilo
+        Map<Long, Tramo> trazas = new LinkedHashMap<>();
+        Map<String, Integer> hilos = new HashMap<>();
+        Set<String> hilosPorTraza = new HashSet<>();
+        boolean primero = true;
+        for (Tramo tramo : tramos) {
+            int hilo = hilos.computeIfAbsent(tramo.getHilo(), h -> hilos.size() + 1);
+            if (trazas.putIfAbsent(tramo.numeroTraza, tramo) == null) {
+                primero = separar(json, primero);
+                json.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":").append(tramo.numeroTraza)
+                    .append(",\"args\":{\"name\":");
+                cadena(json, "venta " + tramo.getVentaId() + " (" + tramo.getTrazaId() + ")");
+                json.append("}}");
+            }
+            if (hilosPorTraza.add(tramo.numeroTraza + "/" + hilo)) {
+                primero = separar(json, primero);
+                json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(tramo.numeroTraza)
+                    .append(",\"tid\":").append(hilo).append(",\"args\":{\"name\":");
+                cadena(json, tramo.getHilo());
+                json.append("}}");
+            }
+        }
+
+        for (Tramo tramo : tramos) {
+            primero = separar(json, primero);
+            json.append("{\"name\":");
+            cadena(json, tramo.getNombre());
+            json.append(",\"cat\":\"venta\",\"ph\":\"X\",\"ts\":")
+                .append(micros(origenEpocaMicros * 1_000 + (tramo.getInicioNanos() - origenNanos)))
+                .append(",\"dur\":").append(micros(tramo.getDuracionNanos()))
+                .append(",\"pid\":").append(tramo.numeroTraza)
+                .append(",\"tid\":").append(hilos.get(tramo.getHilo()))
+                .append(",\"args\":{\"traceId\":");
+            cadena(json, tramo.getTrazaId());
+            json.append(",\"ventaId\":");
+            cadena(json, tramo.getVentaId());
+            for (Map.Entry<String, String> atributo : tramo.getAtributos().entrySet()) {
+                json.append(',');
+                cadena(json, atributo.getKey());
+                json.append(':');
+                cadena(json, atributo.getValue());
+            }
+            json.append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static boolean separar(StringBuilder json, boolean primero) {
+        if (!primero) {
+            json.append(',');
+        }
+        return false;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000.0);
+    }
+
+    private static void cadena(StringBuilder json, String valor) {
+        json.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    // === CLASES INTERNAS ===
+
+    private static class Traza {
+        private final String id;
+        private final long numero;
+        private final long inicioNanos;
+
+        private Traza(String id, long numero, long inicioNanos) {
+            this.id = id;
+            this.numero = numero;
+            this.inicioNanos = inicioNanos;
+        }
+    }
+
+    /**
+     * Un tramo terminado de una traza de venta
+     */
+    public static class Tramo {
+        private final String trazaId;
+        private final long numeroTraza;
+        private final String ventaId;
+        private final String nombre;
+        private final String hilo;
+        private final long inicioNanos;
+        private final long duracionNanos;
+        private final Map<String, String> atributos;
+
+        private Tramo(Traza traza, String ventaId, String nombre, String hilo, long inicioNanos,
+                      long duracionNanos, Map<String, String> atributos) {
+            this.trazaId = traza.id;
+            this.numeroTraza = traza.numero;
+            this.ventaId = ventaId;
+            this.nombre = nombre;
+            this.hilo = hilo;
+            this.inicioNanos = inicioNanos;
+            this.duracionNanos = duracionNanos;
+            this.atributos = atributos;
+        }
+
+        // Getters
+        public String getTrazaId() { return trazaId; }
+        public String getVentaId() { return ventaId; }
+        public String getNombre() { return nombre; }
+        public String getHilo() { return hilo; }
+        public long getInicioNanos() { return inicioNanos; }
+        public long getDuracionNanos() { return duracionNanos; }
+        public double getDuracionMs() { return duracionNanos / 1_000_000.0; }
+        public Map<String, String> getAtributos() { return atributos; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %s [%s] %.3f ms", trazaId, nombre, hilo, getDuracionMs());
+        }
+    }
+}
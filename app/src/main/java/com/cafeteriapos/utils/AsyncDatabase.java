@@ -0,0 +1,237 @@
+package com.cafeteriapos.utils;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.BlockingIoExecutors;
+import com.cafeteriapos.performance.ExecutorRegistry;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fachada asíncrona de {@link DatabaseManager}
+ *
+ * Cada llamada corre en un hilo virtual propio y toma un permiso de base de datos
+ * ({@link BlockingIoExecutors}): la base usa una única conexión compartida y más llamadas
+ * simultáneas solo esperarían el mismo lock. Las operaciones en vuelo están acotadas para
+ * que una ráfaga de pedidos falle rápido en lugar de acumularse
+ *
+ * Cada operación devuelve un CompletableFuture con plazo máximo. Cancelarlo (o vencer el
+ * plazo) descarta la operación si aún no empezó; si ya está en curso se deja terminar sin
+ * interrumpir el hilo, porque interrumpir a H2 durante E/S puede cerrar el archivo de la base.
+ * Esa operación conserva su lugar en vuelo hasta terminar: el límite acota el trabajo JDBC
+ * real, no solo los futuros pendientes
+ *
+ * El hilo de JavaFX no debe hacer JDBC: {@link #verificarFueraDeHiloFx()} lo comprueba
+ * en cada conexión y en modo desarrollo (-Dcafeteriapos.dev=true) lanza una excepción
+ */
+public class AsyncDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDatabase.class);
+
+    private static final int MAXIMO_EN_VUELO = 256;
+    private static final Duration PLAZO_POR_DEFECTO = Duration.ofSeconds(15);
+
+    static final String PROPIEDAD_MODO_DESARROLLO = "cafeteriapos.dev";
+    private static final AtomicBoolean avisoHiloFxEmitido = new AtomicBoolean(false);
+
+    // === EJECUCIÓN ===
+    private final ExecutorService executor;
+    private final Duration plazoPorDefecto;
+    private final Semaphore enVuelo = new Semaphore(MAXIMO_EN_VUELO);
+
+    // === ESTADÍSTICAS ===
+    private final AtomicLong completadas = new AtomicLong(0);
+    private final AtomicLong fallidas = new AtomicLong(0);
+    private final AtomicLong vencidas = new AtomicLong(0);
+    private final AtomicLong rechazadas = new AtomicLong(0);
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile AsyncDatabase instance;
+    private static final Object LOCK = new Object();
+
+    private AsyncDatabase() {
+        this(ExecutorRegistry.getInstance().porTareaVirtual("DB-Async", ExecutorRegistry.FaseCierre.PERSISTENCIA),
+            PLAZO_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor con executor y plazo inyectables (útil para tests)
+     */
+    AsyncDatabase(ExecutorService executor, Duration plazoPorDefecto) {
+        this.executor = executor;
+        this.plazoPorDefecto = plazoPorDefecto;
+    }
+
+    public static AsyncDatabase getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new AsyncDatabase();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === EJECUCIÓN GENÉRICA ===
+
+    /**
+     * Ejecuta una operación de base de datos con el plazo por defecto
+     */
+    public <T> CompletableFuture<T> ejecutar(String operacion, Callable<T> llamada) {
+        return ejecutar(operacion, llamada, plazoPorDefecto);
+    }
+
+    /**
+     * Ejecuta una operación de base de datos en el executor de la fachada
+     * @param operacion nombre para logs
+     * @return futuro que falla con TimeoutException si vence el plazo y con
+     *         RejectedExecutionException si hay demasiadas operaciones en vuelo
+     */
+    public <T> CompletableFuture<T> ejecutar(String operacion, Callable<T> llamada, Duration plazo) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        if (!enVuelo.tryAcquire()) {
+            return rechazar(operacion, resultado, new RejectedExecutionException("Demasiadas operaciones de base en vuelo"));
+        }
+        // La tarea o el cierre del futuro, el primero que la reclame, devuelve el permiso
+        AtomicBoolean reclamada = new AtomicBoolean(false);
+        Future<?> tarea;
+        try {
+            tarea = executor.submit(() -> {
+                if (!reclamada.compareAndSet(false, true)) {
+                    return; // Cancelada o vencida antes de empezar
+                }
+                try {
+                    T valor = BlockingIoExecutors.conPermisoBaseDatos(llamada::call);
+                    // Contar antes de completar: quien espera el futuro ya ve la estadística
+                    completadas.incrementAndGet();
+                    if (!resultado.complete(valor)) {
+                        completadas.decrementAndGet(); // Ya vencida o cancelada
+                    }
+                } catch (Exception e) {
+                    fallidas.incrementAndGet();
+                    logger.debug("Operación de base '{}' fallida: {}", operacion, e.getMessage());
+                    resultado.completeExceptionally(e);
+                } finally {
+                    enVuelo.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enVuelo.release();
+            return rechazar(operacion, resultado, e);
+        }
+
+        resultado.orTimeout(plazo.toMillis(), TimeUnit.MILLISECONDS).whenComplete((valor, error) -> {
+            if (error instanceof TimeoutException) {
+                vencidas.incrementAndGet();
+                logger.warn("Operación de base '{}' superó el plazo de {} ms", operacion, plazo.toMillis());
+            }
+            // Sin interrumpir: solo se descarta si sigue en cola; si ya corre, libera al terminar
+            if (reclamada.compareAndSet(false, true)) {
+                tarea.cancel(false);
+                enVuelo.release();
+            }
+        });
+        return resultado;
+    }
+
+    private <T> CompletableFuture<T> rechazar(String operacion, CompletableFuture<T> resultado,
+                                              RejectedExecutionException error) {
+        rechazadas.incrementAndGet();
+        logger.warn("Operación de base '{}' rechazada: {}", operacion, error.getMessage());
+        resultado.completeExceptionally(error);
+        return resultado;
+    }
+
+    /**
+     * Ejecuta una operación sin resultado
+     */
+    public CompletableFuture<Void> ejecutarAccion(String operacion, Runnable accion) {
+        return ejecutar(operacion, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    // === OPERACIONES ===
+
+    public CompletableFuture<List<Producto>> leerProductos() {
+        return ejecutar("leerProductos", DatabaseManager::leerProductos);
+    }
+
+    public CompletableFuture<Void> guardarProducto(Producto producto) {
+        return ejecutarAccion("guardarProducto", () -> DatabaseManager.guardarProducto(producto));
+    }
+
+    public CompletableFuture<Void> actualizarProducto(Producto producto) {
+        return ejecutarAccion("actualizarProducto", () -> DatabaseManager.actualizarProducto(producto));
+    }
+
+    public CompletableFuture<Void> eliminarProducto(Producto producto) {
+        return ejecutarAccion("eliminarProducto", () -> DatabaseManager.eliminarProducto(producto));
+    }
+
+    public CompletableFuture<List<Venta>> leerVentas() {
+        return ejecutar("leerVentas", DatabaseManager::leerVentas);
+    }
+
+    public CompletableFuture<Boolean> limpiarBaseDatos() {
+        return ejecutar("limpiarBaseDatos", DatabaseManager::limpiarBaseDatos);
+    }
+
+    // === VERIFICACIÓN DE HILO ===
+
+    /**
+     * Comprueba que el hilo actual no sea el de JavaFX antes de tocar la base
+     * En modo desarrollo lanza IllegalStateException; en producción avisa una sola vez
+     */
+    static void verificarFueraDeHiloFx() {
+        verificarFueraDeHiloFx(Platform.isFxApplicationThread());
+    }
+
+    /**
+     * Variante con el resultado de la comprobación de hilo inyectable (útil para tests)
+     */
+    static void verificarFueraDeHiloFx(boolean enHiloFx) {
+        if (!enHiloFx) {
+            return;
+        }
+        IllegalStateException error = new IllegalStateException(
+            "Acceso JDBC desde el hilo de JavaFX; use AsyncDatabase");
+        if (Boolean.getBoolean(PROPIEDAD_MODO_DESARROLLO)) {
+            throw error;
+        }
+        if (avisoHiloFxEmitido.compareAndSet(false, true)) {
+            logger.warn("Acceso JDBC desde el hilo de JavaFX (se avisa solo una vez)", error);
+        }
+    }
+
+    // === CIERRE ===
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            // Sin shutdownNow: interrumpir una operación en curso puede cerrar la base
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Operaciones de base aún en curso al cerrar la fachada asíncrona");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public long getCompletadas() { return completadas.get(); }
+    public long getFallidas() { return fallidas.get(); }
+    public long getVencidas() { return vencidas.get(); }
+    public long getRechazadas() { return rechazadas.get(); }
+    public int getEnVuelo() { return MAXIMO_EN_VUELO - enVuelo.availablePermits(); }
+}
@@ -1,5 +1,8 @@
 package com.cafeteriapos.utils;
 
+import com.cafeteriapos.events.CajaMovimiento;
+import com.cafeteriapos.events.EventBus;
+
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -13,6 +16,7 @@ public class CajaManager {
             montoInicial
         );
         DatabaseManager.registrarOperacionCaja(registro);
+        EventBus.getInstance().publish(new CajaMovimiento("APERTURA", montoInicial, null));
     }
 
     public static void registrarCierre(double montoFinal) {
@@ -21,15 +25,30 @@ public class CajaManager {
             montoFinal
         );
         DatabaseManager.registrarOperacionCaja(registro);
+        EventBus.getInstance().publish(new CajaMovimiento("CIERRE", montoFinal, null));
     }
 
     public static void registrarVenta(String idVenta, double monto) {
-        String registro = String.format(
+        DatabaseManager.registrarOperacionCaja(descripcionVenta(idVenta, monto));
+        publicarVenta(idVenta, monto);
+    }
+
+    /**
+     * Texto de la operación de caja de una venta
+     */
+    public static String descripcionVenta(String idVenta, double monto) {
+        return String.format(
             "VENTA - ID: %s | Monto: $%.2f", 
             idVenta, 
             monto
         );
-        DatabaseManager.registrarOperacionCaja(registro);
+    }
+
+    /**
+     * Notifica el movimiento de caja de una venta ya registrada en la base
+     */
+    public static void publicarVenta(String idVenta, double monto) {
+        EventBus.getInstance().publish(new CajaMovimiento("VENTA", monto, idVenta));
     }
 
     public static void registrarMovimiento(String tipo, double monto, String motivo) {
@@ -40,6 +59,7 @@ public class CajaManager {
             motivo
         );
         DatabaseManager.registrarOperacionCaja(registro);
+        EventBus.getInstance().publish(new CajaMovimiento(tipo.toUpperCase(), monto, motivo));
     }
 
     public static void registrarError(String operacion, String mensajeError) {
@@ -1,15 +1,37 @@
 package com.cafeteriapos.utils;
 
+import com.cafeteriapos.archive.SalesArchive;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.ProductoEliminado;
+import com.cafeteriapos.events.StockCambiado;
+import com.cafeteriapos.events.VentaRegistrada;
+import com.cafeteriapos.models.EstadoDemanda;
+import com.cafeteriapos.models.LineaVenta;
 import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.ResumenDiario;
 import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.EventosJfr;
+import com.cafeteriapos.performance.PerformanceMonitor;
+import com.cafeteriapos.performance.SaleTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.function.Function;
 
 /**
  * DatabaseManager - Reemplazo completo de ExcelManager usando H2 Database con modo PostgreSQL
@@ -29,7 +51,11 @@ public class DatabaseManager {
     
     // Singleton para connection pooling básico
     private static volatile Connection connection;
+    // La misma conexión envuelta por SlowQueryLog; es la que se entrega a las operaciones
+    private static volatile Connection conexionMedida;
     private static final Object lock = new Object();
+    // Conexión propia de las transacciones manuales; solo se usa con lock tomado
+    private static Connection conexionTransacciones;
     
     /**
      * Inicializa la base de datos creando las tablas necesarias
@@ -84,6 +110,7 @@ public class DatabaseManager {
      * Obtiene conexión a la base de datos H2 con connection pooling básico
      */
     private static Connection getConnection() throws SQLException {
+        AsyncDatabase.verificarFueraDeHiloFx();
         if (connection == null || connection.isClosed()) {
             synchronized (lock) {
                 if (connection == null || connection.isClosed()) {
@@ -92,8 +119,12 @@ public class DatabaseManager {
                         Class.forName("org.h2.Driver");
                         
                         // Crear conexión con configuración optimizada
-                        connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                        connection.setAutoCommit(true); // Commits automáticos para operaciones simples
+                        Connection nueva = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                        nueva.setAutoCommit(true); // Commits automáticos para operaciones simples
+                        
+                        // Primero la envuelta: quien vea la nueva conexión ya encuentra su envoltura
+                        conexionMedida = SlowQueryLog.getInstance().envolver(nueva);
+                        connection = nueva;
                         
                         logger.debug("Nueva conexión H2 establecida");
                         
@@ -103,7 +134,102 @@ public class DatabaseManager {
                 }
             }
         }
-        return connection;
+        return conexionMedida;
+    }
+    
+    /**
+     * Abre una conexión propia en autocommit; quien la abre debe cerrarla
+     * Es la base de la conexión de transacciones, y los tests la usan para inspeccionar la base
+     */
+    static Connection abrirConexion() throws SQLException {
+        getConnection(); // Asegura driver cargado y base inicializada
+        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    }
+    
+    /**
+     * Conexión de las transacciones manuales (ventas, archivado, migración); llamar con lock tomado
+     * La conexión compartida queda siempre en autocommit: una escritura concurrente que no pasa
+     * por lock (productos, caja, resúmenes) se confirma sola y nunca queda dentro de un lote
+     * ajeno, ni se pierde con su rollback
+     */
+    private static Connection getConexionTransacciones() throws SQLException {
+        if (conexionTransacciones == null || conexionTransacciones.isClosed()) {
+            conexionTransacciones = SlowQueryLog.getInstance().envolver(abrirConexion());
+            logger.debug("Conexión H2 de transacciones establecida");
+        }
+        return conexionTransacciones;
+    }
+    
+    /**
+     * Cuerpo de una operación pública medida con {@link #medir(String, OperacionSql)}
+     * E es la excepción comprobada que deja pasar la operación (RuntimeException si ninguna)
+     */
+    @FunctionalInterface
+    private interface OperacionSql<T, E extends Exception> {
+        T ejecutar() throws E;
+    }
+    
+    /**
+     * Ejecuta una operación pública y registra su latencia en el histograma de su nombre
+     * y, si la grabación JFR lo pide, como evento OperacionBaseDatos
+     * Cuenta como error si lanza una excepción o si falló alguna sentencia JDBC durante la
+     * operación, aunque la operación capture la SQLException y devuelva un valor por defecto
+     */
+    private static <T, E extends Exception> T medir(String operacion, OperacionSql<T, E> cuerpo) throws E {
+        long inicioNanos = System.nanoTime();
+        long fallosPrevios = SlowQueryLog.fallosDelHilo();
+        boolean exito = false;
+        try {
+            T resultado = cuerpo.ejecutar();
+            exito = SlowQueryLog.fallosDelHilo() == fallosPrevios;
+            return resultado;
+        } finally {
+            long duracion = System.nanoTime() - inicioNanos;
+            PerformanceMonitor.getInstance().recordOperation(operacion, duracion, exito);
+            
+            EventosJfr.OperacionBaseDatos evento = new EventosJfr.OperacionBaseDatos();
+            if (evento.shouldCommit()) {
+                evento.operacion = operacion;
+                evento.duracion = duracion;
+                evento.exito = exito;
+                evento.commit();
+            }
+        }
+    }
+    
+    private static void medir(String operacion, Runnable cuerpo) {
+        medir(operacion, () -> {
+            cuerpo.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Abre una conexión propia, de solo lectura y con aislamiento SNAPSHOT
+     * Todo lo leído en su transacción corresponde al mismo instante y no usa la conexión
+     * compartida, así que no bloquea ventas ni consultas (p. ej. para backups en línea)
+     * Quien la abre debe cerrarla
+     */
+    public static Connection abrirConexionInstantanea() throws SQLException {
+        getConnection(); // Asegura driver cargado y base inicializada
+        Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SNAPSHOT");
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+    
+    /**
+     * URL JDBC de otra base H2 con el mismo modo que la principal (p. ej. para restaurar un backup)
+     * @param base ruta de la base sin extensión
+     */
+    public static String urlBaseDatos(Path base) {
+        return "jdbc:h2:" + base.toAbsolutePath() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE";
     }
     
     /**
@@ -124,17 +250,47 @@ public class DatabaseManager {
                 )
             """);
             
-            // Tabla de ventas
+            // Catálogo de particiones mensuales de ventas (ver VentasPartitionRouter)
+            // Las tablas ventas_AAAAMM / venta_items_AAAAMM se crean al guardar la primera venta del mes
             stmt.execute("""
-                CREATE TABLE IF NOT EXISTS ventas (
-                    id VARCHAR(255) PRIMARY KEY,
-                    fecha_hora TIMESTAMP NOT NULL,
-                    total DECIMAL(10,2) NOT NULL,
-                    detalle TEXT,
+                CREATE TABLE IF NOT EXISTS particiones_ventas (
+                    mes VARCHAR(7) PRIMARY KEY,
+                    activa BOOLEAN NOT NULL DEFAULT TRUE,
                     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
                 )
             """);
             
+            // Resumen diario de ventas con sketch de cuantiles de ticket
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS resumen_diario (
+                    fecha DATE PRIMARY KEY,
+                    transacciones BIGINT NOT NULL,
+                    ingresos DECIMAL(14,2) NOT NULL,
+                    sketch_ticket VARBINARY,
+                    fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            
+            // Productos vendidos por día como bitmap de IDs (índice de rotación)
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS rotacion_diaria (
+                    fecha DATE PRIMARY KEY,
+                    productos VARBINARY NOT NULL
+                )
+            """);
+            
+            // Estado del pronóstico de demanda por producto (Holt-Winters)
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS pronostico_demanda (
+                    producto VARCHAR(255) PRIMARY KEY,
+                    nivel DOUBLE PRECISION NOT NULL,
+                    tendencia DOUBLE PRECISION NOT NULL,
+                    estacionalidad VARCHAR(255) NOT NULL,
+                    ultimo_dia DATE NOT NULL,
+                    dias_observados INTEGER NOT NULL
+                )
+            """);
+            
             // Tabla de operaciones de caja
             stmt.execute("""
                 CREATE TABLE IF NOT EXISTS operaciones_caja (
@@ -147,33 +303,263 @@ public class DatabaseManager {
             
             // Índices para performance
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_productos_nombre ON productos(nombre)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_ventas_fecha ON ventas(fecha_hora)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_caja_fecha ON operaciones_caja(fecha_hora)");
             
             logger.debug("Tablas y índices creados exitosamente");
         }
+        
+        cargarParticionesVentas();
+        migrarVentasSinParticionar();
     }
     
+    // ===============================================
+    // PARTICIONES MENSUALES DE VENTAS
+    // ===============================================
+    
+    private static final VentasPartitionRouter particiones = new VentasPartitionRouter();
+    
     /**
-     * Guarda un producto en la base de datos (INSERT/UPDATE automático)
+     * Lee del catálogo las particiones activas
      */
-    public static void guardarProducto(Producto producto) {
-        try {
-            // Verificar si el producto ya existe
-            if (existeProducto(producto.getNombre())) {
-                actualizarProducto(producto);
-            } else {
-                insertarProducto(producto);
+    private static void cargarParticionesVentas() throws SQLException {
+        List<YearMonth> activas = new ArrayList<>();
+        try (Statement stmt = getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT mes FROM particiones_ventas WHERE activa")) {
+            while (rs.next()) {
+                activas.add(YearMonth.parse(rs.getString("mes")));
+            }
+        }
+        particiones.cargar(activas);
+        logger.debug("Particiones de ventas activas: {}", activas.size());
+    }
+    
+    /**
+     * Crea (o reactiva) la partición del mes si no está activa
+     * Debe llamarse fuera de una transacción manual: en H2 el DDL confirma la transacción abierta
+     */
+    private static void asegurarParticion(YearMonth mes) throws SQLException {
+        if (particiones.esActiva(mes)) {
+            return;
+        }
+        synchronized (lock) {
+            if (particiones.esActiva(mes)) {
+                return;
+            }
+            try (Statement stmt = getConnection().createStatement();
+                 PreparedStatement pstmt = getConnection().prepareStatement(
+                     "MERGE INTO particiones_ventas (mes, activa) KEY(mes) VALUES (?, TRUE)")) {
+                stmt.execute(VentasPartitionRouter.sql("""
+                    CREATE TABLE IF NOT EXISTS {ventas} (
+                        id VARCHAR(255) PRIMARY KEY,
+                        fecha_hora TIMESTAMP NOT NULL,
+                        total DECIMAL(10,2) NOT NULL,
+                        detalle TEXT,
+                        fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                """, mes));
+                stmt.execute(VentasPartitionRouter.sql("""
+                    CREATE TABLE IF NOT EXISTS {items} (
+                        venta_id VARCHAR(255) NOT NULL,
+                        linea INTEGER NOT NULL,
+                        producto VARCHAR(255) NOT NULL,
+                        precio DECIMAL(10,2) NOT NULL,
+                        cantidad INTEGER NOT NULL,
+                        PRIMARY KEY (venta_id, linea)
+                    )
+                """, mes));
+                stmt.execute(VentasPartitionRouter.sql(
+                    "CREATE INDEX IF NOT EXISTS idx_{ventas}_fecha ON {ventas}(fecha_hora)", mes));
+                stmt.execute(VentasPartitionRouter.sql(
+                    "CREATE INDEX IF NOT EXISTS idx_{items}_producto ON {items}(producto)", mes));
+                
+                pstmt.setString(1, mes.toString());
+                pstmt.executeUpdate();
+            }
+            particiones.registrar(mes);
+            logger.info("Partición de ventas activa: {}", mes);
+        }
+    }
+    
+    /**
+     * Mueve las ventas de las tablas únicas {@code ventas} / {@code venta_items} (bases
+     * anteriores al particionado) a sus particiones mensuales y luego elimina esas tablas
+     * Se copia con MERGE por clave, así una migración interrumpida se puede repetir
+     */
+    private static void migrarVentasSinParticionar() throws SQLException {
+        if (!existeTabla("ventas")) {
+            return;
+        }
+        boolean conItems = existeTabla("venta_items");
+        
+        synchronized (lock) {
+            List<YearMonth> meses = new ArrayList<>();
+            try (Statement stmt = getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                     "SELECT DISTINCT EXTRACT(YEAR FROM fecha_hora), EXTRACT(MONTH FROM fecha_hora) FROM ventas")) {
+                while (rs.next()) {
+                    meses.add(YearMonth.of(rs.getInt(1), rs.getInt(2)));
+                }
+            }
+            for (YearMonth mes : meses) {
+                asegurarParticion(mes);
             }
             
-            logger.debug("Producto guardado: {}", producto.getNombre());
+            Connection conn = null;
+            int migradas = 0;
+            try {
+                conn = getConexionTransacciones();
+                conn.setAutoCommit(false);
+                for (YearMonth mes : meses) {
+                    Timestamp inicio = Timestamp.valueOf(VentasPartitionRouter.inicioMes(mes));
+                    Timestamp fin = Timestamp.valueOf(VentasPartitionRouter.finMes(mes));
+                    try (PreparedStatement pstmt = conn.prepareStatement(VentasPartitionRouter.sql("""
+                            MERGE INTO {ventas} (id, fecha_hora, total, detalle, fecha_creacion) KEY(id)
+                            SELECT id, fecha_hora, total, detalle, fecha_creacion FROM ventas
+                            WHERE fecha_hora >= ? AND fecha_hora < ?
+                        """, mes))) {
+                        pstmt.setTimestamp(1, inicio);
+                        pstmt.setTimestamp(2, fin);
+                        migradas += pstmt.executeUpdate();
+                    }
+                    if (conItems) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(VentasPartitionRouter.sql("""
+                                MERGE INTO {items} (venta_id, linea, producto, precio, cantidad) KEY(venta_id, linea)
+                                SELECT i.venta_id, i.linea, i.producto, i.precio, i.cantidad
+                                FROM venta_items i
+                                JOIN ventas v ON v.id = i.venta_id
+                                WHERE v.fecha_hora >= ? AND v.fecha_hora < ?
+                            """, mes))) {
+                            pstmt.setTimestamp(1, inicio);
+                            pstmt.setTimestamp(2, fin);
+                            pstmt.executeUpdate();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                rollbackSilencioso(conn);
+                throw e;
+            } finally {
+                restaurarAutoCommit(conn);
+            }
             
+            try (Statement stmt = getConnection().createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS venta_items");
+                stmt.execute("DROP TABLE IF EXISTS ventas");
+            }
+            logger.info("Migradas {} ventas a {} particiones mensuales", migradas, meses.size());
+        }
+    }
+    
+    private static boolean existeTabla(String nombre) throws SQLException {
+        String sql = """
+            SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+            WHERE LOWER(TABLE_SCHEMA) = 'public' AND LOWER(TABLE_NAME) = ?
+        """;
+        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+            pstmt.setString(1, nombre);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+    
+    /**
+     * Meses con partición activa, en orden
+     */
+    public static SortedSet<YearMonth> obtenerParticionesVentas() {
+        return particiones.getParticiones();
+    }
+    
+    /**
+     * Quita la partición del mes de las consultas sin borrar sus tablas (O(1))
+     * Sus ventas dejan de verse en reportes y totales; si luego se guarda una venta de ese
+     * mes, la partición se reactiva con sus datos
+     * @return true si la partición estaba en el catálogo
+     */
+    public static boolean desacoplarParticion(YearMonth mes) {
+        return medir("desacoplarParticion", () -> {
+            synchronized (lock) {
+                try (PreparedStatement pstmt = getConnection().prepareStatement(
+                        "UPDATE particiones_ventas SET activa = FALSE WHERE mes = ?")) {
+                    pstmt.setString(1, mes.toString());
+                    boolean existia = pstmt.executeUpdate() > 0;
+                    particiones.quitar(mes);
+                    logger.info("Partición de ventas {} desacoplada", mes);
+                    return existia;
+                
+                } catch (SQLException e) {
+                    logger.error("Error desacoplando partición {}: {}", mes, e.getMessage());
+                    return false;
+                }
+            }
+        });
+    }
+    
+    /**
+     * Elimina la partición del mes con sus ventas e items (DROP TABLE, O(1))
+     * @return true si la partición estaba en el catálogo
+     */
+    public static boolean eliminarParticion(YearMonth mes) {
+        return medir("eliminarParticion", () -> eliminarParticionSinMedir(mes));
+    }
+    
+    /**
+     * Cuerpo de {@link #eliminarParticion}, para operaciones ya medidas que la usan por dentro
+     * (así su latencia no se cuenta dos veces)
+     */
+    private static boolean eliminarParticionSinMedir(YearMonth mes) {
+        synchronized (lock) {
+            // Primero se deja de enrutar hacia ella para que ninguna consulta nueva la toque
+            particiones.quitar(mes);
+            try (Statement stmt = getConnection().createStatement();
+                 PreparedStatement pstmt = getConnection().prepareStatement(
+                     "DELETE FROM particiones_ventas WHERE mes = ?")) {
+                stmt.execute(VentasPartitionRouter.sql("DROP TABLE IF EXISTS {items}", mes));
+                stmt.execute(VentasPartitionRouter.sql("DROP TABLE IF EXISTS {ventas}", mes));
+                pstmt.setString(1, mes.toString());
+                boolean existia = pstmt.executeUpdate() > 0;
+                logger.info("Partición de ventas {} eliminada", mes);
+                return existia;
+            
+            } catch (SQLException e) {
+                logger.error("Error eliminando partición {}: {}", mes, e.getMessage());
+                recargarParticionesSilencioso();
+                return false;
+            }
+        }
+    }
+    
+    private static void recargarParticionesSilencioso() {
+        try {
+            cargarParticionesVentas();
         } catch (SQLException e) {
-            logger.error("Error guardando producto '{}': {}", producto.getNombre(), e.getMessage());
-            throw new RuntimeException("Error guardando producto", e);
+            logger.warn("Error recargando catálogo de particiones: {}", e.getMessage());
         }
     }
     
+    /**
+     * Guarda un producto en la base de datos (INSERT/UPDATE automático)
+     */
+    public static void guardarProducto(Producto producto) {
+        medir("guardarProducto", () -> {
+            try {
+                // Verificar si el producto ya existe
+                if (existeProducto(producto.getNombre())) {
+                    actualizarProducto(producto);
+                } else {
+                    insertarProducto(producto);
+                }
+                
+                logger.debug("Producto guardado: {}", producto.getNombre());
+                
+            } catch (SQLException e) {
+                logger.error("Error guardando producto '{}': {}", producto.getNombre(), e.getMessage());
+                throw new RuntimeException("Error guardando producto", e);
+            }
+        });
+    }
+    
     /**
      * Inserta un nuevo producto
      */
@@ -188,30 +574,38 @@ public class DatabaseManager {
             pstmt.executeUpdate();
             logger.debug("Producto insertado: {}", producto.getNombre());
         }
+        
+        // Autocommit: el producto ya está confirmado
+        EventBus.getInstance().publish(
+            new StockCambiado(producto.getNombre(), producto.getStock(), producto.getPrecio()));
     }
     
     /**
      * Actualiza un producto existente
      */
     public static void actualizarProducto(Producto producto) {
-        String sql = "UPDATE productos SET precio = ?, stock = ?, fecha_actualizacion = CURRENT_TIMESTAMP WHERE nombre = ?";
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setDouble(1, producto.getPrecio());
-            pstmt.setInt(2, producto.getStock());
-            pstmt.setString(3, producto.getNombre());
+        medir("actualizarProducto", () -> {
+            String sql = "UPDATE productos SET precio = ?, stock = ?, fecha_actualizacion = CURRENT_TIMESTAMP WHERE nombre = ?";
             
-            int rowsUpdated = pstmt.executeUpdate();
-            if (rowsUpdated > 0) {
-                logger.debug("Producto actualizado: {}", producto.getNombre());
-            } else {
-                logger.warn("No se encontró producto para actualizar: {}", producto.getNombre());
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setDouble(1, producto.getPrecio());
+                pstmt.setInt(2, producto.getStock());
+                pstmt.setString(3, producto.getNombre());
+                
+                int rowsUpdated = pstmt.executeUpdate();
+                if (rowsUpdated > 0) {
+                    logger.debug("Producto actualizado: {}", producto.getNombre());
+                    EventBus.getInstance().publish(
+                        new StockCambiado(producto.getNombre(), producto.getStock(), producto.getPrecio()));
+                } else {
+                    logger.warn("No se encontró producto para actualizar: {}", producto.getNombre());
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error actualizando producto '{}': {}", producto.getNombre(), e.getMessage());
+                throw new RuntimeException("Error actualizando producto", e);
             }
-            
-        } catch (SQLException e) {
-            logger.error("Error actualizando producto '{}': {}", producto.getNombre(), e.getMessage());
-            throw new RuntimeException("Error actualizando producto", e);
-        }
+        });
     }
     
     /**
@@ -234,59 +628,212 @@ public class DatabaseManager {
      * Lee todos los productos desde la base de datos - ULTRA RÁPIDO (1-5ms)
      */
     public static List<Producto> leerProductos() {
-        List<Producto> productos = new ArrayList<>();
-        String sql = "SELECT nombre, precio, stock FROM productos ORDER BY nombre";
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        return medir("leerProductos", () -> {
+            List<Producto> productos = new ArrayList<>();
+            String sql = "SELECT nombre, precio, stock FROM productos ORDER BY nombre";
             
-            while (rs.next()) {
-                String nombre = rs.getString("nombre");
-                double precio = rs.getDouble("precio");
-                int stock = rs.getInt("stock");
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                
+                while (rs.next()) {
+                    String nombre = rs.getString("nombre");
+                    double precio = rs.getDouble("precio");
+                    int stock = rs.getInt("stock");
+                    
+                    productos.add(new Producto(nombre, precio, stock));
+                }
                 
-                productos.add(new Producto(nombre, precio, stock));
+                logger.debug("Productos cargados desde H2: {}", productos.size());
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo productos: {}", e.getMessage());
+                // Retornar lista vacía en lugar de fallar
             }
             
-            logger.debug("Productos cargados desde H2: {}", productos.size());
-            
-        } catch (SQLException e) {
-            logger.error("Error leyendo productos: {}", e.getMessage());
-            // Retornar lista vacía en lugar de fallar
-        }
-        
-        return productos;
+            return productos;
+        });
     }
     
     /**
      * Elimina un producto de la base de datos
      */
     public static void eliminarProducto(Producto producto) {
-        String sql = "DELETE FROM productos WHERE nombre = ?";
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, producto.getNombre());
+        medir("eliminarProducto", () -> {
+            String sql = "DELETE FROM productos WHERE nombre = ?";
             
-            int rowsDeleted = pstmt.executeUpdate();
-            if (rowsDeleted > 0) {
-                logger.debug("Producto eliminado: {}", producto.getNombre());
-            } else {
-                logger.warn("No se encontró producto para eliminar: {}", producto.getNombre());
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, producto.getNombre());
+                
+                int rowsDeleted = pstmt.executeUpdate();
+                if (rowsDeleted > 0) {
+                    logger.debug("Producto eliminado: {}", producto.getNombre());
+                    // Autocommit: la eliminación ya está confirmada
+                    EventBus.getInstance().publish(new ProductoEliminado(producto.getNombre()));
+                } else {
+                    logger.warn("No se encontró producto para eliminar: {}", producto.getNombre());
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error eliminando producto '{}': {}", producto.getNombre(), e.getMessage());
+                throw new RuntimeException("Error eliminando producto", e);
             }
-            
-        } catch (SQLException e) {
-            logger.error("Error eliminando producto '{}': {}", producto.getNombre(), e.getMessage());
-            throw new RuntimeException("Error eliminando producto", e);
-        }
+        });
     }
     
     /**
      * Guarda una venta en la base de datos - ULTRA RÁPIDO (1-5ms)
+     * La venta va a la partición de su mes, que normalmente es la del mes en curso
+     * Escritura directa con un commit por venta: el cobro no pasa por aquí sino por el
+     * journal, que aplica las ventas en lotes (ver {@link #aplicarVentasDesdeJournal})
      */
     public static void guardarVenta(Venta venta) {
-        String sql = "INSERT INTO ventas (id, fecha_hora, total, detalle) VALUES (?, ?, ?, ?)";
+        medir("guardarVenta", () -> {
+            YearMonth mes = VentasPartitionRouter.mesDe(venta.getFechaHora());
+            
+            // Venta e items en una sola transacción, en la conexión de transacciones
+            synchronized (lock) {
+                Connection conn = null;
+                try {
+                    asegurarParticion(mes);
+                    conn = getConexionTransacciones();
+                    conn.setAutoCommit(false);
+                    
+                    insertarVenta(conn, venta, mes);
+                    
+                    conn.commit();
+                    logger.debug("Venta guardada: {} - ${}", venta.getId(), venta.getTotal());
+                
+                } catch (SQLException e) {
+                    rollbackSilencioso(conn);
+                    logger.error("Error guardando venta '{}': {}", venta.getId(), e.getMessage());
+                    throw new RuntimeException("Error guardando venta", e);
+                } finally {
+                    restaurarAutoCommit(conn);
+                }
+            }
+            
+            // Publicar solo después del commit (autocommit) para que los suscriptores vean la venta
+            EventBus.getInstance().publish(new VentaRegistrada(venta));
+        });
+    }
+    
+    /**
+     * Aplica un lote de ventas registradas en el journal: para cada una, venta, descuento de
+     * stock y operación de caja, todo el lote en una sola transacción (un solo commit a disco)
+     * Es idempotente: las ventas que ya están en su partición se omiten, así el journal puede
+     * reintentar tras un corte sin duplicar ventas ni descontar stock dos veces
+     * @return por cada venta, true si se aplicó y false si ya estaba aplicada
+     */
+    public static List<Boolean> aplicarVentasDesdeJournal(List<Venta> ventas, Function<Venta, String> operacionCaja) {
+        return medir("aplicarVentasDesdeJournal", () -> {
+            String sqlStock = """
+                UPDATE productos SET stock = GREATEST(stock - ?, 0), fecha_actualizacion = CURRENT_TIMESTAMP
+                WHERE nombre = ?
+            """;
+            String sqlLeerStock = "SELECT stock, precio FROM productos WHERE nombre = ?";
+            String sqlCaja = "INSERT INTO operaciones_caja (fecha_hora, operacion) VALUES (?, ?)";
+            List<Boolean> aplicadas = new ArrayList<>(ventas.size());
+            List<StockCambiado> cambiosStock = new ArrayList<>();
+            
+            synchronized (lock) {
+                Connection conn = null;
+                try {
+                    // DDL fuera de la transacción manual
+                    for (Venta venta : ventas) {
+                        asegurarParticion(VentasPartitionRouter.mesDe(venta.getFechaHora()));
+                    }
+                    conn = getConexionTransacciones();
+                    conn.setAutoCommit(false);
+                    
+                    try (PreparedStatement pstmtStock = conn.prepareStatement(sqlStock);
+                         PreparedStatement pstmtLeer = conn.prepareStatement(sqlLeerStock);
+                         PreparedStatement pstmtCaja = conn.prepareStatement(sqlCaja)) {
+                        for (Venta venta : ventas) {
+                            YearMonth mes = VentasPartitionRouter.mesDe(venta.getFechaHora());
+                            if (existeVenta(conn, venta.getId(), mes)) {
+                                logger.debug("Venta {} del journal ya aplicada", venta.getId());
+                                aplicadas.add(false);
+                                continue;
+                            }
+                            
+                            insertarVenta(conn, venta, mes);
+                            
+                            for (Producto item : venta.getItems()) {
+                                // En los items de venta el stock representa la cantidad vendida
+                                pstmtStock.setInt(1, item.getStock());
+                                pstmtStock.setString(2, item.getNombre());
+                                pstmtStock.executeUpdate();
+                                
+                                pstmtLeer.setString(1, item.getNombre());
+                                try (ResultSet rs = pstmtLeer.executeQuery()) {
+                                    if (rs.next()) {
+                                        cambiosStock.add(new StockCambiado(item.getNombre(), rs.getInt("stock"), rs.getDouble("precio")));
+                                    }
+                                }
+                            }
+                            
+                            pstmtCaja.setTimestamp(1, Timestamp.valueOf(venta.getFechaHora()));
+                            pstmtCaja.setString(2, operacionCaja.apply(venta));
+                            pstmtCaja.executeUpdate();
+                            aplicadas.add(true);
+                        }
+                    }
+                    
+                    conn.commit();
+                    logger.debug("Lote de {} ventas del journal aplicado", ventas.size());
+                
+                } catch (SQLException e) {
+                    rollbackSilencioso(conn);
+                    logger.error("Error aplicando lote de {} ventas del journal: {}", ventas.size(), e.getMessage());
+                    throw new RuntimeException("Error aplicando ventas del journal", e);
+                } finally {
+                    restaurarAutoCommit(conn);
+                }
+            }
+            
+            // Publicar solo después del commit para que los suscriptores vean las ventas
+            cambiosStock.forEach(EventBus.getInstance()::publish);
+            for (int i = 0; i < ventas.size(); i++) {
+                if (aplicadas.get(i)) {
+                    Venta venta = ventas.get(i);
+                    SaleTracer.getInstance().medir(venta.getId(), "eventos.ventaRegistrada",
+                        () -> EventBus.getInstance().publish(new VentaRegistrada(venta)));
+                }
+            }
+            return aplicadas;
+        });
+    }
+    
+    /**
+     * Indica si la venta ya está en la partición de su mes o en el archivo histórico
+     * Con el lock tomado el resultado es exacto: el archivado escribe el archivo antes de
+     * borrar las filas, y las borra con este mismo lock
+     */
+    private static boolean existeVenta(Connection conn, String id, YearMonth mes) throws SQLException {
+        String sql = VentasPartitionRouter.sql("SELECT 1 FROM {ventas} WHERE id = ?", mes);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        // Una venta de un mes archivado ya no está en la base
+        return SalesArchive.getInstance().contieneVenta(mes, id);
+    }
+    
+    /**
+     * Inserta la venta y sus items en la partición del mes (dentro de la transacción en curso)
+     */
+    private static void insertarVenta(Connection conn, Venta venta, YearMonth mes) throws SQLException {
+        String sql = VentasPartitionRouter.sql(
+            "INSERT INTO {ventas} (id, fecha_hora, total, detalle) VALUES (?, ?, ?, ?)", mes);
+        String sqlItem = VentasPartitionRouter.sql(
+            "INSERT INTO {items} (venta_id, linea, producto, precio, cantidad) VALUES (?, ?, ?, ?, ?)", mes);
         
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             PreparedStatement pstmtItem = conn.prepareStatement(sqlItem)) {
             pstmt.setString(1, venta.getId());
             pstmt.setTimestamp(2, Timestamp.valueOf(venta.getFechaHora()));
             pstmt.setDouble(3, venta.getTotal());
@@ -297,6 +844,15 @@ public class DatabaseManager {
                 for (int i = 0; i < venta.getItems().size(); i++) {
                     if (i > 0) detalle.append(", ");
                     detalle.append(venta.getItems().get(i).getNombre());
+                    
+                    // En los items de venta el stock representa la cantidad vendida
+                    Producto item = venta.getItems().get(i);
+                    pstmtItem.setString(1, venta.getId());
+                    pstmtItem.setInt(2, i);
+                    pstmtItem.setString(3, item.getNombre());
+                    pstmtItem.setDouble(4, item.getPrecio());
+                    pstmtItem.setInt(5, item.getStock());
+                    pstmtItem.addBatch();
                 }
             } else {
                 detalle.append("Sin items");
@@ -304,109 +860,690 @@ public class DatabaseManager {
             pstmt.setString(4, detalle.toString());
             
             pstmt.executeUpdate();
-            logger.debug("Venta guardada: {} - ${}", venta.getId(), venta.getTotal());
-            
-        } catch (SQLException e) {
-            logger.error("Error guardando venta '{}': {}", venta.getId(), e.getMessage());
-            throw new RuntimeException("Error guardando venta", e);
+            pstmtItem.executeBatch();
         }
     }
     
     /**
      * Lee todas las ventas desde la base de datos - ULTRA RÁPIDO (1-5ms)
+     * Las particiones se recorren de la más reciente a la más antigua, así el orden
+     * descendente global sale sin ordenar entre meses
+     * Solo lee las particiones en línea; los meses archivados se consultan por rango
+     * con {@link SalesArchive#leerVentasConBase}
      */
     public static List<Venta> leerVentas() {
-        List<Venta> ventas = new ArrayList<>();
-        String sql = "SELECT id, fecha_hora, total FROM ventas ORDER BY fecha_hora DESC";
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        return medir("leerVentas", () -> {
+            List<Venta> ventas = new ArrayList<>();
+            String plantilla = "SELECT id, fecha_hora, total FROM {ventas} ORDER BY fecha_hora DESC";
             
-            while (rs.next()) {
-                String id = rs.getString("id");
-                LocalDateTime fechaHora = rs.getTimestamp("fecha_hora").toLocalDateTime();
-                double total = rs.getDouble("total");
+            try {
+                for (YearMonth mes : particiones.getParticionesDescendente()) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes));
+                         ResultSet rs = pstmt.executeQuery()) {
+                        
+                        while (rs.next()) {
+                            String id = rs.getString("id");
+                            LocalDateTime fechaHora = rs.getTimestamp("fecha_hora").toLocalDateTime();
+                            double total = rs.getDouble("total");
+                            
+                            // Crear venta (los items se pueden cargar por separado si es necesario)
+                            Venta venta = new Venta(id, fechaHora, new ArrayList<>(), total);
+                            ventas.add(venta);
+                        }
+                    }
+                }
                 
-                // Crear venta (los items se pueden cargar por separado si es necesario)
-                Venta venta = new Venta(id, fechaHora, new ArrayList<>(), total);
-                ventas.add(venta);
+                logger.debug("Ventas cargadas desde H2: {}", ventas.size());
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo ventas: {}", e.getMessage());
+                // Retornar lista vacía en lugar de fallar
             }
             
-            logger.debug("Ventas cargadas desde H2: {}", ventas.size());
+            return ventas;
+        });
+    }
+    
+    /**
+     * Lee las ventas de un período con sus items, en orden cronológico
+     * Pensado para reportes y agregaciones; las ventas sin items quedan con lista vacía
+     * Solo se consultan las particiones de los meses que cubre el rango
+     * Un error de la base se propaga: una lectura cortada a mitad dejaría ventas sin parte
+     * de sus items, y el archivado borraría esas filas creyéndolas copiadas
+     * @param desde inicio inclusivo
+     * @param hasta fin exclusivo
+     */
+    public static List<Venta> leerVentasConItems(LocalDateTime desde, LocalDateTime hasta) {
+        return medir("leerVentasConItems", () -> {
+            List<Venta> ventas = new ArrayList<>();
+            String plantilla = """
+                SELECT v.id, v.fecha_hora, v.total, i.producto, i.precio, i.cantidad
+                FROM {ventas} v
+                LEFT JOIN {items} i ON i.venta_id = v.id
+                WHERE v.fecha_hora >= ? AND v.fecha_hora < ?
+                ORDER BY v.fecha_hora, v.id, i.linea
+            """;
             
-        } catch (SQLException e) {
-            logger.error("Error leyendo ventas: {}", e.getMessage());
-            // Retornar lista vacía en lugar de fallar
-        }
-        
-        return ventas;
+            try {
+                for (YearMonth mes : particiones.particionesEnRango(desde, hasta)) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes))) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+                        pstmt.setTimestamp(2, Timestamp.valueOf(hasta));
+                        
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            Venta actual = null;
+                            while (rs.next()) {
+                                String id = rs.getString("id");
+                                if (actual == null || !actual.getId().equals(id)) {
+                                    actual = new Venta(id, rs.getTimestamp("fecha_hora").toLocalDateTime(),
+                                        new ArrayList<>(), rs.getDouble("total"));
+                                    ventas.add(actual);
+                                }
+                                String producto = rs.getString("producto");
+                                if (producto != null) {
+                                    actual.getItems().add(new Producto(producto, rs.getDouble("precio"), rs.getInt("cantidad")));
+                                }
+                            }
+                        }
+                    }
+                }
+                
+                logger.debug("Ventas con items cargadas desde H2: {}", ventas.size());
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo ventas con items: {}", e.getMessage());
+                throw new RuntimeException("Error leyendo ventas con items", e);
+            }
+            
+            return ventas;
+        });
+    }
+    
+    /**
+     * Fecha de la venta más antigua en la base, o null si no hay ventas
+     */
+    public static LocalDateTime obtenerFechaVentaMasAntigua() {
+        return medir("obtenerFechaVentaMasAntigua", () -> {
+            String plantilla = "SELECT MIN(fecha_hora) FROM {ventas}";
+            
+            try {
+                // La primera partición con ventas tiene la más antigua
+                for (YearMonth mes : particiones.getParticiones()) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes));
+                         ResultSet rs = pstmt.executeQuery()) {
+                        
+                        if (rs.next() && rs.getTimestamp(1) != null) {
+                            return rs.getTimestamp(1).toLocalDateTime();
+                        }
+                    }
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error obteniendo venta más antigua: {}", e.getMessage());
+            }
+            
+            return null;
+        });
+    }
+    
+    /**
+     * Elimina ventas del mes y sus items (p. ej. tras archivarlas)
+     * Si son todas las ventas de la partición, se elimina la partición entera en O(1);
+     * si no, se borran por ID en una sola transacción
+     * @return cantidad de ventas eliminadas
+     */
+    public static int eliminarVentasDelMes(YearMonth mes, Collection<String> ids) {
+        return medir("eliminarVentasDelMes", () -> {
+            String sqlItems = VentasPartitionRouter.sql("DELETE FROM {items} WHERE venta_id = ?", mes);
+            String sqlVenta = VentasPartitionRouter.sql("DELETE FROM {ventas} WHERE id = ?", mes);
+            
+            synchronized (lock) {
+                if (!particiones.esActiva(mes)) {
+                    return 0;
+                }
+                
+                Connection conn = null;
+                try {
+                    conn = getConexionTransacciones();
+                    
+                    // Si la partición no tiene ninguna venta fuera de las recibidas se elimina entera;
+                    // basta una ajena (p. ej. una venta atrasada recién aplicada) para borrar de a una
+                    String sqlAjenas = VentasPartitionRouter.sql(
+                        "SELECT COUNT(*), COUNT(CASE WHEN NOT (id = ANY(?)) THEN 1 END) FROM {ventas}", mes);
+                    try (PreparedStatement pstmtAjenas = conn.prepareStatement(sqlAjenas)) {
+                        pstmtAjenas.setArray(1, conn.createArrayOf("VARCHAR", ids.toArray()));
+                        try (ResultSet rs = pstmtAjenas.executeQuery()) {
+                            if (rs.next() && rs.getLong(2) == 0) {
+                                int total = rs.getInt(1);
+                                return eliminarParticionSinMedir(mes) ? total : 0;
+                            }
+                        }
+                    }
+                    
+                    conn.setAutoCommit(false);
+                    
+                    int eliminadas = 0;
+                    try (PreparedStatement pstmtItems = conn.prepareStatement(sqlItems);
+                         PreparedStatement pstmtVenta = conn.prepareStatement(sqlVenta)) {
+                        for (String id : ids) {
+                            pstmtItems.setString(1, id);
+                            pstmtItems.addBatch();
+                            pstmtVenta.setString(1, id);
+                            pstmtVenta.addBatch();
+                        }
+                        pstmtItems.executeBatch();
+                        for (int filas : pstmtVenta.executeBatch()) {
+                            eliminadas += filas;
+                        }
+                    }
+                    
+                    conn.commit();
+                    logger.debug("Ventas eliminadas de la partición {}: {}", mes, eliminadas);
+                    return eliminadas;
+                
+                } catch (SQLException e) {
+                    rollbackSilencioso(conn);
+                    logger.error("Error eliminando ventas: {}", e.getMessage());
+                    throw new RuntimeException("Error eliminando ventas", e);
+                } finally {
+                    restaurarAutoCommit(conn);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Recibe cada fila de {@link #recorrerLineasVenta}; devolver false detiene el recorrido
+     */
+    @FunctionalInterface
+    public interface VisitanteLineaVenta {
+        boolean visitar(LineaVenta fila) throws Exception;
+    }
+    
+    // Filas que el driver trae por bloque al recorrer ventas con cursor
+    private static final int TAMANO_BLOQUE_CURSOR = 500;
+    
+    /**
+     * Cuenta las ventas de un rango [desde, hasta)
+     */
+    public static long contarVentas(LocalDateTime desde, LocalDateTime hasta) {
+        return medir("contarVentas", () -> {
+            String plantilla = "SELECT COUNT(*) FROM {ventas} WHERE fecha_hora >= ? AND fecha_hora < ?";
+            
+            try {
+                long total = 0;
+                for (YearMonth mes : particiones.particionesEnRango(desde, hasta)) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes))) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+                        pstmt.setTimestamp(2, Timestamp.valueOf(hasta));
+                        
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            total += rs.next() ? rs.getLong(1) : 0;
+                        }
+                    }
+                }
+                return total;
+                
+            } catch (SQLException e) {
+                logger.error("Error contando ventas: {}", e.getMessage());
+                return 0L;
+            }
+        });
+    }
+    
+    /**
+     * Cuenta las ventas de todas las particiones en línea, sin leerlas
+     */
+    public static long contarVentasEnLinea() {
+        return medir("contarVentasEnLinea", () -> {
+            String plantilla = "SELECT COUNT(*) FROM {ventas}";
+            
+            try {
+                long total = 0;
+                for (YearMonth mes : particiones.getParticiones()) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes));
+                         ResultSet rs = pstmt.executeQuery()) {
+                        total += rs.next() ? rs.getLong(1) : 0;
+                    }
+                }
+                return total;
+                
+            } catch (SQLException e) {
+                logger.error("Error contando ventas: {}", e.getMessage());
+                return 0L;
+            }
+        });
+    }
+    
+    /**
+     * Recorre con un cursor las ventas de [desde, hasta) y sus ítems, en orden cronológico
+     * A diferencia de {@link #leerVentasConItems} no materializa una lista: cada fila se
+     * entrega en la misma instancia de {@link LineaVenta}, y H2 vuelca a disco los
+     * resultados grandes, así que la memoria no depende del tamaño del rango
+     * Los errores se propagan para que quien exporta no tome un recorrido parcial por completo
+     * @return true si se recorrieron todas las filas, false si el visitante lo detuvo
+     */
+    public static boolean recorrerLineasVenta(LocalDateTime desde, LocalDateTime hasta,
+                                              VisitanteLineaVenta visitante) throws Exception {
+        return medir("recorrerLineasVenta", () -> {
+            String plantilla = """
+                SELECT v.id, v.fecha_hora, v.total, i.linea, i.producto, i.precio, i.cantidad
+                FROM {ventas} v
+                LEFT JOIN {items} i ON i.venta_id = v.id
+                WHERE v.fecha_hora >= ? AND v.fecha_hora < ?
+                ORDER BY v.fecha_hora, v.id, i.linea
+            """;
+            
+            LineaVenta fila = new LineaVenta();
+            // Un cursor por partición, en orden de mes: el orden cronológico se mantiene
+            for (YearMonth mes : particiones.particionesEnRango(desde, hasta)) {
+                try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    pstmt.setFetchSize(TAMANO_BLOQUE_CURSOR);
+                    pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+                    pstmt.setTimestamp(2, Timestamp.valueOf(hasta));
+                    
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            fila.cargar(
+                                rs.getString(1),
+                                rs.getTimestamp(2).toLocalDateTime(),
+                                rs.getDouble(3),
+                                rs.getInt(4),
+                                rs.getString(5),
+                                rs.getDouble(6),
+                                rs.getInt(7));
+                            if (!visitante.visitar(fila)) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+        });
+    }
+    
+    /**
+     * Inserta o reemplaza el resumen de un día
+     */
+    public static void guardarResumenDiario(ResumenDiario resumen) {
+        medir("guardarResumenDiario", () -> {
+            String sql = """
+                MERGE INTO resumen_diario (fecha, transacciones, ingresos, sketch_ticket, fecha_actualizacion)
+                KEY (fecha) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)
+            """;
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setDate(1, Date.valueOf(resumen.getFecha()));
+                pstmt.setLong(2, resumen.getTransacciones());
+                pstmt.setDouble(3, resumen.getIngresos());
+                pstmt.setBytes(4, resumen.getSketchTicket());
+                pstmt.executeUpdate();
+                logger.debug("Resumen diario guardado: {} ({} transacciones)", resumen.getFecha(), resumen.getTransacciones());
+                
+            } catch (SQLException e) {
+                logger.error("Error guardando resumen diario {}: {}", resumen.getFecha(), e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Lee los resúmenes diarios de un rango de fechas (ambos extremos inclusive)
+     */
+    public static List<ResumenDiario> leerResumenesDiarios(LocalDate desde, LocalDate hasta) {
+        return medir("leerResumenesDiarios", () -> {
+            List<ResumenDiario> resumenes = new ArrayList<>();
+            String sql = """
+                SELECT fecha, transacciones, ingresos, sketch_ticket FROM resumen_diario
+                WHERE fecha BETWEEN ? AND ? ORDER BY fecha
+            """;
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setDate(1, Date.valueOf(desde));
+                pstmt.setDate(2, Date.valueOf(hasta));
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        resumenes.add(new ResumenDiario(
+                            rs.getDate("fecha").toLocalDate(),
+                            rs.getLong("transacciones"),
+                            rs.getDouble("ingresos"),
+                            rs.getBytes("sketch_ticket")));
+                    }
+                }
+                
+            } catch (SQLException e) {
+                // Sin resultado parcial: los días leídos se guardan en memoria y uno ausente cuenta como sin ventas
+                logger.error("Error leyendo resúmenes diarios: {}", e.getMessage());
+                throw new RuntimeException("Error leyendo resúmenes diarios", e);
+            }
+            
+            return resumenes;
+        });
+    }
+    
+    /**
+     * Días del rango (ambos extremos inclusive) que tienen resumen diario, sin leer sus sketches
+     */
+    public static Set<LocalDate> leerFechasConResumen(LocalDate desde, LocalDate hasta) {
+        return medir("leerFechasConResumen", () -> {
+            Set<LocalDate> fechas = new HashSet<>();
+            String sql = "SELECT fecha FROM resumen_diario WHERE fecha BETWEEN ? AND ?";
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setDate(1, Date.valueOf(desde));
+                pstmt.setDate(2, Date.valueOf(hasta));
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        fechas.add(rs.getDate("fecha").toLocalDate());
+                    }
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo fechas con resumen: {}", e.getMessage());
+                throw new RuntimeException("Error leyendo fechas con resumen", e);
+            }
+            
+            return fechas;
+        });
+    }
+    
+    /**
+     * Guarda el bitmap de productos vendidos de un día
+     */
+    public static void guardarRotacionDiaria(LocalDate fecha, byte[] productos) {
+        medir("guardarRotacionDiaria", () -> {
+            String sql = "MERGE INTO rotacion_diaria (fecha, productos) KEY (fecha) VALUES (?, ?)";
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setDate(1, Date.valueOf(fecha));
+                pstmt.setBytes(2, productos);
+                pstmt.executeUpdate();
+                
+            } catch (SQLException e) {
+                logger.error("Error guardando rotación diaria: {}", e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Lee los bitmaps de productos vendidos de un rango de fechas (ambos extremos inclusive)
+     */
+    public static Map<LocalDate, byte[]> leerRotacionDiaria(LocalDate desde, LocalDate hasta) {
+        return medir("leerRotacionDiaria", () -> {
+            Map<LocalDate, byte[]> resultado = new TreeMap<>();
+            String sql = "SELECT fecha, productos FROM rotacion_diaria WHERE fecha BETWEEN ? AND ?";
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setDate(1, Date.valueOf(desde));
+                pstmt.setDate(2, Date.valueOf(hasta));
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        resultado.put(rs.getDate("fecha").toLocalDate(), rs.getBytes("productos"));
+                    }
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo rotación diaria: {}", e.getMessage());
+            }
+            
+            return resultado;
+        });
+    }
+    
+    /**
+     * ID de cada producto por nombre
+     */
+    public static Map<String, Integer> leerIdsProductos() {
+        return medir("leerIdsProductos", () -> {
+            Map<String, Integer> ids = new HashMap<>();
+            String sql = "SELECT id, nombre FROM productos";
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                
+                while (rs.next()) {
+                    ids.put(rs.getString("nombre"), rs.getInt("id"));
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo IDs de productos: {}", e.getMessage());
+            }
+            
+            return ids;
+        });
+    }
+    
+    /**
+     * Unidades vendidas por producto y día en un rango de fechas (ambos extremos inclusive)
+     */
+    public static Map<LocalDate, Map<String, Integer>> obtenerUnidadesPorDia(LocalDate desde, LocalDate hasta) {
+        return medir("obtenerUnidadesPorDia", () -> {
+            Map<LocalDate, Map<String, Integer>> resultado = new TreeMap<>();
+            String plantilla = """
+                SELECT CAST(v.fecha_hora AS DATE) AS dia, i.producto, SUM(i.cantidad) AS unidades
+                FROM {items} i
+                JOIN {ventas} v ON v.id = i.venta_id
+                WHERE v.fecha_hora >= ? AND v.fecha_hora < ?
+                GROUP BY CAST(v.fecha_hora AS DATE), i.producto
+            """;
+            LocalDateTime inicio = desde.atStartOfDay();
+            LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+            
+            try {
+                // Cada día pertenece a una sola partición, así que los resultados no se solapan
+                for (YearMonth mes : particiones.particionesEnRango(inicio, fin)) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes))) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(inicio));
+                        pstmt.setTimestamp(2, Timestamp.valueOf(fin));
+                        
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                resultado.computeIfAbsent(rs.getDate("dia").toLocalDate(), d -> new HashMap<>())
+                                    .put(rs.getString("producto"), rs.getInt("unidades"));
+                            }
+                        }
+                    }
+                }
+                
+            } catch (SQLException e) {
+                // Sin resultado parcial: un mapa vacío se confundiría con días sin ventas
+                logger.error("Error obteniendo unidades por día: {}", e.getMessage());
+                throw new RuntimeException("Error obteniendo unidades por día", e);
+            }
+            
+            return resultado;
+        });
+    }
+    
+    /**
+     * Lee el estado persistido del pronóstico de demanda
+     */
+    public static List<EstadoDemanda> leerEstadosDemanda() {
+        return medir("leerEstadosDemanda", () -> {
+            List<EstadoDemanda> estados = new ArrayList<>();
+            String sql = "SELECT producto, nivel, tendencia, estacionalidad, ultimo_dia, dias_observados FROM pronostico_demanda";
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                
+                while (rs.next()) {
+                    String[] partes = rs.getString("estacionalidad").split(",");
+                    double[] estacionalidad = new double[partes.length];
+                    for (int i = 0; i < partes.length; i++) {
+                        estacionalidad[i] = Double.parseDouble(partes[i]);
+                    }
+                    estados.add(new EstadoDemanda(
+                        rs.getString("producto"),
+                        rs.getDouble("nivel"),
+                        rs.getDouble("tendencia"),
+                        estacionalidad,
+                        rs.getDate("ultimo_dia").toLocalDate(),
+                        rs.getInt("dias_observados")));
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error leyendo estados de demanda: {}", e.getMessage());
+            }
+            
+            return estados;
+        });
+    }
+    
+    /**
+     * Guarda el estado del pronóstico de demanda en un solo lote
+     */
+    public static void guardarEstadosDemanda(Collection<EstadoDemanda> estados) {
+        medir("guardarEstadosDemanda", () -> {
+            String sql = """
+                MERGE INTO pronostico_demanda (producto, nivel, tendencia, estacionalidad, ultimo_dia, dias_observados)
+                KEY (producto) VALUES (?, ?, ?, ?, ?, ?)
+            """;
+            
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                for (EstadoDemanda estado : estados) {
+                    StringBuilder estacionalidad = new StringBuilder();
+                    for (double valor : estado.getEstacionalidad()) {
+                        if (estacionalidad.length() > 0) estacionalidad.append(',');
+                        estacionalidad.append(valor);
+                    }
+                    pstmt.setString(1, estado.getProducto());
+                    pstmt.setDouble(2, estado.getNivel());
+                    pstmt.setDouble(3, estado.getTendencia());
+                    pstmt.setString(4, estacionalidad.toString());
+                    pstmt.setDate(5, Date.valueOf(estado.getUltimoDia()));
+                    pstmt.setInt(6, estado.getDiasObservados());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                logger.debug("Estados de demanda guardados: {}", estados.size());
+                
+            } catch (SQLException e) {
+                logger.error("Error guardando estados de demanda: {}", e.getMessage());
+            }
+        });
     }
     
     /**
      * Registra una operación de caja
      */
     public static void registrarOperacionCaja(String operacion) {
-        String sql = "INSERT INTO operaciones_caja (fecha_hora, operacion) VALUES (?, ?)";
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            pstmt.setString(2, operacion);
+        medir("registrarOperacionCaja", () -> {
+            String sql = "INSERT INTO operaciones_caja (fecha_hora, operacion) VALUES (?, ?)";
             
-            pstmt.executeUpdate();
-            logger.debug("Operación de caja registrada: {}", operacion);
-            
-        } catch (SQLException e) {
-            logger.error("Error registrando operación de caja: {}", e.getMessage());
-            throw new RuntimeException("Error registrando operación de caja", e);
-        }
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                pstmt.setString(2, operacion);
+                
+                pstmt.executeUpdate();
+                logger.debug("Operación de caja registrada: {}", operacion);
+                
+            } catch (SQLException e) {
+                logger.error("Error registrando operación de caja: {}", e.getMessage());
+                throw new RuntimeException("Error registrando operación de caja", e);
+            }
+        });
     }
     
     /**
      * Obtiene estadísticas de ventas para el dashboard - ULTRA RÁPIDO
+     * Solo toca la partición del mes en curso, con un rango sobre el índice de fecha
      */
     public static double obtenerTotalVentasHoy() {
-        String sql = """
-            SELECT COALESCE(SUM(total), 0) as total_hoy 
-            FROM ventas 
-            WHERE CAST(fecha_hora AS DATE) = CURRENT_DATE
-        """;
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        double[] hoy = resumenVentasHoy();
+        return hoy[1];
+    }
+    
+    /**
+     * Obtiene el conteo de ventas de hoy - ULTRA RÁPIDO
+     */
+    public static int obtenerConteoVentasHoy() {
+        double[] hoy = resumenVentasHoy();
+        return (int) hoy[0];
+    }
+    
+    /**
+     * @return {conteo, total} de las ventas de hoy
+     */
+    private static double[] resumenVentasHoy() {
+        return medir("resumenVentasHoy", () -> {
+            LocalDate hoy = LocalDate.now();
+            YearMonth mes = YearMonth.from(hoy);
+            if (!particiones.esActiva(mes)) {
+                return new double[]{0, 0.0};
+            }
+            String sql = VentasPartitionRouter.sql("""
+                SELECT COUNT(*) AS conteo_hoy, COALESCE(SUM(total), 0) AS total_hoy
+                FROM {ventas}
+                WHERE fecha_hora >= ? AND fecha_hora < ?
+            """, mes);
             
-            if (rs.next()) {
-                return rs.getDouble("total_hoy");
+            try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(hoy.atStartOfDay()));
+                pstmt.setTimestamp(2, Timestamp.valueOf(hoy.plusDays(1).atStartOfDay()));
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new double[]{rs.getInt("conteo_hoy"), rs.getDouble("total_hoy")};
+                    }
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error obteniendo ventas de hoy: {}", e.getMessage());
             }
             
-        } catch (SQLException e) {
-            logger.error("Error obteniendo total ventas hoy: {}", e.getMessage());
-        }
-        
-        return 0.0;
+            return new double[]{0, 0.0};
+        });
     }
     
     /**
-     * Obtiene el conteo de ventas de hoy - ULTRA RÁPIDO
+     * Producto con más unidades vendidas desde la fecha indicada
+     * Cada partición del rango agrega por producto y los parciales se suman aquí
+     * @return nombre del producto, o "N/A" si no hay items registrados
      */
-    public static int obtenerConteoVentasHoy() {
-        String sql = """
-            SELECT COUNT(*) as conteo_hoy 
-            FROM ventas 
-            WHERE CAST(fecha_hora AS DATE) = CURRENT_DATE
-        """;
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+    public static String obtenerProductoMasVendido(LocalDateTime desde) {
+        return medir("obtenerProductoMasVendido", () -> {
+            String plantilla = """
+                SELECT i.producto, SUM(i.cantidad) AS unidades
+                FROM {items} i
+                JOIN {ventas} v ON v.id = i.venta_id
+                WHERE v.fecha_hora >= ?
+                GROUP BY i.producto
+            """;
             
-            if (rs.next()) {
-                return rs.getInt("conteo_hoy");
+            Map<String, Long> unidades = new HashMap<>();
+            try {
+                for (YearMonth mes : particiones.particionesEnRango(desde, null)) {
+                    try (PreparedStatement pstmt = getConnection().prepareStatement(VentasPartitionRouter.sql(plantilla, mes))) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                unidades.merge(rs.getString("producto"), rs.getLong("unidades"), Long::sum);
+                            }
+                        }
+                    }
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error obteniendo producto más vendido: {}", e.getMessage());
+                return "N/A";
             }
             
-        } catch (SQLException e) {
-            logger.error("Error obteniendo conteo ventas hoy: {}", e.getMessage());
-        }
-        
-        return 0;
+            // Mayor cantidad de unidades; a igualdad, el primero por nombre
+            String masVendido = "N/A";
+            long maximo = Long.MIN_VALUE;
+            for (Map.Entry<String, Long> entry : unidades.entrySet()) {
+                if (entry.getValue() > maximo
+                        || (entry.getValue() == maximo && entry.getKey().compareTo(masVendido) < 0)) {
+                    masVendido = entry.getKey();
+                    maximo = entry.getValue();
+                }
+            }
+            return masVendido;
+        });
     }
     
     /**
@@ -418,29 +1555,40 @@ public class DatabaseManager {
                 connection.close();
                 logger.debug("Conexión H2 cerrada exitosamente");
             }
+            synchronized (lock) {
+                if (conexionTransacciones != null && !conexionTransacciones.isClosed()) {
+                    conexionTransacciones.close();
+                }
+                conexionTransacciones = null;
+            }
         } catch (SQLException e) {
             logger.warn("Error cerrando conexión H2: {}", e.getMessage());
         }
     }
     
     /**
-     * Crea un backup de la base de datos H2
+     * Crea un backup completo de la base de datos H2 (bloquea la conexión compartida)
+     * Para backups periódicos usar IncrementalBackupEngine, que copia solo lo modificado
+     * Los meses archivados (./data/archivo) no están en la base: son archivos inmutables
+     * que basta copiar una vez, así el backup solo incluye los meses en línea
      */
     public static boolean crearBackup() {
-        try {
-            String backupPath = "./data/backup_" + System.currentTimeMillis() + ".zip";
-            String sql = "BACKUP TO '" + backupPath + "'";
-            
-            try (Statement stmt = getConnection().createStatement()) {
-                stmt.execute(sql);
-                logger.info("Backup H2 creado exitosamente: {}", backupPath);
-                return true;
+        return medir("crearBackup", () -> {
+            try {
+                String backupPath = "./data/backup_" + System.currentTimeMillis() + ".zip";
+                String sql = "BACKUP TO '" + backupPath + "'";
+                
+                try (Statement stmt = getConnection().createStatement()) {
+                    stmt.execute(sql);
+                    logger.info("Backup H2 creado exitosamente: {}", backupPath);
+                    return true;
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error creando backup H2: {}", e.getMessage());
+                return false;
             }
-            
-        } catch (SQLException e) {
-            logger.error("Error creando backup H2: {}", e.getMessage());
-            return false;
-        }
+        });
     }
     
     /**
@@ -448,43 +1596,92 @@ public class DatabaseManager {
      * @return true si la limpieza fue exitosa, false en caso contrario
      */
     public static boolean limpiarBaseDatos() {
-        try {
-            logger.info("Iniciando limpieza completa de la base de datos H2...");
-            
-            try (Statement stmt = getConnection().createStatement()) {
-                // Deshabilitar constraints temporalmente para evitar problemas de FK
-                stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        return medir("limpiarBaseDatos", () -> {
+            try {
+                logger.info("Iniciando limpieza completa de la base de datos H2...");
                 
-                // Limpiar todas las tablas en orden correcto
-                // Usar IF EXISTS para evitar errores si las tablas no existen
-                stmt.executeUpdate("DELETE FROM ventas WHERE 1=1");
-                stmt.executeUpdate("DELETE FROM productos WHERE 1=1");
-                
-                // Intentar limpiar tabla caja_movimientos si existe
-                try {
-                    stmt.executeUpdate("DELETE FROM caja_movimientos WHERE 1=1");
-                } catch (SQLException e) {
-                    logger.debug("Tabla caja_movimientos no existe o ya está vacía: {}", e.getMessage());
+                try (Statement stmt = getConnection().createStatement()) {
+                    // Deshabilitar constraints temporalmente para evitar problemas de FK
+                    stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                    
+                    // Limpiar todas las tablas en orden correcto
+                    // Usar IF EXISTS para evitar errores si las tablas no existen
+                    eliminarTodasLasParticiones(stmt);
+                    stmt.executeUpdate("DELETE FROM resumen_diario WHERE 1=1");
+                    stmt.executeUpdate("DELETE FROM pronostico_demanda WHERE 1=1");
+                    stmt.executeUpdate("DELETE FROM rotacion_diaria WHERE 1=1");
+                    stmt.executeUpdate("DELETE FROM productos WHERE 1=1");
+                    
+                    // Intentar limpiar tabla caja_movimientos si existe
+                    try {
+                        stmt.executeUpdate("DELETE FROM caja_movimientos WHERE 1=1");
+                    } catch (SQLException e) {
+                        logger.debug("Tabla caja_movimientos no existe o ya está vacía: {}", e.getMessage());
+                    }
+                    
+                    // Rehabilitar constraints
+                    stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+                    
+                    // Resetear secuencias/IDs si existen (usar IF EXISTS para evitar errores)
+                    try {
+                        stmt.execute("ALTER SEQUENCE IF EXISTS productos_seq RESTART WITH 1");
+                        stmt.execute("ALTER SEQUENCE IF EXISTS ventas_seq RESTART WITH 1");
+                    } catch (SQLException e) {
+                        logger.debug("No hay secuencias para resetear: {}", e.getMessage());
+                    }
+                    
+                    logger.info("Base de datos H2 limpiada exitosamente - Todos los datos eliminados");
+                    return true;
                 }
                 
-                // Rehabilitar constraints
-                stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
-                
-                // Resetear secuencias/IDs si existen (usar IF EXISTS para evitar errores)
-                try {
-                    stmt.execute("ALTER SEQUENCE IF EXISTS productos_seq RESTART WITH 1");
-                    stmt.execute("ALTER SEQUENCE IF EXISTS ventas_seq RESTART WITH 1");
-                } catch (SQLException e) {
-                    logger.debug("No hay secuencias para resetear: {}", e.getMessage());
+            } catch (SQLException e) {
+                logger.error("Error limpiando base de datos H2: {}", e.getMessage());
+                return false;
+            }
+        });
+    }
+    
+    /**
+     * Elimina las tablas de todas las particiones de ventas, activas o desacopladas
+     */
+    private static void eliminarTodasLasParticiones(Statement stmt) throws SQLException {
+        synchronized (lock) {
+            List<YearMonth> meses = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT mes FROM particiones_ventas")) {
+                while (rs.next()) {
+                    meses.add(YearMonth.parse(rs.getString("mes")));
                 }
-                
-                logger.info("Base de datos H2 limpiada exitosamente - Todos los datos eliminados");
-                return true;
             }
-            
+            particiones.cargar(List.of());
+            for (YearMonth mes : meses) {
+                stmt.execute(VentasPartitionRouter.sql("DROP TABLE IF EXISTS {items}", mes));
+                stmt.execute(VentasPartitionRouter.sql("DROP TABLE IF EXISTS {ventas}", mes));
+            }
+            stmt.executeUpdate("DELETE FROM particiones_ventas WHERE 1=1");
+            logger.debug("Particiones de ventas eliminadas: {}", meses.size());
+        }
+    }
+    
+    private static void rollbackSilencioso(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
         } catch (SQLException e) {
-            logger.error("Error limpiando base de datos H2: {}", e.getMessage());
-            return false;
+            logger.warn("Error revirtiendo transacción: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Vuelve a autocommit descartando lo no confirmado: si la transacción salió por una
+     * excepción no prevista, setAutoCommit(true) confirmaría el trabajo a medias
+     */
+    private static void restaurarAutoCommit(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.warn("Error restaurando autocommit: {}", e.getMessage());
         }
     }
     
@@ -497,12 +1694,14 @@ public class DatabaseManager {
      * @return true si la conexión es exitosa, false en caso contrario
      */
     public static boolean verificarConexion() {
-        try (Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
-            logger.error("Error verificando conexión a la base de datos: {}", e.getMessage());
-            return false;
-        }
+        return medir("verificarConexion", () -> {
+            try (Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+                return connection != null && !connection.isClosed();
+            } catch (SQLException e) {
+                logger.error("Error verificando conexión a la base de datos: {}", e.getMessage());
+                return false;
+            }
+        });
     }
     
     /**
@@ -512,13 +1711,13 @@ public class DatabaseManager {
     public static String obtenerEstadisticasBaseDatos() {
         try {
             int totalProductos = leerProductos().size();
-            int totalVentas = leerVentas().size();
+            long totalVentas = contarVentasEnLinea();
             double totalVentasHoy = obtenerTotalVentasHoy();
             int conteoVentasHoy = obtenerConteoVentasHoy();
             
             return String.format(
-                "Estadísticas DB: Productos=%d, Ventas=%d, VentasHoy=%d, TotalHoy=%.2f",
-                totalProductos, totalVentas, conteoVentasHoy, totalVentasHoy
+                "Estadísticas DB: Productos=%d, Ventas=%d, VentasHoy=%d, TotalHoy=%.2f, Particiones=%d",
+                totalProductos, totalVentas, conteoVentasHoy, totalVentasHoy, particiones.getParticiones().size()
             );
         } catch (Exception e) {
             logger.error("Error obteniendo estadísticas de base de datos: {}", e.getMessage());
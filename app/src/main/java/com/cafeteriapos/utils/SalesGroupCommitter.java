@@ -0,0 +1,149 @@
+package com.cafeteriapos.utils;
+
+import com.cafeteriapos.models.Venta;
+import com.cafeteriapos.performance.SaleTracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritor de ventas con commit agrupado
+ *
+ * No tiene cola ni hilo propios: el agrupamiento lo hace el journal ({@code SalesJournal}).
+ * Las cajas registran la venta en el journal y su future se completa cuando la venta está
+ * sincronizada a disco allí, no cuando llega a la base; el hilo aplicador del journal es el
+ * único escritor de ventas en la base y junta en un lote lo que se acumuló mientras la base
+ * estaba ocupada. Aquí ese lote se escribe en una sola transacción, en el hilo que llama,
+ * y paga un único vaciado del log: con varias cajas a la vez el rendimiento crece con el
+ * tamaño del lote en lugar de quedar limitado por el disco
+ *
+ * Si el lote falla no se escribe nada y el error llega al que llama; reintentar o aislar
+ * la venta defectuosa es cosa del journal
+ *
+ * Se mantiene separado del journal porque el aplicador del journal es inyectable (los tests
+ * lo sustituyen) y aquí vive la escritura real con lo que la rodea: las métricas de lotes
+ * que publica {@code PrometheusExporter}, el tramo {@code db.commit} en la traza de cada
+ * venta y el cierre en la fase de persistencia, que rechaza lotes tardíos
+ */
+public class SalesGroupCommitter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesGroupCommitter.class);
+
+    /**
+     * Escritura de un lote en una transacción (por defecto, la base de datos)
+     * @return por cada venta, true si se escribió y false si ya estaba
+     */
+    @FunctionalInterface
+    interface EscritorLote {
+        List<Boolean> escribir(List<Venta> lote) throws Exception;
+    }
+
+    // === DEPENDENCIAS ===
+    private final EscritorLote escritor;
+
+    // === ESTADO ===
+    private volatile boolean activo = true;
+
+    // === ESTADÍSTICAS ===
+    private final AtomicLong lotesEscritos = new AtomicLong(0);
+    private final AtomicLong ventasEscritas = new AtomicLong(0);
+    private final AtomicLong lotesFallidos = new AtomicLong(0);
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile SalesGroupCommitter instance;
+    private static final Object LOCK = new Object();
+
+    private SalesGroupCommitter() {
+        this(SalesGroupCommitter::escribirEnBase);
+    }
+
+    /**
+     * Constructor con escritor inyectable (útil para tests)
+     */
+    SalesGroupCommitter(EscritorLote escritor) {
+        this.escritor = escritor;
+    }
+
+    public static SalesGroupCommitter getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new SalesGroupCommitter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static List<Boolean> escribirEnBase(List<Venta> lote) {
+        return DatabaseManager.aplicarVentasDesdeJournal(lote,
+            venta -> CajaManager.descripcionVenta(venta.getId(), venta.getTotal()));
+    }
+
+    // === ESCRITURA ===
+
+    /**
+     * Escribe el lote en una transacción
+     * @return por cada venta, true si se escribió y false si ya estaba escrita
+     * @throws RejectedExecutionException si el escritor está detenido
+     * @throws Exception el error del lote; en ese caso no se escribió ninguna venta
+     */
+    public List<Boolean> escribir(List<Venta> ventas) throws Exception {
+        if (!activo) {
+            throw new RejectedExecutionException("Escritor de ventas detenido");
+        }
+
+        long inicio = System.nanoTime();
+        List<Boolean> escritas;
+        try {
+            escritas = escritor.escribir(ventas);
+        } catch (Exception e) {
+            lotesFallidos.incrementAndGet();
+            throw e;
+        }
+        if (escritas.size() != ventas.size()) {
+            throw new IllegalStateException("El escritor devolvió " + escritas.size()
+                + " resultados para " + ventas.size() + " ventas");
+        }
+        trazar(ventas, inicio, System.nanoTime());
+        lotesEscritos.incrementAndGet();
+        ventasEscritas.addAndGet(ventas.size());
+        return escritas;
+    }
+
+    /**
+     * Atribuye el commit compartido a la traza de cada venta del lote
+     */
+    private static void trazar(List<Venta> lote, long inicio, long fin) {
+        SaleTracer tracer = SaleTracer.getInstance();
+        String tamano = String.valueOf(lote.size());
+        for (Venta venta : lote) {
+            tracer.registrar(venta.getId(), "db.commit", inicio, fin, "lote", tamano);
+        }
+    }
+
+    /**
+     * Deja de aceptar ventas; un lote en curso termina normalmente
+     */
+    public void shutdown() {
+        activo = false;
+        logger.info("Escritor de ventas detenido: {} ventas en {} lotes", ventasEscritas.get(), lotesEscritos.get());
+    }
+
+    // === ESTADÍSTICAS ===
+
+    public long getLotesEscritos() { return lotesEscritos.get(); }
+    public long getVentasEscritas() { return ventasEscritas.get(); }
+    public long getLotesFallidos() { return lotesFallidos.get(); }
+
+    /**
+     * Ventas por commit en promedio: 1 si no hubo agrupación
+     */
+    public double getTamanoMedioLote() {
+        long lotes = lotesEscritos.get();
+        return lotes == 0 ? 0 : (double) ventasEscritas.get() / lotes;
+    }
+}
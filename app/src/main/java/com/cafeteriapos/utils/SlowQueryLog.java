@@ -0,0 +1,546 @@
+package com.cafeteriapos.utils;
+
+import com.cafeteriapos.performance.ExecutorRegistry;
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de consultas lentas de {@link DatabaseManager}
+ *
+ * {@link #envolver(Connection)} devuelve la conexión compartida envuelta: cada sentencia mide
+ * su ejecución y el tiempo de lectura de filas (solo dentro de next(), no el de quien consume),
+ * y recuerda los parámetros enlazados. Si una ejecución supera el umbral se guarda con su SQL,
+ * parámetros y filas en un anillo acotado en memoria; luego un hilo aparte captura el plan en
+ * una conexión lateral de solo lectura y agrega la entrada a un archivo que rota por tamaño
+ *
+ * El plan de un SELECT es EXPLAIN ANALYZE (vuelve a ejecutar la consulta); el de INSERT, UPDATE,
+ * DELETE o MERGE es EXPLAIN, que no la ejecuta. Si hay demasiados planes pendientes la consulta
+ * queda solo en memoria, sin plan ni archivo
+ *
+ * El umbral se configura con -Dcafeteriapos.consultaLenta.ms (250 ms por defecto)
+ * o con {@link #setUmbral(Duration)}
+ */
+public class SlowQueryLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    static final String PROPIEDAD_UMBRAL_MS = "cafeteriapos.consultaLenta.ms";
+    private static final long UMBRAL_POR_DEFECTO_MS = 250;
+    private static final int CAPACIDAD_POR_DEFECTO = 100;
+    private static final Path ARCHIVO_POR_DEFECTO = Paths.get("./data/logs/consultas-lentas.log");
+    private static final long TAMANO_MAXIMO_POR_DEFECTO = 1024 * 1024;
+    private static final int ARCHIVOS_ROTADOS = 3;
+    private static final int MAXIMO_PLANES_PENDIENTES = 16;
+    private static final int LARGO_MAXIMO_PARAMETRO = 200;
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final ThreadLocal<long[]> FALLOS_DEL_HILO = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Origen de la conexión lateral para capturar planes (por defecto una instantánea de solo lectura)
+     */
+    @FunctionalInterface
+    interface ConexionLateral {
+        Connection abrir() throws SQLException;
+    }
+
+    // === DEPENDENCIAS ===
+    private final ConexionLateral conexionLateral;
+    private final ExecutorService hiloPlanes;
+    private final Path archivo;
+    private final long tamanoMaximoArchivo;
+    private final int capacidad;
+
+    // === ESTADO ===
+    private volatile long umbralNanos;
+    private final Deque<ConsultaLenta> recientes = new ArrayDeque<>();
+    private final AtomicInteger planesPendientes = new AtomicInteger(0);
+    private final AtomicLong totalConsultasLentas = new AtomicLong(0);
+    private final AtomicLong planesOmitidos = new AtomicLong(0);
+
+    // === INSTANCIA SINGLETON ===
+    private static volatile SlowQueryLog instance;
+    private static final Object LOCK = new Object();
+
+    private SlowQueryLog() {
+        this(DatabaseManager::abrirConexionInstantanea,
+            ExecutorRegistry.getInstance().unHilo("SlowQuery-Plan", FaseCierre.ANALITICA),
+            ARCHIVO_POR_DEFECTO, TAMANO_MAXIMO_POR_DEFECTO, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor con conexión lateral, hilo y archivo inyectables (útil para tests)
+     */
+    SlowQueryLog(ConexionLateral conexionLateral, ExecutorService hiloPlanes, Path archivo,
+                 long tamanoMaximoArchivo, int capacidad) {
+        this.conexionLateral = conexionLateral;
+        this.hiloPlanes = hiloPlanes;
+        this.archivo = archivo;
+        this.tamanoMaximoArchivo = tamanoMaximoArchivo;
+        this.capacidad = capacidad;
+        this.umbralNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong(PROPIEDAD_UMBRAL_MS, UMBRAL_POR_DEFECTO_MS));
+    }
+
+    public static SlowQueryLog getInstance() {
+        if (instance == null) {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    instance = new SlowQueryLog();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === CONFIGURACIÓN ===
+
+    public void setUmbral(Duration umbral) {
+        this.umbralNanos = umbral.toNanos();
+        logger.info("Umbral de consulta lenta: {} ms", umbral.toMillis());
+    }
+
+    public Duration getUmbral() {
+        return Duration.ofNanos(umbralNanos);
+    }
+
+    // === ENVOLTURA JDBC ===
+
+    /**
+     * Envuelve una conexión para medir cada sentencia creada con prepareStatement o createStatement
+     * El resto de métodos se delega sin cambios
+     */
+    public Connection envolver(Connection conexion) {
+        return proxy(Connection.class, new ConexionMedida(conexion));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, InvocationHandler manejador) {
+        return (T) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[]{tipo}, manejador);
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                FALLOS_DEL_HILO.get()[0]++;
+            }
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * SQLException lanzadas en este hilo por la conexión envuelta, sus sentencias o sus filas
+     * Permite a DatabaseManager contar como error una operación que captura la excepción
+     */
+    static long fallosDelHilo() {
+        return FALLOS_DEL_HILO.get()[0];
+    }
+
+    private class ConexionMedida implements InvocationHandler {
+        private final Connection conexion;
+
+        ConexionMedida(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(conexion, metodo, args);
+            switch (metodo.getName()) {
+                case "prepareStatement":
+                    return SlowQueryLog.proxy(PreparedStatement.class,
+                        new SentenciaMedida((Statement) resultado, (String) args[0]));
+                case "createStatement":
+                    return SlowQueryLog.proxy(Statement.class, new SentenciaMedida((Statement) resultado, null));
+                default:
+                    return resultado;
+            }
+        }
+    }
+
+    /**
+     * Mide las ejecuciones de una sentencia; sql es null para un Statement simple,
+     * cuyo SQL llega en cada execute
+     */
+    private class SentenciaMedida implements InvocationHandler {
+        private final Statement sentencia;
+        private final String sql;
+        private Object[] parametros = new Object[0];
+        private int lotes;
+        private LecturaMedida lecturaAbierta;
+
+        SentenciaMedida(Statement sentencia, String sql) {
+            this.sentencia = sentencia;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            switch (nombre) {
+                case "executeQuery": {
+                    terminarLectura();
+                    String texto = textoDe(args);
+                    long inicio = System.nanoTime();
+                    ResultSet filas = (ResultSet) invocar(sentencia, metodo, args);
+                    lecturaAbierta = new LecturaMedida(this, filas, texto, System.nanoTime() - inicio);
+                    return SlowQueryLog.proxy(ResultSet.class, lecturaAbierta);
+                }
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    terminarLectura();
+                    String texto = textoDe(args);
+                    long inicio = System.nanoTime();
+                    Object resultado = null;
+                    try {
+                        resultado = invocar(sentencia, metodo, args);
+                        return resultado;
+                    } finally {
+                        long duracion = System.nanoTime() - inicio;
+                        if (duracion >= umbralNanos) {
+                            registrar(texto, parametros, lotes, duracion, filasAfectadas(resultado));
+                        }
+                        if (nombre.endsWith("Batch")) {
+                            lotes = 0;
+                        }
+                    }
+                }
+                case "addBatch":
+                    if (args == null) {
+                        lotes++;
+                    }
+                    return invocar(sentencia, metodo, args);
+                case "clearBatch":
+                    lotes = 0;
+                    return invocar(sentencia, metodo, args);
+                case "clearParameters":
+                    parametros = new Object[0];
+                    return invocar(sentencia, metodo, args);
+                case "close":
+                    terminarLectura();
+                    return invocar(sentencia, metodo, args);
+                default:
+                    if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        recordarParametro((Integer) args[0], "setNull".equals(nombre) ? null : args[1]);
+                    }
+                    return invocar(sentencia, metodo, args);
+            }
+        }
+
+        private String textoDe(Object[] args) {
+            return sql != null ? sql : (args != null && args.length > 0 ? String.valueOf(args[0]) : "(lote)");
+        }
+
+        private void recordarParametro(int indice, Object valor) {
+            if (indice > parametros.length) {
+                parametros = Arrays.copyOf(parametros, Math.max(indice, parametros.length * 2));
+            }
+            parametros[indice - 1] = valor;
+        }
+
+        private void terminarLectura() {
+            if (lecturaAbierta != null) {
+                lecturaAbierta.terminar();
+            }
+        }
+    }
+
+    /**
+     * Cuenta filas y acumula el tiempo de next() hasta que se cierra el ResultSet
+     */
+    private class LecturaMedida implements InvocationHandler {
+        private final SentenciaMedida origen;
+        private final ResultSet filas;
+        private final String sql;
+        private long duracion;
+        private long leidas;
+        private boolean terminada;
+
+        LecturaMedida(SentenciaMedida origen, ResultSet filas, String sql, long duracionEjecucion) {
+            this.origen = origen;
+            this.filas = filas;
+            this.sql = sql;
+            this.duracion = duracionEjecucion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "next": {
+                    long inicio = System.nanoTime();
+                    Object hay = invocar(filas, metodo, args);
+                    duracion += System.nanoTime() - inicio;
+                    if (Boolean.TRUE.equals(hay)) {
+                        leidas++;
+                    }
+                    return hay;
+                }
+                case "close":
+                    try {
+                        return invocar(filas, metodo, args);
+                    } finally {
+                        terminar();
+                    }
+                default:
+                    return invocar(filas, metodo, args);
+            }
+        }
+
+        void terminar() {
+            if (terminada) {
+                return;
+            }
+            terminada = true;
+            if (origen.lecturaAbierta == this) {
+                origen.lecturaAbierta = null;
+            }
+            if (duracion >= umbralNanos) {
+                registrar(sql, origen.parametros, 0, duracion, leidas);
+            }
+        }
+    }
+
+    private static long filasAfectadas(Object resultado) {
+        if (resultado instanceof Number numero) {
+            return numero.longValue();
+        }
+        if (resultado instanceof int[] conteos) {
+            return Arrays.stream(conteos).filter(c -> c > 0).asLongStream().sum();
+        }
+        if (resultado instanceof long[] conteos) {
+            return Arrays.stream(conteos).filter(c -> c > 0).sum();
+        }
+        return -1; // execute(): el resultado no dice cuántas filas
+    }
+
+    // === REGISTRO ===
+
+    private void registrar(String sql, Object[] parametros, int lotes, long duracionNanos, long filas) {
+        Object[] valores = Arrays.copyOf(parametros, parametros.length);
+        ConsultaLenta consulta = new ConsultaLenta(LocalDateTime.now(), sql, valores, lotes,
+            duracionNanos / 1_000_000.0, filas);
+        totalConsultasLentas.incrementAndGet();
+        logger.warn("Consulta lenta ({} ms, {} filas): {} {}",
+            Math.round(consulta.getDuracionMs()), filas, sql, consulta.getParametros());
+
+        synchronized (recientes) {
+            if (recientes.size() >= capacidad) {
+                recientes.removeFirst();
+            }
+            recientes.addLast(consulta);
+        }
+
+        if (planesPendientes.incrementAndGet() > MAXIMO_PLANES_PENDIENTES) {
+            planesPendientes.decrementAndGet();
+            omitirPlan(consulta, "demasiados planes pendientes");
+            return;
+        }
+        try {
+            hiloPlanes.execute(() -> {
+                try {
+                    consulta.plan = capturarPlan(consulta);
+                    escribirEnArchivo(consulta);
+                } finally {
+                    planesPendientes.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            planesPendientes.decrementAndGet();
+            omitirPlan(consulta, "registro cerrado");
+        }
+    }
+
+    private void omitirPlan(ConsultaLenta consulta, String motivo) {
+        planesOmitidos.incrementAndGet();
+        consulta.plan = "(plan omitido: " + motivo + ")";
+    }
+
+    /**
+     * Plan de la consulta en la conexión lateral, con los mismos parámetros
+     */
+    String capturarPlan(ConsultaLenta consulta) {
+        String sql = consulta.getSql().strip();
+        String verbo = sql.split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+        String explain;
+        switch (verbo) {
+            case "SELECT":
+            case "WITH":
+                explain = "EXPLAIN ANALYZE ";
+                break;
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "MERGE":
+                explain = "EXPLAIN ";
+                break;
+            default:
+                return "(sin plan para " + verbo + ")";
+        }
+
+        try (Connection conexion = conexionLateral.abrir();
+             PreparedStatement pstmt = conexion.prepareStatement(explain + sql)) {
+            Object[] valores = consulta.valores;
+            for (int i = 0; i < valores.length; i++) {
+                pstmt.setObject(i + 1, valores[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (plan.length() > 0) plan.append('\n');
+                    plan.append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            logger.debug("No se pudo capturar el plan de una consulta lenta: {}", e.getMessage());
+            return "(error capturando plan: " + e.getMessage() + ")";
+        }
+    }
+
+    // === ARCHIVO ===
+
+    private void escribirEnArchivo(ConsultaLenta consulta) {
+        if (archivo == null) {
+            return;
+        }
+        byte[] entrada = consulta.formatear().getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.createDirectories(archivo.toAbsolutePath().getParent());
+            if (Files.exists(archivo) && Files.size(archivo) + entrada.length > tamanoMaximoArchivo) {
+                rotar();
+            }
+            Files.write(archivo, entrada, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("No se pudo escribir el registro de consultas lentas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * archivo -> archivo.1 -> archivo.2 ...; el más antiguo se descarta
+     */
+    private void rotar() throws IOException {
+        Files.deleteIfExists(rotado(ARCHIVOS_ROTADOS));
+        for (int i = ARCHIVOS_ROTADOS - 1; i >= 1; i--) {
+            if (Files.exists(rotado(i))) {
+                Files.move(rotado(i), rotado(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(archivo, rotado(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotado(int numero) {
+        return archivo.resolveSibling(archivo.getFileName() + "." + numero);
+    }
+
+    // === CONSULTA ===
+
+    /**
+     * Consultas lentas en memoria, de la más antigua a la más reciente
+     */
+    public List<ConsultaLenta> getRecientes() {
+        synchronized (recientes) {
+            return new ArrayList<>(recientes);
+        }
+    }
+
+    public long getTotalConsultasLentas() { return totalConsultasLentas.get(); }
+    public long getPlanesOmitidos() { return planesOmitidos.get(); }
+
+    // === CLASES INTERNAS ===
+
+    /**
+     * Una ejecución que superó el umbral; el plan llega después, desde el hilo de planes
+     */
+    public static class ConsultaLenta {
+        private final LocalDateTime instante;
+        private final String sql;
+        private final Object[] valores;
+        private final int lotes;
+        private final double duracionMs;
+        private final long filas;
+        private volatile String plan;
+
+        ConsultaLenta(LocalDateTime instante, String sql, Object[] valores, int lotes,
+                      double duracionMs, long filas) {
+            this.instante = instante;
+            this.sql = sql;
+            this.valores = valores;
+            this.lotes = lotes;
+            this.duracionMs = duracionMs;
+            this.filas = filas;
+        }
+
+        /**
+         * Parámetros enlazados en orden, p. ej. "[1=Latte, 2=5]"; los largos se recortan
+         */
+        public String getParametros() {
+            StringBuilder texto = new StringBuilder("[");
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) texto.append(", ");
+                texto.append(i + 1).append('=').append(describir(valores[i]));
+            }
+            if (lotes > 0) {
+                texto.append(valores.length > 0 ? ", " : "").append("lote de ").append(lotes);
+            }
+            return texto.append(']').toString();
+        }
+
+        private static String describir(Object valor) {
+            if (valor instanceof byte[] bytes) {
+                return "byte[" + bytes.length + "]";
+            }
+            String texto = String.valueOf(valor);
+            return texto.length() > LARGO_MAXIMO_PARAMETRO
+                ? texto.substring(0, LARGO_MAXIMO_PARAMETRO) + "..."
+                : texto;
+        }
+
+        String formatear() {
+            StringBuilder texto = new StringBuilder()
+                .append(instante.format(FORMATO_FECHA))
+                .append(" | ").append(String.format(Locale.ROOT, "%.1f", duracionMs)).append(" ms")
+                .append(" | ").append(filas).append(" filas\n")
+                .append("  sql: ").append(sql.strip().replaceAll("\\s+", " ")).append('\n')
+                .append("  parámetros: ").append(getParametros()).append('\n')
+                .append("  plan:\n");
+            for (String linea : String.valueOf(plan).split("\n")) {
+                texto.append("    ").append(linea).append('\n');
+            }
+            return texto.append('\n').toString();
+        }
+
+        // Getters
+        public LocalDateTime getInstante() { return instante; }
+        public String getSql() { return sql; }
+        public double getDuracionMs() { return duracionMs; }
+        public long getFilas() { return filas; }
+        public String getPlan() { return plan; }
+    }
+}
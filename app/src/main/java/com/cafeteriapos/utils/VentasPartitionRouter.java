@@ -0,0 +1,119 @@
+package com.cafeteriapos.utils;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Enrutador de particiones mensuales de ventas
+ * Cada mes vive en su propio par de tablas ({@code ventas_AAAAMM} y {@code venta_items_AAAAMM});
+ * este enrutador sabe qué particiones están activas y cuáles toca cada consulta,
+ * así un rango de fechas solo recorre los meses que lo cubren
+ * Los nombres de tabla se construyen solo a partir de año y mes, nunca de texto externo
+ */
+final class VentasPartitionRouter {
+
+    static final String PREFIJO_VENTAS = "ventas_";
+    static final String PREFIJO_ITEMS = "venta_items_";
+
+    // Marcadores que las plantillas SQL usan en lugar del nombre de tabla
+    static final String MARCA_VENTAS = "{ventas}";
+    static final String MARCA_ITEMS = "{items}";
+
+    // Particiones activas (visibles para las consultas), en orden cronológico
+    private final NavigableSet<YearMonth> activas = new ConcurrentSkipListSet<>();
+
+    // === NOMBRES ===
+
+    static String tablaVentas(YearMonth mes) {
+        return PREFIJO_VENTAS + sufijo(mes);
+    }
+
+    static String tablaItems(YearMonth mes) {
+        return PREFIJO_ITEMS + sufijo(mes);
+    }
+
+    private static String sufijo(YearMonth mes) {
+        return String.format("%04d%02d", mes.getYear(), mes.getMonthValue());
+    }
+
+    /**
+     * Reemplaza los marcadores de tabla de una plantilla por las tablas del mes
+     */
+    static String sql(String plantilla, YearMonth mes) {
+        return plantilla.replace(MARCA_VENTAS, tablaVentas(mes)).replace(MARCA_ITEMS, tablaItems(mes));
+    }
+
+    // === RANGOS ===
+
+    static YearMonth mesDe(LocalDateTime fechaHora) {
+        return YearMonth.from(fechaHora);
+    }
+
+    static LocalDateTime inicioMes(YearMonth mes) {
+        return mes.atDay(1).atStartOfDay();
+    }
+
+    static LocalDateTime finMes(YearMonth mes) {
+        return mes.plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * Particiones activas que se solapan con [desde, hasta), en orden cronológico
+     * @param hasta fin exclusivo; null para un rango abierto hacia el futuro
+     */
+    List<YearMonth> particionesEnRango(LocalDateTime desde, LocalDateTime hasta) {
+        if (hasta != null && !hasta.isAfter(desde)) {
+            return List.of();
+        }
+        YearMonth primero = mesDe(desde);
+        NavigableSet<YearMonth> rango;
+        if (hasta == null) {
+            rango = activas.tailSet(primero, true);
+        } else {
+            // hasta es exclusivo: si cae justo al inicio de un mes, ese mes no se toca
+            YearMonth ultimo = mesDe(hasta.minusNanos(1));
+            rango = activas.subSet(primero, true, ultimo, true);
+        }
+        return new ArrayList<>(rango);
+    }
+
+    // === ESTADO ===
+
+    boolean esActiva(YearMonth mes) {
+        return activas.contains(mes);
+    }
+
+    void registrar(YearMonth mes) {
+        activas.add(mes);
+    }
+
+    void quitar(YearMonth mes) {
+        activas.remove(mes);
+    }
+
+    /**
+     * Reemplaza las particiones activas (al leer el catálogo)
+     */
+    void cargar(Collection<YearMonth> meses) {
+        activas.clear();
+        activas.addAll(meses);
+    }
+
+    SortedSet<YearMonth> getParticiones() {
+        return new TreeSet<>(activas);
+    }
+
+    /**
+     * Activas de la más reciente a la más antigua
+     */
+    List<YearMonth> getParticionesDescendente() {
+        return new ArrayList<>(activas.descendingSet());
+    }
+}
@@ -0,0 +1,148 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.events.AlertaAnomalia;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Tests para AnomalyDetector
+ * Verifica las alertas de ingreso inusual y terminal silenciosa
+ */
+@DisplayName("Tests para AnomalyDetector")
+public class AnomalyDetectorTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 6, 3, 0, 0);
+
+    private List<AlertaAnomalia> alertas;
+    private LocalDateTime ahora;
+    private ScheduledExecutorService temporizador;
+    private AnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        alertas = new ArrayList<>();
+        ahora = INICIO;
+        temporizador = Executors.newSingleThreadScheduledExecutor();
+        detector = new AnomalyDetector(alertas::add, () -> ahora, temporizador);
+    }
+
+    @AfterEach
+    void tearDown() {
+        temporizador.shutdownNow();
+    }
+
+    /**
+     * Dos semanas con 6 ventas de ~$10 por hora entre las 8 y las 18 h
+     */
+    private List<Venta> historialHabitual() {
+        List<Venta> ventas = new ArrayList<>();
+        int n = 0;
+        for (int dia = 0; dia < 14; dia++) {
+            for (int hora = 8; hora < 18; hora++) {
+                for (int i = 0; i < 6; i++) {
+                    double monto = 9.0 + (n % 5) * 0.5;
+                    ventas.add(new Venta("H" + n++, INICIO.plusDays(dia).withHour(hora).withMinute(i * 10), null, monto));
+                }
+            }
+        }
+        return ventas;
+    }
+
+    @Test
+    @DisplayName("Una venta muy superior al ticket habitual genera alerta de ingreso")
+    void testTicketInusual() {
+        // Given
+        detector.entrenar(historialHabitual());
+        LocalDateTime momento = INICIO.plusDays(14).withHour(10);
+        ahora = momento;
+
+        // When
+        detector.registrarVenta(new Venta("N1", momento, null, 10.0));
+        detector.registrarVenta(new Venta("N2", momento.plusMinutes(1), null, 450.0));
+
+        // Then
+        assertEquals(1, alertas.size());
+        assertEquals(AlertaAnomalia.Tipo.INGRESO_INUSUAL, alertas.get(0).getTipo());
+        assertEquals(450.0, alertas.get(0).getValorObservado(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Ventas habituales no generan alertas")
+    void testSinFalsosPositivos() {
+        // Given
+        detector.entrenar(historialHabitual());
+        LocalDateTime momento = INICIO.plusDays(14).withHour(9);
+        ahora = momento;
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            detector.registrarVenta(new Venta("N" + i, momento.plusMinutes(i * 10), null, 9.5 + (i % 3) * 0.5));
+        }
+
+        // Then
+        assertTrue(alertas.isEmpty());
+        assertEquals(6.0, detector.getVentasHoraMedia(10), 0.5);
+    }
+
+    @Test
+    @DisplayName("Silencio prolongado en hora activa genera alerta de terminal silenciosa")
+    void testTerminalSilenciosa() {
+        // Given
+        detector.entrenar(historialHabitual());
+        LocalDateTime ultimaVenta = INICIO.plusDays(14).withHour(11);
+        ahora = ultimaVenta;
+        detector.registrarVenta(new Venta("N1", ultimaVenta, null, 10.0));
+        assertTrue(detector.isVigilanciaSilencioArmada(), "Hora activa: el temporizador debe armarse");
+
+        // When
+        ahora = ultimaVenta.plusMinutes(90);
+        detector.verificarSilencio();
+
+        // Then
+        assertEquals(1, alertas.size());
+        assertEquals(AlertaAnomalia.Tipo.TERMINAL_SILENCIOSA, alertas.get(0).getTipo());
+    }
+
+    @Test
+    @DisplayName("Una venta atrasada no atrasa la última venta ni dispara la terminal silenciosa")
+    void testVentaAtrasadaSinFalsoSilencio() {
+        // Given
+        detector.entrenar(historialHabitual());
+        LocalDateTime momento = INICIO.plusDays(14).withHour(11);
+        ahora = momento;
+        detector.registrarVenta(new Venta("N1", momento, null, 10.0));
+
+        // When: llega tarde una venta de hace hora y media
+        detector.registrarVenta(new Venta("ATRASADA", momento.minusMinutes(90), null, 10.0));
+        ahora = momento.plusMinutes(45);
+        detector.verificarSilencio();
+
+        // Then
+        assertTrue(alertas.isEmpty());
+    }
+
+    @Test
+    @DisplayName("En horas sin actividad habitual no se arma el temporizador")
+    void testSinVigilanciaEnHorasInactivas() {
+        // Given
+        detector.entrenar(historialHabitual());
+        LocalDateTime madrugada = INICIO.plusDays(14).withHour(3);
+        ahora = madrugada;
+
+        // When
+        detector.registrarVenta(new Venta("N1", madrugada, null, 10.0));
+
+        // Then
+        assertFalse(detector.isVigilanciaSilencioArmada());
+    }
+}
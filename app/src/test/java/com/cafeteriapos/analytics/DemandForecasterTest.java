@@ -0,0 +1,180 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.EstadoDemanda;
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.PronosticoProducto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests para DemandForecaster
+ * Verifica la actualización incremental, la estacionalidad semanal y los días hasta agotarse
+ */
+@DisplayName("Tests para DemandForecaster")
+public class DemandForecasterTest {
+
+    // Lunes
+    private static final LocalDate INICIO = LocalDate.of(2024, 6, 3);
+
+    private DemandForecaster forecaster;
+
+    @BeforeEach
+    void setUp() {
+        forecaster = new DemandForecaster();
+    }
+
+    private void alimentar(String producto, int dias, java.util.function.IntUnaryOperator unidadesPorDia) {
+        for (int d = 0; d < dias; d++) {
+            forecaster.actualizarDia(INICIO.plusDays(d), Map.of(producto, unidadesPorDia.applyAsInt(d)));
+        }
+    }
+
+    @Test
+    @DisplayName("Demanda constante: pronóstico y días hasta agotarse")
+    void testDemandaConstante() {
+        // Given: 8 semanas vendiendo 10 unidades diarias
+        alimentar("Café", 56, d -> 10);
+        LocalDate manana = INICIO.plusDays(56);
+
+        // When
+        double[] pronostico = forecaster.pronosticar("Café", 7);
+        double dias = forecaster.diasHastaAgotarse("Café", 25, manana);
+
+        // Then
+        for (double demanda : pronostico) {
+            assertEquals(10.0, demanda, 0.5);
+        }
+        assertEquals(2.5, dias, 0.2);
+    }
+
+    @Test
+    @DisplayName("Estacionalidad semanal: los sábados se venden más")
+    void testEstacionalidadSemanal() {
+        // Given: 20 unidades los sábados y 5 el resto de la semana
+        alimentar("Medialuna", 84, d -> INICIO.plusDays(d).getDayOfWeek() == DayOfWeek.SATURDAY ? 20 : 5);
+
+        // When: el último día observado es domingo; el sábado siguiente es h = 6
+        double[] semana = forecaster.pronosticar("Medialuna", 7);
+
+        // Then
+        assertEquals(DayOfWeek.SUNDAY, INICIO.plusDays(83).getDayOfWeek());
+        assertTrue(semana[5] > 15, "Sábado pronosticado: " + semana[5]);
+        assertTrue(semana[1] < 8, "Martes pronosticado: " + semana[1]);
+    }
+
+    @Test
+    @DisplayName("Productos no vendidos en un día cuentan como demanda cero")
+    void testDiasSinVenta() {
+        // Given: se vendió al principio y luego nada durante un mes
+        alimentar("Té", 14, d -> 8);
+        for (int d = 14; d < 44; d++) {
+            forecaster.actualizarDia(INICIO.plusDays(d), Map.of("Café", 3));
+        }
+
+        // When
+        double dias = forecaster.diasHastaAgotarse("Té", 20, INICIO.plusDays(44));
+
+        // Then
+        assertEquals(Double.POSITIVE_INFINITY, dias);
+        assertEquals(INICIO.plusDays(43), forecaster.getUltimoDiaProcesado().orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Exportar y cargar permite continuar sin releer el historial")
+    void testExportarYCargar() {
+        // Given: un modelo entrenado 4 semanas y otro que lo retoma desde su estado
+        alimentar("Jugo", 28, d -> 6 + d % 3);
+        List<EstadoDemanda> estado = forecaster.exportar();
+        DemandForecaster retomado = new DemandForecaster();
+        retomado.cargar(estado);
+
+        // When: ambos reciben los mismos días nuevos
+        for (int d = 28; d < 35; d++) {
+            Map<String, Integer> dia = Map.of("Jugo", 6 + d % 3);
+            forecaster.actualizarDia(INICIO.plusDays(d), dia);
+            retomado.actualizarDia(INICIO.plusDays(d), dia);
+        }
+
+        // Then
+        assertArrayEquals(forecaster.pronosticar("Jugo", 14), retomado.pronosticar("Jugo", 14), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Un día ya incorporado no se vuelve a aplicar")
+    void testDiaRepetido() {
+        // Given
+        alimentar("Agua", 14, d -> 4);
+        double[] antes = forecaster.pronosticar("Agua", 7);
+
+        // When
+        forecaster.actualizarDia(INICIO.plusDays(13), Map.of("Agua", 100));
+
+        // Then
+        assertArrayEquals(antes, forecaster.pronosticar("Agua", 7), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Inventario ordenado por urgencia")
+    void testPronosticarInventario() {
+        // Given
+        for (int d = 0; d < 28; d++) {
+            forecaster.actualizarDia(INICIO.plusDays(d), Map.of("Café", 10, "Té", 2));
+        }
+        List<Producto> productos = List.of(
+            new Producto("Té", 1.0, 100),
+            new Producto("Café", 1.0, 15),
+            new Producto("Nuevo", 1.0, 5));
+
+        // When
+        List<PronosticoProducto> inventario = forecaster.pronosticarInventario(productos, INICIO.plusDays(28));
+
+        // Then
+        assertEquals("Café", inventario.get(0).getProducto());
+        assertTrue(inventario.get(0).seAgotaEn(2));
+        assertEquals("Té", inventario.get(1).getProducto());
+        assertFalse(inventario.get(1).seAgotaEn(30));
+        assertEquals(Double.POSITIVE_INFINITY, inventario.get(2).getDiasHastaAgotarse());
+    }
+
+    @Test
+    @DisplayName("Miles de productos se pronostican en menos de un segundo")
+    void testRendimientoMilesDeProductos() {
+        // Given: estado de 5000 productos con 90 días de historia
+        int productos = 5000;
+        List<Producto> inventario = new java.util.ArrayList<>();
+        for (int p = 0; p < productos; p++) {
+            inventario.add(new Producto("SKU-" + p, 1.0, 50 + p % 200));
+        }
+        for (int d = 0; d < 90; d++) {
+            Map<String, Integer> dia = new HashMap<>();
+            for (int p = 0; p < productos; p++) {
+                dia.put("SKU-" + p, (p + d) % 12);
+            }
+            forecaster.actualizarDia(INICIO.plusDays(d), dia);
+        }
+        DemandForecaster nocturno = new DemandForecaster();
+        nocturno.cargar(forecaster.exportar());
+        Map<String, Integer> ayer = new HashMap<>();
+        for (int p = 0; p < productos; p++) {
+            ayer.put("SKU-" + p, p % 12);
+        }
+
+        // When: ciclo nocturno (un día nuevo + pronóstico de todo el inventario)
+        long inicio = System.nanoTime();
+        nocturno.actualizarDia(INICIO.plusDays(90), ayer);
+        List<PronosticoProducto> resultado = nocturno.pronosticarInventario(inventario, INICIO.plusDays(91));
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        // Then
+        assertEquals(productos, resultado.size());
+        assertTrue(ms < 1000, "Ciclo nocturno tardó " + ms + "ms");
+    }
+}
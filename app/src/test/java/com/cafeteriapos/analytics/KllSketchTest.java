@@ -0,0 +1,114 @@
+package com.cafeteriapos.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests para KllSketch
+ * Verifica el error de rango de los cuantiles, la combinación y la serialización
+ */
+@DisplayName("Tests para KllSketch")
+public class KllSketchTest {
+
+    // Error de rango normalizado admitido para k = 200 (con margen)
+    private static final double ERROR_RANGO = 0.025;
+
+    private static double rangoNormalizado(double[] ordenados, double valor) {
+        int posicion = Arrays.binarySearch(ordenados, valor);
+        if (posicion < 0) posicion = -posicion - 1;
+        return (double) posicion / ordenados.length;
+    }
+
+    @Test
+    @DisplayName("Los cuantiles respetan el error de rango con memoria acotada")
+    void testErrorDeRango() {
+        // Given
+        Random random = new Random(11);
+        double[] valores = new double[200_000];
+        KllSketch sketch = new KllSketch();
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = Math.exp(random.nextGaussian()) * 8;
+            sketch.registrar(valores[i]);
+        }
+        Arrays.sort(valores);
+
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            // When
+            double estimado = sketch.cuantil(q);
+
+            // Then
+            assertEquals(q, rangoNormalizado(valores, estimado), ERROR_RANGO, "Cuantil " + q);
+        }
+        assertTrue(sketch.getValoresRetenidos() < 3 * KllSketch.K_POR_DEFECTO,
+            "El sketch no debe crecer con el número de valores");
+        assertEquals(valores.length, sketch.getConteo());
+    }
+
+    @Test
+    @DisplayName("Combinar sketches diarios aproxima el cuantil del período completo")
+    void testCombinarDias() {
+        // Given
+        Random random = new Random(3);
+        double[] todos = new double[30 * 2_000];
+        KllSketch periodo = new KllSketch();
+        int n = 0;
+        for (int dia = 0; dia < 30; dia++) {
+            KllSketch sketchDia = new KllSketch();
+            for (int i = 0; i < 2_000; i++) {
+                double monto = 5 + random.nextDouble() * (dia % 7 == 5 ? 80 : 20);
+                sketchDia.registrar(monto);
+                todos[n++] = monto;
+            }
+            // When
+            periodo.combinar(sketchDia);
+        }
+        Arrays.sort(todos);
+
+        // Then
+        assertEquals(todos.length, periodo.getConteo());
+        assertEquals(0.99, rangoNormalizado(todos, periodo.cuantil(0.99)), ERROR_RANGO);
+        assertEquals(0.5, rangoNormalizado(todos, periodo.cuantil(0.5)), ERROR_RANGO);
+        assertEquals(todos[todos.length - 1], periodo.getMaximo(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Serializar y leer conserva el sketch")
+    void testSerializacion() {
+        // Given
+        KllSketch sketch = new KllSketch();
+        for (int i = 1; i <= 10_000; i++) {
+            sketch.registrar(i);
+        }
+
+        // When
+        KllSketch leido = KllSketch.fromBytes(sketch.toBytes());
+
+        // Then
+        assertEquals(sketch.getConteo(), leido.getConteo());
+        assertEquals(sketch.cuantil(0.5), leido.cuantil(0.5), 0.0);
+        assertEquals(sketch.cuantil(0.9), leido.cuantil(0.9), 0.0);
+        assertEquals(1.0, leido.getMinimo(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Un pedido grande no desplaza la mediana")
+    void testValorAtipico() {
+        // Given
+        KllSketch sketch = new KllSketch();
+        for (int i = 0; i < 99; i++) {
+            sketch.registrar(10.0);
+        }
+
+        // When
+        sketch.registrar(5_000.0);
+
+        // Then
+        assertEquals(10.0, sketch.cuantil(0.5), 0.0);
+        assertEquals(5_000.0, sketch.getMaximo(), 0.0);
+        assertTrue(Double.isNaN(new KllSketch().cuantil(0.5)));
+    }
+}
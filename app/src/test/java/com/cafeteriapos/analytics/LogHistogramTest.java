@@ -0,0 +1,69 @@
+package com.cafeteriapos.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests para LogHistogram
+ * Verifica el error relativo de los cuantiles y la combinación de histogramas
+ */
+@DisplayName("Tests para LogHistogram")
+public class LogHistogramTest {
+
+    @Test
+    @DisplayName("Los cuantiles respetan el error relativo configurado")
+    void testErrorRelativoCuantiles() {
+        // Given
+        Random random = new Random(7);
+        double[] valores = new double[50_000];
+        LogHistogram histograma = new LogHistogram();
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = Math.exp(random.nextGaussian() + 2);
+            histograma.registrar(valores[i]);
+        }
+        Arrays.sort(valores);
+
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            // When
+            double estimado = histograma.cuantil(q);
+            double exacto = valores[(int) Math.floor(q * (valores.length - 1))];
+
+            // Then
+            assertEquals(exacto, estimado, exacto * LogHistogram.ERROR_RELATIVO * 1.01, "Cuantil " + q);
+        }
+    }
+
+    @Test
+    @DisplayName("Combinar dos histogramas equivale a registrar todos los valores en uno")
+    void testCombinar() {
+        // Given
+        LogHistogram a = new LogHistogram();
+        LogHistogram b = new LogHistogram();
+        LogHistogram todos = new LogHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            (i % 2 == 0 ? a : b).registrar(i * 0.75);
+            todos.registrar(i * 0.75);
+        }
+        b.registrar(100_000);
+        todos.registrar(100_000);
+
+        // When
+        a.combinar(b);
+
+        // Then
+        assertEquals(todos.getConteo(), a.getConteo());
+        assertEquals(todos.cuantil(0.5), a.cuantil(0.5), 0.0);
+        assertEquals(todos.cuantil(0.999), a.cuantil(0.999), 0.0);
+        assertEquals(100_000, a.getMaximo(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Histograma vacío devuelve cero")
+    void testVacio() {
+        assertEquals(0.0, new LogHistogram().cuantil(0.5), 0.0);
+    }
+}
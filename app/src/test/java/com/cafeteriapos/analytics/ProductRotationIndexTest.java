@@ -0,0 +1,207 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Tests para ProductRotationIndex
+ * Verifica los bitmaps diarios de productos vendidos y la consulta de productos sin rotación
+ */
+@DisplayName("Tests para ProductRotationIndex")
+public class ProductRotationIndexTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 5, 31);
+    private static final List<String> INVENTARIO = List.of("Café", "Té", "Medialuna", "Jugo", "Agua");
+
+    private Map<String, Integer> ids;
+    private Map<LocalDate, byte[]> tabla;
+
+    @BeforeEach
+    void setUp() {
+        ids = new HashMap<>();
+        for (int i = 0; i < INVENTARIO.size(); i++) {
+            ids.put(INVENTARIO.get(i), i + 1);
+        }
+        tabla = new ConcurrentSkipListMap<>();
+    }
+
+    private ProductRotationIndex crearIndice(LocalDate hoy) {
+        return crearIndice(() -> hoy);
+    }
+
+    private ProductRotationIndex crearIndice(Supplier<LocalDate> reloj) {
+        return new ProductRotationIndex(
+            () -> ids,
+            tabla::put,
+            (desde, hasta) -> new TreeMap<>(tabla).subMap(desde, true, hasta, true),
+            Executors.newSingleThreadExecutor(), reloj);
+    }
+
+    private static Venta venta(String id, LocalDate dia, String... productos) {
+        List<Producto> items = new ArrayList<>();
+        for (String producto : productos) {
+            items.add(new Producto(producto, 1.0, 1));
+        }
+        return new Venta(id, dia.atTime(12, 0), items, productos.length);
+    }
+
+    @Test
+    @DisplayName("Las ventas del día marcan sus productos y se persisten")
+    void testVentasDelDia() {
+        // Given
+        ProductRotationIndex indice = crearIndice(HOY);
+
+        // When
+        indice.registrarVenta(venta("V1", HOY, "Café", "Medialuna"));
+        indice.registrarVenta(venta("V2", HOY, "Café"));
+        indice.shutdown();
+
+        // Then
+        assertEquals(2, indice.getProductosVendidosHoy());
+        assertEquals(List.of("Té", "Jugo", "Agua"), indice.productosSinVenta(INVENTARIO, 1));
+        assertArrayEquals(new int[]{1, 3}, RoaringBitmap.fromBytes(tabla.get(HOY)).toArray());
+    }
+
+    @Test
+    @DisplayName("La ventana de N días combina los bitmaps guardados")
+    void testVentanaDeDias() {
+        // Given: Té vendido hace 10 días, Jugo hace 40
+        tabla.put(HOY.minusDays(10), RoaringBitmap.de(ids.get("Té")).toBytes());
+        tabla.put(HOY.minusDays(40), RoaringBitmap.de(ids.get("Jugo")).toBytes());
+        ProductRotationIndex indice = crearIndice(HOY);
+        indice.registrarVenta(venta("V1", HOY, "Café"));
+        indice.shutdown();
+
+        // When
+        List<String> sinVenta30 = indice.productosSinVenta(INVENTARIO, 30);
+        List<String> sinVenta60 = indice.productosSinVenta(INVENTARIO, 60);
+
+        // Then
+        assertEquals(List.of("Medialuna", "Jugo", "Agua"), sinVenta30);
+        assertEquals(List.of("Medialuna", "Agua"), sinVenta60);
+    }
+
+    @Test
+    @DisplayName("Al cambiar de día el anterior queda cerrado y sigue contando en la ventana")
+    void testCambioDeDia() {
+        // Given
+        ProductRotationIndex indice = crearIndice(HOY.minusDays(1));
+        indice.registrarVenta(venta("V1", HOY.minusDays(1), "Agua"));
+
+        // When
+        indice.registrarVenta(venta("V2", HOY, "Té"));
+        indice.shutdown();
+
+        // Then
+        assertEquals(HOY, indice.getDiaActual());
+        assertEquals(List.of("Café", "Medialuna", "Jugo", "Agua"), indice.productosSinVenta(INVENTARIO, 1));
+        assertEquals(List.of("Café", "Medialuna", "Jugo"), indice.productosSinVenta(INVENTARIO, 2));
+        assertTrue(tabla.containsKey(HOY.minusDays(1)));
+    }
+
+    @Test
+    @DisplayName("El día avanza con el reloj aunque no lleguen ventas")
+    void testDiaAvanzaConElReloj() {
+        // Given
+        AtomicReference<LocalDate> reloj = new AtomicReference<>(HOY);
+        ProductRotationIndex indice = crearIndice(reloj::get);
+        indice.registrarVenta(venta("V1", HOY, "Café"));
+
+        // When
+        reloj.set(HOY.plusDays(1));
+        LocalDate dia = indice.getDiaActual();
+        indice.shutdown();
+
+        // Then
+        assertEquals(HOY.plusDays(1), dia);
+        assertEquals(INVENTARIO, indice.productosSinVenta(INVENTARIO, 1));
+        assertEquals(List.of("Té", "Medialuna", "Jugo", "Agua"), indice.productosSinVenta(INVENTARIO, 2));
+        assertArrayEquals(new int[]{1}, RoaringBitmap.fromBytes(tabla.get(HOY)).toArray());
+    }
+
+    @Test
+    @DisplayName("Una venta con fecha pasada se suma al bitmap de su día")
+    void testVentaAtrasada() {
+        // Given: Té vendido hace 200 días, fuera de los días en memoria
+        LocalDate lejano = HOY.minusDays(200);
+        tabla.put(lejano, RoaringBitmap.de(ids.get("Té")).toBytes());
+        ProductRotationIndex indice = crearIndice(HOY);
+
+        // When
+        indice.registrarVenta(venta("V1", HOY.minusDays(2), "Jugo"));
+        indice.registrarVenta(venta("V2", lejano, "Agua"));
+        indice.shutdown();
+
+        // Then
+        assertEquals(0, indice.getProductosVendidosHoy());
+        assertEquals(INVENTARIO, indice.productosSinVenta(INVENTARIO, 1));
+        assertEquals(List.of("Café", "Té", "Medialuna", "Agua"), indice.productosSinVenta(INVENTARIO, 3));
+        assertArrayEquals(new int[]{4}, RoaringBitmap.fromBytes(tabla.get(HOY.minusDays(2))).toArray());
+        assertArrayEquals(new int[]{2, 5}, RoaringBitmap.fromBytes(tabla.get(lejano)).toArray());
+    }
+
+    @Test
+    @DisplayName("Un producto creado después del arranque obtiene su ID al venderse")
+    void testProductoNuevo() {
+        // Given
+        ProductRotationIndex indice = crearIndice(HOY);
+        ids.put("Tostado", 6);
+
+        // When
+        indice.registrarVenta(venta("V1", HOY, "Tostado"));
+        indice.shutdown();
+
+        // Then
+        List<String> inventario = new ArrayList<>(INVENTARIO);
+        inventario.add("Tostado");
+        assertFalse(indice.productosSinVenta(inventario, 7).contains("Tostado"));
+    }
+
+    @Test
+    @DisplayName("Las consultas solo leen memoria: no consultan la base")
+    void testConsultasSinBase() {
+        // Given
+        tabla.put(HOY.minusDays(3), RoaringBitmap.de(ids.get("Té")).toBytes());
+        AtomicInteger lecturas = new AtomicInteger();
+        ProductRotationIndex indice = new ProductRotationIndex(
+            () -> {
+                lecturas.incrementAndGet();
+                return ids;
+            },
+            tabla::put,
+            (desde, hasta) -> {
+                lecturas.incrementAndGet();
+                return new TreeMap<>(tabla).subMap(desde, true, hasta, true);
+            },
+            Executors.newSingleThreadExecutor(), () -> HOY);
+        indice.shutdown();
+        int lecturasIniciales = lecturas.get();
+        ids.put("Tostado", 6);
+        List<String> inventario = new ArrayList<>(INVENTARIO);
+        inventario.add("Tostado");
+
+        // When
+        List<String> sinVenta = indice.productosSinVenta(inventario, 7);
+        indice.reiniciar();
+
+        // Then: el producto sin ID se omite y no hubo lecturas en este hilo
+        assertEquals(List.of("Café", "Medialuna", "Jugo", "Agua"), sinVenta);
+        assertEquals(lecturasIniciales, lecturas.get());
+    }
+}
@@ -0,0 +1,109 @@
+package com.cafeteriapos.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Tests para RoaringBitmap
+ * Verifica OR, ANDNOT y serialización en grupos dispersos y densos
+ */
+@DisplayName("Tests para RoaringBitmap")
+public class RoaringBitmapTest {
+
+    @Test
+    @DisplayName("Agregar y consultar valores")
+    void testAgregarYContiene() {
+        // Given
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        // When
+        assertTrue(bitmap.agregar(5));
+        assertTrue(bitmap.agregar(70_000));
+        assertFalse(bitmap.agregar(5));
+
+        // Then
+        assertTrue(bitmap.contiene(5));
+        assertTrue(bitmap.contiene(70_000));
+        assertFalse(bitmap.contiene(6));
+        assertFalse(bitmap.contiene(-1));
+        assertEquals(2, bitmap.getCardinalidad());
+        assertArrayEquals(new int[]{5, 70_000}, bitmap.toArray());
+    }
+
+    @Test
+    @DisplayName("OR y ANDNOT: productos sin venta")
+    void testOrYAndNot() {
+        // Given: inventario 1..10, ventas de dos días
+        RoaringBitmap inventario = RoaringBitmap.de(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        RoaringBitmap dia1 = RoaringBitmap.de(1, 3, 5);
+        RoaringBitmap dia2 = RoaringBitmap.de(5, 7);
+
+        // When
+        RoaringBitmap vendidos = new RoaringBitmap().or(dia1).or(dia2);
+        RoaringBitmap sinVenta = inventario.copia().andNot(vendidos);
+
+        // Then
+        assertArrayEquals(new int[]{1, 3, 5, 7}, vendidos.toArray());
+        assertArrayEquals(new int[]{2, 4, 6, 8, 9, 10}, sinVenta.toArray());
+        assertEquals(10, inventario.getCardinalidad());
+        assertArrayEquals(new int[]{1, 3, 5}, dia1.toArray());
+    }
+
+    @Test
+    @DisplayName("Grupos densos coinciden con BitSet")
+    void testGruposDensosContraBitSet() {
+        // Given: valores aleatorios que fuerzan contenedores de bitmap
+        Random random = new Random(42);
+        RoaringBitmap a = new RoaringBitmap();
+        RoaringBitmap b = new RoaringBitmap();
+        BitSet esperadoA = new BitSet();
+        BitSet esperadoB = new BitSet();
+        for (int i = 0; i < 20_000; i++) {
+            int x = random.nextInt(200_000);
+            int y = random.nextInt(200_000);
+            a.agregar(x);
+            esperadoA.set(x);
+            b.agregar(y);
+            esperadoB.set(y);
+        }
+
+        // When
+        RoaringBitmap union = a.copia().or(b);
+        RoaringBitmap diferencia = a.copia().andNot(b);
+        BitSet esperadoUnion = (BitSet) esperadoA.clone();
+        esperadoUnion.or(esperadoB);
+        BitSet esperadoDiferencia = (BitSet) esperadoA.clone();
+        esperadoDiferencia.andNot(esperadoB);
+
+        // Then
+        assertArrayEquals(esperadoUnion.stream().toArray(), union.toArray());
+        assertArrayEquals(esperadoDiferencia.stream().toArray(), diferencia.toArray());
+        assertEquals(esperadoUnion.cardinality(), union.getCardinalidad());
+    }
+
+    @Test
+    @DisplayName("Serialización compacta y reversible")
+    void testSerializacion() {
+        // Given
+        RoaringBitmap disperso = RoaringBitmap.de(3, 17, 250, 1_000_000);
+        RoaringBitmap denso = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            denso.agregar(i * 3);
+        }
+
+        // When
+        byte[] bytesDisperso = disperso.toBytes();
+        RoaringBitmap leidoDisperso = RoaringBitmap.fromBytes(bytesDisperso);
+        RoaringBitmap leidoDenso = RoaringBitmap.fromBytes(denso.toBytes());
+
+        // Then
+        assertArrayEquals(disperso.toArray(), leidoDisperso.toArray());
+        assertArrayEquals(denso.toArray(), leidoDenso.toArray());
+        assertTrue(bytesDisperso.length < 40, "Tamaño serializado: " + bytesDisperso.length);
+        assertTrue(leidoDisperso.agregar(18));
+    }
+}
@@ -0,0 +1,52 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.Venta;
+
+import java.util.List;
+
+/**
+ * Benchmark de escalado de SalesAggregationService con 1, 2, 4 y 8 hilos
+ * No es un test: se ejecuta manualmente con
+ * {@code java ... com.cafeteriapos.analytics.SalesAggregationBenchmark [ventas]}
+ */
+public class SalesAggregationBenchmark {
+
+    private static final int[] HILOS = {1, 2, 4, 8};
+    private static final int CALENTAMIENTO = 3;
+    private static final int REPETICIONES = 5;
+
+    public static void main(String[] args) {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.printf("Generando %,d ventas sintéticas...%n", cantidad);
+        List<Venta> ventas = SalesAggregationServiceTest.generarVentas(cantidad, 2024);
+
+        System.out.printf("Núcleos disponibles: %d%n%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-6s %12s %10s%n", "Hilos", "Mediana ms", "Speedup");
+
+        double base = 0;
+        for (int hilos : HILOS) {
+            SalesAggregationService servicio = new SalesAggregationService(hilos);
+            for (int i = 0; i < CALENTAMIENTO; i++) {
+                servicio.agregar(ventas);
+            }
+
+            long[] tiempos = new long[REPETICIONES];
+            for (int i = 0; i < REPETICIONES; i++) {
+                long inicio = System.nanoTime();
+                AgregadoVentas resultado = servicio.agregar(ventas);
+                tiempos[i] = System.nanoTime() - inicio;
+                if (resultado.getTransacciones() != cantidad) {
+                    throw new IllegalStateException("Conteo inesperado: " + resultado.getTransacciones());
+                }
+            }
+            servicio.shutdown();
+
+            java.util.Arrays.sort(tiempos);
+            double medianaMs = tiempos[REPETICIONES / 2] / 1_000_000.0;
+            if (hilos == 1) {
+                base = medianaMs;
+            }
+            System.out.printf("%-6d %12.1f %9.2fx%n", hilos, medianaMs, base / medianaMs);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+
+/**
+ * Tests para SalesAggregationService
+ * Verifica que la agregación paralela coincide con la secuencial para cualquier número de hilos
+ */
+@DisplayName("Tests para SalesAggregationService")
+public class SalesAggregationServiceTest {
+
+    static final String[] PRODUCTOS = {"Latte", "Americano", "Croissant", "Muffin", "Té", "Sandwich"};
+
+    /**
+     * Genera ventas sintéticas repartidas en un año, en orden cronológico
+     */
+    static List<Venta> generarVentas(int cantidad, long semilla) {
+        Random random = new Random(semilla);
+        LocalDateTime inicio = LocalDateTime.of(2024, 1, 1, 8, 0);
+        long segundosAnio = 365L * 24 * 3600;
+        List<Venta> ventas = new ArrayList<>(cantidad);
+
+        for (int i = 0; i < cantidad; i++) {
+            List<Producto> items = new ArrayList<>();
+            double total = 0;
+            int lineas = 1 + random.nextInt(3);
+            for (int j = 0; j < lineas; j++) {
+                String nombre = PRODUCTOS[random.nextInt(PRODUCTOS.length)];
+                double precio = 1.5 + random.nextInt(8) * 0.5;
+                int unidades = 1 + random.nextInt(3);
+                items.add(new Producto(nombre, precio, unidades));
+                total += precio * unidades;
+            }
+            LocalDateTime fecha = inicio.plusSeconds(segundosAnio * i / cantidad);
+            ventas.add(new Venta("V" + i, fecha, items, total));
+        }
+        return ventas;
+    }
+
+    @Test
+    @DisplayName("Agregar ventas por mes con totales y unidades por producto")
+    void testAgregarPorMes() {
+        // Given
+        List<Venta> ventas = List.of(
+            new Venta("V1", LocalDateTime.of(2024, 1, 10, 9, 0), List.of(new Producto("Latte", 5.0, 2)), 10.0),
+            new Venta("V2", LocalDateTime.of(2024, 1, 20, 9, 0), List.of(new Producto("Té", 2.0, 1)), 2.0),
+            new Venta("V3", LocalDateTime.of(2024, 2, 1, 9, 0), List.of(new Producto("Latte", 5.0, 1)), 5.0)
+        );
+        SalesAggregationService servicio = new SalesAggregationService(2);
+
+        // When
+        SortedMap<YearMonth, AgregadoVentas> resumen = servicio.agregarPorMes(ventas);
+        servicio.shutdown();
+
+        // Then
+        assertEquals(2, resumen.size());
+        AgregadoVentas enero = resumen.get(YearMonth.of(2024, 1));
+        assertEquals(2, enero.getTransacciones());
+        assertEquals(12.0, enero.getIngresos(), 0.001);
+        assertEquals(2L, enero.getUnidadesPorProducto().get("Latte").longValue());
+        assertEquals(10.0, enero.getIngresosPorProducto().get("Latte"), 0.001);
+        assertEquals(YearMonth.of(2024, 1), resumen.firstKey());
+    }
+
+    @Test
+    @DisplayName("El resultado no depende del número de hilos")
+    void testResultadoIndependienteDelParalelismo() {
+        // Given
+        List<Venta> ventas = generarVentas(100_000, 42);
+        AgregadoVentas referencia = null;
+
+        for (int hilos : new int[] {1, 2, 4, 8}) {
+            // When
+            SalesAggregationService servicio = new SalesAggregationService(hilos);
+            AgregadoVentas resultado = servicio.agregar(ventas);
+            servicio.shutdown();
+
+            // Then
+            if (referencia == null) {
+                referencia = resultado;
+                continue;
+            }
+            assertEquals(referencia.getTransacciones(), resultado.getTransacciones());
+            assertEquals(referencia.getIngresos(), resultado.getIngresos(), 1e-6);
+            assertEquals(referencia.getUnidadesPorProducto(), resultado.getUnidadesPorProducto());
+            assertEquals(referencia.getCuantilTicket(0.5), resultado.getCuantilTicket(0.5), 0.0);
+            assertEquals(referencia.getCuantilTicket(0.99), resultado.getCuantilTicket(0.99), 0.0);
+        }
+    }
+
+    @Test
+    @DisplayName("Lista vacía produce resumen vacío")
+    void testListaVacia() {
+        // Given
+        SalesAggregationService servicio = new SalesAggregationService(1);
+
+        // When
+        AgregadoVentas resultado = servicio.agregar(new ArrayList<>());
+        servicio.shutdown();
+
+        // Then
+        assertEquals(0, resultado.getTransacciones());
+        assertEquals(0.0, resultado.getTicketPromedio(), 0.0);
+    }
+}
@@ -0,0 +1,213 @@
+package com.cafeteriapos.analytics;
+
+import com.cafeteriapos.models.ResumenDiario;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests para TicketDistributionService
+ * Verifica el sketch incremental por día y la combinación de rangos persistidos
+ */
+@DisplayName("Tests para TicketDistributionService")
+public class TicketDistributionServiceTest {
+
+    private static final LocalDate DIA_1 = LocalDate.of(2024, 5, 1);
+    private static final LocalDate DIA_2 = LocalDate.of(2024, 5, 2);
+
+    private Map<LocalDate, ResumenDiario> tabla;
+
+    @BeforeEach
+    void setUp() {
+        tabla = new ConcurrentSkipListMap<>();
+    }
+
+    private TicketDistributionService crearServicio(LocalDate hoy) {
+        return new TicketDistributionService(
+            resumen -> tabla.put(resumen.getFecha(), resumen),
+            (desde, hasta) -> new ArrayList<>(new TreeMap<>(tabla).subMap(desde, true, hasta, true).values()),
+            Executors.newSingleThreadExecutor(), hoy);
+    }
+
+    private static Venta venta(String id, LocalDate dia, double total) {
+        return new Venta(id, dia.atTime(12, 0), new ArrayList<>(), total);
+    }
+
+    @Test
+    @DisplayName("El sketch del día se actualiza y persiste con cada venta")
+    void testActualizacionIncremental() {
+        // Given
+        TicketDistributionService servicio = crearServicio(DIA_1);
+
+        // When
+        servicio.registrarVenta(venta("V1", DIA_1, 10.0));
+        servicio.registrarVenta(venta("V2", DIA_1, 20.0));
+        servicio.registrarVenta(venta("V3", DIA_1, 300.0));
+        servicio.shutdown();
+
+        // Then
+        assertEquals(3, servicio.getTransaccionesHoy());
+        assertEquals(20.0, servicio.combinarRango(DIA_1, DIA_1).cuantil(0.5), 0.0);
+        ResumenDiario guardado = tabla.get(DIA_1);
+        assertNotNull(guardado);
+        assertEquals(3, guardado.getTransacciones());
+        assertEquals(330.0, guardado.getIngresos(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Al cambiar de día se cierra el anterior y el rango combina ambos")
+    void testCambioDeDiaYRango() {
+        // Given
+        TicketDistributionService servicio = crearServicio(DIA_1);
+        for (int i = 0; i < 10; i++) {
+            servicio.registrarVenta(venta("A" + i, DIA_1, 10.0));
+        }
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            servicio.registrarVenta(venta("B" + i, DIA_2, 50.0));
+        }
+        servicio.shutdown();
+
+        // Then
+        assertEquals(DIA_2, servicio.getDiaActual());
+        assertEquals(10, tabla.get(DIA_1).getTransacciones());
+        KllSketch rango = servicio.combinarRango(DIA_1, DIA_2);
+        assertEquals(20, rango.getConteo());
+        assertEquals(10.0, rango.cuantil(0.25), 0.0);
+        assertEquals(50.0, rango.cuantil(0.9), 0.0);
+    }
+
+    @Test
+    @DisplayName("Los días cerrados se leen desde el resumen persistido")
+    void testLecturaDesdeResumenPersistido() {
+        // Given
+        TicketDistributionService anterior = crearServicio(DIA_1);
+        List.of(5.0, 7.0, 9.0).forEach(monto -> anterior.registrarVenta(venta("V" + monto, DIA_1, monto)));
+        anterior.shutdown();
+
+        // When
+        TicketDistributionService nuevo = crearServicio(DIA_2);
+        KllSketch dia1 = nuevo.combinarRango(DIA_1, DIA_1);
+
+        // Then
+        assertEquals(3, dia1.getConteo());
+        assertEquals(7.0, dia1.cuantil(0.5), 0.0);
+        assertEquals(1, nuevo.getDiasEnMemoria());
+    }
+
+    @Test
+    @DisplayName("Los días sin resumen se guardan vacíos y no se vuelven a consultar")
+    void testDiasSinResumenNoSeReconsultan() {
+        // Given: un resumen el día 1; del 2 al 30 no hubo ventas
+        TicketDistributionService anterior = crearServicio(DIA_1);
+        anterior.registrarVenta(venta("V1", DIA_1, 12.0));
+        anterior.shutdown();
+        AtomicInteger lecturas = new AtomicInteger(0);
+        TicketDistributionService nuevo = new TicketDistributionService(
+            resumen -> tabla.put(resumen.getFecha(), resumen),
+            (desde, hasta) -> {
+                lecturas.incrementAndGet();
+                return new ArrayList<>(new TreeMap<>(tabla).subMap(desde, true, hasta, true).values());
+            },
+            Executors.newSingleThreadExecutor(), DIA_1.plusDays(30));
+
+        // When
+        KllSketch primera = nuevo.combinarRango(DIA_1, DIA_1.plusDays(29));
+        KllSketch segunda = nuevo.combinarRango(DIA_1, DIA_1.plusDays(29));
+        nuevo.shutdown();
+
+        // Then
+        assertEquals(1, primera.getConteo());
+        assertEquals(1, segunda.getConteo());
+        assertEquals(1, lecturas.get());
+        assertEquals(30, nuevo.getDiasEnMemoria());
+    }
+
+    @Test
+    @DisplayName("Una venta de ayer registrada tras el cambio de día se suma a su resumen")
+    void testVentaAtrasadaTrasCambioDeDia() {
+        // Given
+        TicketDistributionService servicio = crearServicio(DIA_1);
+        servicio.registrarVenta(venta("A1", DIA_1, 10.0));
+        servicio.registrarVenta(venta("A2", DIA_1, 20.0));
+        servicio.registrarVenta(venta("B1", DIA_2, 50.0));
+
+        // When
+        servicio.registrarVenta(venta("A3", DIA_1, 30.0));
+        servicio.shutdown();
+
+        // Then
+        assertEquals(DIA_2, servicio.getDiaActual());
+        assertEquals(1, servicio.getTransaccionesHoy());
+        ResumenDiario dia1 = tabla.get(DIA_1);
+        assertEquals(3, dia1.getTransacciones());
+        assertEquals(60.0, dia1.getIngresos(), 0.001);
+        assertEquals(3, KllSketch.fromBytes(dia1.getSketchTicket()).getConteo());
+        KllSketch enMemoria = servicio.combinarRango(DIA_1, DIA_1);
+        assertEquals(3, enMemoria.getConteo());
+        assertEquals(20.0, enMemoria.cuantil(0.5), 0.0);
+    }
+
+    @Test
+    @DisplayName("Al arrancar, el día en curso se reconstruye desde sus ventas aunque el resumen esté atrasado")
+    void testDiaActualSeReconstruyeDesdeVentas() {
+        // Given: el resumen guardado perdió la última venta por un corte
+        KllSketch atrasado = new KllSketch();
+        atrasado.registrar(10.0);
+        tabla.put(DIA_1, new ResumenDiario(DIA_1, 1, 10.0, atrasado.toBytes()));
+        List<Venta> ventasDia = List.of(venta("V1", DIA_1, 10.0), venta("V2", DIA_1, 30.0));
+        TicketDistributionService servicio = new TicketDistributionService(
+            resumen -> tabla.put(resumen.getFecha(), resumen),
+            (desde, hasta) -> new ArrayList<>(new TreeMap<>(tabla).subMap(desde, true, hasta, true).values()),
+            (desde, hasta) -> ventasDia,
+            Executors.newSingleThreadExecutor(), DIA_1);
+
+        // When
+        servicio.cargarDiaActual();
+        servicio.shutdown();
+
+        // Then
+        assertEquals(2, servicio.getTransaccionesHoy());
+        assertEquals(40.0, servicio.getIngresosHoy(), 0.001);
+        assertEquals(2, tabla.get(DIA_1).getTransacciones());
+    }
+
+    @Test
+    @DisplayName("Si no se pueden leer las ventas del día se retoma el resumen guardado")
+    void testDiaActualConLecturaFallidaRetomaResumen() {
+        // Given
+        KllSketch guardado = new KllSketch();
+        guardado.registrar(10.0);
+        guardado.registrar(20.0);
+        tabla.put(DIA_1, new ResumenDiario(DIA_1, 2, 30.0, guardado.toBytes()));
+        TicketDistributionService servicio = new TicketDistributionService(
+            resumen -> tabla.put(resumen.getFecha(), resumen),
+            (desde, hasta) -> new ArrayList<>(new TreeMap<>(tabla).subMap(desde, true, hasta, true).values()),
+            (desde, hasta) -> {
+                throw new RuntimeException("Error leyendo ventas con items");
+            },
+            Executors.newSingleThreadExecutor(), DIA_1);
+
+        // When
+        servicio.cargarDiaActual();
+        servicio.registrarVenta(venta("V3", DIA_1, 40.0));
+        servicio.shutdown();
+
+        // Then
+        assertEquals(3, servicio.getTransaccionesHoy());
+        assertEquals(3, tabla.get(DIA_1).getTransacciones());
+        assertEquals(70.0, tabla.get(DIA_1).getIngresos(), 0.001);
+    }
+}
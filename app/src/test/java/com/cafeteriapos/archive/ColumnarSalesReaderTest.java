@@ -0,0 +1,160 @@
+package com.cafeteriapos.archive;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests para ColumnarSalesReader (y el formato que produce ColumnarSalesWriter)
+ * Verifica la ida y vuelta de ventas, el filtrado por rango, la compacidad y el CRC
+ */
+@DisplayName("Tests para ColumnarSalesReader")
+public class ColumnarSalesReaderTest {
+
+    private static final YearMonth MES = YearMonth.of(2024, 3);
+    private static final String[] PRODUCTOS = {"Café", "Té", "Medialuna", "Jugo", "Tostado", "Agua"};
+
+    private Path directorio;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directorio = Files.createTempDirectory("columnar");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Ventas del mes con 1 a 3 ítems, en orden aleatorio
+     */
+    static List<Venta> generarVentasMes(YearMonth mes, int cantidad, long semilla) {
+        Random random = new Random(semilla);
+        List<Venta> ventas = new ArrayList<>();
+        int segundosMes = mes.lengthOfMonth() * 86_400;
+        for (int i = 0; i < cantidad; i++) {
+            LocalDateTime hora = mes.atDay(1).atStartOfDay().plusSeconds(random.nextInt(segundosMes));
+            List<Producto> items = new ArrayList<>();
+            double total = 0;
+            for (int j = 0; j <= random.nextInt(3); j++) {
+                double precio = 1.5 + random.nextInt(10) * 0.25;
+                int cantidadItem = 1 + random.nextInt(3);
+                items.add(new Producto(PRODUCTOS[random.nextInt(PRODUCTOS.length)], precio, cantidadItem));
+                total += precio * cantidadItem;
+            }
+            ventas.add(new Venta(mes + "-V" + i, hora, items, Math.round(total * 100) / 100.0));
+        }
+        return ventas;
+    }
+
+    @Test
+    @DisplayName("Ida y vuelta: ventas, ítems y montos se recuperan en orden cronológico")
+    void testIdaYVuelta() throws IOException {
+        // Given
+        List<Venta> ventas = generarVentasMes(MES, 500, 1);
+        Path archivo = directorio.resolve("mes.col");
+        ColumnarSalesWriter.escribir(MES, ventas, archivo);
+
+        // When
+        List<Venta> leidas;
+        try (ColumnarSalesReader lector = ColumnarSalesReader.abrir(archivo)) {
+            leidas = lector.leerTodas();
+            assertEquals(MES, lector.getMes());
+            assertEquals(PRODUCTOS.length, lector.getTamanoDiccionario());
+        }
+
+        // Then
+        List<Venta> esperadas = new ArrayList<>(ventas);
+        esperadas.sort(Comparator.comparing(Venta::getFechaHora).thenComparing(Venta::getId));
+        assertEquals(esperadas.size(), leidas.size());
+        for (int i = 0; i < esperadas.size(); i++) {
+            Venta esperada = esperadas.get(i);
+            Venta leida = leidas.get(i);
+            assertEquals(esperada.getId(), leida.getId());
+            assertEquals(esperada.getFechaHora(), leida.getFechaHora());
+            assertEquals(esperada.getTotal(), leida.getTotal(), 0.001);
+            assertEquals(esperada.getItems().size(), leida.getItems().size());
+            for (int j = 0; j < esperada.getItems().size(); j++) {
+                assertEquals(esperada.getItems().get(j).getNombre(), leida.getItems().get(j).getNombre());
+                assertEquals(esperada.getItems().get(j).getPrecio(), leida.getItems().get(j).getPrecio(), 0.001);
+                assertEquals(esperada.getItems().get(j).getStock(), leida.getItems().get(j).getStock());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Filtrado por rango y suma de ingresos leyendo solo tiempos y totales")
+    void testRangoYSuma() throws IOException {
+        // Given
+        List<Venta> ventas = generarVentasMes(MES, 2000, 2);
+        Path archivo = directorio.resolve("mes.col");
+        ColumnarSalesWriter.escribir(MES, ventas, archivo);
+        LocalDateTime desde = MES.atDay(10).atStartOfDay();
+        LocalDateTime hasta = MES.atDay(20).atStartOfDay();
+
+        // When
+        List<Venta> enRango;
+        double[] suma;
+        try (ColumnarSalesReader lector = ColumnarSalesReader.abrir(archivo)) {
+            enRango = lector.leerVentas(desde, hasta);
+            suma = lector.sumarIngresos(desde, hasta);
+        }
+
+        // Then
+        List<Venta> esperadas = ventas.stream()
+            .filter(v -> !v.getFechaHora().isBefore(desde) && v.getFechaHora().isBefore(hasta))
+            .toList();
+        assertEquals(esperadas.size(), enRango.size());
+        assertEquals(esperadas.size(), (long) suma[0]);
+        assertEquals(esperadas.stream().mapToDouble(Venta::getTotal).sum(), suma[1], 0.01);
+    }
+
+    @Test
+    @DisplayName("El formato columnar ocupa pocos bytes por venta")
+    void testCompacidad() throws IOException {
+        // Given
+        List<Venta> ventas = generarVentasMes(MES, 10_000, 3);
+        Path archivo = directorio.resolve("mes.col");
+
+        // When
+        long bytes = ColumnarSalesWriter.escribir(MES, ventas, archivo);
+
+        // Then: ID (~14 B) + tiempo, total y ~2 ítems en varints
+        assertTrue(bytes / ventas.size() < 35, "Bytes por venta: " + bytes / ventas.size());
+    }
+
+    @Test
+    @DisplayName("Un archivo alterado se rechaza por CRC")
+    void testCrcInvalido() throws IOException {
+        // Given
+        Path archivo = directorio.resolve("mes.col");
+        ColumnarSalesWriter.escribir(MES, generarVentasMes(MES, 100, 4), archivo);
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{0x55}), 200);
+        }
+
+        // When / Then
+        IOException error = assertThrows(IOException.class, () -> ColumnarSalesReader.abrir(archivo));
+        assertTrue(error.getMessage().contains("CRC"));
+    }
+}
@@ -0,0 +1,338 @@
+package com.cafeteriapos.archive;
+
+import com.cafeteriapos.models.LineaVenta;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests para SalesArchive
+ * Verifica que los meses cerrados salen de la base, se consultan desde el archivo
+ * junto con la base y que reintentar tras una interrupción no duplica ventas
+ */
+@DisplayName("Tests para SalesArchive")
+public class SalesArchiveTest {
+
+    private Path directorio;
+    private List<Venta> base;
+    private SalesArchive archivo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directorio = Files.createTempDirectory("archivo");
+        base = new ArrayList<>();
+        base.addAll(ColumnarSalesReaderTest.generarVentasMes(YearMonth.of(2024, 1), 300, 1));
+        base.addAll(ColumnarSalesReaderTest.generarVentasMes(YearMonth.of(2024, 2), 300, 2));
+        base.addAll(ColumnarSalesReaderTest.generarVentasMes(YearMonth.of(2024, 3), 300, 3));
+        archivo = crearArchivo();
+    }
+
+    private SalesArchive crearArchivo() {
+        return new SalesArchive(directorio,
+            (desde, hasta) -> base.stream()
+                .filter(v -> !v.getFechaHora().isBefore(desde) && v.getFechaHora().isBefore(hasta))
+                .sorted(Comparator.comparing(Venta::getFechaHora))
+                .toList(),
+            (mes, ids) -> {
+                Set<String> borrar = new HashSet<>(ids);
+                int antes = base.size();
+                base.removeIf(v -> borrar.contains(v.getId()));
+                return antes - base.size();
+            },
+            () -> base.stream().map(Venta::getFechaHora).min(LocalDateTime::compareTo).orElse(null));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        archivo.cerrar();
+        try (var archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("Los meses anteriores al límite pasan de la base al archivo")
+    void testArchivarMesesAnteriores() throws IOException {
+        // When
+        int archivados = archivo.archivarMesesAnteriores(YearMonth.of(2024, 3));
+
+        // Then
+        assertEquals(2, archivados);
+        assertEquals(300, base.size());
+        assertEquals(new TreeSet<>(List.of(YearMonth.of(2024, 1), YearMonth.of(2024, 2))), archivo.getMesesArchivados());
+        assertEquals(600, archivo.leerVentas(
+            LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0)).size());
+    }
+
+    @Test
+    @DisplayName("Consultar un rango que cruza meses archivados")
+    void testLeerRango() throws IOException {
+        // Given
+        List<Venta> originales = new ArrayList<>(base);
+        archivo.archivarMesesAnteriores(YearMonth.of(2024, 3));
+        LocalDateTime desde = LocalDateTime.of(2024, 1, 20, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2024, 2, 10, 0, 0);
+
+        // When
+        List<Venta> leidas = archivo.leerVentas(desde, hasta);
+
+        // Then
+        long esperadas = originales.stream()
+            .filter(v -> !v.getFechaHora().isBefore(desde) && v.getFechaHora().isBefore(hasta))
+            .count();
+        assertEquals(esperadas, leidas.size());
+        for (int i = 1; i < leidas.size(); i++) {
+            assertFalse(leidas.get(i).getFechaHora().isBefore(leidas.get(i - 1).getFechaHora()));
+        }
+    }
+
+    @Test
+    @DisplayName("Ventas nuevas de un mes ya archivado se unen sin duplicar")
+    void testReArchivarMes() throws IOException {
+        // Given: enero archivado; una venta reaparece (interrupción previa) y otra llega con fecha pasada
+        YearMonth enero = YearMonth.of(2024, 1);
+        List<Venta> eneroOriginal = base.stream().filter(v -> YearMonth.from(v.getFechaHora()).equals(enero)).toList();
+        archivo.archivarMes(enero);
+        base.add(eneroOriginal.get(0));
+        base.add(new Venta("TARDIA", LocalDateTime.of(2024, 1, 31, 23, 0), new ArrayList<>(), 9.99));
+
+        // When
+        archivo.archivarMes(enero);
+
+        // Then
+        List<Venta> archivadas = archivo.leerVentas(enero.atDay(1).atStartOfDay(), enero.plusMonths(1).atDay(1).atStartOfDay());
+        assertEquals(301, archivadas.size());
+        assertTrue(archivadas.stream().anyMatch(v -> v.getId().equals("TARDIA")));
+        assertTrue(base.stream().noneMatch(v -> YearMonth.from(v.getFechaHora()).equals(enero)));
+    }
+
+    @Test
+    @DisplayName("Las consultas combinadas unen archivo y base sin duplicar, en orden cronológico")
+    void testConsultasCombinadas() throws Exception {
+        // Given: enero y febrero archivados; en la base queda marzo, una venta tardía de enero
+        // y una copia de una venta archivada (interrupción entre escribir y borrar)
+        List<Venta> originales = new ArrayList<>(base);
+        archivo.archivarMesesAnteriores(YearMonth.of(2024, 3));
+        base.add(new Venta("TARDIA", LocalDateTime.of(2024, 1, 15, 12, 0), new ArrayList<>(), 9.99));
+        base.add(originales.get(0));
+        LocalDateTime desde = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+        // When
+        List<Venta> ventas = archivo.leerVentasConBase(desde, hasta);
+        List<String> recorridas = new ArrayList<>();
+        List<LocalDateTime> fechas = new ArrayList<>();
+        boolean completo = archivo.recorrerLineasVenta(desde, hasta, (LineaVenta fila) -> {
+            if (recorridas.isEmpty() || !recorridas.get(recorridas.size() - 1).equals(fila.getVentaId())) {
+                recorridas.add(fila.getVentaId());
+                fechas.add(fila.getFechaHora());
+            }
+            return true;
+        });
+
+        // Then
+        assertEquals(901, ventas.size());
+        assertEquals(901, new HashSet<>(ventas.stream().map(Venta::getId).toList()).size());
+        assertTrue(completo);
+        assertEquals(901, recorridas.size());
+        assertEquals(new HashSet<>(ventas.stream().map(Venta::getId).toList()), new HashSet<>(recorridas));
+        assertTrue(recorridas.contains("TARDIA"));
+        for (int i = 1; i < fechas.size(); i++) {
+            assertFalse(fechas.get(i).isBefore(fechas.get(i - 1)));
+            assertFalse(ventas.get(i).getFechaHora().isBefore(ventas.get(i - 1).getFechaHora()));
+        }
+        assertEquals(originales.stream().map(Venta::getFechaHora).min(LocalDateTime::compareTo).orElseThrow(),
+            archivo.obtenerFechaVentaMasAntigua());
+        assertEquals(902, archivo.contarVentas(desde, hasta));
+    }
+
+    @Test
+    @DisplayName("Si la lectura de la base falla a mitad no se escribe archivo ni se borran ventas")
+    void testLecturaFallidaNoBorraNada() {
+        // Given: la base deja de responder después de entregar parte del mes
+        YearMonth enero = YearMonth.of(2024, 1);
+        AtomicInteger eliminaciones = new AtomicInteger(0);
+        SalesArchive conFallo = new SalesArchive(directorio,
+            (desde, hasta) -> {
+                List<Venta> leidas = new ArrayList<>();
+                for (Venta venta : base) {
+                    if (leidas.size() == 100) {
+                        throw new RuntimeException("Error leyendo ventas con items");
+                    }
+                    leidas.add(venta);
+                }
+                return leidas;
+            },
+            (mes, ids) -> {
+                eliminaciones.incrementAndGet();
+                return 0;
+            },
+            () -> base.get(0).getFechaHora());
+
+        // When
+        assertThrows(RuntimeException.class, () -> conFallo.archivarMes(enero));
+
+        // Then
+        assertEquals(0, eliminaciones.get());
+        assertEquals(900, base.size());
+        assertTrue(conFallo.getMesesArchivados().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Una venta leída con ítems de menos no pasa la verificación y no se borra nada")
+    void testItemsIncompletosNoBorranVentas() throws IOException {
+        // Given: la primera lectura pierde el último ítem de una venta, sin cambiar su total
+        YearMonth enero = YearMonth.of(2024, 1);
+        Venta cortada = base.get(0);
+        List<Venta> primeraLectura = new ArrayList<>();
+        for (Venta venta : base) {
+            if (YearMonth.from(venta.getFechaHora()).equals(enero)) {
+                primeraLectura.add(venta != cortada ? venta : new Venta(venta.getId(), venta.getFechaHora(),
+                    new ArrayList<>(venta.getItems().subList(0, venta.getItems().size() - 1)), venta.getTotal()));
+            }
+        }
+        AtomicInteger lecturas = new AtomicInteger(0);
+        AtomicInteger eliminaciones = new AtomicInteger(0);
+        SalesArchive conCorte = new SalesArchive(directorio,
+            (desde, hasta) -> lecturas.getAndIncrement() == 0 ? primeraLectura : base.stream()
+                .filter(v -> !v.getFechaHora().isBefore(desde) && v.getFechaHora().isBefore(hasta))
+                .toList(),
+            (mes, ids) -> {
+                eliminaciones.incrementAndGet();
+                return 0;
+            },
+            () -> base.get(0).getFechaHora());
+
+        // When
+        IOException error = assertThrows(IOException.class, () -> conCorte.archivarMes(enero));
+
+        // Then
+        assertTrue(error.getMessage().contains(cortada.getId()));
+        assertEquals(0, eliminaciones.get());
+        assertTrue(conCorte.getMesesArchivados().isEmpty());
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Las consultas combinadas propagan el error de la base en lugar de devolver un período incompleto")
+    void testConsultaCombinadaPropagaErrorDeBase() throws IOException {
+        // Given: enero archivado y la base sin responder
+        archivo.archivarMes(YearMonth.of(2024, 1));
+        SalesArchive sinBase = new SalesArchive(directorio,
+            (desde, hasta) -> {
+                throw new RuntimeException("Error leyendo ventas con items");
+            },
+            (mes, ids) -> 0,
+            () -> null);
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> sinBase.leerVentasConBase(
+            LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)));
+        sinBase.cerrar();
+    }
+
+    @Test
+    @DisplayName("Si el archivo anterior del mes no se puede abrir, volver a archivar no lo reemplaza")
+    void testArchivoAnteriorIlegibleNoSeReemplaza() throws IOException {
+        // Given: enero archivado con su archivo dañado y una venta tardía en la base
+        YearMonth enero = YearMonth.of(2024, 1);
+        archivo.archivarMes(enero);
+        archivo.cerrar();
+        Files.write(directorio.resolve("ventas_2024-01.col"), new byte[] {1, 2, 3});
+        base.add(new Venta("TARDIA", LocalDateTime.of(2024, 1, 31, 23, 0), new ArrayList<>(), 9.99));
+        archivo = crearArchivo();
+
+        // When
+        assertThrows(IOException.class, () -> archivo.archivarMes(enero));
+
+        // Then
+        assertTrue(base.stream().anyMatch(v -> v.getId().equals("TARDIA")));
+        assertTrue(Files.exists(directorio.resolve("ventas_2024-01.col")));
+        assertFalse(Files.exists(directorio.resolve("ventas_2024-01.1.col")));
+    }
+
+    @Test
+    @DisplayName("Una venta archivada se encuentra por ID en su mes")
+    void testContieneVenta() throws IOException {
+        // Given
+        YearMonth enero = YearMonth.of(2024, 1);
+        String id = base.get(0).getId();
+        archivo.archivarMes(enero);
+
+        // When & Then
+        assertTrue(archivo.contieneVenta(enero, id));
+        assertFalse(archivo.contieneVenta(enero, "INEXISTENTE"));
+        assertFalse(archivo.contieneVenta(YearMonth.of(2024, 2), id));
+    }
+
+    @Test
+    @DisplayName("Eliminar archivos deja el archivo vacío")
+    void testEliminarArchivos() throws IOException {
+        // Given
+        archivo.archivarMesesAnteriores(YearMonth.of(2024, 4));
+
+        // When
+        archivo.eliminarArchivos();
+
+        // Then
+        assertTrue(archivo.getMesesArchivados().isEmpty());
+        assertTrue(archivo.leerVentas(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Volver a archivar un mes escribe una generación nueva y borra la anterior")
+    void testReArchivarEscribeGeneracionNueva() throws IOException {
+        // Given
+        YearMonth enero = YearMonth.of(2024, 1);
+        archivo.archivarMes(enero);
+        base.add(new Venta("TARDIA", LocalDateTime.of(2024, 1, 31, 23, 0), new ArrayList<>(), 9.99));
+
+        // When
+        archivo.archivarMes(enero);
+
+        // Then
+        assertFalse(Files.exists(directorio.resolve("ventas_2024-01.col")));
+        assertTrue(Files.exists(directorio.resolve("ventas_2024-01.1.col")));
+        assertTrue(archivo.contieneVenta(enero, "TARDIA"));
+    }
+
+    @Test
+    @DisplayName("Al cargar el índice se usa la última generación y se borran las que quedaron")
+    void testGeneracionesPendientesSeBorranAlCargar() throws IOException {
+        // Given: enero con una generación anterior que no se pudo borrar (seguía mapeada)
+        // y febrero eliminado con una marca de vacío sobre su archivo
+        YearMonth enero = YearMonth.of(2024, 1);
+        archivo.archivarMesesAnteriores(YearMonth.of(2024, 3));
+        Path anterior = Files.copy(directorio.resolve("ventas_2024-01.col"), directorio.resolve("anterior"));
+        base.add(new Venta("TARDIA", LocalDateTime.of(2024, 1, 31, 23, 0), new ArrayList<>(), 9.99));
+        archivo.archivarMes(enero);
+        archivo.cerrar();
+        Files.move(anterior, directorio.resolve("ventas_2024-01.col"));
+        Files.createFile(directorio.resolve("ventas_2024-02.1.vacio"));
+
+        // When
+        SalesArchive reabierto = crearArchivo();
+        SortedSet<YearMonth> meses = reabierto.getMesesArchivados();
+
+        // Then
+        assertEquals(new TreeSet<>(List.of(enero)), meses);
+        assertEquals(301, reabierto.leerVentas(enero.atDay(1).atStartOfDay(), enero.plusMonths(1).atDay(1).atStartOfDay()).size());
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(List.of("ventas_2024-01.1.col"), archivos.map(p -> p.getFileName().toString()).toList());
+        }
+        reabierto.cerrar();
+    }
+}
@@ -0,0 +1,145 @@
+package com.cafeteriapos.backup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.*;
+
+/**
+ * Tests para IncrementalBackupEngine
+ * Verifica los literales SQL del script, la clasificación de tablas, la huella de contenido,
+ * la poda de segmentos (sin borrar los que siguen referenciados) y que un backup fallido no deja segmento
+ */
+@DisplayName("Tests para IncrementalBackupEngine")
+public class IncrementalBackupEngineTest {
+
+    @Test
+    @DisplayName("Literales SQL de cada tipo de valor")
+    void testLiterales() {
+        assertEquals("NULL", IncrementalBackupEngine.literal(null));
+        assertEquals("'O''Higgins'", IncrementalBackupEngine.literal("O'Higgins"));
+        assertEquals("4500.50", IncrementalBackupEngine.literal(new BigDecimal("4500.50")));
+        assertEquals("42", IncrementalBackupEngine.literal(42L));
+        assertEquals("TRUE", IncrementalBackupEngine.literal(true));
+        assertEquals("X'00ff10'", IncrementalBackupEngine.literal(new byte[]{0, (byte) 0xff, 0x10}));
+        assertEquals("TIMESTAMP '2025-03-01 08:30:00.0'",
+            IncrementalBackupEngine.literal(Timestamp.valueOf(LocalDateTime.of(2025, 3, 1, 8, 30))));
+        assertEquals("CAST('NaN' AS DOUBLE PRECISION)", IncrementalBackupEngine.literal(Double.NaN));
+    }
+
+    @Test
+    @DisplayName("Las particiones de ventas y la caja se comparan por huella")
+    void testTablasAcumulativas() {
+        assertTrue(IncrementalBackupEngine.esAcumulativa("ventas_202503"));
+        assertTrue(IncrementalBackupEngine.esAcumulativa("venta_items_202503"));
+        assertTrue(IncrementalBackupEngine.esAcumulativa("operaciones_caja"));
+        assertFalse(IncrementalBackupEngine.esAcumulativa("productos"));
+        assertFalse(IncrementalBackupEngine.esAcumulativa("particiones_ventas"));
+    }
+
+    @Test
+    @DisplayName("Un borrado y una inserción con el mismo conteo vuelven a copiar la partición")
+    void testBorradoEInsercionConMismoConteo() throws Exception {
+        // Given
+        Path directorio = Files.createTempDirectory("backups");
+        String url = "jdbc:h2:mem:huella_" + System.nanoTime() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        IncrementalBackupEngine motor = new IncrementalBackupEngine(directorio, () -> {
+            Connection conn = DriverManager.getConnection(url);
+            conn.setAutoCommit(false);
+            return conn;
+        }, Long.MAX_VALUE, Executors.newSingleThreadExecutor());
+
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE ventas_202503 (id VARCHAR(50) PRIMARY KEY, fecha_hora TIMESTAMP, total DECIMAL(10,2))");
+            stmt.execute("INSERT INTO ventas_202503 VALUES ('V1', TIMESTAMP '2025-03-01 08:00:00', 10.00), "
+                + "('V2', TIMESTAMP '2025-03-01 09:00:00', 20.00)");
+            motor.ejecutarBackup();
+            String huellaAntes = IncrementalBackupEngine.huellaContenido(conn, "ventas_202503");
+
+            // When - Se anula V2 y entra V3: el conteo sigue en 2
+            stmt.execute("DELETE FROM ventas_202503 WHERE id = 'V2'");
+            stmt.execute("INSERT INTO ventas_202503 VALUES ('V3', TIMESTAMP '2025-03-01 10:00:00', 20.00)");
+            IncrementalBackupEngine.ResultadoBackup segundo = motor.ejecutarBackup();
+
+            // Then
+            assertNotEquals(huellaAntes, IncrementalBackupEngine.huellaContenido(conn, "ventas_202503"));
+            assertTrue(huellaAntes.startsWith("2:"));
+            assertEquals(1, segundo.getTablasCopiadas());
+            assertEquals(0, segundo.getTablasSinCambios());
+        } finally {
+            motor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("La poda conserva los segmentos recientes y los que estos referencian")
+    void testPodarSegmentos() throws IOException {
+        // Given: seg 1 tiene una partición cerrada que los siguientes siguen usando
+        Path directorio = Files.createTempDirectory("backups");
+        crearSegmento(directorio, "seg_000001_20250101T030000", "seg_000001_20250101T030000");
+        crearSegmento(directorio, "seg_000002_20250102T030000", "seg_000001_20250101T030000");
+        crearSegmento(directorio, "seg_000003_20250103T030000", "seg_000001_20250101T030000");
+        crearSegmento(directorio, "seg_000004_20250104T030000", "seg_000001_20250101T030000");
+        Files.createDirectories(directorio.resolve("seg_000005_20250105T030000")); // incompleto
+
+        // When
+        int podados = IncrementalBackupEngine.podarSegmentos(directorio, 2);
+
+        // Then
+        assertEquals(2, podados);
+        assertTrue(Files.exists(directorio.resolve("seg_000001_20250101T030000")));
+        assertFalse(Files.exists(directorio.resolve("seg_000002_20250102T030000")));
+        assertTrue(Files.exists(directorio.resolve("seg_000003_20250103T030000")));
+        assertTrue(Files.exists(directorio.resolve("seg_000004_20250104T030000")));
+        assertFalse(Files.exists(directorio.resolve("seg_000005_20250105T030000")));
+        assertEquals(3, IncrementalBackupEngine.segmentosCompletos(directorio).size());
+    }
+
+    @Test
+    @DisplayName("Un backup fallido no deja segmento y no bloquea el siguiente")
+    void testBackupFallido() throws Exception {
+        // Given
+        Path directorio = Files.createTempDirectory("backups");
+        ExecutorService ejecutor = Executors.newSingleThreadExecutor();
+        IncrementalBackupEngine motor = new IncrementalBackupEngine(directorio,
+            () -> { throw new SQLException("base no disponible"); }, 1024, ejecutor);
+
+        try {
+            // When
+            CompletableFuture<IncrementalBackupEngine.ResultadoBackup> primero = motor.solicitarBackup();
+            ExecutionException error = assertThrows(ExecutionException.class, () -> primero.get(5, TimeUnit.SECONDS));
+            CompletableFuture<IncrementalBackupEngine.ResultadoBackup> segundo = motor.solicitarBackup();
+
+            // Then
+            assertInstanceOf(SQLException.class, error.getCause());
+            assertNotSame(primero, segundo);
+            assertThrows(ExecutionException.class, () -> segundo.get(5, TimeUnit.SECONDS));
+            try (var contenido = Files.list(directorio)) {
+                assertEquals(0, contenido.count());
+            }
+        } finally {
+            motor.shutdown();
+        }
+    }
+
+    private static void crearSegmento(Path directorio, String nombre, String referenciado) throws IOException {
+        Path segmento = Files.createDirectories(directorio.resolve(nombre));
+        Files.writeString(segmento.resolve("productos.sql.gz"), "x");
+        ManifiestoBackup manifiesto = new ManifiestoBackup();
+        manifiesto.agregar(new ManifiestoBackup.Entrada("productos", "", nombre, 1, 1L));
+        manifiesto.agregar(new ManifiestoBackup.Entrada("ventas_202412", "5", referenciado, 5, 2L));
+        manifiesto.escribir(segmento.resolve(ManifiestoBackup.NOMBRE_ARCHIVO));
+    }
+}
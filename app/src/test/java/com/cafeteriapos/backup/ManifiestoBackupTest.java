@@ -0,0 +1,75 @@
+package com.cafeteriapos.backup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Tests para ManifiestoBackup
+ * Verifica la escritura y lectura del manifiesto y las referencias entre segmentos
+ */
+@DisplayName("Tests para ManifiestoBackup")
+public class ManifiestoBackupTest {
+
+    @Test
+    @DisplayName("Escribir y leer conserva todas las entradas")
+    void testIdaYVuelta() throws IOException {
+        // Given
+        Path directorio = Files.createTempDirectory("manifiesto");
+        Path archivo = directorio.resolve(ManifiestoBackup.NOMBRE_ARCHIVO);
+        ManifiestoBackup manifiesto = new ManifiestoBackup();
+        manifiesto.agregar(new ManifiestoBackup.Entrada("productos", "", "seg_000002_20250101T030000", 12, 987654321L));
+        manifiesto.agregar(new ManifiestoBackup.Entrada("ventas_202412", "3400", "seg_000001_20241231T030000", 3400, 42L));
+
+        // When
+        manifiesto.escribir(archivo);
+        ManifiestoBackup leido = ManifiestoBackup.leer(archivo);
+
+        // Then
+        assertEquals(2, leido.getEntradas().size());
+        ManifiestoBackup.Entrada ventas = leido.get("ventas_202412");
+        assertEquals("3400", ventas.getHuella());
+        assertEquals("seg_000001_20241231T030000", ventas.getSegmento());
+        assertEquals(3400, ventas.getFilas());
+        assertEquals(42L, ventas.getCrc());
+        assertEquals("", leido.get("productos").getHuella());
+        assertEquals(directorio.resolve("seg_000001_20241231T030000").resolve("ventas_202412.sql.gz"),
+            ventas.getArchivo(directorio));
+        assertFalse(Files.exists(directorio.resolve(ManifiestoBackup.NOMBRE_ARCHIVO + ".tmp")));
+    }
+
+    @Test
+    @DisplayName("Segmentos referenciados y cambio de huella")
+    void testReferencias() {
+        // Given
+        ManifiestoBackup manifiesto = new ManifiestoBackup();
+        ManifiestoBackup.Entrada entrada = new ManifiestoBackup.Entrada("ventas_202501", "10", "seg_000003_x", 10, 7L);
+        manifiesto.agregar(entrada);
+        manifiesto.agregar(new ManifiestoBackup.Entrada("productos", null, "seg_000005_x", 3, 8L));
+
+        // When
+        ManifiestoBackup.Entrada actualizada = entrada.conHuella("11");
+
+        // Then
+        assertEquals(Set.of("seg_000003_x", "seg_000005_x"), manifiesto.segmentosReferenciados());
+        assertEquals("11", actualizada.getHuella());
+        assertEquals("seg_000003_x", actualizada.getSegmento());
+        assertEquals(7L, actualizada.getCrc());
+    }
+
+    @Test
+    @DisplayName("Una línea mal formada produce error de lectura")
+    void testLineaInvalida() throws IOException {
+        // Given
+        Path archivo = Files.createTempFile("manifiesto", ".txt");
+        Files.writeString(archivo, "productos\tsin campos suficientes\n");
+
+        // Then
+        assertThrows(IOException.class, () -> ManifiestoBackup.leer(archivo));
+    }
+}
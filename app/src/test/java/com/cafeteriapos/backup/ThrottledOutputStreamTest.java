@@ -0,0 +1,60 @@
+package com.cafeteriapos.backup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests para ThrottledOutputStream
+ * Verifica con un reloj simulado que la escritura respeta el límite de bytes por segundo
+ */
+@DisplayName("Tests para ThrottledOutputStream")
+public class ThrottledOutputStreamTest {
+
+    // Reloj simulado: dormir avanza el tiempo
+    private long ahora;
+
+    @Test
+    @DisplayName("Escribir 5 segundos de datos espera ~5 segundos")
+    void testRespetaLimite() throws IOException {
+        // Given
+        ByteArrayOutputStream destino = new ByteArrayOutputStream();
+        ThrottledOutputStream limitado = new ThrottledOutputStream(destino, 1000, () -> ahora, nanos -> ahora += nanos);
+
+        // When
+        limitado.write(new byte[5000]);
+
+        // Then
+        assertEquals(5000, destino.size());
+        assertEquals(5000, limitado.getBytesEscritos());
+        assertEquals(TimeUnit.SECONDS.toNanos(5), ahora, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    @DisplayName("No espera si la escritura ya va más lenta que el límite")
+    void testSinEsperaSiVaLento() throws IOException {
+        // Given
+        ThrottledOutputStream limitado = new ThrottledOutputStream(new ByteArrayOutputStream(), 1000,
+            () -> ahora, nanos -> fail("No debería esperar"));
+
+        // When: cada byte llega 10 ms después del anterior (100 B/s)
+        for (int i = 0; i < 50; i++) {
+            ahora += TimeUnit.MILLISECONDS.toNanos(10);
+            limitado.write(i);
+        }
+
+        // Then
+        assertEquals(0, limitado.getNanosEsperados());
+    }
+
+    @Test
+    @DisplayName("Un límite no positivo se rechaza")
+    void testLimiteInvalido() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new ThrottledOutputStream(new ByteArrayOutputStream(), 0));
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -262,6 +263,29 @@ public class CacheTest {
         assertTrue(datosSerializados.length > 0);
     }
 
+    @Test
+    @DisplayName("Validar reducción de capacidad: primero las listas más grandes, luego LRU")
+    void testValidarReduccionPorPresionDeMemoria() {
+        // Given
+        PerformanceCache<String, List<Integer>> ventas = new PerformanceCache<>(10, 5, true);
+        ventas.put("chica", List.of(1));
+        ventas.put("grande", List.of(1, 2, 3, 4, 5, 6));
+        ventas.put("mediana", List.of(1, 2, 3));
+        ventas.put("otra", List.of(1, 2));
+        
+        // When
+        int grandes = ventas.removeLargest(1, List::size);
+        int desalojadas = ventas.setMaxSize(2);
+        
+        // Then
+        assertEquals(1, grandes);
+        assertNull(ventas.get("grande"));
+        assertEquals(1, desalojadas);
+        assertEquals(2, ventas.getStats().getCurrentSize());
+        assertEquals(2, ventas.getMaxSize());
+        ventas.shutdown();
+    }
+
     // Clases auxiliares para testing
     private static class CacheEntry {
         private final Object value;
@@ -0,0 +1,186 @@
+package com.cafeteriapos.charts;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Tests para DashboardChartModel
+ * Verifica que los gráficos se actualizan por diferencias sin recrear datos
+ */
+@DisplayName("Tests para DashboardChartModel")
+public class DashboardChartModelTest {
+
+    private ObservableList<XYChart.Data<String, Number>> puntos;
+    private ObservableList<PieChart.Data> porciones;
+    private DashboardChartModel modelo;
+
+    @BeforeEach
+    void setUp() {
+        puntos = FXCollections.observableArrayList();
+        porciones = FXCollections.observableArrayList();
+        modelo = new DashboardChartModel(puntos, porciones);
+    }
+
+    @Test
+    @DisplayName("Calcular ventas diarias de los últimos días en orden cronológico")
+    void testCalcularVentasDiarias() {
+        // Given
+        LocalDate hoy = LocalDate.of(2024, 3, 10);
+        List<Venta> ventas = List.of(
+            new Venta("V1", hoy.atTime(10, 0), new ArrayList<>(), 100.0),
+            new Venta("V2", hoy.atTime(11, 0), new ArrayList<>(), 50.0),
+            new Venta("V3", hoy.minusDays(2).atTime(9, 0), new ArrayList<>(), 30.0),
+            new Venta("V4", hoy.minusDays(30).atTime(9, 0), new ArrayList<>(), 999.0)
+        );
+
+        // When
+        LinkedHashMap<String, Double> resultado = DashboardChartModel.calcularVentasDiarias(ventas, hoy, 7);
+
+        // Then
+        assertEquals(7, resultado.size());
+        assertEquals("04/03", resultado.keySet().iterator().next());
+        assertEquals(150.0, resultado.get("10/03"), 0.001);
+        assertEquals(30.0, resultado.get("08/03"), 0.001);
+        assertEquals(0.0, resultado.get("09/03"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Un segundo refresco sin cambios no modifica puntos")
+    void testRefrescoSinCambiosNoModifica() {
+        // Given
+        LinkedHashMap<String, Double> totales = new LinkedHashMap<>();
+        totales.put("01/03", 10.0);
+        totales.put("02/03", 20.0);
+        modelo.aplicarVentasDiarias(totales);
+        XYChart.Data<String, Number> primerPunto = puntos.get(0);
+
+        // When
+        int cambios = modelo.aplicarVentasDiarias(new LinkedHashMap<>(totales));
+
+        // Then
+        assertEquals(0, cambios);
+        assertSame(primerPunto, puntos.get(0), "Los puntos existentes deben reutilizarse");
+    }
+
+    @Test
+    @DisplayName("Solo el punto modificado cambia y la ventana se desplaza")
+    void testActualizacionIncrementalVentasDiarias() {
+        // Given
+        LinkedHashMap<String, Double> ayer = new LinkedHashMap<>();
+        ayer.put("01/03", 10.0);
+        ayer.put("02/03", 20.0);
+        ayer.put("03/03", 30.0);
+        modelo.aplicarVentasDiarias(ayer);
+        XYChart.Data<String, Number> punto0203 = puntos.get(1);
+
+        LinkedHashMap<String, Double> hoy = new LinkedHashMap<>();
+        hoy.put("02/03", 20.0);
+        hoy.put("03/03", 35.0);
+        hoy.put("04/03", 5.0);
+
+        // When
+        int cambios = modelo.aplicarVentasDiarias(hoy);
+
+        // Then
+        assertEquals(3, cambios, "Un día eliminado, uno modificado y uno agregado");
+        assertEquals(3, puntos.size());
+        assertSame(punto0203, puntos.get(0));
+        assertEquals("04/03", puntos.get(2).getXValue());
+        assertEquals(35.0, puntos.get(1).getYValue().doubleValue(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Productos top se actualizan por nombre reutilizando porciones")
+    void testActualizacionIncrementalProductosTop() {
+        // Given
+        LinkedHashMap<String, Integer> inicial = new LinkedHashMap<>();
+        inicial.put("Latte", 5);
+        inicial.put("Americano", 3);
+        modelo.aplicarProductosTop(inicial);
+        PieChart.Data porcionLatte = porciones.get(0);
+
+        LinkedHashMap<String, Integer> nuevo = new LinkedHashMap<>();
+        nuevo.put("Latte", 6);
+        nuevo.put("Expresso", 2);
+
+        // When
+        int cambios = modelo.aplicarProductosTop(nuevo);
+
+        // Then
+        assertEquals(3, cambios);
+        assertEquals(2, porciones.size());
+        assertTrue(porciones.contains(porcionLatte));
+        assertEquals(6.0, porcionLatte.getPieValue(), 0.001);
+        assertEquals("Latte (6)", porcionLatte.getName());
+    }
+
+    @Test
+    @DisplayName("Las porciones se reordenan cuando cambia el ranking")
+    void testProductosTopSeReordenanPorRanking() {
+        // Given
+        LinkedHashMap<String, Integer> inicial = new LinkedHashMap<>();
+        inicial.put("Latte", 5);
+        inicial.put("Americano", 3);
+        modelo.aplicarProductosTop(inicial);
+        PieChart.Data porcionLatte = porciones.get(0);
+        PieChart.Data porcionAmericano = porciones.get(1);
+
+        LinkedHashMap<String, Integer> nuevo = new LinkedHashMap<>();
+        nuevo.put("Mocha", 9);
+        nuevo.put("Americano", 7);
+        nuevo.put("Latte", 6);
+
+        // When
+        int cambios = modelo.aplicarProductosTop(nuevo);
+
+        // Then
+        assertEquals(4, cambios);
+        assertEquals(List.of("Mocha (9)", "Americano (7)", "Latte (6)"), porciones.stream().map(PieChart.Data::getName).toList());
+        assertSame(porcionAmericano, porciones.get(1));
+        assertSame(porcionLatte, porciones.get(2));
+    }
+
+    @Test
+    @DisplayName("Sin ventas se muestra una porción de marcador")
+    void testProductosTopSinDatos() {
+        // When
+        modelo.aplicarProductosTop(DashboardChartModel.calcularProductosTop(new ArrayList<>(), 5));
+        int cambios = modelo.aplicarProductosTop(new LinkedHashMap<>());
+
+        // Then
+        assertEquals(0, cambios);
+        assertEquals(1, porciones.size());
+        assertEquals(DashboardChartModel.SIN_DATOS, porciones.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Calcular ranking de productos más vendidos")
+    void testCalcularProductosTop() {
+        // Given
+        List<Venta> ventas = List.of(
+            new Venta("V1", LocalDateTime.now(), List.of(new Producto("Latte", 5.0, 1), new Producto("Té", 2.0, 1)), 7.0),
+            new Venta("V2", LocalDateTime.now(), List.of(new Producto("Latte", 5.0, 1)), 5.0)
+        );
+
+        // When
+        LinkedHashMap<String, Integer> top = DashboardChartModel.calcularProductosTop(ventas, 1);
+
+        // Then
+        assertEquals(1, top.size());
+        assertEquals(2, top.get("Latte"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.cafeteriapos.events;
+
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests para EventBus
+ * Verifica la entrega de eventos de dominio a sus suscriptores
+ */
+@DisplayName("Tests para EventBus")
+public class EventBusTest {
+
+    private EventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new EventBus();
+    }
+
+    @Test
+    @DisplayName("Entregar evento solo a suscriptores de su tipo")
+    void testEntregaPorTipo() {
+        // Given
+        List<String> recibidos = new ArrayList<>();
+        bus.subscribe(VentaRegistrada.class, e -> recibidos.add("venta:" + e.getVenta().getId()));
+        bus.subscribe(StockCambiado.class, e -> recibidos.add("stock:" + e.getProducto()));
+
+        // When
+        bus.publish(new VentaRegistrada(new Venta("V-1", java.time.LocalDateTime.now(), new ArrayList<>(), 10.0)));
+
+        // Then
+        assertEquals(List.of("venta:V-1"), recibidos);
+        assertEquals(1, bus.getEventosPublicados());
+    }
+
+    @Test
+    @DisplayName("Cancelar suscripción detiene la entrega")
+    void testCancelarSuscripcion() {
+        // Given
+        List<StockCambiado> recibidos = new ArrayList<>();
+        EventBus.Suscripcion suscripcion = bus.subscribe(StockCambiado.class, recibidos::add);
+
+        // When
+        suscripcion.cancelar();
+        bus.publish(new StockCambiado("Latte", 5, 5000.0));
+
+        // Then
+        assertTrue(recibidos.isEmpty());
+        assertEquals(0, bus.getSuscriptores(StockCambiado.class));
+    }
+
+    @Test
+    @DisplayName("Un suscriptor con error no afecta a los demás")
+    void testErrorEnSuscriptorAislado() {
+        // Given
+        List<CajaMovimiento> recibidos = new ArrayList<>();
+        bus.subscribe(CajaMovimiento.class, e -> { throw new IllegalStateException("fallo"); });
+        bus.subscribe(CajaMovimiento.class, recibidos::add);
+
+        // When
+        assertDoesNotThrow(() -> bus.publish(new CajaMovimiento("VENTA", 10.0, "V-1")));
+
+        // Then
+        assertEquals(1, recibidos.size());
+        assertEquals(1, bus.getErroresEntrega());
+    }
+}
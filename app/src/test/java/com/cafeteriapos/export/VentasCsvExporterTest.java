@@ -0,0 +1,166 @@
+package com.cafeteriapos.export;
+
+import com.cafeteriapos.models.LineaVenta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests para VentasCsvExporter
+ * Verifica el formato CSV, la compresión gzip, el progreso y la cancelación
+ */
+@DisplayName("Tests para VentasCsvExporter")
+public class VentasCsvExporterTest {
+
+    private static final LocalDate DIA = LocalDate.of(2024, 6, 3);
+
+    private Path directorio;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directorio = Files.createTempDirectory("exportacion");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Fuente sintética: {@code ventas} ventas de dos ítems cada una, generadas sin guardarlas
+     */
+    private static VentasCsvExporter exportadorSintetico(long ventas) {
+        return new VentasCsvExporter((desde, hasta, visitante) -> {
+            LineaVenta fila = new LineaVenta();
+            for (long v = 0; v < ventas; v++) {
+                LocalDateTime hora = desde.plusSeconds(v);
+                fila.cargar("V" + v, hora, 5.5, 1, "Café", 2.5, 1);
+                if (!visitante.visitar(fila)) return false;
+                fila.cargar("V" + v, hora, 5.5, 2, "Medialuna", 1.5, 2);
+                if (!visitante.visitar(fila)) return false;
+            }
+            return true;
+        }, (desde, hasta) -> ventas);
+    }
+
+    @Test
+    @DisplayName("Formato CSV con escape de comillas y ventas sin ítems")
+    void testFormatoCsv() throws Exception {
+        // Given
+        VentasCsvExporter exportador = new VentasCsvExporter((desde, hasta, visitante) -> {
+            LineaVenta fila = new LineaVenta();
+            fila.cargar("V1", DIA.atTime(9, 5, 7), 7.0, 1, "Té \"verde\", grande", 3.5, 2);
+            visitante.visitar(fila);
+            fila.cargar("V0", DIA.atTime(8, 0), 12.345, 0, null, 0, 0);
+            visitante.visitar(fila);
+            return true;
+        }, (desde, hasta) -> 2);
+        Path destino = directorio.resolve("ventas.csv");
+
+        // When
+        VentasCsvExporter.ResultadoExportacion resultado =
+            exportador.exportar(DIA, DIA, destino, (p, t) -> {}, () -> false);
+
+        // Then
+        List<String> lineas = Files.readAllLines(destino, StandardCharsets.UTF_8);
+        assertEquals("venta_id,fecha_hora,total_venta,linea,producto,precio_unitario,cantidad,subtotal", lineas.get(0));
+        assertEquals("V1,2024-06-03 09:05:07,7.00,1,\"Té \"\"verde\"\", grande\",3.50,2,7.00", lineas.get(1));
+        assertEquals("V0,2024-06-03 08:00:00,12.35,,,,,", lineas.get(2));
+        assertEquals(2, resultado.getVentas());
+        assertEquals(2, resultado.getFilas());
+    }
+
+    @Test
+    @DisplayName("Destino .gz se comprime y se lee igual que el CSV plano")
+    void testGzip() throws Exception {
+        // Given
+        Path plano = directorio.resolve("ventas.csv");
+        Path comprimido = directorio.resolve("ventas.csv.gz");
+
+        // When
+        exportadorSintetico(5000).exportar(DIA, DIA, plano, (p, t) -> {}, () -> false);
+        exportadorSintetico(5000).exportar(DIA, DIA, comprimido, (p, t) -> {}, () -> false);
+
+        // Then
+        byte[] descomprimido;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(comprimido))) {
+            descomprimido = in.readAllBytes();
+        }
+        assertArrayEquals(Files.readAllBytes(plano), descomprimido);
+        assertTrue(Files.size(comprimido) < Files.size(plano) / 3);
+    }
+
+    @Test
+    @DisplayName("El progreso avanza hasta el total de ventas")
+    void testProgreso() throws Exception {
+        // Given
+        List<long[]> avisos = new ArrayList<>();
+
+        // When
+        exportadorSintetico(3000).exportar(DIA, DIA.plusDays(6), directorio.resolve("ventas.csv"),
+            (procesadas, totales) -> avisos.add(new long[]{procesadas, totales}), () -> false);
+
+        // Then
+        assertTrue(avisos.size() > 3);
+        for (int i = 1; i < avisos.size(); i++) {
+            assertTrue(avisos.get(i)[0] >= avisos.get(i - 1)[0]);
+        }
+        assertEquals(3000, avisos.get(avisos.size() - 1)[0]);
+        assertEquals(3000, avisos.get(avisos.size() - 1)[1]);
+    }
+
+    @Test
+    @DisplayName("Cancelar detiene la exportación y no deja archivos")
+    void testCancelacion() throws Exception {
+        // Given: el destino ya existe de una exportación anterior
+        Path destino = directorio.resolve("ventas.csv");
+        Files.writeString(destino, "anterior");
+        long[] procesadas = {0};
+
+        // When / Then
+        assertThrows(CancellationException.class, () ->
+            exportadorSintetico(100_000).exportar(DIA, DIA, destino,
+                (p, t) -> procesadas[0] = p, () -> procesadas[0] >= 2000));
+        assertEquals("anterior", Files.readString(destino));
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(1, archivos.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Un millón de filas se exportan en flujo")
+    void testExportacionGrande() throws Exception {
+        // Given: medio millón de ventas generadas al vuelo, nunca retenidas en memoria
+        Path destino = directorio.resolve("grande.csv.gz");
+
+        // When
+        VentasCsvExporter.ResultadoExportacion resultado = exportadorSintetico(500_000).exportar(
+            DIA, DIA.plusYears(1), destino, (p, t) -> {}, () -> false);
+
+        // Then
+        long lineas;
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(destino)), StandardCharsets.UTF_8))) {
+            lineas = lector.lines().count();
+        }
+        assertEquals(500_000, resultado.getVentas());
+        assertEquals(1_000_000, resultado.getFilas());
+        assertEquals(1_000_001, lineas);
+    }
+}
@@ -0,0 +1,325 @@
+package com.cafeteriapos.journal;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Tests para SalesJournal
+ * Verifica la aplicación en orden, la recuperación tras cortes y la rotación de segmentos
+ */
+@DisplayName("Tests para SalesJournal")
+public class SalesJournalTest {
+
+    private static final Duration PLAZO = Duration.ofSeconds(5);
+
+    private static Venta venta(String id, int cantidad) {
+        return new Venta(id, LocalDateTime.of(2025, 3, 14, 10, 30, 15, 123_000_000),
+            List.of(new Producto("Café", 2.5, cantidad), new Producto("Medialuna", 1.25, 1)),
+            2.5 * cantidad + 1.25);
+    }
+
+    private static List<String> ids(List<Venta> ventas) {
+        return ventas.stream().map(Venta::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Las ventas registradas se aplican en orden")
+    void testAplicaEnOrden() throws Exception {
+        // Given
+        Path directorio = Files.createTempDirectory("journal");
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal journal = new SalesJournal(directorio, 64 * 1024, aplicadas::addAll);
+        journal.abrir();
+
+        // When
+        for (int i = 1; i <= 20; i++) {
+            journal.registrar(venta("V" + i, i));
+        }
+        boolean vacio = journal.esperarAplicadas(PLAZO);
+        journal.shutdown();
+
+        // Then
+        assertTrue(vacio);
+        assertEquals(20, aplicadas.size());
+        assertEquals("V1", aplicadas.get(0).getId());
+        assertEquals("V20", aplicadas.get(19).getId());
+        assertEquals(20, journal.getAplicadoHasta());
+    }
+
+    @Test
+    @DisplayName("Las ventas sobreviven a una base caída y no se reaplican tras el checkpoint")
+    void testRecuperaTrasFallo() throws Exception {
+        // Given: la base no responde
+        Path directorio = Files.createTempDirectory("journal");
+        SalesJournal caido = new SalesJournal(directorio, 64 * 1024, v -> {
+            throw new IllegalStateException("Base bloqueada");
+        });
+        caido.abrir();
+        caido.registrar(venta("A", 1));
+        caido.registrar(venta("B", 2));
+        assertEquals(2, caido.getPendientes());
+        caido.shutdown();
+
+        // When: se reinicia con la base disponible
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal recuperado = new SalesJournal(directorio, 64 * 1024, aplicadas::addAll);
+        recuperado.abrir();
+        assertTrue(recuperado.esperarAplicadas(PLAZO));
+        recuperado.registrar(venta("C", 3));
+        assertTrue(recuperado.esperarAplicadas(PLAZO));
+        recuperado.shutdown();
+
+        List<Venta> reaplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal otraVez = new SalesJournal(directorio, 64 * 1024, reaplicadas::addAll);
+        otraVez.abrir();
+        otraVez.shutdown();
+
+        // Then
+        assertEquals(List.of("A", "B", "C"), ids(aplicadas));
+        Venta b = aplicadas.get(1);
+        assertEquals(LocalDateTime.of(2025, 3, 14, 10, 30, 15, 123_000_000), b.getFechaHora());
+        assertEquals(6.25, b.getTotal(), 0.001);
+        assertEquals("Café", b.getItems().get(0).getNombre());
+        assertEquals(2, b.getItems().get(0).getStock());
+        assertTrue(reaplicadas.isEmpty());
+        assertEquals(3, otraVez.getUltimaSecuencia());
+    }
+
+    @Test
+    @DisplayName("Un registro final dañado se descarta y el journal sigue escribiendo")
+    void testRegistroFinalDanado() throws Exception {
+        // Given: dos ventas sin aplicar y la segunda a medio escribir
+        Path directorio = Files.createTempDirectory("journal");
+        SalesJournal caido = new SalesJournal(directorio, 64 * 1024, v -> {
+            throw new IllegalStateException("Base bloqueada");
+        });
+        caido.abrir();
+        caido.registrar(venta("A", 1));
+        caido.registrar(venta("B", 2));
+        caido.shutdown();
+
+        int longitudPrimera = VentaCodec.codificar(venta("A", 1)).length;
+        long posicionDatosSegunda = 8 + 16 + longitudPrimera + 16;
+        Path segmento;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            segmento = archivos.filter(p -> p.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] { 0x7F }), posicionDatosSegunda + 3);
+        }
+
+        // When
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal recuperado = new SalesJournal(directorio, 64 * 1024, aplicadas::addAll);
+        recuperado.abrir();
+        long secuenciaNueva = recuperado.registrar(venta("C", 3));
+        assertTrue(recuperado.esperarAplicadas(PLAZO));
+        recuperado.shutdown();
+
+        // Then: la venta dañada se pierde, la nueva ocupa su lugar
+        assertEquals(List.of("A", "C"), ids(aplicadas));
+        assertEquals(2, secuenciaNueva);
+    }
+
+    @Test
+    @DisplayName("Una venta que falla tras todos los reintentos pasa a cuarentena sin frenar a las demás")
+    void testCuarentenaTrasReintentos() throws Exception {
+        // Given: la base rechaza todo lote que contenga la venta MALA
+        Path directorio = Files.createTempDirectory("journal");
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal journal = new SalesJournal(directorio, 64 * 1024, lote -> {
+            if (lote.stream().anyMatch(v -> v.getId().equals("MALA"))) {
+                throw new IllegalStateException("Restricción violada");
+            }
+            aplicadas.addAll(lote);
+        }, 2);
+        journal.abrir();
+
+        // When
+        journal.registrar(venta("A", 1));
+        journal.registrar(venta("MALA", 2));
+        journal.registrar(venta("B", 3));
+        boolean vacio = journal.esperarAplicadas(PLAZO);
+        journal.shutdown();
+
+        // Then
+        assertTrue(vacio);
+        assertEquals(List.of("A", "B"), ids(aplicadas));
+        assertEquals(1, journal.getEnCuarentena());
+        assertEquals(1, journal.getVentasEnviadasACuarentena());
+        assertEquals(3, journal.getAplicadoHasta());
+
+        // When: al reabrir con la base sana, la venta en cuarentena se aplica
+        List<Venta> reaplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal reabierto = new SalesJournal(directorio, 64 * 1024, reaplicadas::addAll, 2);
+        reabierto.abrir();
+        long limite = System.nanoTime() + PLAZO.toNanos();
+        while (reaplicadas.isEmpty() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        reabierto.shutdown();
+
+        // Then
+        assertEquals(List.of("MALA"), ids(reaplicadas));
+        assertEquals(0, reabierto.getEnCuarentena());
+        try (Stream<Path> archivos = Files.list(directorio.resolve("cuarentena"))) {
+            assertEquals(0, archivos.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Con la base caída el lote se sigue reintentando entero y nada pasa a cuarentena")
+    void testBaseCaidaNoVaACuarentena() throws Exception {
+        // Given: la base rechaza todo y no responde
+        Path directorio = Files.createTempDirectory("journal");
+        AtomicBoolean caida = new AtomicBoolean(true);
+        AtomicInteger intentos = new AtomicInteger(0);
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal journal = new SalesJournal(directorio, 64 * 1024, lote -> {
+            intentos.incrementAndGet();
+            if (caida.get()) {
+                throw new IllegalStateException("Base bloqueada");
+            }
+            aplicadas.addAll(lote);
+        }, 2, () -> !caida.get(), Duration.ofMinutes(5));
+        journal.abrir();
+
+        // When: se superan los intentos del lote y las aplicaciones venta por venta
+        journal.registrar(venta("A", 1));
+        journal.registrar(venta("B", 2));
+        long limite = System.nanoTime() + PLAZO.toNanos();
+        while (intentos.get() < 6 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        int enCuarentenaDuranteCaida = journal.getEnCuarentena();
+        long aplicadoDuranteCaida = journal.getAplicadoHasta();
+        caida.set(false);
+        boolean vacio = journal.esperarAplicadas(PLAZO);
+        journal.shutdown();
+
+        // Then
+        assertEquals(0, enCuarentenaDuranteCaida);
+        assertEquals(0, aplicadoDuranteCaida);
+        assertTrue(vacio);
+        assertEquals(List.of("A", "B"), ids(aplicadas));
+        assertEquals(0, journal.getVentasEnviadasACuarentena());
+        assertFalse(Files.exists(directorio.resolve("cuarentena")));
+    }
+
+    @Test
+    @DisplayName("La cuarentena se reintenta periódicamente sin reabrir el journal")
+    void testCuarentenaSeReintentaPeriodicamente() throws Exception {
+        // Given: la venta MALA falla hasta que se corrige en la base
+        Path directorio = Files.createTempDirectory("journal");
+        AtomicBoolean corregida = new AtomicBoolean(false);
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal journal = new SalesJournal(directorio, 64 * 1024, lote -> {
+            if (!corregida.get() && lote.stream().anyMatch(v -> v.getId().equals("MALA"))) {
+                throw new IllegalStateException("Restricción violada");
+            }
+            aplicadas.addAll(lote);
+        }, 2, () -> true, Duration.ofMillis(100));
+        journal.abrir();
+        journal.registrar(venta("MALA", 1));
+        assertTrue(journal.esperarAplicadas(PLAZO));
+        assertEquals(1, journal.getEnCuarentena());
+
+        // When
+        corregida.set(true);
+        long limite = System.nanoTime() + PLAZO.toNanos();
+        while (journal.getEnCuarentena() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        journal.shutdown();
+
+        // Then
+        assertEquals(0, journal.getEnCuarentena());
+        assertEquals(List.of("MALA"), ids(aplicadas));
+    }
+
+    @Test
+    @DisplayName("Con la cola de sin aplicar llena el registro falla tras la espera sin escribir la venta")
+    void testColaLlenaRechazaRegistro() throws Exception {
+        // Given: capacidad para dos ventas y la base caída
+        Path directorio = Files.createTempDirectory("journal");
+        AtomicBoolean caida = new AtomicBoolean(true);
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal journal = new SalesJournal(directorio, 64 * 1024, lote -> {
+            if (caida.get()) {
+                throw new IllegalStateException("Base bloqueada");
+            }
+            aplicadas.addAll(lote);
+        }, 2, () -> !caida.get(), Duration.ofMinutes(5), 2, Duration.ofMillis(50));
+        journal.abrir();
+        journal.registrar(venta("A", 1));
+        journal.registrar(venta("B", 2));
+
+        // When
+        assertThrows(IOException.class, () -> journal.registrar(venta("C", 3)));
+        long secuenciaTrasRechazo = journal.getUltimaSecuencia();
+        caida.set(false);
+        assertTrue(journal.esperarAplicadas(PLAZO));
+        journal.registrar(venta("D", 4));
+        assertTrue(journal.esperarAplicadas(PLAZO));
+        journal.shutdown();
+
+        // Then
+        assertEquals(2, secuenciaTrasRechazo);
+        assertEquals(List.of("A", "B", "D"), ids(aplicadas));
+        assertEquals(0, journal.getPendientes());
+    }
+
+    @Test
+    @DisplayName("Los segmentos rotan y se borran una vez aplicados")
+    void testRotacionDeSegmentos() throws Exception {
+        // Given: segmentos donde caben pocas ventas
+        Path directorio = Files.createTempDirectory("journal");
+        List<Venta> aplicadas = new CopyOnWriteArrayList<>();
+        SalesJournal journal = new SalesJournal(directorio, 256, aplicadas::addAll);
+        journal.abrir();
+
+        // When
+        for (int i = 1; i <= 30; i++) {
+            journal.registrar(venta("R" + i, i));
+        }
+        assertTrue(journal.esperarAplicadas(PLAZO));
+        journal.shutdown();
+
+        // Then
+        long segmentos;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            segmentos = archivos.filter(p -> p.toString().endsWith(".seg")).count();
+        }
+        assertEquals(30, aplicadas.size());
+        assertEquals(1, segmentos);
+    }
+
+    @Test
+    @DisplayName("Una venta que no cabe en un segmento se rechaza")
+    void testVentaDemasiadoGrande() throws Exception {
+        // Given
+        SalesJournal journal = new SalesJournal(Files.createTempDirectory("journal"), 48, v -> { });
+        journal.abrir();
+
+        // When / Then
+        assertThrows(IOException.class, () -> journal.registrar(venta("GRANDE", 1)));
+        journal.shutdown();
+    }
+}
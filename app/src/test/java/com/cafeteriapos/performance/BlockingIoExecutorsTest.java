@@ -0,0 +1,80 @@
+package com.cafeteriapos.performance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests para BlockingIoExecutors
+ * Verifica los hilos virtuales por tarea y el límite de operaciones simultáneas en la base
+ */
+@DisplayName("Tests para BlockingIoExecutors")
+public class BlockingIoExecutorsTest {
+
+    @Test
+    @DisplayName("Cada tarea corre en un hilo virtual con el nombre del ejecutor")
+    void testHilosVirtualesConNombre() throws Exception {
+        // Given
+        ExecutorService executor = BlockingIoExecutors.virtualPorTarea("Prueba");
+
+        // When
+        Future<Thread> hilo = executor.submit(Thread::currentThread);
+
+        // Then
+        assertTrue(hilo.get(5, TimeUnit.SECONDS).isVirtual());
+        assertTrue(hilo.get().getName().startsWith("Prueba-"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Nunca hay más operaciones en la base que permisos")
+    void testLimitaConcurrenciaEnBase() throws Exception {
+        // Given
+        ExecutorService executor = BlockingIoExecutors.virtualPorTarea("PruebaPermisos");
+        AtomicInteger simultaneas = new AtomicInteger(0);
+        AtomicInteger maximo = new AtomicInteger(0);
+        List<Future<Integer>> tareas = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            tareas.add(executor.submit(() -> BlockingIoExecutors.conPermisoBaseDatos(() -> {
+                int actuales = simultaneas.incrementAndGet();
+                maximo.accumulateAndGet(actuales, Math::max);
+                Thread.sleep(5);
+                simultaneas.decrementAndGet();
+                return actuales;
+            })));
+        }
+        for (Future<Integer> tarea : tareas) {
+            tarea.get(10, TimeUnit.SECONDS);
+        }
+
+        // Then
+        assertTrue(maximo.get() <= BlockingIoExecutors.PERMISOS_BASE_DATOS);
+        assertEquals(BlockingIoExecutors.PERMISOS_BASE_DATOS, BlockingIoExecutors.getPermisosDisponibles());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Una operación anidada reutiliza el permiso del hilo")
+    void testOperacionAnidada() throws Exception {
+        // Given
+        int disponiblesAntes = BlockingIoExecutors.getPermisosDisponibles();
+
+        // When
+        int resultado = BlockingIoExecutors.conPermisoBaseDatos(() ->
+            BlockingIoExecutors.conPermisoBaseDatos(() ->
+                BlockingIoExecutors.conPermisoBaseDatos(() -> 42)));
+
+        // Then
+        assertEquals(42, resultado);
+        assertEquals(disponiblesAntes, BlockingIoExecutors.getPermisosDisponibles());
+    }
+}
@@ -0,0 +1,111 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.cache.PerformanceCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests para EventosJfr
+ * Verifica que el perfil distribuido activa todos los eventos de dominio y que
+ * la caché y el planificador de refrescos los emiten durante una grabación
+ */
+@DisplayName("Tests para EventosJfr")
+public class EventosJfrTest {
+
+    // Gradle ejecuta los tests con el módulo app como directorio de trabajo
+    private static final Path PERFIL = Path.of("src/dist/jfr/cafeteriapos.jfc");
+
+    private static final List<Class<?>> EVENTOS = List.of(
+        EventosJfr.FaseVenta.class,
+        EventosJfr.OperacionBaseDatos.class,
+        EventosJfr.LecturaCache.class,
+        EventosJfr.CargaCache.class,
+        EventosJfr.DesalojoCache.class,
+        EventosJfr.CicloRefresco.class,
+        EventosJfr.RefrescoDashboard.class,
+        EventosJfr.TareaSegundoPlano.class
+    );
+
+    @Test
+    @DisplayName("Sin grabación los eventos vienen desactivados")
+    void testDesactivadosPorDefecto() {
+        assertFalse(new EventosJfr.CargaCache().isEnabled());
+        assertFalse(new EventosJfr.OperacionBaseDatos().shouldCommit());
+    }
+
+    @Test
+    @DisplayName("El perfil distribuido activa cada evento de dominio sin pila")
+    void testPerfilActivaEventos() throws Exception {
+        // When
+        Map<String, String> ajustes = Configuration.create(PERFIL).getSettings();
+
+        // Then
+        for (Class<?> evento : EVENTOS) {
+            String nombre = evento.getAnnotation(Name.class).value();
+            assertEquals("true", ajustes.get(nombre + "#enabled"), "Activado: " + nombre);
+            assertNotNull(ajustes.get(nombre + "#threshold"), "Umbral: " + nombre);
+        }
+        assertEquals("1 ms", ajustes.get("com.cafeteriapos.LecturaCache#threshold"));
+        assertEquals("true", ajustes.get("jdk.GarbageCollection#enabled"));
+    }
+
+    @Test
+    @DisplayName("Con el perfil la caché y el refresco quedan en la grabación")
+    void testGrabacionConPerfil() throws Exception {
+        // Given
+        Path archivo = Files.createTempDirectory("jfr").resolve("pos.jfr");
+        PerformanceCache<String, String> cache = new PerformanceCache<>("prueba-jfr", 1, 5, false);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        RefreshScheduler scheduler = new RefreshScheduler(executor, Runnable::run, System::nanoTime);
+
+        // When
+        try (Recording grabacion = new Recording(Configuration.create(PERFIL))) {
+            grabacion.start();
+            cache.getOrCompute("a", () -> "uno");
+            cache.put("b", "dos");
+            scheduler.registrar("vista-jfr", () -> { }, Duration.ofSeconds(10), Duration.ofMinutes(5), () -> true)
+                .ejecutarCiclo();
+            grabacion.stop();
+            grabacion.dump(archivo);
+        } finally {
+            scheduler.shutdown();
+            cache.shutdown();
+        }
+
+        // Then
+        List<RecordedEvent> eventos = RecordingFile.readAllEvents(archivo);
+        RecordedEvent carga = buscar(eventos, "com.cafeteriapos.CargaCache");
+        assertEquals("prueba-jfr", carga.getString("cache"));
+        assertEquals("a", carga.getString("clave"));
+        assertTrue(carga.getBoolean("guardado"));
+        RecordedEvent desalojo = buscar(eventos, "com.cafeteriapos.DesalojoCache");
+        assertEquals("lru", desalojo.getString("motivo"));
+        assertEquals(1, desalojo.getInt("entradas"));
+        RecordedEvent ciclo = buscar(eventos, "com.cafeteriapos.CicloRefresco");
+        assertEquals("vista-jfr", ciclo.getString("vista"));
+        assertTrue(ciclo.getBoolean("ejecutado"));
+        assertEquals(Duration.ofMinutes(5).toMillis(), ciclo.getLong("proximoIntervalo"));
+    }
+
+    private static RecordedEvent buscar(List<RecordedEvent> eventos, String nombre) {
+        return eventos.stream()
+            .filter(e -> e.getEventType().getName().equals(nombre))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("Falta el evento " + nombre));
+    }
+}
@@ -0,0 +1,134 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.ExecutorRegistry.FaseCierre;
+import com.cafeteriapos.performance.ExecutorRegistry.MetricasEjecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Tests para ExecutorRegistry
+ * Verifica nombres de hilos, métricas por ejecutor y el cierre ordenado por fases
+ */
+@DisplayName("Tests para ExecutorRegistry")
+public class ExecutorRegistryTest {
+
+    private ExecutorRegistry registro;
+
+    @BeforeEach
+    void setUp() {
+        registro = new ExecutorRegistry();
+    }
+
+    private MetricasEjecutor metricas(String nombre) {
+        return registro.getMetricas().stream()
+            .filter(m -> m.getNombre().equals(nombre))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Un ejecutor de un hilo nombra su hilo e informa cola, activos y completadas")
+    void testMetricasUnHilo() throws Exception {
+        // Given
+        ExecutorService ejecutor = registro.unHilo("Prueba", FaseCierre.ANALITICA);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<String> hilo = new CompletableFuture<>();
+
+        // When: la primera tarea ocupa el hilo y dos más esperan
+        ejecutor.execute(() -> {
+            hilo.complete(Thread.currentThread().getName());
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ejecutor.execute(() -> {});
+        ejecutor.execute(() -> {});
+        assertEquals("Prueba", hilo.get(5, TimeUnit.SECONDS));
+
+        // Then
+        MetricasEjecutor ocupado = metricas("Prueba");
+        assertEquals(2, ocupado.getEnCola());
+        assertEquals(1, ocupado.getActivos());
+
+        liberar.countDown();
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(5, TimeUnit.SECONDS));
+        MetricasEjecutor terminado = metricas("Prueba");
+        assertEquals(3, terminado.getCompletadas());
+        assertEquals(0, terminado.getEnCola());
+        assertTrue(terminado.getEjecucionMaximaMs() > 0);
+    }
+
+    @Test
+    @DisplayName("Las tareas rechazadas tras el cierre se cuentan")
+    void testCuentaRechazos() {
+        // Given
+        ExecutorService ejecutor = registro.unHilo("Cerrado", FaseCierre.PERSISTENCIA);
+        ejecutor.shutdown();
+
+        // When / Then
+        assertThrows(RejectedExecutionException.class, () -> ejecutor.execute(() -> {}));
+        assertEquals(1, metricas("Cerrado").getRechazadas());
+    }
+
+    @Test
+    @DisplayName("El cierre recorre las fases en orden: acciones de la fase y luego sus ejecutores")
+    void testCierreOrdenado() {
+        // Given
+        List<String> orden = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService persistencia = registro.unHilo("Escritura", FaseCierre.PERSISTENCIA);
+        ExecutorService analitica = registro.unHilo("Analisis", FaseCierre.ANALITICA);
+        registro.alCerrar(FaseCierre.PERSISTENCIA, "journal", () -> {
+            // La escritura sigue aceptando tareas hasta que termina su propia acción de cierre
+            assertTrue(analitica.isShutdown());
+            assertFalse(persistencia.isShutdown());
+            orden.add("journal");
+        });
+        registro.alCerrar(FaseCierre.INTERFAZ, "vistas", () -> orden.add("vistas"));
+        registro.alCerrar(FaseCierre.ANALITICA, "tickets", () -> {
+            assertFalse(analitica.isShutdown());
+            orden.add("tickets");
+        });
+
+        // When
+        registro.cerrarTodo();
+
+        // Then
+        assertEquals(List.of("vistas", "tickets", "journal"), orden);
+        assertTrue(persistencia.isTerminated());
+        assertTrue(analitica.isTerminated());
+    }
+
+    @Test
+    @DisplayName("Nombres repetidos se distinguen y los ejecutores terminados se olvidan")
+    void testNombresUnicos() throws Exception {
+        // Given
+        ExecutorService primero = registro.unHilo("Repetido", FaseCierre.ANALITICA);
+        ExecutorService segundo = registro.unHilo("Repetido", FaseCierre.ANALITICA);
+
+        // Then
+        assertNotNull(metricas("Repetido"));
+        assertNotNull(metricas("Repetido#2"));
+
+        // When: ambos terminan y se crea otro
+        primero.shutdown();
+        segundo.shutdown();
+        assertTrue(primero.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(segundo.awaitTermination(5, TimeUnit.SECONDS));
+        registro.programado("Otro", FaseCierre.INTERFAZ).shutdown();
+
+        // Then
+        assertEquals(List.of("Otro"), registro.getMetricas().stream().map(MetricasEjecutor::getNombre).toList());
+        registro.cerrarFase(FaseCierre.INTERFAZ, Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,171 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.FxStallWatchdog.BloqueoFx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests para FxStallWatchdog
+ * Verifica la detección de bloqueos, la pila y la acción capturadas mientras el hilo
+ * sigue bloqueado y que los retrasos cortos no cuentan como bloqueo
+ */
+@DisplayName("Tests para FxStallWatchdog")
+public class FxStallWatchdogTest {
+
+    private static final Duration UMBRAL = Duration.ofMillis(500);
+
+    private ExecutorService hiloFx;
+    private AtomicLong reloj;
+    private AtomicInteger latidosPublicados;
+    private FxStallWatchdog vigilante;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Un hilo propio hace de hilo FX; el reloj lo avanza el test
+        hiloFx = Executors.newSingleThreadExecutor(r -> new Thread(r, "fx-prueba"));
+        reloj = new AtomicLong(0);
+        latidosPublicados = new AtomicInteger();
+        vigilante = new FxStallWatchdog(tarea -> {
+            latidosPublicados.incrementAndGet();
+            hiloFx.execute(tarea);
+        }, reloj::get, UMBRAL);
+
+        // Primer latido: identifica al hilo FX
+        vigilante.revisar();
+        esperarHiloFx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hiloFx.shutdownNow();
+    }
+
+    private void esperarHiloFx() throws Exception {
+        hiloFx.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private void avanzar(long millis) {
+        reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Ocupa el hilo FX con una acción marcada hasta que se libere el latch devuelto
+     */
+    private CountDownLatch bloquearHiloFx(String accion) throws InterruptedException {
+        CountDownLatch iniciado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        hiloFx.execute(() -> {
+            vigilante.marcarAccion(accion);
+            iniciado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(iniciado.await(5, TimeUnit.SECONDS));
+        return liberar;
+    }
+
+    @Test
+    @DisplayName("Un bloqueo largo guarda la pila del hilo FX, la acción y la duración total")
+    void testDetectaBloqueo() throws Exception {
+        // Given
+        CountDownLatch liberar = bloquearHiloFx("mostrarReporteDetallado");
+        vigilante.revisar(); // Latido en cola detrás del bloqueo
+
+        // When: el vigilante lo ve pasado el umbral, luego el hilo se libera
+        avanzar(600);
+        vigilante.revisar();
+        double enCurso = vigilante.getBloqueoEnCursoMs();
+        avanzar(600);
+        liberar.countDown();
+        esperarHiloFx();
+
+        // Then
+        assertEquals(600.0, enCurso, 0.0);
+        assertEquals(1, vigilante.getBloqueos());
+        assertEquals(Map.of("mostrarReporteDetallado", 1L), vigilante.getBloqueosPorAccion());
+        BloqueoFx bloqueo = vigilante.getRecientes().get(0);
+        assertEquals(1_200.0, bloqueo.getDuracionMs(), 0.0);
+        assertEquals("mostrarReporteDetallado", bloqueo.getAccion());
+        assertTrue(bloqueo.getPila().contains("CountDownLatch.await"), bloqueo.getPila());
+        assertTrue(bloqueo.getPila().contains(FxStallWatchdogTest.class.getName()), bloqueo.getPila());
+        assertEquals(1_200.0, vigilante.getBloqueoMaximoMs(), 0.0);
+        assertEquals(0.0, vigilante.getBloqueoEnCursoMs(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Los retrasos bajo el umbral se miden pero no cuentan como bloqueo")
+    void testRetrasoCortoNoEsBloqueo() throws Exception {
+        // Given
+        CountDownLatch liberar = bloquearHiloFx("actualizarDatos");
+        vigilante.revisar();
+
+        // When
+        avanzar(200);
+        vigilante.revisar();
+        vigilante.revisar();
+        liberar.countDown();
+        esperarHiloFx();
+
+        // Then: un solo latido pendiente a la vez
+        assertEquals(2, latidosPublicados.get());
+        assertEquals(0, vigilante.getBloqueos());
+        assertEquals(2, vigilante.getRetrasos().getConteo());
+        assertEquals(200.0, vigilante.getRetrasos().getMaximoMs(), 0.0);
+        assertEquals(0, vigilante.getRetrasos().getErrores());
+    }
+
+    @Test
+    @DisplayName("Un bloqueo que termina entre dos revisiones cuenta sin pila")
+    void testBloqueoSinCaptura() throws Exception {
+        // Given
+        CountDownLatch liberar = bloquearHiloFx("exportarReporte");
+        vigilante.revisar();
+
+        // When: se libera antes de que el vigilante vuelva a revisar
+        avanzar(700);
+        liberar.countDown();
+        esperarHiloFx();
+
+        // Then
+        List<BloqueoFx> recientes = vigilante.getRecientes();
+        assertEquals(1, recientes.size());
+        assertEquals("exportarReporte", recientes.get(0).getAccion());
+        assertEquals(FxStallWatchdog.PILA_NO_CAPTURADA, recientes.get(0).getPila());
+        assertEquals(1, vigilante.getRetrasos().getErrores());
+    }
+
+    @Test
+    @DisplayName("La marca de acción se ignora fuera del hilo FX y el latido la borra")
+    void testMarcaDeAccion() throws Exception {
+        // Given: marca desde el hilo del test
+        vigilante.marcarAccion("desdeOtroHilo");
+        CountDownLatch liberar = bloquearHiloFx(null);
+        vigilante.revisar();
+
+        // When
+        avanzar(900);
+        vigilante.revisar();
+        liberar.countDown();
+        esperarHiloFx();
+
+        // Then
+        assertEquals(FxStallWatchdog.ACCION_DESCONOCIDA, vigilante.getRecientes().get(0).getAccion());
+        assertFalse(vigilante.getBloqueosPorAccion().containsKey("desdeOtroHilo"));
+    }
+}
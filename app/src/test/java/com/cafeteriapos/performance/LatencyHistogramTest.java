@@ -0,0 +1,144 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.LatencyHistogram.ResumenLatencia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests para LatencyHistogram
+ * Verifica el error relativo de los percentiles, la ventana de un minuto,
+ * el conteo de errores y la exposición por operación en PerformanceMonitor
+ */
+@DisplayName("Tests para LatencyHistogram")
+public class LatencyHistogramTest {
+
+    private AtomicLong reloj;
+    private LatencyHistogram histograma;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new AtomicLong(0);
+        histograma = new LatencyHistogram("leerVentas", reloj::get);
+    }
+
+    private void avanzar(Duration duracion) {
+        reloj.addAndGet(duracion.toNanos());
+    }
+
+    @Test
+    @DisplayName("Los percentiles quedan dentro del error relativo de las cubetas")
+    void testPercentilesConErrorAcotado() {
+        // Given: latencias log-normales alrededor de 2 ms
+        Random random = new Random(11);
+        long[] micros = new long[20_000];
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] = 1 + (long) Math.exp(random.nextGaussian() + 7.5);
+            histograma.registrar(TimeUnit.MICROSECONDS.toNanos(micros[i]), true);
+        }
+        Arrays.sort(micros);
+
+        // When
+        ResumenLatencia resumen = histograma.resumen();
+
+        // Then
+        double errorRelativo = 1.0 / LatencyHistogram.SUBCUBETAS;
+        assertEquals(micros.length, resumen.getConteo());
+        assertEquals(micros[micros.length - 1] / 1_000.0, resumen.getMaximoMs(), 0.0);
+        double[][] casos = {{0.50, resumen.getP50Ms()}, {0.95, resumen.getP95Ms()}, {0.99, resumen.getP99Ms()}};
+        for (double[] caso : casos) {
+            double exacto = micros[(int) Math.ceil(caso[0] * micros.length) - 1] / 1_000.0;
+            assertTrue(caso[1] >= exacto, "Percentil " + caso[0] + " no debe subestimar");
+            assertEquals(exacto, caso[1], exacto * errorRelativo, "Percentil " + caso[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Cada valor cae en una cubeta cuyo rango lo contiene")
+    void testCubetasContienenValor() {
+        for (long micros : new long[] {0, 1, 15, 16, 17, 31, 32, 1_000, 65_535, 1L << 26, (1L << 27) - 1}) {
+            int indice = LatencyHistogram.indiceDe(micros);
+            assertTrue(indice < LatencyHistogram.CUBETAS);
+            assertTrue(LatencyHistogram.limiteSuperior(indice) >= micros, "Límite de " + micros);
+            assertTrue(indice == 0 || LatencyHistogram.limiteSuperior(indice - 1) < micros, "Cubeta previa de " + micros);
+        }
+        // Lo que excede el rango se acumula en la última cubeta
+        assertEquals(LatencyHistogram.CUBETAS - 1, LatencyHistogram.indiceDe(Long.MAX_VALUE / 1_000));
+    }
+
+    @Test
+    @DisplayName("La ventana olvida lo registrado hace más de un minuto pero conserva los totales")
+    void testVentanaDeUnMinuto() {
+        // Given
+        histograma.registrar(TimeUnit.MILLISECONDS.toNanos(500), false);
+        avanzar(Duration.ofSeconds(30));
+        histograma.registrar(TimeUnit.MILLISECONDS.toNanos(2), true);
+
+        // When: antes del minuto se ven ambas
+        ResumenLatencia dentro = histograma.resumen();
+
+        // Then
+        assertEquals(2, dentro.getConteo());
+        assertEquals(1, dentro.getErrores());
+        assertEquals(500.0, dentro.getMaximoMs(), 0.0);
+
+        // When: la primera sale de la ventana
+        avanzar(Duration.ofSeconds(40));
+        ResumenLatencia despues = histograma.resumen();
+
+        // Then
+        assertEquals(1, despues.getConteo());
+        assertEquals(0, despues.getErrores());
+        assertEquals(2.0, despues.getMaximoMs(), 0.0);
+        assertEquals(2, despues.getConteoTotal());
+        assertEquals(1, despues.getErroresTotales());
+    }
+
+    @Test
+    @DisplayName("Una ranura reciclada no arrastra conteos de la vuelta anterior")
+    void testRanuraRecicladaSeVacia() {
+        // Given
+        histograma.registrar(TimeUnit.MILLISECONDS.toNanos(100), true);
+
+        // When: misma ranura, una vuelta completa después
+        avanzar(Duration.ofNanos(LatencyHistogram.DURACION_RANURA_NS * LatencyHistogram.RANURAS));
+        histograma.registrar(TimeUnit.MILLISECONDS.toNanos(1), true);
+
+        // Then
+        ResumenLatencia resumen = histograma.resumen();
+        assertEquals(1, resumen.getConteo());
+        assertEquals(1.0, resumen.getMaximoMs(), 0.0);
+    }
+
+    @Test
+    @DisplayName("PerformanceMonitor expone percentiles y errores por operación")
+    @SuppressWarnings("unchecked")
+    void testMetricasPorOperacion() {
+        // Given
+        PerformanceMonitor monitor = PerformanceMonitor.getInstance();
+        String operacion = "operacionDePrueba" + System.nanoTime();
+        for (int i = 1; i <= 100; i++) {
+            monitor.recordOperation(operacion, TimeUnit.MILLISECONDS.toNanos(i), i % 10 != 0);
+        }
+
+        // When
+        Map<String, Object> latencias = (Map<String, Object>) monitor.getMetricsAsMap().get("db_latency");
+        Map<String, Object> valores = (Map<String, Object>) latencias.get(operacion);
+
+        // Then
+        assertNotNull(valores);
+        assertEquals(100L, valores.get("count"));
+        assertEquals(10L, valores.get("errors"));
+        assertEquals(100.0, (double) valores.get("max_ms"), 0.0);
+        assertEquals(50.0, (double) valores.get("p50_ms"), 50.0 / LatencyHistogram.SUBCUBETAS);
+        assertEquals(99.0, (double) valores.get("p99_ms"), 99.0 / LatencyHistogram.SUBCUBETAS);
+    }
+}
@@ -0,0 +1,112 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.MemoryPressureMonitor.EventoPresion;
+import com.cafeteriapos.performance.MemoryPressureMonitor.Nivel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests para MemoryPressureMonitor
+ * Verifica que la presión reduce los presupuestos de caché, pausa la analítica
+ * y que la capacidad se restaura de a pasos
+ */
+@DisplayName("Tests para MemoryPressureMonitor")
+public class MemoryPressureMonitorTest {
+
+    private AtomicLong reloj;
+    private List<Double> ajustes;
+    private MemoryPressureMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new AtomicLong(0);
+        ajustes = new ArrayList<>();
+        monitor = new MemoryPressureMonitor(fraccion -> {
+            ajustes.add(fraccion);
+            return 7;
+        }, reloj::get);
+    }
+
+    private void avanzar(Duration duracion) {
+        reloj.addAndGet(duracion.toNanos());
+    }
+
+    @Test
+    @DisplayName("Sobre el umbral alto se reducen los cachés a la mitad y se pausa la analítica")
+    void testPresionAltaReduceCaches() {
+        // When
+        monitor.evaluar(0.85, "test");
+
+        // Then
+        assertEquals(Nivel.ALTA, monitor.getNivel());
+        assertEquals(List.of(0.5), ajustes);
+        assertTrue(monitor.isAnaliticaPausada());
+        EventoPresion evento = monitor.getHistorial().get(0);
+        assertTrue(evento.isDescarte());
+        assertEquals(7, evento.getEntradasLiberadas());
+        assertEquals(1, monitor.getEventosDescarte());
+    }
+
+    @Test
+    @DisplayName("La presión crítica reduce más; repetir la misma presión no vuelve a descartar")
+    void testPresionCriticaYRepetida() {
+        // When
+        monitor.evaluar(0.85, "test");
+        monitor.evaluar(0.95, "test");
+        monitor.evaluar(0.95, "test");
+        monitor.evaluar(0.85, "test");
+
+        // Then
+        assertEquals(List.of(0.5, 0.25), ajustes);
+        assertEquals(Nivel.CRITICA, monitor.getNivel());
+        assertEquals(0.25, monitor.getFraccionPresupuesto());
+        assertEquals(2, monitor.getEventosDescarte());
+    }
+
+    @Test
+    @DisplayName("La capacidad se restaura de a un paso por minuto cuando baja la ocupación")
+    void testRecuperacionGradual() {
+        // Given
+        monitor.evaluar(0.95, "test");
+        ajustes.clear();
+
+        // When: la ocupación baja pero aún no pasó la espera
+        monitor.evaluar(0.40, "test");
+        assertTrue(ajustes.isEmpty());
+
+        // When: un paso por minuto
+        for (int i = 0; i < 3; i++) {
+            avanzar(Duration.ofMinutes(1));
+            monitor.evaluar(0.40, "test");
+        }
+
+        // Then
+        assertEquals(List.of(0.5, 0.75, 1.0), ajustes);
+        assertEquals(Nivel.NORMAL, monitor.getNivel());
+        assertFalse(monitor.isAnaliticaPausada());
+    }
+
+    @Test
+    @DisplayName("Entre el umbral de recuperación y el alto no se restaura ni se reduce")
+    void testZonaIntermediaMantieneEstado() {
+        // Given
+        monitor.evaluar(0.85, "test");
+        ajustes.clear();
+
+        // When
+        avanzar(Duration.ofMinutes(5));
+        monitor.evaluar(0.70, "test");
+
+        // Then
+        assertTrue(ajustes.isEmpty());
+        assertEquals(0.5, monitor.getFraccionPresupuesto());
+        assertTrue(monitor.isAnaliticaPausada());
+    }
+}
@@ -0,0 +1,151 @@
+package com.cafeteriapos.performance;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests para MetricsHttpServer y PrometheusExporter
+ * Verifica el formato de exposición de Prometheus y que el endpoint solo
+ * responde métricas y trazas en sus rutas y con los métodos esperados
+ */
+@DisplayName("Tests para MetricsHttpServer")
+public class MetricsHttpServerTest {
+
+    private MetricsHttpServer servidor;
+
+    @AfterEach
+    void tearDown() {
+        if (servidor != null) {
+            servidor.detener();
+        }
+    }
+
+    private HttpURLConnection abrir(String ruta, String metodo) throws IOException {
+        HttpURLConnection conexion = (HttpURLConnection)
+            URI.create("http://127.0.0.1:" + servidor.getPuerto() + ruta).toURL().openConnection();
+        conexion.setRequestMethod(metodo);
+        return conexion;
+    }
+
+    private static String leer(InputStream entrada) throws IOException {
+        try (entrada) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("Cada familia lleva HELP y TYPE y las etiquetas se escapan")
+    void testFormatoExposicion() {
+        // Given
+        PrometheusExporter.Exposicion exposicion = new PrometheusExporter.Exposicion();
+        Map<String, Long> caches = new LinkedHashMap<>();
+        caches.put("ventas", 12L);
+        caches.put("con \"comillas\"\\", 3L);
+
+        // When
+        exposicion.porEtiqueta("cache_hits_total", "counter", "Aciertos\ndel caché", "cache", caches, Long::doubleValue);
+        exposicion.familia("scrape_duration_seconds", "gauge", "Duración");
+        exposicion.muestra("scrape_duration_seconds", 0.25);
+
+        // Then
+        assertEquals(String.join("\n",
+            "# HELP cafeteriapos_cache_hits_total Aciertos\\ndel caché",
+            "# TYPE cafeteriapos_cache_hits_total counter",
+            "cafeteriapos_cache_hits_total{cache=\"ventas\"} 12",
+            "cafeteriapos_cache_hits_total{cache=\"con \\\"comillas\\\"\\\\\"} 3",
+            "# HELP cafeteriapos_scrape_duration_seconds Duración",
+            "# TYPE cafeteriapos_scrape_duration_seconds gauge",
+            "cafeteriapos_scrape_duration_seconds 0.25",
+            ""), exposicion.toString());
+    }
+
+    @Test
+    @DisplayName("Los valores especiales usan la notación de Prometheus")
+    void testValoresEspeciales() {
+        assertEquals("NaN", PrometheusExporter.Exposicion.formatear(Double.NaN));
+        assertEquals("+Inf", PrometheusExporter.Exposicion.formatear(Double.POSITIVE_INFINITY));
+        assertEquals("-1", PrometheusExporter.Exposicion.formatear(-1));
+        assertEquals("1.5E-4", PrometheusExporter.Exposicion.formatear(0.00015));
+    }
+
+    @Test
+    @DisplayName("GET /metrics devuelve el texto del exportador con el tipo de Prometheus")
+    void testEndpointMetricas() throws Exception {
+        // Given
+        servidor = new MetricsHttpServer(() -> "cafeteriapos_prueba 1\n", () -> "{}");
+        assertTrue(servidor.iniciar(0));
+
+        // When
+        HttpURLConnection conexion = abrir("/metrics", "GET");
+
+        // Then
+        assertEquals(200, conexion.getResponseCode());
+        assertEquals(PrometheusExporter.TIPO_CONTENIDO, conexion.getHeaderField("Content-Type"));
+        assertEquals("cafeteriapos_prueba 1\n", leer(conexion.getInputStream()));
+    }
+
+    @Test
+    @DisplayName("GET /traces devuelve el JSON de las trazas de venta")
+    void testEndpointTrazas() throws Exception {
+        // Given
+        servidor = new MetricsHttpServer(() -> "", () -> "{\"traceEvents\":[]}");
+        assertTrue(servidor.iniciar(0));
+
+        // When
+        HttpURLConnection conexion = abrir("/traces", "GET");
+
+        // Then
+        assertEquals(200, conexion.getResponseCode());
+        assertEquals(MetricsHttpServer.TIPO_JSON, conexion.getHeaderField("Content-Type"));
+        assertEquals("{\"traceEvents\":[]}", leer(conexion.getInputStream()));
+        assertEquals(404, abrir("/traces/1", "GET").getResponseCode());
+    }
+
+    @Test
+    @DisplayName("Otra ruta, otro método o un exportador con error no devuelven métricas")
+    void testRutasYMetodosRechazados() throws Exception {
+        // Given
+        boolean[] fallar = {false};
+        servidor = new MetricsHttpServer(() -> {
+            if (fallar[0]) {
+                throw new IllegalStateException("sin datos");
+            }
+            return "cafeteriapos_prueba 1\n";
+        }, () -> "{}");
+        assertTrue(servidor.iniciar(0));
+
+        // When / Then
+        assertEquals(404, abrir("/metrics/extra", "GET").getResponseCode());
+        HttpURLConnection post = abrir("/metrics", "POST");
+        assertEquals(405, post.getResponseCode());
+        assertEquals("GET, HEAD", post.getHeaderField("Allow"));
+        fallar[0] = true;
+        assertEquals(500, abrir("/metrics", "GET").getResponseCode());
+    }
+
+    @Test
+    @DisplayName("Detenido libera el puerto y puede volver a iniciarse")
+    void testDetenerYReiniciar() throws Exception {
+        // Given
+        servidor = new MetricsHttpServer(() -> "", () -> "{}");
+        assertTrue(servidor.iniciar(0));
+
+        // When
+        servidor.detener();
+
+        // Then
+        assertEquals(-1, servidor.getPuerto());
+        assertTrue(servidor.iniciar(0));
+        assertEquals(200, abrir("/metrics", "GET").getResponseCode());
+    }
+}
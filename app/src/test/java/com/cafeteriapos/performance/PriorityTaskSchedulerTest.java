@@ -0,0 +1,157 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.PriorityTaskScheduler.Admision;
+import com.cafeteriapos.performance.PriorityTaskScheduler.Prioridad;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests para PriorityTaskScheduler
+ * Verifica el orden por prioridad, el descarte por plazo, la agrupación por nombre
+ * y el descarte de la clase menos prioritaria con la cola llena
+ */
+@DisplayName("Tests para PriorityTaskScheduler")
+public class PriorityTaskSchedulerTest {
+
+    private static final Duration PLAZO = Duration.ofMinutes(1);
+
+    private Queue<Runnable> executor;
+    private AtomicLong reloj;
+    private List<String> orden;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ArrayDeque<>();
+        reloj = new AtomicLong(0);
+        orden = new ArrayList<>();
+    }
+
+    private PriorityTaskScheduler crear(int maximoEnEjecucion, int capacidad) {
+        return new PriorityTaskScheduler("test", executor::add, maximoEnEjecucion, capacidad, reloj::get);
+    }
+
+    private Runnable registrar(String nombre) {
+        return () -> orden.add(nombre);
+    }
+
+    private void ejecutarTodo() {
+        Runnable tarea;
+        while ((tarea = executor.poll()) != null) {
+            tarea.run();
+        }
+    }
+
+    @Test
+    @DisplayName("Las tareas pendientes se despachan por prioridad y en orden de llegada dentro de cada clase")
+    void testOrdenPorPrioridad() {
+        // Given: un solo lugar, ocupado por la primera tarea
+        PriorityTaskScheduler scheduler = crear(1, 10);
+        scheduler.enviar("ocupante", Prioridad.MANTENIMIENTO, PLAZO, registrar("ocupante"));
+
+        // When
+        scheduler.enviar("limpieza", Prioridad.MANTENIMIENTO, PLAZO, registrar("limpieza"));
+        scheduler.enviar("analisis", Prioridad.ANALITICA, PLAZO, registrar("analisis"));
+        scheduler.enviar("ui-1", Prioridad.INTERACTIVA, PLAZO, registrar("ui-1"));
+        scheduler.enviar("cache", Prioridad.REFRESCO_CACHE, PLAZO, registrar("cache"));
+        scheduler.enviar("ui-2", Prioridad.INTERACTIVA, PLAZO, registrar("ui-2"));
+        ejecutarTodo();
+
+        // Then
+        assertEquals(List.of("ocupante", "ui-1", "ui-2", "cache", "analisis", "limpieza"), orden);
+        assertEquals(0, scheduler.getEnEjecucion());
+    }
+
+    @Test
+    @DisplayName("Una tarea cuyo plazo vence antes de empezar se descarta")
+    void testDescartaTareaVencida() {
+        // Given
+        PriorityTaskScheduler scheduler = crear(1, 10);
+        scheduler.enviar("ocupante", Prioridad.INTERACTIVA, PLAZO, registrar("ocupante"));
+        scheduler.enviar("analisis", Prioridad.ANALITICA, Duration.ofSeconds(5), registrar("analisis"));
+        scheduler.enviar("limpieza", Prioridad.MANTENIMIENTO, Duration.ofMinutes(5), registrar("limpieza"));
+
+        // When: pasan 10 segundos antes de que se libere el lugar
+        reloj.addAndGet(Duration.ofSeconds(10).toNanos());
+        ejecutarTodo();
+
+        // Then
+        assertEquals(List.of("ocupante", "limpieza"), orden);
+        assertEquals(1, scheduler.getEstadisticas().get(Prioridad.ANALITICA).getVencidas());
+        assertEquals(0, scheduler.getEstadisticas().get(Prioridad.ANALITICA).getEjecutadas());
+    }
+
+    @Test
+    @DisplayName("Una tarea con el nombre de otra pendiente se agrupa y hereda la prioridad más alta")
+    void testAgrupaPorNombre() {
+        // Given
+        PriorityTaskScheduler scheduler = crear(1, 10);
+        scheduler.enviar("ocupante", Prioridad.INTERACTIVA, PLAZO, registrar("ocupante"));
+        scheduler.enviar("analisis", Prioridad.ANALITICA, PLAZO, registrar("analisis"));
+        scheduler.enviar("refresco", Prioridad.MANTENIMIENTO, PLAZO, registrar("refresco"));
+
+        // When
+        Admision admision = scheduler.enviar("refresco", Prioridad.REFRESCO_CACHE, PLAZO, registrar("refresco-2"));
+        ejecutarTodo();
+
+        // Then: se ejecutó una sola vez, antes que el análisis
+        assertEquals(Admision.AGRUPADA, admision);
+        assertEquals(List.of("ocupante", "refresco", "analisis"), orden);
+        assertEquals(1, scheduler.getEstadisticas().get(Prioridad.REFRESCO_CACHE).getAgrupadas());
+    }
+
+    @Test
+    @DisplayName("Con la cola llena se descarta la pendiente menos prioritaria, no la que llega")
+    void testColaLlenaDescartaMenosPrioritaria() {
+        // Given: un lugar ocupado y dos pendientes que llenan la cola
+        PriorityTaskScheduler scheduler = crear(1, 2);
+        scheduler.enviar("ocupante", Prioridad.INTERACTIVA, PLAZO, registrar("ocupante"));
+        scheduler.enviar("limpieza", Prioridad.MANTENIMIENTO, PLAZO, registrar("limpieza"));
+        scheduler.enviar("analisis", Prioridad.ANALITICA, PLAZO, registrar("analisis"));
+
+        // When
+        Admision ui = scheduler.enviar("ui", Prioridad.INTERACTIVA, PLAZO, registrar("ui"));
+        Admision otraLimpieza = scheduler.enviar("limpieza-2", Prioridad.MANTENIMIENTO, PLAZO, registrar("limpieza-2"));
+        ejecutarTodo();
+
+        // Then
+        assertEquals(Admision.ENCOLADA, ui);
+        assertEquals(Admision.RECHAZADA, otraLimpieza);
+        assertEquals(List.of("ocupante", "ui", "analisis"), orden);
+        assertEquals(2, scheduler.getEstadisticas().get(Prioridad.MANTENIMIENTO).getDescartadas());
+    }
+
+    @Test
+    @DisplayName("Las métricas por clase reflejan la profundidad de cada cola")
+    void testProfundidadPorClase() {
+        // Given
+        PriorityTaskScheduler scheduler = crear(1, 10);
+        scheduler.enviar("ocupante", Prioridad.INTERACTIVA, PLAZO, registrar("ocupante"));
+
+        // When
+        scheduler.enviar("a1", Prioridad.ANALITICA, PLAZO, registrar("a1"));
+        scheduler.enviar("a2", Prioridad.ANALITICA, PLAZO, registrar("a2"));
+        scheduler.enviar("m1", Prioridad.MANTENIMIENTO, PLAZO, registrar("m1"));
+
+        // Then
+        var estadisticas = scheduler.getEstadisticas();
+        assertEquals(0, estadisticas.get(Prioridad.INTERACTIVA).getPendientes());
+        assertEquals(1, estadisticas.get(Prioridad.INTERACTIVA).getEjecutadas());
+        assertEquals(2, estadisticas.get(Prioridad.ANALITICA).getPendientes());
+        assertEquals(1, estadisticas.get(Prioridad.MANTENIMIENTO).getPendientes());
+        assertEquals(3, scheduler.getPendientes());
+        assertEquals(1, scheduler.getEnEjecucion());
+
+        // Al cerrar se descartan las pendientes
+        assertEquals(3, scheduler.cerrar());
+        assertEquals(Admision.RECHAZADA, scheduler.enviar("tarde", Prioridad.INTERACTIVA, PLAZO, registrar("tarde")));
+    }
+}
@@ -0,0 +1,65 @@
+package com.cafeteriapos.performance;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests para RefreshCoalescer
+ * Verifica que varias solicitudes en un mismo pulso se ejecutan una sola vez
+ */
+@DisplayName("Tests para RefreshCoalescer")
+public class RefreshCoalescerTest {
+
+    private Queue<Runnable> pulso;
+    private AtomicInteger ejecuciones;
+    private RefreshCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        pulso = new ArrayDeque<>();
+        ejecuciones = new AtomicInteger();
+        coalescer = new RefreshCoalescer("test", pulso::add, ejecuciones::incrementAndGet);
+    }
+
+    private void procesarPulso() {
+        Runnable tarea;
+        while ((tarea = pulso.poll()) != null) {
+            tarea.run();
+        }
+    }
+
+    @Test
+    @DisplayName("Varias solicitudes antes del pulso generan una sola ejecución")
+    void testAgrupaSolicitudes() {
+        // When
+        coalescer.solicitar();
+        coalescer.solicitar();
+        coalescer.solicitar();
+
+        // Then
+        assertEquals(1, pulso.size(), "Solo debe programarse un runLater");
+        procesarPulso();
+        assertEquals(1, ejecuciones.get());
+        assertEquals(2, coalescer.getSolicitudesAgrupadas());
+    }
+
+    @Test
+    @DisplayName("Una solicitud posterior al pulso programa otra ejecución")
+    void testNuevaSolicitudTrasPulso() {
+        // When
+        coalescer.solicitar();
+        procesarPulso();
+        coalescer.solicitar();
+        procesarPulso();
+
+        // Then
+        assertEquals(2, ejecuciones.get());
+        assertFalse(coalescer.isPendiente());
+    }
+}
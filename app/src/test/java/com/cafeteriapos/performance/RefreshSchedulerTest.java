@@ -0,0 +1,135 @@
+package com.cafeteriapos.performance;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests para RefreshScheduler
+ * Verifica que el intervalo se adapta al ritmo de ventas y a la visibilidad
+ */
+@DisplayName("Tests para RefreshScheduler")
+public class RefreshSchedulerTest {
+
+    private static final Duration MINIMO = Duration.ofSeconds(10);
+    private static final Duration MAXIMO = Duration.ofMinutes(5);
+
+    private ScheduledExecutorService executor;
+    private AtomicLong reloj;
+    private RefreshScheduler scheduler;
+    private AtomicBoolean visible;
+    private AtomicInteger refrescos;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        reloj = new AtomicLong(0);
+        // Dispatcher directo: los ciclos se ejecutan manualmente en el test
+        scheduler = new RefreshScheduler(executor, Runnable::run, reloj::get);
+        visible = new AtomicBoolean(true);
+        refrescos = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    private RefreshScheduler.Registro registrar() {
+        return scheduler.registrar("test", refrescos::incrementAndGet, MINIMO, MAXIMO, visible::get);
+    }
+
+    @Test
+    @DisplayName("Sin ventas se usa el intervalo máximo")
+    void testTiendaInactivaUsaMaximo() {
+        // Given
+        RefreshScheduler.Registro registro = registrar();
+
+        // When
+        long siguiente = registro.ejecutarCiclo();
+
+        // Then
+        assertEquals(MAXIMO.toMillis(), siguiente);
+        assertEquals(1, refrescos.get());
+    }
+
+    @Test
+    @DisplayName("Durante un pico de ventas el intervalo se acorta hasta el mínimo")
+    void testPicoDeVentasUsaMinimo() {
+        // Given
+        RefreshScheduler.Registro registro = registrar();
+        for (int i = 0; i < 60; i++) {
+            reloj.addAndGet(Duration.ofSeconds(5).toNanos());
+            scheduler.registrarVenta();
+        }
+
+        // When
+        long siguiente = registro.ejecutarCiclo();
+
+        // Then
+        assertTrue(scheduler.getTasaVentasPorMinuto() > 2.0);
+        assertEquals(MINIMO.toMillis(), siguiente);
+    }
+
+    @Test
+    @DisplayName("El intervalo vuelve a alargarse cuando las ventas cesan")
+    void testIntervaloSeAlargaTrasPico() {
+        // Given
+        RefreshScheduler.Registro registro = registrar();
+        for (int i = 0; i < 60; i++) {
+            reloj.addAndGet(Duration.ofSeconds(5).toNanos());
+            scheduler.registrarVenta();
+        }
+        long duranteElPico = registro.ejecutarCiclo();
+
+        // When
+        reloj.addAndGet(Duration.ofMinutes(30).toNanos());
+        long despues = registro.ejecutarCiclo();
+
+        // Then
+        assertTrue(despues > duranteElPico);
+        assertTrue(despues <= MAXIMO.toMillis());
+    }
+
+    @Test
+    @DisplayName("Una vista oculta omite el refresco y se contabiliza")
+    void testVistaOcultaOmiteRefresco() {
+        // Given
+        RefreshScheduler.Registro registro = registrar();
+        visible.set(false);
+
+        // When
+        long siguiente = registro.ejecutarCiclo();
+
+        // Then
+        assertEquals(0, refrescos.get());
+        assertEquals(MAXIMO.toMillis(), siguiente);
+        assertEquals(1, registro.getOmitidos());
+        assertEquals(1, scheduler.getRefrescosOmitidos());
+        assertTrue(registro.isDesactualizado());
+    }
+
+    @Test
+    @DisplayName("Un registro cancelado no vuelve a refrescar")
+    void testRegistroCancelado() {
+        // Given
+        RefreshScheduler.Registro registro = registrar();
+
+        // When
+        registro.cancelar();
+        registro.ejecutarCiclo();
+
+        // Then
+        assertEquals(0, refrescos.get());
+        assertEquals(0, scheduler.getRegistrosActivos());
+    }
+}
@@ -0,0 +1,149 @@
+package com.cafeteriapos.performance;
+
+import com.cafeteriapos.performance.SaleTracer.Tramo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests para SaleTracer
+ * Verifica que los tramos de distintos hilos se unen por el ID de la venta, que el anillo
+ * descarta los más antiguos y que la exportación sigue el formato Trace Event
+ */
+@DisplayName("Tests para SaleTracer")
+public class SaleTracerTest {
+
+    private AtomicLong reloj;
+    private SaleTracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new AtomicLong(TimeUnit.SECONDS.toNanos(10));
+        tracer = new SaleTracer(8, reloj::get);
+    }
+
+    private void avanzar(long millis) {
+        reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    @DisplayName("Los tramos de varios hilos forman una sola traza que cierra el tramo raíz")
+    void testTrazaEntreHilos() throws Exception {
+        // Given
+        long clic = reloj.get();
+        tracer.iniciar("V-1", clic);
+        String trazaId = tracer.getTrazaId("V-1");
+        avanzar(2);
+        tracer.registrar("V-1", "carrito.validacion", clic, reloj.get(), "items", "3");
+
+        // When: el commit ocurre en otro hilo
+        CompletableFuture.runAsync(() -> tracer.medir("V-1", "db.commit", () -> avanzar(5), "lote", "2"))
+            .get(5, TimeUnit.SECONDS);
+        avanzar(10);
+        tracer.terminar("V-1");
+
+        // Then
+        List<Tramo> tramos = tracer.getTramos(trazaId);
+        assertEquals(List.of("venta", "carrito.validacion", "db.commit"),
+            tramos.stream().map(Tramo::getNombre).toList());
+        assertEquals(17.0, tramos.get(0).getDuracionMs(), 0.0);
+        assertEquals(Map.of("lote", "2"), tramos.get(2).getAtributos());
+        assertFalse(tramos.get(2).getHilo().equals(Thread.currentThread().getName()));
+        assertEquals(1, tracer.getExtremoAExtremo().getConteo());
+        assertEquals(0, tracer.getTrazasActivas());
+        assertNull(tracer.getTrazaId("V-1"));
+    }
+
+    @Test
+    @DisplayName("Una venta sin traza iniciada no registra tramos")
+    void testVentaSinTraza() {
+        // When
+        tracer.medir("recuperada", "caja.movimiento", () -> avanzar(1), "x", "1");
+        tracer.registrar("recuperada", "db.commit", 0, 10);
+        tracer.terminar("recuperada");
+
+        // Then
+        assertTrue(tracer.getTramos().isEmpty());
+        assertEquals(0, tracer.getTramosRegistrados());
+        assertEquals(0, tracer.getExtremoAExtremo().getConteo());
+    }
+
+    @Test
+    @DisplayName("Un tramo medido se registra aunque su cuerpo lance una excepción")
+    void testMedirConExcepcion() {
+        // Given
+        tracer.iniciar("V-1", reloj.get());
+
+        // When
+        assertThrows(IllegalStateException.class, () -> tracer.medir("V-1", "caja.movimiento", () -> {
+            avanzar(3);
+            throw new IllegalStateException("Caja cerrada");
+        }));
+
+        // Then
+        List<Tramo> tramos = tracer.getTramos();
+        assertEquals(1, tramos.size());
+        assertEquals("caja.movimiento", tramos.get(0).getNombre());
+        assertEquals(3.0, tramos.get(0).getDuracionMs(), 0.0);
+    }
+
+    @Test
+    @DisplayName("El anillo conserva solo los tramos más recientes")
+    void testAnilloDescartaAntiguos() {
+        // Given
+        tracer.iniciar("V-1", reloj.get());
+
+        // When: 12 tramos en un anillo de 8
+        for (int i = 0; i < 12; i++) {
+            long inicio = reloj.get();
+            avanzar(1);
+            tracer.registrar("V-1", "tramo" + i, inicio, reloj.get());
+        }
+
+        // Then
+        List<Tramo> tramos = tracer.getTramos();
+        assertEquals(8, tramos.size());
+        assertEquals("tramo4", tramos.get(0).getNombre());
+        assertEquals("tramo11", tramos.get(7).getNombre());
+        assertEquals(12, tracer.getTramosRegistrados());
+    }
+
+    @Test
+    @DisplayName("La exportación JSON usa eventos completos con metadatos de proceso e hilo")
+    void testExportarJson() {
+        // Given
+        long clic = reloj.get();
+        tracer.iniciar("V-\"7\"", clic);
+        avanzar(1);
+        tracer.registrar("V-\"7\"", "journal.escritura", clic, reloj.get(), "bytes", "120");
+        avanzar(1);
+        tracer.terminar("V-\"7\"");
+        String trazaId = tracer.getTramos().get(0).getTrazaId();
+
+        // When
+        String json = tracer.exportarJson();
+
+        // Then
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["), json);
+        assertTrue(json.endsWith("]}"), json);
+        assertTrue(json.contains("\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1"), json);
+        assertTrue(json.contains("\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1"), json);
+        assertTrue(json.contains("{\"name\":\"journal.escritura\",\"cat\":\"venta\",\"ph\":\"X\""), json);
+        assertTrue(json.contains("\"dur\":1000.000,"), json);
+        assertTrue(json.contains("\"dur\":2000.000,"), json);
+        assertTrue(json.contains("\"traceId\":\"" + trazaId + "\",\"ventaId\":\"V-\\\"7\\\"\",\"bytes\":\"120\""), json);
+    }
+
+    @Test
+    @DisplayName("Sin tramos la exportación es una lista vacía")
+    void testExportarVacio() {
+        assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[]}", tracer.exportarJson());
+    }
+}
@@ -0,0 +1,135 @@
+package com.cafeteriapos.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests para AsyncDatabase
+ * Verifica el executor propio, los plazos, la cancelación, la cola acotada y la guardia del hilo FX
+ */
+@DisplayName("Tests para AsyncDatabase")
+public class AsyncDatabaseTest {
+
+    private static ThreadPoolExecutor executorDeUnHilo(int capacidadCola) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacidadCola),
+            r -> new Thread(r, "DB-Test"));
+    }
+
+    @Test
+    @DisplayName("La operación corre en el executor de la fachada")
+    void testEjecutaEnExecutorPropio() throws Exception {
+        // Given
+        ThreadPoolExecutor executor = executorDeUnHilo(4);
+        AsyncDatabase db = new AsyncDatabase(executor, Duration.ofSeconds(5));
+
+        // When
+        String hilo = db.ejecutar("nombreHilo", () -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("DB-Test", hilo);
+        assertEquals(1, db.getCompletadas());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Una operación lenta vence el plazo y la siguiente en cola no llega a correr")
+    void testPlazoYCancelacion() throws Exception {
+        // Given: el único hilo queda ocupado
+        ThreadPoolExecutor executor = executorDeUnHilo(4);
+        AsyncDatabase db = new AsyncDatabase(executor, Duration.ofSeconds(5));
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicBoolean segundaEjecutada = new AtomicBoolean(false);
+
+        // When
+        CompletableFuture<Boolean> lenta = db.ejecutar("lenta", () -> liberar.await(5, TimeUnit.SECONDS),
+            Duration.ofMillis(50));
+        CompletableFuture<Void> enCola = db.ejecutarAccion("enCola", () -> segundaEjecutada.set(true));
+        ExecutionException vencida = assertThrows(ExecutionException.class, () -> lenta.get(5, TimeUnit.SECONDS));
+        enCola.cancel(false);
+        liberar.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then
+        assertInstanceOf(TimeoutException.class, vencida.getCause());
+        assertEquals(1, db.getVencidas());
+        assertTrue(enCola.isCancelled());
+        assertFalse(segundaEjecutada.get());
+    }
+
+    @Test
+    @DisplayName("Con la cola llena la operación falla en lugar de acumularse")
+    void testColaLlena() throws Exception {
+        // Given: hilo ocupado y cola de un lugar ya tomada
+        ThreadPoolExecutor executor = executorDeUnHilo(1);
+        AsyncDatabase db = new AsyncDatabase(executor, Duration.ofSeconds(5));
+        CountDownLatch liberar = new CountDownLatch(1);
+        db.ejecutar("ocupada", () -> liberar.await(5, TimeUnit.SECONDS));
+        db.ejecutar("encolada", () -> 1);
+
+        // When
+        CompletableFuture<Integer> rechazada = db.ejecutar("rechazada", () -> 2);
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rechazada.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(1, db.getRechazadas());
+        liberar.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Una operación vencida sigue contando en vuelo hasta que termina")
+    void testVencidaConservaPermiso() throws Exception {
+        // Given: el único hilo queda ocupado y otra operación espera en cola
+        ThreadPoolExecutor executor = executorDeUnHilo(4);
+        AsyncDatabase db = new AsyncDatabase(executor, Duration.ofSeconds(5));
+        CountDownLatch empezada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Boolean> lenta = db.ejecutar("lenta", () -> {
+            empezada.countDown();
+            return liberar.await(5, TimeUnit.SECONDS);
+        }, Duration.ofMillis(50));
+        CompletableFuture<Void> enCola = db.ejecutarAccion("enCola", () -> { });
+        assertTrue(empezada.await(5, TimeUnit.SECONDS));
+
+        // When
+        assertThrows(ExecutionException.class, () -> lenta.get(5, TimeUnit.SECONDS));
+        enCola.cancel(false);
+        int enVueloTrasVencer = db.getEnVuelo();
+        liberar.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then: la cancelada en cola liberó su lugar al instante; la vencida, al terminar
+        assertEquals(1, enVueloTrasVencer);
+        assertEquals(0, db.getEnVuelo());
+    }
+
+    @Test
+    @DisplayName("En modo desarrollo el hilo de JavaFX no puede hacer JDBC")
+    void testGuardiaHiloFx() {
+        // Given
+        String anterior = System.getProperty(AsyncDatabase.PROPIEDAD_MODO_DESARROLLO);
+
+        try {
+            // When
+            System.setProperty(AsyncDatabase.PROPIEDAD_MODO_DESARROLLO, "true");
+
+            // Then: fuera del hilo FX no pasa nada
+            assertThrows(IllegalStateException.class, () -> AsyncDatabase.verificarFueraDeHiloFx(true));
+            assertDoesNotThrow(() -> AsyncDatabase.verificarFueraDeHiloFx());
+        } finally {
+            if (anterior == null) {
+                System.clearProperty(AsyncDatabase.PROPIEDAD_MODO_DESARROLLO);
+            } else {
+                System.setProperty(AsyncDatabase.PROPIEDAD_MODO_DESARROLLO, anterior);
+            }
+        }
+    }
+}
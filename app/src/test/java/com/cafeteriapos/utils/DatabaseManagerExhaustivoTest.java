@@ -1,5 +1,8 @@
 package com.cafeteriapos.utils;
 
+import com.cafeteriapos.archive.SalesArchive;
+import com.cafeteriapos.events.EventBus;
+import com.cafeteriapos.events.ProductoEliminado;
 import com.cafeteriapos.models.Producto;
 import com.cafeteriapos.models.Venta;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,9 +11,19 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Pruebas exhaustivas para DatabaseManager
@@ -184,13 +197,21 @@ public class DatabaseManagerExhaustivoTest {
         // Verificar que existe
         List<Producto> antesEliminar = DatabaseManager.leerProductos();
         assertTrue(antesEliminar.stream().anyMatch(p -> p.getNombre().equals(nombre)));
+        List<String> eliminados = new ArrayList<>();
+        EventBus.Suscripcion suscripcion = EventBus.getInstance().subscribe(ProductoEliminado.class,
+            evento -> eliminados.add(evento.getProducto()));
         
         // When
-        DatabaseManager.eliminarProducto(producto);
+        try {
+            DatabaseManager.eliminarProducto(producto);
+        } finally {
+            suscripcion.cancelar();
+        }
         
         // Then
         List<Producto> despuesEliminar = DatabaseManager.leerProductos();
         assertFalse(despuesEliminar.stream().anyMatch(p -> p.getNombre().equals(nombre)));
+        assertEquals(List.of(nombre), eliminados);
     }
     
     @Test
@@ -199,10 +220,19 @@ public class DatabaseManagerExhaustivoTest {
         // Given
         Producto productoInexistente = new Producto("INEXISTENTE_" + System.currentTimeMillis(), 1.0, 1);
         
-        // When & Then - No debe lanzar excepción
-        assertDoesNotThrow(() -> {
-            DatabaseManager.eliminarProducto(productoInexistente);
-        });
+        List<String> eliminados = new ArrayList<>();
+        EventBus.Suscripcion suscripcion = EventBus.getInstance().subscribe(ProductoEliminado.class,
+            evento -> eliminados.add(evento.getProducto()));
+        
+        // When & Then - No debe lanzar excepción ni publicar la eliminación
+        try {
+            assertDoesNotThrow(() -> {
+                DatabaseManager.eliminarProducto(productoInexistente);
+            });
+        } finally {
+            suscripcion.cancelar();
+        }
+        assertTrue(eliminados.isEmpty());
     }
     
     @Test
@@ -227,6 +257,100 @@ public class DatabaseManagerExhaustivoTest {
         assertTrue(ventas.stream().anyMatch(v -> v.getId().equals(idVenta)));
     }
     
+    @Test
+    @DisplayName("Editar un producto mientras falla un lote del journal - la edición se conserva")
+    void testActualizarProductoDuranteLoteFallido() {
+        // Given
+        long marca = System.currentTimeMillis();
+        String vendido = PRODUCTO_TEST_PREFIX + "Vendido_" + marca;
+        String editado = PRODUCTO_TEST_PREFIX + "Editado_" + marca;
+        DatabaseManager.guardarProducto(new Producto(vendido, 2.00, 10));
+        Producto producto = new Producto(editado, 2.00, 5);
+        DatabaseManager.guardarProducto(producto);
+        
+        String idValida = VENTA_TEST_PREFIX + "Valida_" + marca;
+        Venta valida = new Venta(idValida, LocalDateTime.now(), List.of(new Producto(vendido, 2.00, 3)), 6.00);
+        // El total no cabe en DECIMAL(10,2): el lote falla después de aplicar la primera venta
+        Venta invalida = new Venta(VENTA_TEST_PREFIX + "Invalida_" + marca, LocalDateTime.now(), List.of(), 1e12);
+        
+        // When - Otro hilo edita un producto con el lote abierto
+        producto.setStock(42);
+        assertThrows(RuntimeException.class, () ->
+            DatabaseManager.aplicarVentasDesdeJournal(List.of(valida, invalida), venta -> {
+                if (venta == valida) {
+                    CompletableFuture.runAsync(() -> DatabaseManager.actualizarProducto(producto)).join();
+                }
+                return "Venta " + venta.getId();
+            }));
+        
+        // Then - El rollback deshace el lote pero no la edición ajena
+        assertEquals(42, DatabaseManager.buscarProductoPorNombre(editado).getStock());
+        assertEquals(10, DatabaseManager.buscarProductoPorNombre(vendido).getStock());
+        assertFalse(DatabaseManager.leerVentas().stream().anyMatch(v -> v.getId().equals(idValida)));
+    }
+    
+    @Test
+    @DisplayName("Una venta ya archivada que el journal vuelve a entregar no se aplica de nuevo")
+    void testVentaArchivadaNoSeReaplica() throws Exception {
+        // Given - Venta aplicada en un mes que luego se archiva
+        long marca = System.currentTimeMillis();
+        String vendido = PRODUCTO_TEST_PREFIX + "Archivado_" + marca;
+        DatabaseManager.guardarProducto(new Producto(vendido, 2.00, 10));
+        YearMonth mes = YearMonth.of(2001, 3);
+        Venta venta = new Venta(VENTA_TEST_PREFIX + "Archivada_" + marca, mes.atDay(15).atTime(10, 0),
+            List.of(new Producto(vendido, 2.00, 3)), 6.00);
+        assertEquals(List.of(true), DatabaseManager.aplicarVentasDesdeJournal(List.of(venta), v -> "Venta " + v.getId()));
+        SalesArchive archivo = SalesArchive.getInstance();
+        
+        try {
+            assertTrue(archivo.archivarMes(mes));
+            
+            // When
+            List<Boolean> aplicadas = DatabaseManager.aplicarVentasDesdeJournal(List.of(venta), v -> "Venta " + v.getId());
+            
+            // Then - Sin segunda fila ni segundo descuento de stock; la venta se sigue leyendo
+            // desde el archivo, no con las particiones en línea
+            assertEquals(List.of(false), aplicadas);
+            assertFalse(DatabaseManager.leerVentas().stream().anyMatch(v -> v.getId().equals(venta.getId())));
+            assertEquals(7, DatabaseManager.buscarProductoPorNombre(vendido).getStock());
+            assertEquals(1, archivo.leerVentasConBase(mes.atDay(1).atStartOfDay(), mes.plusMonths(1).atDay(1).atStartOfDay())
+                .stream().filter(v -> v.getId().equals(venta.getId())).count());
+        } finally {
+            archivo.cerrar();
+            Files.deleteIfExists(Paths.get("data", "archivo", "ventas_" + mes + ".col"));
+            DatabaseManager.eliminarVentasDelMes(mes, List.of(venta.getId()));
+        }
+    }
+    
+    @Test
+    @DisplayName("Eliminar ventas del mes - una venta ajena se conserva aunque la cantidad coincida")
+    void testEliminarVentasDelMesConservaAjenas() {
+        // Given - Dos ventas en la partición; se pide borrar una de ellas y otra que no está
+        long marca = System.currentTimeMillis();
+        String vendido = PRODUCTO_TEST_PREFIX + "Particion_" + marca;
+        DatabaseManager.guardarProducto(new Producto(vendido, 2.00, 10));
+        YearMonth mes = YearMonth.of(2001, 4);
+        Venta borrada = new Venta(VENTA_TEST_PREFIX + "Borrada_" + marca, mes.atDay(3).atTime(10, 0),
+            List.of(new Producto(vendido, 2.00, 1)), 2.00);
+        Venta ajena = new Venta(VENTA_TEST_PREFIX + "Ajena_" + marca, mes.atDay(4).atTime(10, 0),
+            List.of(new Producto(vendido, 2.00, 1)), 2.00);
+        DatabaseManager.aplicarVentasDesdeJournal(List.of(borrada, ajena), v -> "Venta " + v.getId());
+        
+        try {
+            // When
+            int eliminadas = DatabaseManager.eliminarVentasDelMes(mes, List.of(borrada.getId(), VENTA_TEST_PREFIX + "Inexistente"));
+            
+            // Then
+            assertEquals(1, eliminadas);
+            List<String> ids = DatabaseManager.leerVentas().stream().map(Venta::getId).toList();
+            assertFalse(ids.contains(borrada.getId()));
+            assertTrue(ids.contains(ajena.getId()));
+        } finally {
+            // Cleanup - Ya sin ventas ajenas, la partición se elimina entera
+            assertEquals(1, DatabaseManager.eliminarVentasDelMes(mes, List.of(ajena.getId())));
+        }
+    }
+    
     @Test
     @DisplayName("Guardar venta con datos nulos - manejo de errores")
     void testGuardarVentaDatosNulos() {
@@ -609,6 +733,114 @@ public class DatabaseManagerExhaustivoTest {
         DatabaseManager.eliminarProducto(producto);
     }
     
+    @Test
+    @DisplayName("Migrar ventas sin particionar - cada venta a su partición, repetible sin duplicar")
+    void testMigrarVentasSinParticionar() throws Exception {
+        // Given - Tablas únicas de una base anterior al particionado: 2 ventas en enero y 1 en febrero
+        YearMonth enero = YearMonth.of(2001, 1);
+        YearMonth febrero = YearMonth.of(2001, 2);
+        String prefijo = VENTA_TEST_PREFIX + "MIGRADA_" + System.currentTimeMillis() + "_";
+        List<String> idsEnero = List.of(prefijo + "1", prefijo + "2");
+        List<String> idsFebrero = List.of(prefijo + "3");
+        crearTablasSinParticionar(prefijo);
+        
+        try {
+            // When
+            DatabaseManager.inicializarBaseDatos();
+            
+            // Then
+            assertEquals(2, contarMigradas(VentasPartitionRouter.tablaVentas(enero), "id", prefijo));
+            assertEquals(4, contarMigradas(VentasPartitionRouter.tablaItems(enero), "venta_id", prefijo));
+            assertEquals(1, contarMigradas(VentasPartitionRouter.tablaVentas(febrero), "id", prefijo));
+            assertEquals(2, contarMigradas(VentasPartitionRouter.tablaItems(febrero), "venta_id", prefijo));
+            assertFalse(existeTablaSinParticionar());
+            
+            // When - Migración interrumpida antes del DROP: las mismas filas vuelven a migrarse
+            crearTablasSinParticionar(prefijo);
+            DatabaseManager.inicializarBaseDatos();
+            
+            // Then - Sin duplicados
+            assertEquals(2, contarMigradas(VentasPartitionRouter.tablaVentas(enero), "id", prefijo));
+            assertEquals(4, contarMigradas(VentasPartitionRouter.tablaItems(enero), "venta_id", prefijo));
+            assertEquals(1, contarMigradas(VentasPartitionRouter.tablaVentas(febrero), "id", prefijo));
+            assertEquals(2, contarMigradas(VentasPartitionRouter.tablaItems(febrero), "venta_id", prefijo));
+            assertFalse(existeTablaSinParticionar());
+        } finally {
+            // Cleanup
+            DatabaseManager.eliminarVentasDelMes(enero, idsEnero);
+            DatabaseManager.eliminarVentasDelMes(febrero, idsFebrero);
+        }
+    }
+    
+    private static void crearTablasSinParticionar(String prefijo) throws SQLException {
+        try (Connection conn = DatabaseManager.abrirConexion();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS ventas (
+                    id VARCHAR(255) PRIMARY KEY,
+                    fecha_hora TIMESTAMP NOT NULL,
+                    total DECIMAL(10,2) NOT NULL,
+                    detalle TEXT,
+                    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS venta_items (
+                    venta_id VARCHAR(255) NOT NULL,
+                    linea INTEGER NOT NULL,
+                    producto VARCHAR(255) NOT NULL,
+                    precio DECIMAL(10,2) NOT NULL,
+                    cantidad INTEGER NOT NULL,
+                    PRIMARY KEY (venta_id, linea)
+                )
+            """);
+            
+            LocalDateTime[] fechas = {
+                LocalDateTime.of(2001, 1, 10, 9, 0),
+                LocalDateTime.of(2001, 1, 31, 23, 59),
+                LocalDateTime.of(2001, 2, 1, 0, 0)
+            };
+            try (PreparedStatement venta = conn.prepareStatement(
+                     "INSERT INTO ventas (id, fecha_hora, total, detalle) VALUES (?, ?, 5.00, 'Legado')");
+                 PreparedStatement item = conn.prepareStatement(
+                     "INSERT INTO venta_items (venta_id, linea, producto, precio, cantidad) VALUES (?, ?, 'Café', 2.50, 1)")) {
+                for (int i = 0; i < fechas.length; i++) {
+                    String id = prefijo + (i + 1);
+                    venta.setString(1, id);
+                    venta.setTimestamp(2, Timestamp.valueOf(fechas[i]));
+                    venta.executeUpdate();
+                    for (int linea = 1; linea <= 2; linea++) {
+                        item.setString(1, id);
+                        item.setInt(2, linea);
+                        item.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+    
+    private static long contarMigradas(String tabla, String columnaId, String prefijo) throws SQLException {
+        try (Connection conn = DatabaseManager.abrirConexion();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT COUNT(*) FROM " + tabla + " WHERE " + columnaId + " LIKE ?")) {
+            pstmt.setString(1, prefijo + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    private static boolean existeTablaSinParticionar() throws SQLException {
+        try (Connection conn = DatabaseManager.abrirConexion();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+                 WHERE LOWER(TABLE_SCHEMA) = 'public' AND LOWER(TABLE_NAME) IN ('ventas', 'venta_items')
+             """)) {
+            return rs.next() && rs.getLong(1) > 0;
+        }
+    }
+    
     @Test
     @DisplayName("Manejo de errores en métodos auxiliares")
     void testManejoErroresMetodosAuxiliares() {
@@ -0,0 +1,101 @@
+package com.cafeteriapos.utils;
+
+import com.cafeteriapos.models.Producto;
+import com.cafeteriapos.models.Venta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Tests para SalesGroupCommitter
+ * Verifica que un lote se escribe en un solo commit y que su error llega al que llama
+ */
+@DisplayName("Tests para SalesGroupCommitter")
+public class SalesGroupCommitterTest {
+
+    private static Venta venta(String id) {
+        return new Venta(id, LocalDateTime.of(2025, 5, 2, 9, 0), List.of(new Producto("Té", 1.5, 1)), 1.5);
+    }
+
+    private static List<Boolean> todas(List<Venta> lote, boolean valor) {
+        return new ArrayList<>(Collections.nCopies(lote.size(), valor));
+    }
+
+    @Test
+    @DisplayName("Las ventas de un lote viajan juntas en un solo commit")
+    void testLoteEnUnSoloCommit() throws Exception {
+        // Given
+        List<Integer> tamanos = Collections.synchronizedList(new ArrayList<>());
+        SalesGroupCommitter committer = new SalesGroupCommitter(lote -> {
+            tamanos.add(lote.size());
+            return todas(lote, true);
+        });
+        List<Venta> ventas = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            ventas.add(venta("V" + i));
+        }
+
+        // When
+        committer.escribir(List.of(venta("V0")));
+        List<Boolean> resultados = committer.escribir(ventas);
+
+        // Then
+        assertEquals(todas(ventas, true), resultados);
+        assertEquals(List.of(1, 10), tamanos);
+        assertEquals(2, committer.getLotesEscritos());
+        assertEquals(11, committer.getVentasEscritas());
+        assertEquals(5.5, committer.getTamanoMedioLote(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Un lote fallido se informa entero y sin reintentos")
+    void testLoteFallidoSePropaga() throws Exception {
+        // Given
+        List<Integer> tamanos = Collections.synchronizedList(new ArrayList<>());
+        SalesGroupCommitter committer = new SalesGroupCommitter(lote -> {
+            tamanos.add(lote.size());
+            if (lote.stream().anyMatch(v -> v.getId().equals("MALA"))) {
+                throw new IllegalStateException("Restricción violada");
+            }
+            // Ya escrita: el escritor informa false
+            List<Boolean> resultado = todas(lote, true);
+            for (int i = 0; i < lote.size(); i++) {
+                resultado.set(i, !lote.get(i).getId().equals("REPETIDA"));
+            }
+            return resultado;
+        });
+
+        // When
+        List<Boolean> repetidas = committer.escribir(List.of(venta("BUENA"), venta("REPETIDA")));
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> committer.escribir(List.of(venta("BUENA"), venta("MALA"), venta("REPETIDA"))));
+
+        // Then
+        assertEquals(List.of(true, false), repetidas);
+        assertEquals("Restricción violada", error.getMessage());
+        assertEquals(List.of(2, 3), tamanos);
+        assertEquals(1, committer.getLotesFallidos());
+        assertEquals(1, committer.getLotesEscritos());
+    }
+
+    @Test
+    @DisplayName("Tras detenerlo, las ventas nuevas se rechazan")
+    void testRechazaTrasShutdown() throws Exception {
+        // Given
+        SalesGroupCommitter committer = new SalesGroupCommitter(lote -> todas(lote, true));
+        assertEquals(List.of(true), committer.escribir(List.of(venta("A"))));
+
+        // When
+        committer.shutdown();
+
+        // Then
+        assertThrows(RejectedExecutionException.class, () -> committer.escribir(List.of(venta("B"))));
+        assertEquals(1, committer.getVentasEscritas());
+    }
+}
@@ -0,0 +1,258 @@
+package com.cafeteriapos.utils;
+
+import com.cafeteriapos.utils.SlowQueryLog.ConsultaLenta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests para SlowQueryLog
+ * Verifica la captura de SQL, parámetros y filas, el plan en la conexión lateral,
+ * el anillo acotado y la rotación del archivo
+ */
+@DisplayName("Tests para SlowQueryLog")
+public class SlowQueryLogTest {
+
+    private Path directorio;
+    private ExecutorService hiloPlanes;
+    private List<String> planesPedidos;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directorio = Files.createTempDirectory("consultas-lentas");
+        hiloPlanes = Executors.newSingleThreadExecutor();
+        planesPedidos = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    // === JDBC FALSO ===
+
+    /**
+     * Conexión falsa: executeQuery devuelve {@code filas} filas y executeUpdate devuelve 2
+     */
+    private static Connection conexionFalsa(int filas) {
+        return (Connection) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, metodo, args) -> switch (metodo.getName()) {
+                case "prepareStatement" -> sentenciaFalsa(PreparedStatement.class, filas, null);
+                case "createStatement" -> sentenciaFalsa(Statement.class, filas, null);
+                default -> null;
+            });
+    }
+
+    /**
+     * Conexión lateral falsa: anota el SQL del plan y devuelve una línea de plan
+     */
+    private Connection conexionPlanes() {
+        return (Connection) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, metodo, args) -> {
+                if (metodo.getName().equals("prepareStatement")) {
+                    planesPedidos.add((String) args[0]);
+                    return sentenciaFalsa(PreparedStatement.class, 1, "plan de " + args[0]);
+                }
+                return null;
+            });
+    }
+
+    private static Object sentenciaFalsa(Class<?> tipo, int filas, String texto) {
+        return Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(), new Class<?>[]{tipo},
+            (proxy, metodo, args) -> switch (metodo.getName()) {
+                case "executeQuery" -> resultadoFalso(filas, texto);
+                case "executeUpdate" -> 2;
+                case "executeBatch" -> new int[]{1, 1, 1};
+                case "execute" -> false;
+                default -> null;
+            });
+    }
+
+    private static ResultSet resultadoFalso(int filas, String texto) {
+        int[] restantes = {filas};
+        return (ResultSet) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+            new Class<?>[]{ResultSet.class}, (proxy, metodo, args) -> switch (metodo.getName()) {
+                case "next" -> restantes[0]-- > 0;
+                case "getString" -> texto;
+                default -> null;
+            });
+    }
+
+    private SlowQueryLog registro(Path archivo, long tamanoMaximo, int capacidad) {
+        SlowQueryLog log = new SlowQueryLog(this::conexionPlanes, hiloPlanes, archivo, tamanoMaximo, capacidad);
+        log.setUmbral(Duration.ZERO);
+        return log;
+    }
+
+    private void esperarPlanes() throws InterruptedException {
+        hiloPlanes.shutdown();
+        assertTrue(hiloPlanes.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    // === TESTS ===
+
+    @Test
+    @DisplayName("Una consulta lenta guarda SQL, parámetros, filas y el plan EXPLAIN ANALYZE")
+    void testCapturaConsultaLenta() throws Exception {
+        // Given
+        Path archivo = directorio.resolve("lentas.log");
+        SlowQueryLog log = registro(archivo, 1024 * 1024, 10);
+        Connection conexion = log.envolver(conexionFalsa(3));
+
+        // When
+        try (PreparedStatement pstmt = conexion.prepareStatement("SELECT * FROM productos WHERE nombre = ? AND stock > ?")) {
+            pstmt.setString(1, "Latte");
+            pstmt.setInt(2, 5);
+            pstmt.setFetchSize(100);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Consumir filas
+                }
+            }
+        }
+        esperarPlanes();
+
+        // Then
+        ConsultaLenta consulta = log.getRecientes().get(0);
+        assertEquals("SELECT * FROM productos WHERE nombre = ? AND stock > ?", consulta.getSql());
+        assertEquals("[1=Latte, 2=5]", consulta.getParametros());
+        assertEquals(3, consulta.getFilas());
+        assertEquals(List.of("EXPLAIN ANALYZE SELECT * FROM productos WHERE nombre = ? AND stock > ?"), planesPedidos);
+        assertTrue(consulta.getPlan().startsWith("plan de EXPLAIN ANALYZE"));
+        String contenido = Files.readString(archivo);
+        assertTrue(contenido.contains("3 filas"));
+        assertTrue(contenido.contains("parámetros: [1=Latte, 2=5]"));
+        assertTrue(contenido.contains("    plan de EXPLAIN ANALYZE"));
+    }
+
+    @Test
+    @DisplayName("Las escrituras usan EXPLAIN sin ANALYZE y los lotes suman sus filas")
+    void testEscriturasSinAnalyze() throws Exception {
+        // Given
+        SlowQueryLog log = registro(null, 1024, 10);
+        Connection conexion = log.envolver(conexionFalsa(0));
+
+        // When
+        try (PreparedStatement pstmt = conexion.prepareStatement("UPDATE productos SET stock = ? WHERE nombre = ?")) {
+            pstmt.setInt(1, 10);
+            pstmt.setString(2, "Latte");
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conexion.prepareStatement("INSERT INTO items VALUES (?)")) {
+            for (int i = 0; i < 3; i++) {
+                pstmt.setInt(1, i);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        try (Statement stmt = conexion.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+        esperarPlanes();
+
+        // Then
+        List<ConsultaLenta> recientes = log.getRecientes();
+        assertEquals(3, recientes.size());
+        assertEquals(2, recientes.get(0).getFilas());
+        assertEquals(3, recientes.get(1).getFilas());
+        assertEquals("[1=2, lote de 3]", recientes.get(1).getParametros());
+        assertEquals("(sin plan para SET)", recientes.get(2).getPlan());
+        assertEquals(List.of("EXPLAIN UPDATE productos SET stock = ? WHERE nombre = ?",
+            "EXPLAIN INSERT INTO items VALUES (?)"), planesPedidos);
+    }
+
+    @Test
+    @DisplayName("Debajo del umbral no se registra nada")
+    void testDebajoDelUmbral() throws Exception {
+        // Given
+        SlowQueryLog log = registro(null, 1024, 10);
+        log.setUmbral(Duration.ofHours(1));
+        Connection conexion = log.envolver(conexionFalsa(5));
+
+        // When
+        try (PreparedStatement pstmt = conexion.prepareStatement("SELECT 1");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                // Consumir filas
+            }
+        }
+        esperarPlanes();
+
+        // Then
+        assertTrue(log.getRecientes().isEmpty());
+        assertEquals(0, log.getTotalConsultasLentas());
+        assertTrue(planesPedidos.isEmpty());
+    }
+
+    @Test
+    @DisplayName("El anillo conserva las más recientes y el archivo rota por tamaño")
+    void testAnilloYRotacion() throws Exception {
+        // Given
+        Path archivo = directorio.resolve("lentas.log");
+        SlowQueryLog log = registro(archivo, 300, 2);
+        Connection conexion = log.envolver(conexionFalsa(0));
+
+        // When
+        for (int i = 1; i <= 5; i++) {
+            try (PreparedStatement pstmt = conexion.prepareStatement("DELETE FROM ventas WHERE id = ?")) {
+                pstmt.setString(1, "venta-" + i);
+                pstmt.executeUpdate();
+            }
+        }
+        esperarPlanes();
+
+        // Then
+        List<ConsultaLenta> recientes = log.getRecientes();
+        assertEquals(2, recientes.size());
+        assertEquals("[1=venta-4]", recientes.get(0).getParametros());
+        assertEquals("[1=venta-5]", recientes.get(1).getParametros());
+        assertEquals(5, log.getTotalConsultasLentas());
+        assertTrue(Files.readString(archivo).contains("venta-5"));
+        assertTrue(Files.exists(directorio.resolve("lentas.log.1")));
+        assertTrue(Files.size(archivo) <= 300);
+    }
+
+    @Test
+    @DisplayName("Una SQLException de la conexión envuelta cuenta como fallo del hilo aunque se capture")
+    void testFallosDelHilo() throws Exception {
+        // Given: la sentencia falla al ejecutar
+        SlowQueryLog log = registro(directorio.resolve("lentas.log"), 1024 * 1024, 10);
+        Connection falla = (Connection) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, metodo, args) -> Proxy.newProxyInstance(
+                SlowQueryLogTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (p, m, a) -> {
+                    if (m.getName().equals("executeUpdate")) {
+                        throw new SQLException("tabla bloqueada");
+                    }
+                    return null;
+                }));
+        Connection conexion = log.envolver(falla);
+        long previos = SlowQueryLog.fallosDelHilo();
+
+        // When
+        try (PreparedStatement pstmt = conexion.prepareStatement("UPDATE productos SET stock = 0")) {
+            pstmt.executeUpdate();
+            fail("Debía propagar la SQLException");
+        } catch (SQLException e) {
+            assertEquals("tabla bloqueada", e.getMessage());
+        }
+        long enOtroHilo = CompletableFuture.supplyAsync(SlowQueryLog::fallosDelHilo).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(previos + 1, SlowQueryLog.fallosDelHilo());
+        assertEquals(0, enOtroHilo);
+    }
+}
@@ -0,0 +1,102 @@
+package com.cafeteriapos.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Tests para VentasPartitionRouter
+ * Verifica los nombres de tabla por mes y que cada rango solo toca las particiones que lo cubren
+ */
+@DisplayName("Tests para VentasPartitionRouter")
+public class VentasPartitionRouterTest {
+
+    private VentasPartitionRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new VentasPartitionRouter();
+        router.cargar(List.of(YearMonth.of(2024, 11), YearMonth.of(2024, 12),
+            YearMonth.of(2025, 1), YearMonth.of(2025, 3)));
+    }
+
+    @Test
+    @DisplayName("Nombres de tabla por mes y reemplazo de marcadores")
+    void testNombresDeTabla() {
+        // Given
+        YearMonth mes = YearMonth.of(2025, 3);
+
+        // When
+        String sql = VentasPartitionRouter.sql("SELECT * FROM {ventas} v JOIN {items} i ON i.venta_id = v.id", mes);
+
+        // Then
+        assertEquals("ventas_202503", VentasPartitionRouter.tablaVentas(mes));
+        assertEquals("venta_items_202503", VentasPartitionRouter.tablaItems(mes));
+        assertEquals("SELECT * FROM ventas_202503 v JOIN venta_items_202503 i ON i.venta_id = v.id", sql);
+    }
+
+    @Test
+    @DisplayName("Un rango dentro de un mes toca solo esa partición")
+    void testRangoDentroDeUnMes() {
+        // When
+        List<YearMonth> meses = router.particionesEnRango(
+            LocalDateTime.of(2024, 12, 5, 0, 0), LocalDateTime.of(2024, 12, 6, 0, 0));
+
+        // Then
+        assertEquals(List.of(YearMonth.of(2024, 12)), meses);
+    }
+
+    @Test
+    @DisplayName("Un rango que cruza meses toca las particiones existentes en orden")
+    void testRangoQueCruzaMeses() {
+        // When
+        List<YearMonth> meses = router.particionesEnRango(
+            LocalDateTime.of(2024, 12, 20, 0, 0), LocalDateTime.of(2025, 3, 2, 0, 0));
+
+        // Then (febrero no tiene partición)
+        assertEquals(List.of(YearMonth.of(2024, 12), YearMonth.of(2025, 1), YearMonth.of(2025, 3)), meses);
+    }
+
+    @Test
+    @DisplayName("El fin exclusivo al inicio de un mes no toca ese mes")
+    void testFinExclusivo() {
+        // When
+        List<YearMonth> meses = router.particionesEnRango(
+            LocalDateTime.of(2024, 11, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0));
+
+        // Then
+        assertEquals(List.of(YearMonth.of(2024, 11), YearMonth.of(2024, 12)), meses);
+    }
+
+    @Test
+    @DisplayName("Rango abierto hacia el futuro y rango vacío")
+    void testRangoAbiertoYVacio() {
+        // When
+        List<YearMonth> abierto = router.particionesEnRango(LocalDateTime.of(2025, 1, 15, 0, 0), null);
+        List<YearMonth> vacio = router.particionesEnRango(
+            LocalDateTime.of(2025, 1, 15, 0, 0), LocalDateTime.of(2025, 1, 15, 0, 0));
+
+        // Then
+        assertEquals(List.of(YearMonth.of(2025, 1), YearMonth.of(2025, 3)), abierto);
+        assertTrue(vacio.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quitar una partición la excluye de las consultas")
+    void testQuitarParticion() {
+        // When
+        router.quitar(YearMonth.of(2024, 12));
+
+        // Then
+        assertFalse(router.esActiva(YearMonth.of(2024, 12)));
+        assertEquals(List.of(YearMonth.of(2025, 3), YearMonth.of(2025, 1), YearMonth.of(2024, 11)),
+            router.getParticionesDescendente());
+        assertEquals(List.of(YearMonth.of(2024, 11)), router.particionesEnRango(
+            LocalDateTime.of(2024, 11, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0)));
+    }
+}